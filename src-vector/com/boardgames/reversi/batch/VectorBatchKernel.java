@@ -0,0 +1,215 @@
+package com.boardgames.reversi.batch;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 以 Vector API 實作的 BatchKernel：每個 long 通道放一個局面，一次處理 LONGS.length() 個局面
+ * （AVX-512 為 8 個、AVX2 為 4 個）。批次末端不足一整個向量的局面改用純量版本。
+ *
+ * 評估時每個通道各自算出樣式索引，再以 gather 從權重陣列取值；浮點加總的順序與 ReversiEvaluator.evaluate 相同，
+ * 因此結果逐位元一致。
+ *
+ * 需要以 --add-modules jdk.incubator.vector 編譯與執行，由 BatchKernels 以反射載入。
+ */
+final class VectorBatchKernel implements BatchKernel {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    // 與 LONGS 通道數相同的 int / float 向量（位元數減半）
+    private static final VectorShape HALF = VectorShape.forBitSize(LONGS.vectorBitSize() / 2);
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, HALF);
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, HALF);
+    private static final int LANES = LONGS.length();
+
+    private static final long INNER_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+    // 四條軸（水平、垂直、兩條斜線）的位移量與對手棋子的遮罩
+    private static final int[] AXIS_SHIFTS = {1, 8, 9, 7};
+    private static final long[] AXIS_MASKS = {INNER_COLUMNS, -1L, INNER_COLUMNS, INNER_COLUMNS};
+    private static final long NOT_COL_0 = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_COL_7 = 0x7F7F7F7F7F7F7F7FL;
+
+    private final ReversiEvaluator evaluator;
+    private final float[] weights;
+    private final int[][] patternSquares;
+    private final int[] patternOffsets;
+    private final int[] indexScratch = new int[LANES];
+    private final float[] sumScratch = new float[LANES];
+
+    VectorBatchKernel(ReversiEvaluator evaluator) {
+        this.evaluator = evaluator;
+        this.weights = evaluator.getWeights();
+        int instances = ReversiEvaluator.patternInstanceCount();
+        this.patternSquares = new int[instances][];
+        this.patternOffsets = new int[instances];
+        for (int i = 0; i < instances; i++) {
+            patternSquares[i] = ReversiEvaluator.patternSquares(i);
+            patternOffsets[i] = ReversiEvaluator.patternOffset(i);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + LONGS.vectorBitSize() + "-bit (" + LANES + " 個局面/向量)";
+    }
+
+    @Override
+    public void legalMoves(PositionBatch batch, long[] moves) {
+        long[] players = batch.players();
+        long[] opponents = batch.opponents();
+        int n = batch.size();
+        int i = 0;
+        for (int bound = LONGS.loopBound(n); i < bound; i += LANES) {
+            LongVector p = LongVector.fromArray(LONGS, players, i);
+            LongVector o = LongVector.fromArray(LONGS, opponents, i);
+            legalMoves(p, o).intoArray(moves, i);
+        }
+        for (; i < n; i++) {
+            moves[i] = Bitboard.legalMoves(players[i], opponents[i]);
+        }
+    }
+
+    @Override
+    public void flips(PositionBatch batch, int[] squares, long[] flips) {
+        long[] players = batch.players();
+        long[] opponents = batch.opponents();
+        int n = batch.size();
+        int i = 0;
+        for (int bound = LONGS.loopBound(n); i < bound; i += LANES) {
+            LongVector p = LongVector.fromArray(LONGS, players, i);
+            LongVector o = LongVector.fromArray(LONGS, opponents, i);
+            LongVector move = LongVector.broadcast(LONGS, 1L).lanewise(VectorOperators.LSHL,
+                    IntVector.fromArray(INTS, squares, i).convertShape(VectorOperators.I2L, LONGS, 0));
+            LongVector flipped = LongVector.zero(LONGS);
+            for (int axis = 0; axis < 4; axis++) {
+                // 從落子點沿兩個方向連續的對手棋子，後面接著己方棋子時整段翻轉
+                int amount = AXIS_SHIFTS[axis];
+                LongVector m = o.and(AXIS_MASKS[axis]);
+                LongVector left = move.lanewise(VectorOperators.LSHL, amount).and(m);
+                LongVector right = move.lanewise(VectorOperators.LSHR, amount).and(m);
+                for (int step = 0; step < 5; step++) {
+                    left = left.or(left.lanewise(VectorOperators.LSHL, amount).and(m));
+                    right = right.or(right.lanewise(VectorOperators.LSHR, amount).and(m));
+                }
+                VectorMask<Long> leftBounded = left.lanewise(VectorOperators.LSHL, amount).and(p).compare(VectorOperators.NE, 0);
+                VectorMask<Long> rightBounded = right.lanewise(VectorOperators.LSHR, amount).and(p).compare(VectorOperators.NE, 0);
+                flipped = flipped.lanewise(VectorOperators.OR, left, leftBounded)
+                        .lanewise(VectorOperators.OR, right, rightBounded);
+            }
+            flipped.intoArray(flips, i);
+        }
+        for (; i < n; i++) {
+            flips[i] = Bitboard.flips(players[i], opponents[i], squares[i]);
+        }
+    }
+
+    @Override
+    public void evaluate(PositionBatch batch, int[] scores) {
+        long[] players = batch.players();
+        long[] opponents = batch.opponents();
+        int n = batch.size();
+        int i = 0;
+        for (int bound = LONGS.loopBound(n); i < bound; i += LANES) {
+            LongVector p = LongVector.fromArray(LONGS, players, i);
+            LongVector o = LongVector.fromArray(LONGS, opponents, i);
+            LongVector empty = p.or(o).not();
+
+            // stage = min(STAGES - 1, max(0, (discs - 4) / 10))；x * 205 >> 11 在 0..63 內等於 x / 10
+            LongVector stage = bitCount(p.or(o)).sub(4).max(0).mul(205).lanewise(VectorOperators.ASHR, 11)
+                    .min(ReversiEvaluator.STAGES - 1);
+            LongVector base = stage.mul(ReversiEvaluator.FEATURES_PER_STAGE);
+            LongVector scalarBase = base.add(ReversiEvaluator.SCALAR_OFFSET);
+
+            FloatVector sum = gather(scalarBase.add(ReversiEvaluator.SCALAR_BIAS));
+            for (int k = 0; k < patternSquares.length; k++) {
+                int[] squaresOfPattern = patternSquares[k];
+                LongVector index = base.add(patternOffsets[k]);
+                int pow = 1;
+                for (int sq : squaresOfPattern) {
+                    LongVector own = p.lanewise(VectorOperators.LSHR, sq).and(1L);
+                    LongVector their = o.lanewise(VectorOperators.LSHR, sq).and(1L);
+                    index = index.add(own.add(their.mul(2)).mul(pow));
+                    pow *= 3;
+                }
+                sum = sum.add(gather(index));
+            }
+            LongVector mobility = bitCount(legalMoves(p, o)).sub(bitCount(legalMoves(o, p)));
+            LongVector potential = bitCount(neighbours(o).and(empty)).sub(bitCount(neighbours(p).and(empty)));
+            LongVector parity = bitCount(empty).and(1L).mul(2).sub(1);
+            sum = sum.add(gather(scalarBase.add(ReversiEvaluator.SCALAR_MOBILITY)).mul(toFloat(mobility)));
+            sum = sum.add(gather(scalarBase.add(ReversiEvaluator.SCALAR_POTENTIAL_MOBILITY)).mul(toFloat(potential)));
+            sum = sum.add(gather(scalarBase.add(ReversiEvaluator.SCALAR_PARITY)).mul(toFloat(parity)));
+            // Math.round 沒有向量版本，最後一步逐一計算
+            sum.mul(ReversiEvaluator.SCALE).intoArray(sumScratch, 0);
+            for (int k = 0; k < LANES; k++) {
+                scores[i + k] = Math.round(sumScratch[k]);
+            }
+        }
+        for (; i < n; i++) {
+            scores[i] = evaluator.evaluate(players[i], opponents[i]);
+        }
+    }
+
+    private FloatVector gather(LongVector index) {
+        ((IntVector) index.convertShape(VectorOperators.L2I, INTS, 0)).intoArray(indexScratch, 0);
+        return FloatVector.fromArray(FLOATS, weights, 0, indexScratch, 0);
+    }
+
+    private static FloatVector toFloat(LongVector values) {
+        return (FloatVector) values.convertShape(VectorOperators.L2F, FLOATS, 0);
+    }
+
+    // 四條軸各有左移、右移兩個方向。水平與斜向改用去掉第 0、7 欄的對手棋子：連續的對手棋子不可能跨過邊欄，
+    // 位移後就不需要再遮罩。運算子固定、只有位移量是變數，JIT 才能把迴圈編譯成向量指令而不是呼叫
+    private static LongVector legalMoves(LongVector p, LongVector o) {
+        LongVector moves = LongVector.zero(LONGS);
+        for (int axis = 0; axis < 4; axis++) {
+            int amount = AXIS_SHIFTS[axis];
+            LongVector m = o.and(AXIS_MASKS[axis]);
+            LongVector left = p.lanewise(VectorOperators.LSHL, amount).and(m);
+            LongVector right = p.lanewise(VectorOperators.LSHR, amount).and(m);
+            for (int step = 0; step < 5; step++) {
+                left = left.or(left.lanewise(VectorOperators.LSHL, amount).and(m));
+                right = right.or(right.lanewise(VectorOperators.LSHR, amount).and(m));
+            }
+            moves = moves.or(left.lanewise(VectorOperators.LSHL, amount)).or(right.lanewise(VectorOperators.LSHR, amount));
+        }
+        return moves.and(p.or(o).not());
+    }
+
+    private static LongVector neighbours(LongVector bits) {
+        LongVector result = shift(bits, 0);
+        for (int d = 1; d < 8; d++) {
+            result = result.or(shift(bits, d));
+        }
+        return result;
+    }
+
+    // 與 Bitboard.shift 相同的八個方向
+    private static LongVector shift(LongVector bits, int direction) {
+        switch (direction) {
+            case 0: return bits.lanewise(VectorOperators.LSHL, 1).and(NOT_COL_0);
+            case 1: return bits.lanewise(VectorOperators.LSHR, 1).and(NOT_COL_7);
+            case 2: return bits.lanewise(VectorOperators.LSHL, 8);
+            case 3: return bits.lanewise(VectorOperators.LSHR, 8);
+            case 4: return bits.lanewise(VectorOperators.LSHL, 9).and(NOT_COL_0);
+            case 5: return bits.lanewise(VectorOperators.LSHR, 9).and(NOT_COL_7);
+            case 6: return bits.lanewise(VectorOperators.LSHL, 7).and(NOT_COL_7);
+            default: return bits.lanewise(VectorOperators.LSHR, 7).and(NOT_COL_0);
+        }
+    }
+
+    // JDK 17 的 Vector API 沒有 BIT_COUNT，以 SWAR 計算每個通道的位元數
+    private static LongVector bitCount(LongVector x) {
+        x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+        x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+        return x.mul(0x0101010101010101L).lanewise(VectorOperators.LSHR, 56);
+    }
+}
@@ -5,6 +5,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import javax.swing.*;
 import com.boardgames.reversi.ReversiGUI;
+import com.boardgames.tictactoe.QubicGUI;
 import com.boardgames.tictactoe.TicTacToeGUI;
 
 /**
@@ -83,6 +84,14 @@ public class GameSelectionGUI extends JFrame {
         });
         panel.add(reversiButton, gbc);
 
+        // 建立並設定「立體井字棋」按鈕
+        JButton qubicButton = createStyledModeButton("立體井字棋 (4x4x4)");
+        qubicButton.addActionListener(e -> {
+            this.dispose(); // 關閉目前視窗
+            new QubicGUI().setVisible(true); // 開啟立體井字棋視窗
+        });
+        panel.add(qubicButton, gbc);
+
         return panel;
     }
 
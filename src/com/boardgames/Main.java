@@ -1,6 +1,20 @@
 package com.boardgames;
 
+import com.boardgames.common.EdtWatchdog;
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.MemoryBudget;
+import com.boardgames.common.StartupTimer;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.reversi.ReversiGUI;
+import com.boardgames.reversi.ReversiWarmup;
+import com.boardgames.tictactoe.QubicGUI;
+import com.boardgames.tictactoe.TicTacToeGUI;
+
+import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 /**
  * 應用程式的進入點。
@@ -8,11 +22,60 @@ import javax.swing.SwingUtilities;
  */
 public class Main {
     public static void main(String[] args) {
+        // 加上 -Dboardgames.startupTiming=true 時，印出啟動到第一個視窗、到電腦第一次落子的時間
+        StartupTimer.markMainStarted();
+        // 加上 -Dboardgames.jmx=true 時，將引擎統計數據與記憶體預算公開到 JMX（可用 JConsole 連線觀察與調整）
+        if (Boolean.getBoolean("boardgames.jmx")) {
+            EngineMetrics.registerMBean();
+            MemoryBudget.registerMBean();
+        }
+        // 加上 -Dboardgames.edtWatchdog=true 時，監控 EDT 的事件處理延遲並在結束時輸出直方圖
+        EdtWatchdog.installIfEnabled();
+        // 加上 -Dboardgames.journal.dir=目錄 時，每一步寫入對局日誌，上次未結束的對局在這裡復原
+        GameJournal journal = GameJournal.shared();
+
         // 使用 SwingUtilities.invokeLater 確保 GUI 的創建和更新在事件分發執行緒 (EDT) 中執行
         // 這是 Swing 程式的標準做法，以避免執行緒安全問題
         SwingUtilities.invokeLater(() -> {
-            GameSelectionGUI gameSelection = new GameSelectionGUI();
-            gameSelection.setVisible(true);
+            int resumed = 0;
+            if (journal != null) {
+                for (RecoveredGame recovered : journal.getRecovered()) {
+                    try {
+                        showFirst(resume(recovered));
+                        resumed++;
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("無法復原對局 " + recovered + "，放棄這一局: " + e.getMessage());
+                        // 寫入結束紀錄，否則每次開啟日誌都會把它複製過去，每次啟動都印出同樣的錯誤
+                        recovered.resume().finish();
+                    }
+                }
+            }
+            if (resumed == 0) {
+                showFirst(new GameSelectionGUI());
+            }
         });
     }
+
+    // 視窗真正畫出來之後才開始背景預熱，不和第一個畫面搶 CPU；遊戲視窗本身等使用者選擇後才建立
+    private static void showFirst(JFrame frame) {
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupTimer.markFirstFrame();
+                ReversiWarmup.start();
+            }
+        });
+        frame.setVisible(true);
+    }
+
+    private static JFrame resume(RecoveredGame recovered) {
+        switch (recovered.getGame()) {
+            case REVERSI:
+                return new ReversiGUI(recovered);
+            case TICTACTOE:
+                return new TicTacToeGUI(recovered);
+            default:
+                return new QubicGUI(recovered);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,262 @@
+package com.boardgames.common;
+
+/**
+ * 正方形棋盤的 8 種對稱（4 種旋轉 × 是否鏡射）與局面正規化。
+ * 黑白棋與井字棋共用：8x8 棋盤以 long 位元遮罩（第 row * 8 + col 位元）、3x3 棋盤以 9 位元的 int 遮罩、
+ * 任意 N x N 的 char[][]（即 getBoard() 的回傳值）都能做變換、求正規形式與其對稱編號，
+ * 並把正規形式下的落子位置轉換回原本的方向。
+ *
+ * 對稱編號 0..7 的位元意義：位元 2 為沿主對角線轉置、位元 0 為左右鏡射、位元 1 為上下翻轉，依此順序套用；0 為恆等。
+ * 位元遮罩版本全部以位元運算或查表完成且不配置物件，可以在每次置換表或開局庫查詢時呼叫。
+ */
+public final class BoardSymmetry {
+
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    private static final int[] INVERSE = new int[COUNT];
+    // 3x3 遮罩的變換查表：TABLE_3X3[symmetry][bits]
+    private static final short[][] TABLE_3X3 = new short[COUNT][512];
+
+    static {
+        for (int s = 0; s < COUNT; s++) {
+            for (int t = 0; t < COUNT; t++) {
+                boolean identity = true;
+                for (int sq = 0; sq < 64 && identity; sq++) {
+                    identity = mapSquare(mapSquare(sq, 8, s), 8, t) == sq;
+                }
+                if (identity) {
+                    INVERSE[s] = t;
+                }
+            }
+            for (int bits = 0; bits < 512; bits++) {
+                int mapped = 0;
+                for (int sq = 0; sq < 9; sq++) {
+                    if ((bits & (1 << sq)) != 0) {
+                        mapped |= 1 << mapSquare(sq, 3, s);
+                    }
+                }
+                TABLE_3X3[s][bits] = (short) mapped;
+            }
+        }
+    }
+
+    private BoardSymmetry() {
+    }
+
+    // --- 座標 ---
+
+    /**
+     * 變換後的列座標。
+     */
+    public static int mapRow(int row, int col, int size, int symmetry) {
+        if ((symmetry & 4) != 0) {
+            int t = row;
+            row = col;
+            col = t;
+        }
+        return (symmetry & 2) != 0 ? size - 1 - row : row;
+    }
+
+    /**
+     * 變換後的欄座標。
+     */
+    public static int mapCol(int row, int col, int size, int symmetry) {
+        if ((symmetry & 4) != 0) {
+            col = row;
+        }
+        return (symmetry & 1) != 0 ? size - 1 - col : col;
+    }
+
+    /**
+     * 變換格子編號 (row * size + col)，負數（例如 pass）原樣回傳。
+     */
+    public static int mapSquare(int square, int size, int symmetry) {
+        if (square < 0) {
+            return square;
+        }
+        int row = square / size;
+        int col = square % size;
+        return mapRow(row, col, size, symmetry) * size + mapCol(row, col, size, symmetry);
+    }
+
+    /**
+     * 反向對稱：先套用 symmetry 再套用 inverse(symmetry) 會回到原狀。
+     * 在正規形式下找到的落子，以 mapSquare(move, size, inverse(symmetry)) 轉回原本的方向。
+     */
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    // --- 8x8 位元遮罩 ---
+
+    /**
+     * 上下翻轉。每一列剛好是一個位元組，因此只要反轉位元組順序。
+     */
+    public static long flipVertical(long bits) {
+        return Long.reverseBytes(bits);
+    }
+
+    /**
+     * 左右鏡射，也就是反轉每個位元組內的位元順序。
+     */
+    public static long mirrorHorizontal(long bits) {
+        bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+        bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+        bits = ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return bits;
+    }
+
+    /**
+     * 沿主對角線轉置（(r, c) 與 (c, r) 互換），以三次 delta swap 完成。
+     */
+    public static long flipDiagonal(long bits) {
+        long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+        bits ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (bits ^ (bits << 7));
+        bits ^= t ^ (t >>> 7);
+        return bits;
+    }
+
+    public static long transform(long bits, int symmetry) {
+        if ((symmetry & 4) != 0) {
+            bits = flipDiagonal(bits);
+        }
+        if ((symmetry & 1) != 0) {
+            bits = mirrorHorizontal(bits);
+        }
+        if ((symmetry & 2) != 0) {
+            bits = flipVertical(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * 找出讓 (player, opponent) 以無號整數字典序最小的對稱編號；
+     * 以 transform(player, s)、transform(opponent, s) 取得正規形式。
+     * 8 個像只需要每邊一次轉置、兩次鏡射與四次位元組反轉就能全部得到，不必逐一呼叫 transform。
+     */
+    public static int canonicalSymmetry(long player, long opponent) {
+        long bestPlayer = player;
+        long bestOpponent = opponent;
+        int best = IDENTITY;
+        for (int t = 0; t < COUNT; t += 4) {
+            long p = t == 0 ? player : flipDiagonal(player);
+            long o = t == 0 ? opponent : flipDiagonal(opponent);
+            long pm = mirrorHorizontal(p);
+            long om = mirrorHorizontal(o);
+            for (int s = t; s < t + 4; s++) {
+                long cp = (s & 1) != 0 ? pm : p;
+                long co = (s & 1) != 0 ? om : o;
+                if ((s & 2) != 0) {
+                    cp = Long.reverseBytes(cp);
+                    co = Long.reverseBytes(co);
+                }
+                int cmp = Long.compareUnsigned(cp, bestPlayer);
+                if (cmp < 0 || (cmp == 0 && Long.compareUnsigned(co, bestOpponent) < 0)) {
+                    bestPlayer = cp;
+                    bestOpponent = co;
+                    best = s;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 對稱正規化後的 64 位元雜湊：互為旋轉或鏡射的局面會得到相同的值。
+     */
+    public static long canonicalHash(long player, long opponent) {
+        int s = canonicalSymmetry(player, opponent);
+        return mix(transform(player, s), transform(opponent, s));
+    }
+
+    // --- 3x3 位元遮罩（第 row * 3 + col 位元） ---
+
+    public static int transform3x3(int bits, int symmetry) {
+        return TABLE_3X3[symmetry][bits];
+    }
+
+    /**
+     * 3x3 版本的 canonicalSymmetry：以 (first, second) 的字典序取最小者。
+     */
+    public static int canonicalSymmetry3x3(int first, int second) {
+        int best = IDENTITY;
+        int bestKey = (first << 9) | second;
+        for (int s = 1; s < COUNT; s++) {
+            int key = (TABLE_3X3[s][first] << 9) | TABLE_3X3[s][second];
+            if (key < bestKey) {
+                bestKey = key;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 3x3 局面的正規化鍵值（18 位元，可直接當作陣列索引或雜湊鍵）。
+     */
+    public static int canonicalKey3x3(int first, int second) {
+        int s = canonicalSymmetry3x3(first, second);
+        return (TABLE_3X3[s][first] << 9) | TABLE_3X3[s][second];
+    }
+
+    // --- 任意 N x N 的 char[][] ---
+
+    /**
+     * 回傳變換後的新棋盤（不修改原陣列）。
+     */
+    public static char[][] transform(char[][] board, int symmetry) {
+        int size = board.length;
+        char[][] result = new char[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                result[mapRow(r, c, size, symmetry)][mapCol(r, c, size, symmetry)] = board[r][c];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 找出讓棋盤依列優先順序字典序最小的對稱編號；比較過程直接透過座標對應讀取原陣列，不建立副本。
+     */
+    public static int canonicalSymmetry(char[][] board) {
+        int size = board.length;
+        int best = IDENTITY;
+        for (int s = 1; s < COUNT; s++) {
+            if (compare(board, s, best, size) < 0) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    public static char[][] canonicalForm(char[][] board) {
+        return transform(board, canonicalSymmetry(board));
+    }
+
+    // 比較兩種對稱下的棋盤：變換後 (r, c) 的值等於原棋盤在 inverse 對應座標上的值
+    private static int compare(char[][] board, int a, int b, int size) {
+        int inverseA = INVERSE[a];
+        int inverseB = INVERSE[b];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                char x = board[mapRow(r, c, size, inverseA)][mapCol(r, c, size, inverseA)];
+                char y = board[mapRow(r, c, size, inverseB)][mapCol(r, c, size, inverseB)];
+                if (x != y) {
+                    return x < y ? -1 : 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static long mix(long a, long b) {
+        long h = a * 0x9E3779B97F4A7C15L + Long.rotateLeft(b * 0xC2B2AE3D27D4EB4FL, 27);
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+}
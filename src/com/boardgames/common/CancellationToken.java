@@ -0,0 +1,74 @@
+package com.boardgames.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 引擎工作的取消訊號。工作本身定期查詢 isCancelled()（或用 onCancel 註冊回呼）後自行結束。
+ * 取消有兩種來源：提交者呼叫 EngineTask.cancel()，或排程器為了讓高優先權工作先執行而搶占 (preempt) 低優先權工作。
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+    private volatile boolean preempted;
+    private List<Runnable> callbacks = new ArrayList<>(); // 取消後設為 null
+
+    /**
+     * 要求取消。重複呼叫沒有作用。
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = callbacks;
+            callbacks = null;
+        }
+        for (Runnable callback : toRun) {
+            callback.run();
+        }
+    }
+
+    // 由排程器呼叫：被搶占的工作稍後會以新的 token 重新執行
+    void preempt() {
+        preempted = true;
+        cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 是否是被排程器搶占而取消（而不是被提交者取消）。
+     */
+    public boolean isPreempted() {
+        return preempted;
+    }
+
+    /**
+     * 註冊取消時要執行的回呼（在呼叫 cancel 的執行緒上執行，可能持有排程器的鎖，應該很快且不可再呼叫排程器）；
+     * 已經取消時立即執行。
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * @throws CancellationException 已經取消
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.boardgames.common;
+
+/**
+ * 執行緒安全的 long 集合，專為大量雜湊值去重設計。
+ * 以雜湊值的高位元分成多個區段，每個區段是一張獨立加鎖的開放定址表，
+ * 多條執行緒同時寫入時很少互相等待，而且每個元素只佔 8 bytes（不會產生 Long 物件）。
+ */
+public class ConcurrentLongSet {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public ConcurrentLongSet() {
+        this(1 << 16);
+    }
+
+    /**
+     * @param expectedSize 預期元素數量，用來決定初始容量
+     */
+    public ConcurrentLongSet(long expectedSize) {
+        int perSegment = (int) Math.min(1 << 28, Math.max(16, expectedSize / SEGMENTS * 2));
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Integer.highestOneBit(perSegment - 1) << 1);
+        }
+    }
+
+    /**
+     * 加入一個值。
+     *
+     * @return 值原本不存在時回傳 true
+     */
+    public boolean add(long value) {
+        long h = mix(value);
+        return segments[(int) (h >>> (64 - SEGMENT_BITS))].add(value, h);
+    }
+
+    public boolean contains(long value) {
+        long h = mix(value);
+        return segments[(int) (h >>> (64 - SEGMENT_BITS))].contains(value, h);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    private static long mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static final class Segment {
+        // 以 0 作為空位標記，值 0 另外記錄
+        private long[] table;
+        private int size;
+        private boolean containsZero;
+
+        Segment(int capacity) {
+            table = new long[capacity];
+        }
+
+        synchronized boolean add(long value, long hash) {
+            if (value == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                if (added) {
+                    size++;
+                }
+                return added;
+            }
+            if ((size + 1) * 4L > table.length * 3L) {
+                resize();
+            }
+            int mask = table.length - 1;
+            int i = (int) hash & mask;
+            while (table[i] != 0) {
+                if (table[i] == value) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = value;
+            size++;
+            return true;
+        }
+
+        synchronized boolean contains(long value, long hash) {
+            if (value == 0) {
+                return containsZero;
+            }
+            int mask = table.length - 1;
+            int i = (int) hash & mask;
+            while (table[i] != 0) {
+                if (table[i] == value) {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        private void resize() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long value : old) {
+                if (value != 0) {
+                    int i = (int) mix(value) & mask;
+                    while (table[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = value;
+                }
+            }
+        }
+    }
+}
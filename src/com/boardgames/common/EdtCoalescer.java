@@ -0,0 +1,48 @@
+package com.boardgames.common;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 把背景執行緒的高頻更新合併後交給事件分發執行緒 (EDT)。
+ * post() 只保留最新的值，且任何時刻最多只有一個處理事件在 EDT 佇列中排隊；
+ * 背景執行緒送得再快，EDT 也只會以自己跟得上的速度處理最新的那一筆，中間的值直接被覆蓋。
+ */
+public class EdtCoalescer<T> {
+
+    private final AtomicReference<T> pending = new AtomicReference<>();
+    private final Consumer<T> consumer;
+    private final Runnable drain = this::drain;
+
+    /**
+     * @param consumer 在 EDT 上處理最新值
+     */
+    public EdtCoalescer(Consumer<T> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * 送出新值（可從任何執行緒呼叫）。value 不可為 null。
+     */
+    public void post(T value) {
+        if (pending.getAndSet(value) == null) {
+            // 原本沒有待處理的值，代表佇列中沒有 drain 事件，需要排一個
+            SwingUtilities.invokeLater(drain);
+        }
+    }
+
+    /**
+     * 丟棄尚未處理的值。
+     */
+    public void clear() {
+        pending.set(null);
+    }
+
+    private void drain() {
+        T value = pending.getAndSet(null);
+        if (value != null) {
+            consumer.accept(value);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.boardgames.common;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事件分發執行緒 (EDT) 的延遲監控器（選用）。
+ * 安裝後會以自訂的 EventQueue 包住每一個事件處理，量測處理耗時；
+ * 另有一條背景執行緒定期投遞探測事件量測排隊延遲，並在某個事件處理超過門檻時擷取 EDT 的堆疊，
+ * 程式結束時輸出兩份直方圖，作為維持介面流暢度的依據。
+ *
+ * 以 -Dboardgames.edtWatchdog=true 開啟，門檻可用 -Dboardgames.edtWatchdog.thresholdMs 調整（預設 100ms）。
+ */
+public class EdtWatchdog {
+
+    private static EdtWatchdog installed;
+
+    private final long thresholdNanos;
+    private final LatencyHistogram handlerTimes = new LatencyHistogram();
+    private final LatencyHistogram queueDelays = new LatencyHistogram();
+    private final LongAdder stalls = new LongAdder();
+
+    // 目前正在處理的事件；由 EDT 寫入、監控執行緒讀取
+    private volatile Thread dispatchThread;
+    private volatile long dispatchStartNanos; // 0 表示 EDT 閒置
+    private volatile long dispatchSequence;
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+    }
+
+    /**
+     * 依系統屬性決定是否安裝監控器。
+     */
+    public static void installIfEnabled() {
+        if (Boolean.getBoolean("boardgames.edtWatchdog")) {
+            install(Long.getLong("boardgames.edtWatchdog.thresholdMs", 100));
+        }
+    }
+
+    /**
+     * 安裝監控器。重複呼叫只會安裝一次。
+     *
+     * @param thresholdMillis 事件處理超過此毫秒數即視為卡頓並擷取堆疊
+     */
+    public static synchronized EdtWatchdog install(long thresholdMillis) {
+        if (installed != null) {
+            return installed;
+        }
+        EdtWatchdog watchdog = new EdtWatchdog(thresholdMillis);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(watchdog.new TimingEventQueue());
+
+        Thread monitor = new Thread(watchdog::monitorLoop, "EDT-Watchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(watchdog.report()), "EDT-Watchdog-Report"));
+        installed = watchdog;
+        return watchdog;
+    }
+
+    /**
+     * 產生目前為止的統計報告。
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("=== EDT Watchdog 報告 (門檻 %d ms) ===%n", thresholdNanos / 1_000_000));
+        sb.append(String.format("事件處理耗時：%d 筆，平均 %.3f ms，p99 < %.3f ms，卡頓 %d 次%n",
+                handlerTimes.getCount(), handlerTimes.getAverageMillis(),
+                handlerTimes.getPercentileMillis(99), stalls.sum()));
+        sb.append(handlerTimes.format());
+        sb.append(String.format("排隊延遲（探測事件）：%d 筆，平均 %.3f ms，p99 < %.3f ms%n",
+                queueDelays.getCount(), queueDelays.getAverageMillis(), queueDelays.getPercentileMillis(99)));
+        sb.append(queueDelays.format());
+        return sb.toString();
+    }
+
+    /**
+     * 背景監控迴圈：投遞探測事件量測排隊延遲，並檢查目前的事件是否處理過久。
+     */
+    private void monitorLoop() {
+        long pollMillis = Math.max(5, thresholdNanos / 1_000_000 / 4);
+        long reportedSequence = -1;
+        long lastProbeNanos = 0;
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            // 每 100ms 投遞一次探測事件，EDT 真正執行它的時間差即為排隊延遲；
+            // 沒有任何視窗時不投遞，以免阻止 AWT 在所有視窗關閉後自動結束
+            if (now - lastProbeNanos >= 100_000_000L && hasDisplayableWindow()) {
+                lastProbeNanos = now;
+                long postedAt = now;
+                EventQueue.invokeLater(() -> queueDelays.record(System.nanoTime() - postedAt));
+            }
+
+            long start = dispatchStartNanos;
+            long sequence = dispatchSequence;
+            if (start != 0 && sequence != reportedSequence && now - start > thresholdNanos) {
+                reportedSequence = sequence; // 同一個事件只回報一次
+                stalls.increment();
+                reportStall(now - start);
+            }
+        }
+    }
+
+    private static boolean hasDisplayableWindow() {
+        for (Window window : Window.getWindows()) {
+            if (window.isDisplayable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reportStall(long elapsedNanos) {
+        Thread edt = dispatchThread;
+        if (edt == null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("[EDT Watchdog] 事件處理已超過 %.1f ms，EDT 目前堆疊：%n", elapsedNanos / 1e6));
+        for (StackTraceElement element : edt.getStackTrace()) {
+            sb.append("\tat ").append(element).append(System.lineSeparator());
+        }
+        System.err.print(sb);
+    }
+
+    /**
+     * 記錄每個事件處理起訖時間的 EventQueue。
+     */
+    private class TimingEventQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            // 事件可能巢狀分發（例如模態對話框），只量測最外層
+            boolean outermost = dispatchStartNanos == 0;
+            long start = System.nanoTime();
+            if (outermost) {
+                dispatchThread = Thread.currentThread();
+                dispatchSequence++;
+                dispatchStartNanos = start;
+            }
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                if (outermost) {
+                    dispatchStartNanos = 0;
+                    handlerTimes.record(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.boardgames.common;
+
+/**
+ * 交給 EngineScheduler 執行的引擎工作。實作應定期檢查 token，被取消時儘快結束。
+ * 被排程器搶占後想要重新執行的工作必須以 CancellationException 結束（例如 token.throwIfCancelled()）；
+ * 正常回傳或拋出其他例外的工作即使 token 已被搶占，也直接以該結果完成，不會重跑。
+ */
+@FunctionalInterface
+public interface EngineJob<T> {
+
+    T run(CancellationToken token) throws Exception;
+}
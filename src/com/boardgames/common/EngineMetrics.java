@@ -0,0 +1,269 @@
+package com.boardgames.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 引擎與對局的即時統計數據（全域單例）。
+ * 計數器使用 LongAdder 分段累加，AI 在熱路徑上應先以區域變數累計，
+ * 每次搜尋結束時再呼叫 record 方法一次寫入，讓統計的成本與搜尋節點數無關。
+ * 置換表佔用率與工作佇列深度這類「量表」則由各元件註冊 supplier，在讀取時才取值。
+ * 置換表的量表只以弱參考指向表，表被回收後（例如思考執行緒結束）在下次註冊或讀取時移除。
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+
+    public static final String OBJECT_NAME = "com.boardgames:type=EngineMetrics";
+
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+    private final LongAdder tableProbes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder activeGames = new LongAdder();
+    private final LongAdder gamesCompleted = new LongAdder();
+
+    private final List<TableGauge<?>> tableGauges = new CopyOnWriteArrayList<>();
+    private final List<IntSupplier> queueDepthGauges = new CopyOnWriteArrayList<>();
+
+    // sample() 使用的取樣窗口
+    private long lastSampleNanos = System.nanoTime();
+    private long lastSampleNodes;
+
+    private static final class TableGauge<T> {
+        final WeakReference<T> table;
+        final ToLongFunction<T> entries;
+        final ToLongFunction<T> capacity;
+
+        TableGauge(T table, ToLongFunction<T> entries, ToLongFunction<T> capacity) {
+            this.table = new WeakReference<>(table);
+            this.entries = entries;
+            this.capacity = capacity;
+        }
+
+        // 表已被回收時回傳 -1
+        long read(boolean readCapacity) {
+            T t = table.get();
+            if (t == null) {
+                return -1;
+            }
+            return (readCapacity ? capacity : entries).applyAsLong(t);
+        }
+    }
+
+    private EngineMetrics() {
+    }
+
+    public static EngineMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 將統計數據註冊到平台 MBeanServer。重複呼叫不會有副作用。
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // --- 引擎回報 ---
+
+    /**
+     * 回報一次完整的 AI 思考。
+     *
+     * @param searchedNodes 這次搜尋拜訪的節點數
+     * @param nanos 從開始思考到決定落子的耗時
+     */
+    public void recordMove(long searchedNodes, long nanos) {
+        nodes.add(searchedNodes);
+        searchNanos.add(nanos);
+        moveLatency.record(nanos);
+    }
+
+    /**
+     * 回報置換表的查詢次數與命中次數（建議每次搜尋結束時批次回報）。
+     */
+    public void recordTableProbes(long probes, long hits) {
+        tableProbes.add(probes);
+        tableHits.add(hits);
+    }
+
+    public void gameStarted() {
+        activeGames.increment();
+    }
+
+    public void gameFinished() {
+        activeGames.decrement();
+        gamesCompleted.increment();
+    }
+
+    /**
+     * 遊戲在結束前被捨棄（例如重新開局）時呼叫，只減少進行中的局數。
+     */
+    public void gameAbandoned() {
+        activeGames.decrement();
+    }
+
+    // --- 量表註冊 ---
+
+    /**
+     * 註冊一張置換表的量表。entries 與 capacity 不應捕捉 table 本身，否則表永遠不會被回收。
+     */
+    public <T> void addTableGauge(T table, ToLongFunction<T> entries, ToLongFunction<T> capacity) {
+        sumTableGauges(false); // 順便移除已回收的表
+        tableGauges.add(new TableGauge<>(table, entries, capacity));
+    }
+
+    public void addQueueDepthGauge(IntSupplier depth) {
+        queueDepthGauges.add(depth);
+    }
+
+    // --- MBean 屬性 ---
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0.0 : nodes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getMovesSearched() {
+        return moveLatency.getCount();
+    }
+
+    @Override
+    public double getAverageMoveLatencyMillis() {
+        return moveLatency.getAverageMillis();
+    }
+
+    @Override
+    public double getMoveLatencyP50Millis() {
+        return moveLatency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getMoveLatencyP90Millis() {
+        return moveLatency.getPercentileMillis(90);
+    }
+
+    @Override
+    public double getMoveLatencyP99Millis() {
+        return moveLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public long getTranspositionTableEntries() {
+        return sumTableGauges(false);
+    }
+
+    @Override
+    public long getTranspositionTableCapacity() {
+        return sumTableGauges(true);
+    }
+
+    @Override
+    public double getTranspositionTableOccupancy() {
+        long capacity = getTranspositionTableCapacity();
+        return capacity == 0 ? 0.0 : (double) getTranspositionTableEntries() / capacity;
+    }
+
+    @Override
+    public double getTranspositionTableHitRate() {
+        long probes = tableProbes.sum();
+        return probes == 0 ? 0.0 : (double) tableHits.sum() / probes;
+    }
+
+    @Override
+    public long getActiveGames() {
+        return activeGames.sum();
+    }
+
+    @Override
+    public long getGamesCompleted() {
+        return gamesCompleted.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int sum = 0;
+        for (IntSupplier gauge : queueDepthGauges) {
+            sum += gauge.getAsInt();
+        }
+        return sum;
+    }
+
+    private long sumTableGauges(boolean capacity) {
+        long sum = 0;
+        List<TableGauge<?>> collected = null;
+        for (TableGauge<?> gauge : tableGauges) {
+            long value = gauge.read(capacity);
+            if (value >= 0) {
+                sum += value;
+            } else {
+                if (collected == null) {
+                    collected = new ArrayList<>();
+                }
+                collected.add(gauge);
+            }
+        }
+        if (collected != null) {
+            tableGauges.removeAll(collected);
+        }
+        return sum;
+    }
+
+    // --- MBean 操作 ---
+
+    @Override
+    public synchronized void reset() {
+        nodes.reset();
+        searchNanos.reset();
+        moveLatency.reset();
+        tableProbes.reset();
+        tableHits.reset();
+        gamesCompleted.reset();
+        // 進行中的局數是目前狀態而非累計值，因此不歸零
+        lastSampleNanos = System.nanoTime();
+        lastSampleNodes = 0;
+    }
+
+    @Override
+    public synchronized String sample() {
+        long now = System.nanoTime();
+        long currentNodes = nodes.sum();
+        double elapsed = (now - lastSampleNanos) / 1e9;
+        double recentRate = elapsed <= 0 ? 0.0 : (currentNodes - lastSampleNodes) / elapsed;
+        lastSampleNanos = now;
+        lastSampleNodes = currentNodes;
+        return String.format(
+                "nodes=%d (%.0f/s recent, %.0f/s in search), moves=%d, latency avg=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms, "
+                        + "tt=%d/%d (%.1f%% full, %.1f%% hits), games active=%d completed=%d, queue=%d",
+                currentNodes, recentRate, getNodesPerSecond(), getMovesSearched(),
+                getAverageMoveLatencyMillis(), getMoveLatencyP50Millis(), getMoveLatencyP90Millis(),
+                getMoveLatencyP99Millis(), getTranspositionTableEntries(), getTranspositionTableCapacity(),
+                getTranspositionTableOccupancy() * 100, getTranspositionTableHitRate() * 100,
+                getActiveGames(), getGamesCompleted(), getQueueDepth());
+    }
+}
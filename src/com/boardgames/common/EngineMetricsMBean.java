@@ -0,0 +1,46 @@
+package com.boardgames.common;
+
+/**
+ * EngineMetrics 的 JMX 管理介面。
+ * 所有 getter 都可在 JConsole / VisualVM 中即時讀取，reset 與 sample 則以操作 (Operation) 形式公開。
+ */
+public interface EngineMetricsMBean {
+
+    long getNodes();
+
+    double getNodesPerSecond();
+
+    long getMovesSearched();
+
+    double getAverageMoveLatencyMillis();
+
+    double getMoveLatencyP50Millis();
+
+    double getMoveLatencyP90Millis();
+
+    double getMoveLatencyP99Millis();
+
+    long getTranspositionTableEntries();
+
+    long getTranspositionTableCapacity();
+
+    double getTranspositionTableOccupancy();
+
+    double getTranspositionTableHitRate();
+
+    long getActiveGames();
+
+    long getGamesCompleted();
+
+    int getQueueDepth();
+
+    /**
+     * 將所有累計計數歸零（量表 gauge 不受影響）。
+     */
+    void reset();
+
+    /**
+     * 取樣一次並回傳可讀的摘要；其中的 nodes/s 為距離上次取樣期間的速率。
+     */
+    String sample();
+}
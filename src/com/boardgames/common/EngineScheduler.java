@@ -0,0 +1,196 @@
+package com.boardgames.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 所有遊戲視窗共用的引擎工作排程器，擁有固定數量的工作執行緒。
+ *
+ * <ul>
+ *   <li>INTERACTIVE：輪到電腦時的落子計算，永遠排在前面。</li>
+ *   <li>BACKGROUND：分析等可以重來的低優先權工作，最多只占用 (執行緒數 - 1) 條執行緒，
+ *       所以總有一條執行緒留給互動工作。</li>
+ * </ul>
+ *
+ * 互動工作提交時若沒有閒置的執行緒，排程器會搶占執行中的背景工作（取消它的 token），
+ * 被搶占而以 CancellationException 結束的工作在互動工作之後以新的 token 重新執行（見 EngineJob）。搜尋每數千個節點檢查一次 token，
+ * 因此互動工作的排隊延遲只受其他互動工作限制，不會被背景工作拖住。
+ *
+ * 工作執行緒是 daemon 執行緒，排隊中的工作數會回報到 EngineMetrics 的佇列深度。
+ */
+public class EngineScheduler {
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private static final Comparator<EngineTask<?>> ORDER =
+            Comparator.<EngineTask<?>>comparingInt(t -> t.priority.ordinal()).thenComparingLong(t -> t.sequence);
+
+    // 必須在 ORDER 之後初始化，否則建構子中的佇列拿到的比較器是 null
+    private static final EngineScheduler SHARED =
+            new EngineScheduler(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private final int threads;
+    private final PriorityQueue<EngineTask<?>> queue = new PriorityQueue<>(ORDER);
+    private final List<EngineTask<?>> running = new ArrayList<>();
+    private final LatencyHistogram interactiveWait = new LatencyHistogram();
+    private int runningBackground;
+    private long sequence;
+
+    /**
+     * @param threads 工作執行緒數，至少 2（一條保留給互動工作）
+     */
+    public EngineScheduler(int threads) {
+        if (threads < 2) {
+            throw new IllegalArgumentException("至少需要 2 條工作執行緒: " + threads);
+        }
+        this.threads = threads;
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::workerLoop, "Engine-Worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        EngineMetrics.get().addQueueDepthGauge(this::getQueueDepth);
+    }
+
+    /**
+     * 整個程式共用的排程器。
+     */
+    public static EngineScheduler get() {
+        return SHARED;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * 互動工作從提交到開始執行的等待時間分布。
+     */
+    public LatencyHistogram getInteractiveWait() {
+        return interactiveWait;
+    }
+
+    public <T> EngineTask<T> submit(Priority priority, String name, EngineJob<T> job) {
+        EngineTask<T> task;
+        synchronized (this) {
+            task = new EngineTask<>(this, priority, name, job, sequence++);
+            queue.add(task);
+            if (priority == Priority.INTERACTIVE) {
+                preemptForInteractive();
+            }
+            notifyAll();
+        }
+        return task;
+    }
+
+    // 排隊中的互動工作比閒置執行緒多時，搶占相應數量的背景工作
+    private void preemptForInteractive() {
+        int waiting = 0;
+        for (EngineTask<?> task : queue) {
+            if (task.priority == Priority.INTERACTIVE) {
+                waiting++;
+            }
+        }
+        int shortage = waiting - (threads - running.size());
+        for (int i = running.size() - 1; i >= 0 && shortage > 0; i--) {
+            EngineTask<?> task = running.get(i);
+            if (task.priority == Priority.BACKGROUND && !task.token.isCancelled()) {
+                task.token.preempt();
+                shortage--;
+            }
+        }
+    }
+
+    synchronized void cancel(EngineTask<?> task) {
+        if (task.state == EngineTask.State.DONE) {
+            return;
+        }
+        task.cancelRequested = true;
+        if (task.state == EngineTask.State.QUEUED) {
+            queue.remove(task);
+            task.state = EngineTask.State.DONE;
+            task.future.completeExceptionally(new CancellationException());
+            notifyAll();
+        } else {
+            task.token.cancel(); // 工作結束時由執行它的執行緒完成 future
+        }
+    }
+
+    private void workerLoop() {
+        while (true) {
+            EngineTask<?> task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            execute(task);
+        }
+    }
+
+    private synchronized EngineTask<?> take() throws InterruptedException {
+        while (true) {
+            EngineTask<?> head = queue.peek();
+            // 背景工作不能占滿所有執行緒
+            if (head != null && (head.priority == Priority.INTERACTIVE || runningBackground < threads - 1)) {
+                queue.poll();
+                head.state = EngineTask.State.RUNNING;
+                running.add(head);
+                if (head.priority == Priority.BACKGROUND) {
+                    runningBackground++;
+                } else {
+                    interactiveWait.record(System.nanoTime() - head.submittedNanos);
+                }
+                return head;
+            }
+            wait();
+        }
+    }
+
+    private <T> void execute(EngineTask<T> task) {
+        CancellationToken token;
+        synchronized (this) {
+            token = task.token;
+        }
+        T result = null;
+        Throwable error = null;
+        try {
+            result = task.job.run(token);
+        } catch (Throwable t) {
+            error = t;
+        }
+        synchronized (this) {
+            running.remove(task);
+            if (task.priority == Priority.BACKGROUND) {
+                runningBackground--;
+            }
+            if (token.isPreempted() && !task.cancelRequested && error instanceof CancellationException) {
+                // 因為被搶占而中止：以新的 token 重新排隊，等互動工作完成後再執行。
+                // 已經算完（或因為其他原因失敗）的工作不重跑，直接以它的結果完成
+                task.token = new CancellationToken();
+                task.state = EngineTask.State.QUEUED;
+                queue.add(task);
+            } else {
+                task.state = EngineTask.State.DONE;
+                if (task.cancelRequested) {
+                    task.future.completeExceptionally(new CancellationException());
+                } else if (error != null) {
+                    task.future.completeExceptionally(error);
+                } else {
+                    task.future.complete(result);
+                }
+            }
+            notifyAll();
+        }
+    }
+}
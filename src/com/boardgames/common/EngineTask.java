@@ -0,0 +1,73 @@
+package com.boardgames.common;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 已提交給 EngineScheduler 的工作。結果透過 future() 取得；被取消的工作以 CancellationException 結束。
+ */
+public final class EngineTask<T> {
+
+    enum State {
+        QUEUED,
+        RUNNING,
+        DONE
+    }
+
+    final EngineScheduler scheduler;
+    final EngineScheduler.Priority priority;
+    final String name;
+    final EngineJob<T> job;
+    final long sequence;
+    final long submittedNanos;
+    final CompletableFuture<T> future = new CompletableFuture<>();
+
+    // 以下欄位由 scheduler 的鎖保護
+    CancellationToken token = new CancellationToken();
+    State state = State.QUEUED;
+    boolean cancelRequested;
+
+    EngineTask(EngineScheduler scheduler, EngineScheduler.Priority priority, String name, EngineJob<T> job, long sequence) {
+        this.scheduler = scheduler;
+        this.priority = priority;
+        this.name = name;
+        this.job = job;
+        this.sequence = sequence;
+        this.submittedNanos = System.nanoTime();
+    }
+
+    public EngineScheduler.Priority getPriority() {
+        return priority;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 取消工作：還在排隊的直接移出佇列，執行中的透過 token 通知。
+     */
+    public void cancel() {
+        scheduler.cancel(this);
+    }
+
+    public CompletableFuture<T> future() {
+        return future;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * 等待工作結束（不論成功、失敗或取消），不拋出例外。
+     * 取消後呼叫可確保工作已不再使用它的資源。
+     */
+    public void awaitTermination() {
+        future.handle((value, error) -> null).join();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + priority + ")";
+    }
+}
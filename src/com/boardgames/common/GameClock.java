@@ -0,0 +1,147 @@
+package com.boardgames.common;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * 雙方的對局時鐘。同一時間最多只有一方的時間在走；時間規則見 TimeControl。
+ * 所有方法都有同步，遊戲模型、介面的計時器與 AI 執行緒可以同時讀取。
+ *
+ * 時間來源預設為 System.nanoTime()，無介面的對戰工具也可以傳入自己的時間來源（例如只累計搜尋時間的虛擬時鐘）。
+ */
+public class GameClock {
+
+    private final TimeControl control;
+    private final char first;
+    private final char second;
+    private final LongSupplier nanoTime;
+
+    private final long[] remainingNanos = new long[2];
+    private int running = -1; // 正在計時的一方，-1 表示停止
+    private long startedAt;
+
+    /**
+     * @param first 先手的代號（例如 'B' 或 'X'）
+     * @param second 後手的代號
+     */
+    public GameClock(TimeControl control, char first, char second) {
+        this(control, first, second, System::nanoTime);
+    }
+
+    public GameClock(TimeControl control, char first, char second, LongSupplier nanoTime) {
+        this.control = control;
+        this.first = first;
+        this.second = second;
+        this.nanoTime = nanoTime;
+        reset();
+    }
+
+    public TimeControl getControl() {
+        return control;
+    }
+
+    /**
+     * 停止計時並把雙方時間恢復為起始值。
+     */
+    public synchronized void reset() {
+        long base = control.getBaseMillis() * 1_000_000L;
+        remainingNanos[0] = base;
+        remainingNanos[1] = base;
+        running = -1;
+    }
+
+    /**
+     * 開始計算指定一方的時間（另一方若在計時則先停止，不加秒）。
+     */
+    public synchronized void start(char side) {
+        charge();
+        running = index(side);
+        if (control.getType() == TimeControl.Type.FIXED_PER_MOVE) {
+            remainingNanos[running] = control.getBaseMillis() * 1_000_000L;
+        }
+        startedAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * 正在計時的一方完成一步：扣除用掉的時間、依規則加秒，接著開始計算 next 的時間。
+     * next 可以與剛走完的一方相同（對手虛手時）。
+     */
+    public synchronized void switchTo(char next) {
+        int mover = running;
+        charge();
+        if (mover >= 0 && control.getType() == TimeControl.Type.INCREMENT && remainingNanos[mover] > 0) {
+            remainingNanos[mover] += control.getIncrementMillis() * 1_000_000L;
+        }
+        start(next);
+    }
+
+    /**
+     * 停止計時（例如遊戲結束），不加秒。
+     */
+    public synchronized void stop() {
+        charge();
+    }
+
+    // 把正在計時的一方用掉的時間扣掉並停止計時
+    private void charge() {
+        if (running >= 0) {
+            remainingNanos[running] -= nanoTime.getAsLong() - startedAt;
+            running = -1;
+        }
+    }
+
+    /**
+     * 指定一方剩餘的時間（毫秒，正在計時的一方即時扣除，可能為負）。
+     * 每步固定時間時是這一步剩下的時間。
+     */
+    public synchronized long remainingMillis(char side) {
+        if (control.isUnlimited()) {
+            return Long.MAX_VALUE;
+        }
+        int i = index(side);
+        long nanos = remainingNanos[i];
+        if (i == running) {
+            nanos -= nanoTime.getAsLong() - startedAt;
+        }
+        return nanos / 1_000_000L;
+    }
+
+    /**
+     * 指定一方是否已經超時。
+     */
+    public synchronized boolean isFlagged(char side) {
+        return !control.isUnlimited() && remainingMillis(side) <= 0;
+    }
+
+    /**
+     * 正在計時的一方，停止時回傳 0。
+     */
+    public synchronized char getRunningSide() {
+        return running < 0 ? 0 : (running == 0 ? first : second);
+    }
+
+    private int index(char side) {
+        if (side == first) {
+            return 0;
+        }
+        if (side == second) {
+            return 1;
+        }
+        throw new IllegalArgumentException("未知的一方: " + side);
+    }
+
+    /**
+     * 把毫秒格式化成時鐘文字：一分鐘以上為 "m:ss"，不到 10 秒時顯示到十分之一秒。
+     */
+    public static String format(long millis) {
+        if (millis == Long.MAX_VALUE) {
+            return "--:--";
+        }
+        long m = Math.max(0, millis);
+        if (m < 10_000) {
+            return String.format(Locale.ROOT, "%d.%d", m / 1000, m % 1000 / 100);
+        }
+        long seconds = m / 1000;
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,120 @@
+package com.boardgames.common;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以 2 的冪次分桶的延遲直方圖。
+ * 每個桶都是一個 LongAdder，多執行緒同時記錄時幾乎沒有競爭；
+ * 百分位數以桶的上界回報，精度為 2 倍以內，足以觀察趨勢。
+ */
+public class LatencyHistogram {
+
+    // 第 i 個桶涵蓋 [2^(i-1), 2^i) 微秒，第 0 個桶為 0 微秒
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 記錄一次耗時。
+     *
+     * @param nanos 耗時（奈秒）
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 平均耗時（毫秒），沒有資料時回傳 0。
+     */
+    public double getAverageMillis() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * 取得指定百分位數的耗時上界（毫秒）。
+     *
+     * @param percentile 0 到 100 之間的百分位數
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return upperBoundMicros(i) / 1000.0;
+            }
+        }
+        return upperBoundMicros(BUCKETS - 1) / 1000.0;
+    }
+
+    /**
+     * 以文字長條圖輸出所有非空的桶。
+     */
+    public String format() {
+        long[] snapshot = snapshot();
+        long max = 1;
+        for (long c : snapshot) {
+            max = Math.max(max, c);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (snapshot[i] == 0) {
+                continue;
+            }
+            char[] bar = new char[Math.max(1, (int) (snapshot[i] * 40 / max))];
+            Arrays.fill(bar, '#');
+            sb.append(String.format("  < %10.3f ms | %-40s %d%n",
+                    upperBoundMicros(i) / 1000.0, new String(bar), snapshot[i]));
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+        }
+        return snapshot;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+}
@@ -0,0 +1,377 @@
+package com.boardgames.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 引擎快取與資料表的全域記憶體預算（全域單例）。
+ *
+ * 總預算由 -Dboardgames.memory 設定（例如 64m、2g；預設為最大堆積的 1/4，最多 128MB），
+ * 依政策中各群組的權重分給有成員的群組，群組內再平均分給每個成員。政策預設為 DEFAULT_POLICY，
+ * 可用 -Dboardgames.memory.policy=reversi.search:4,reversi.book:1 覆寫部分群組的權重。
+ * 每個成員的份額限制在自己的 minBytes 與 maxBytes 之間，達到上限的群組把多出來的份額讓給其他群組；
+ * 預算連所有成員的下限都不夠時仍給下限，由成員自行降級（較小的表、較淺的搜尋）而不是失敗。
+ *
+ * 成員加入、呼叫 setBudget 或 setPolicy 時重新分配（已被回收的成員在這時移除），只有份額改變的成員會收到 Component.resize。
+ * resize 在呼叫 setBudget 或建立成員的執行緒上執行，成員應只記下份額，在自己的執行緒方便時再套用。
+ * 成員以弱參考保存，執行緒結束後留下的搜尋引擎不會因為登記在這裡而無法回收。
+ */
+public final class MemoryBudget implements MemoryBudgetMBean {
+
+    public static final String OBJECT_NAME = "com.boardgames:type=MemoryBudget";
+
+    /** 黑白棋 AI 與開局庫背景學習的置換表 */
+    public static final String REVERSI_SEARCH = "reversi.search";
+    /** 黑白棋分析面板的置換表 */
+    public static final String REVERSI_ANALYSIS = "reversi.analysis";
+    /** 3D 井字棋的置換表 */
+    public static final String QUBIC_SEARCH = "qubic.search";
+    /** 共用的黑白棋開局庫 */
+    public static final String REVERSI_BOOK = "reversi.book";
+
+    public static final String DEFAULT_POLICY = "reversi.search:4,reversi.analysis:3,qubic.search:1,reversi.book:2";
+
+    private static final long DEFAULT_MAX_BUDGET = 128L << 20;
+
+    private static final MemoryBudget INSTANCE = new MemoryBudget();
+
+    /**
+     * 受預算管理的成員。
+     */
+    public interface Component {
+
+        /** 份額的下限：再少就無法運作 */
+        long minBytes();
+
+        /** 份額的上限：再多也用不到 */
+        long maxBytes();
+
+        /** 實際使用的位元組數 */
+        long usedBytes();
+
+        /** 資料是否放在堆積之外 */
+        boolean isOffHeap();
+
+        /** 通知新的份額（只在份額改變時呼叫） */
+        void resize(long bytes);
+    }
+
+    private static final class Member {
+        final WeakReference<Component> component;
+        long allotted;
+
+        Member(Component component) {
+            this.component = new WeakReference<>(component);
+        }
+    }
+
+    private final Map<String, Double> weights = new LinkedHashMap<>();
+    private final Map<String, List<Member>> groups = new LinkedHashMap<>();
+    private long budget;
+
+    private MemoryBudget() {
+        budget = parseSize(System.getProperty("boardgames.memory"),
+                Math.min(DEFAULT_MAX_BUDGET, Runtime.getRuntime().maxMemory() / 4));
+        setPolicy(DEFAULT_POLICY);
+        String policy = System.getProperty("boardgames.memory.policy");
+        if (policy != null) {
+            setPolicy(policy);
+        }
+    }
+
+    public static MemoryBudget get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 將預算註冊到平台 MBeanServer，可在執行中以 JConsole 修改 BudgetBytes。重複呼叫不會有副作用。
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 解析 "64m"、"2g"、"512k" 或位元組數；text 為 null 時回傳 defaultValue。
+     *
+     * @throws IllegalArgumentException 格式錯誤
+     */
+    public static long parseSize(String text, long defaultValue) {
+        if (text == null) {
+            return defaultValue;
+        }
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        int shift = 0;
+        if (s.endsWith("k")) {
+            shift = 10;
+        } else if (s.endsWith("m")) {
+            shift = 20;
+        } else if (s.endsWith("g")) {
+            shift = 30;
+        }
+        try {
+            long value = Long.parseLong(shift == 0 ? s : s.substring(0, s.length() - 1));
+            if (value < 0 || value > Long.MAX_VALUE >> shift) {
+                throw new IllegalArgumentException("記憶體大小超出範圍: " + text);
+            }
+            return value << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("記憶體大小格式錯誤: " + text);
+        }
+    }
+
+    /**
+     * 加入成員並重新分配；回傳前 component.resize 已收到它的第一份份額。
+     *
+     * @param group 政策中的群組名稱，不在政策中的群組權重為 1
+     */
+    public synchronized void register(String group, Component component) {
+        groups.computeIfAbsent(group, g -> new ArrayList<>()).add(new Member(component));
+        rebalance();
+    }
+
+    /**
+     * 設定群組的權重，格式為 "群組:權重,群組:權重"，沒有列出的群組不變。之後重新分配。
+     *
+     * @throws IllegalArgumentException 格式錯誤或權重為負
+     */
+    public synchronized void setPolicy(String policy) {
+        Map<String, Double> parsed = new LinkedHashMap<>();
+        for (String item : policy.split(",")) {
+            if (item.trim().isEmpty()) {
+                continue;
+            }
+            int colon = item.indexOf(':');
+            try {
+                double weight = colon < 0 ? Double.NaN : Double.parseDouble(item.substring(colon + 1).trim());
+                if (!(weight >= 0)) {
+                    throw new IllegalArgumentException("記憶體政策格式錯誤: " + item);
+                }
+                parsed.put(item.substring(0, colon).trim(), weight);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("記憶體政策格式錯誤: " + item);
+            }
+        }
+        weights.putAll(parsed);
+        rebalance();
+    }
+
+    public synchronized void setBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("預算不可為負: " + bytes);
+        }
+        budget = bytes;
+        rebalance();
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * 成員的目前份額（沒有登記時回傳 0）。
+     */
+    public synchronized long getAllotted(Component component) {
+        for (List<Member> members : groups.values()) {
+            for (Member member : members) {
+                if (member.component.get() == component) {
+                    return member.allotted;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // 依權重把預算分給有成員的群組（群組的上下限為成員上下限的總和），碰到上限的群組固定在上限，
+    // 剩下的預算再依權重分給其他群組，直到沒有群組碰到上限為止。最後每個成員在群組份額內平均分配
+    private void rebalance() {
+        List<String> names = new ArrayList<>();
+        List<List<Component>> live = new ArrayList<>();
+        for (Map.Entry<String, List<Member>> e : groups.entrySet()) {
+            List<Component> components = new ArrayList<>();
+            for (Iterator<Member> it = e.getValue().iterator(); it.hasNext(); ) {
+                Component component = it.next().component.get();
+                if (component == null) {
+                    it.remove();
+                } else {
+                    components.add(component);
+                }
+            }
+            if (!components.isEmpty()) {
+                names.add(e.getKey());
+                live.add(components);
+            }
+        }
+        int n = names.size();
+        long[] min = new long[n];
+        long[] max = new long[n];
+        double[] weight = new double[n];
+        for (int g = 0; g < n; g++) {
+            for (Component component : live.get(g)) {
+                min[g] = saturatedAdd(min[g], component.minBytes());
+                max[g] = saturatedAdd(max[g], Math.max(component.minBytes(), component.maxBytes()));
+            }
+            weight[g] = weights.getOrDefault(names.get(g), 1.0);
+        }
+
+        long[] share = new long[n];
+        boolean[] fixed = new boolean[n];
+        long remaining = budget;
+        for (int g = 0; g < n; g++) {
+            remaining -= min[g]; // 下限一定要給
+            share[g] = min[g];
+        }
+        boolean changed = true;
+        while (changed && remaining > 0) {
+            changed = false;
+            double total = 0;
+            for (int g = 0; g < n; g++) {
+                if (!fixed[g]) {
+                    total += weight[g];
+                }
+            }
+            if (total == 0) {
+                break;
+            }
+            for (int g = 0; g < n; g++) {
+                if (!fixed[g] && min[g] + remaining * (weight[g] / total) >= max[g]) {
+                    fixed[g] = true;
+                    remaining -= max[g] - min[g];
+                    share[g] = max[g];
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                for (int g = 0; g < n; g++) {
+                    if (!fixed[g]) {
+                        share[g] = min[g] + (long) (remaining * (weight[g] / total));
+                    }
+                }
+            }
+        }
+
+        for (int g = 0; g < n; g++) {
+            List<Component> components = live.get(g);
+            long each = share[g] / components.size();
+            int i = 0;
+            for (Member member : groups.get(names.get(g))) {
+                Component component = components.get(i++);
+                long bytes = Math.max(component.minBytes(), Math.min(component.maxBytes(), each));
+                if (bytes != member.allotted) {
+                    member.allotted = bytes;
+                    component.resize(bytes);
+                }
+            }
+        }
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    // --- MBean 屬性 ---
+
+    @Override
+    public long getBudgetBytes() {
+        return getBudget();
+    }
+
+    @Override
+    public void setBudgetBytes(long bytes) {
+        setBudget(bytes);
+    }
+
+    @Override
+    public synchronized String getPolicy() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Double> e : weights.entrySet()) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(e.getKey()).append(':').append(String.format(Locale.ROOT, "%.2f", e.getValue()));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public synchronized long getAllottedBytes() {
+        long sum = 0;
+        for (List<Member> members : groups.values()) {
+            for (Member member : members) {
+                if (member.component.get() != null) {
+                    sum += member.allotted;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public synchronized long getUsedBytes() {
+        long sum = 0;
+        for (List<Member> members : groups.values()) {
+            for (Member member : members) {
+                Component component = member.component.get();
+                if (component != null) {
+                    sum += component.usedBytes();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public synchronized String report() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "預算 %s，分配 %s，使用 %s%n",
+                formatSize(budget), formatSize(getAllottedBytes()), formatSize(getUsedBytes())));
+        for (Map.Entry<String, List<Member>> e : groups.entrySet()) {
+            int count = 0;
+            long allotted = 0;
+            long used = 0;
+            boolean offHeap = false;
+            for (Member member : e.getValue()) {
+                Component component = member.component.get();
+                if (component != null) {
+                    count++;
+                    allotted += member.allotted;
+                    used += component.usedBytes();
+                    offHeap |= component.isOffHeap();
+                }
+            }
+            if (count > 0) {
+                text.append(String.format(Locale.ROOT, "  %-18s 權重 %5.2f  成員 %2d  分配 %9s  使用 %9s  %s%n",
+                        e.getKey(), weights.getOrDefault(e.getKey(), 1.0), count, formatSize(allotted),
+                        formatSize(used), offHeap ? "堆積外" : "堆積"));
+            }
+        }
+        return text.toString();
+    }
+
+    public static String formatSize(long bytes) {
+        if (bytes >= 1L << 30) {
+            return String.format(Locale.ROOT, "%.1fG", bytes / (double) (1L << 30));
+        } else if (bytes >= 1L << 20) {
+            return String.format(Locale.ROOT, "%.1fM", bytes / (double) (1L << 20));
+        } else if (bytes >= 1L << 10) {
+            return String.format(Locale.ROOT, "%.1fK", bytes / (double) (1L << 10));
+        }
+        return bytes + "B";
+    }
+}
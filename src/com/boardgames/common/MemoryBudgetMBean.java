@@ -0,0 +1,23 @@
+package com.boardgames.common;
+
+/**
+ * MemoryBudget 的 JMX 管理介面。修改 BudgetBytes 會立即重新分配，各成員在下一次搜尋開始時套用新的大小。
+ */
+public interface MemoryBudgetMBean {
+
+    long getBudgetBytes();
+
+    void setBudgetBytes(long bytes);
+
+    /** 各群組的權重 */
+    String getPolicy();
+
+    long getAllottedBytes();
+
+    long getUsedBytes();
+
+    /**
+     * 回傳每個群組的成員數、份額與實際使用量。
+     */
+    String report();
+}
@@ -0,0 +1,50 @@
+package com.boardgames.common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 命令列工具共用的簡易參數解析：把 "--name value" 形式的參數收集成對照表，
+ * 單獨出現（後面沒有值或接著另一個 --參數）的旗標視為 "true"。
+ */
+public class Options {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public Options(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(args[i], args[i + 1]);
+                i++;
+            } else {
+                values.put(args[i], "true");
+            }
+        }
+    }
+
+    public boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    public String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,70 @@
+package com.boardgames.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全程式共用、可設定種子的亂數來源，取代各處臨時建立的 new Random()。
+ * 以 SplitMix64 實作，狀態只是一個 AtomicLong：多條執行緒同時取用時不需要加鎖，也不會配置任何物件。
+ * 種子預設取自 -Dboardgames.seed（未設定時使用目前時間）；設定相同的種子後，單執行緒下的結果可以完全重現。
+ */
+public final class SharedRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final AtomicLong STATE = new AtomicLong(Long.getLong("boardgames.seed", System.nanoTime()));
+
+    private SharedRandom() {
+    }
+
+    public static void setSeed(long seed) {
+        STATE.set(seed);
+    }
+
+    public static long nextLong() {
+        long z = STATE.addAndGet(GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 回傳 [0, bound) 之間均勻分布的整數。
+     */
+    public static int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound 必須為正數: " + bound);
+        }
+        // 以拒絕取樣消除取餘數造成的偏差（與 java.util.Random 相同的作法）
+        int r = (int) (nextLong() >>> 33);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = (int) (nextLong() >>> 33)) {
+            // 重抽
+        }
+        return r;
+    }
+
+    /**
+     * 回傳 [0, 1) 之間的 double。
+     */
+    public static double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 從位元集合中均勻地隨機選出一個位元的編號；集合為空時回傳 -1。
+     * 走法以位元集合表示時，可以直接用來挑選隨機走法而不必先放進清單。
+     */
+    public static int randomBit(long bits) {
+        int count = Long.bitCount(bits);
+        if (count == 0) {
+            return -1;
+        }
+        for (int k = nextInt(count); k > 0; k--) {
+            bits &= bits - 1;
+        }
+        return Long.numberOfTrailingZeros(bits);
+    }
+}
@@ -0,0 +1,61 @@
+package com.boardgames.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 啟動時間量測（選用）：程式啟動到第一個視窗出現、到電腦第一次落子各花多少時間。
+ * 兩個時間都從 JVM 啟動起算，另外列出其中 main 之前（JVM 與類別載入）所占的部分，結果印到標準錯誤輸出。
+ *
+ * 以 -Dboardgames.startupTiming=true 開啟；沒開啟時各個 mark 方法不做任何事。
+ */
+public final class StartupTimer {
+
+    private static final boolean ENABLED = Boolean.getBoolean("boardgames.startupTiming");
+
+    private static final AtomicBoolean FIRST_FRAME = new AtomicBoolean();
+    private static final AtomicBoolean FIRST_AI_MOVE = new AtomicBoolean();
+    private static volatile long mainNanos;
+    private static volatile long uptimeAtMainMillis;
+
+    private StartupTimer() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 在 main 的第一行呼叫，記下 JVM 啟動到 main 的時間。
+     */
+    public static void markMainStarted() {
+        if (ENABLED) {
+            mainNanos = System.nanoTime();
+            uptimeAtMainMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        }
+    }
+
+    /**
+     * 第一個視窗顯示時呼叫（只記錄第一次）。
+     */
+    public static void markFirstFrame() {
+        if (ENABLED && FIRST_FRAME.compareAndSet(false, true)) {
+            report("第一個視窗");
+        }
+    }
+
+    /**
+     * 電腦第一次落子時呼叫（只記錄第一次，不分遊戲）。
+     */
+    public static void markFirstAiMove() {
+        if (ENABLED && FIRST_AI_MOVE.compareAndSet(false, true)) {
+            report("電腦第一次落子");
+        }
+    }
+
+    private static void report(String event) {
+        long sinceMain = (System.nanoTime() - mainNanos) / 1_000_000;
+        System.err.printf("啟動計時: %s %d ms（JVM 啟動到 main %d ms，main 之後 %d ms）%n", event,
+                uptimeAtMainMillis + sinceMain, uptimeAtMainMillis, sinceMain);
+    }
+}
@@ -0,0 +1,48 @@
+package com.boardgames.common;
+
+/**
+ * 引擎思考一步的時間預算，由 TimeManager 配置。
+ * 目標時間 (soft) 決定反覆加深要不要開始下一輪，上限 (hard) 到了就直接中止搜尋。
+ */
+public final class TimeBudget {
+
+    /** 最佳步連續幾輪沒變就視為穩定。 */
+    public static final int STABLE_ITERATIONS = 3;
+
+    private final long startNanos;
+    private final long softNanos;
+    private final long hardNanos;
+
+    public TimeBudget(long startNanos, long softMillis, long hardMillis) {
+        this.startNanos = startNanos;
+        this.softNanos = softMillis * 1_000_000L;
+        this.hardNanos = Math.max(softMillis, hardMillis) * 1_000_000L;
+    }
+
+    public long getSoftMillis() {
+        return softNanos / 1_000_000L;
+    }
+
+    public long getHardMillis() {
+        return hardNanos / 1_000_000L;
+    }
+
+    /**
+     * 必須停止搜尋的時間點（System.nanoTime() 的時間軸）。
+     */
+    public long hardDeadline() {
+        return startNanos + hardNanos;
+    }
+
+    /**
+     * 一輪反覆加深結束後判斷要不要再開始下一輪。
+     * 下一輪的耗時通常不少於目前累計的時間，所以已用掉目標時間的一半就不再開始；
+     * 最佳步剛改變時目標時間放寬為 1.5 倍，連續 STABLE_ITERATIONS 輪不變時縮為 0.4 倍，提早結束。
+     *
+     * @param stableIterations 最佳步連續未改變的輪數（剛改變時為 0）
+     */
+    public boolean shouldStartIteration(long now, int stableIterations) {
+        double factor = stableIterations == 0 ? 1.5 : stableIterations >= STABLE_ITERATIONS ? 0.4 : 1.0;
+        return (now - startNanos) * 2 < softNanos * factor;
+    }
+}
@@ -0,0 +1,127 @@
+package com.boardgames.common;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * 對局的時間規則（不可變）：不計時、包干制 (sudden death)、加秒制 (increment) 或每步固定時間。
+ * 實際的計時由 GameClock 負責。
+ */
+public final class TimeControl {
+
+    public enum Type {
+        UNLIMITED,      // 不計時
+        SUDDEN_DEATH,   // 每方一段總時間，用完判負
+        INCREMENT,      // 每方一段總時間，每走一步再加固定秒數
+        FIXED_PER_MOVE  // 每一步都有固定的時間上限
+    }
+
+    public static final TimeControl UNLIMITED = new TimeControl(Type.UNLIMITED, 0, 0);
+
+    private final Type type;
+    private final long baseMillis;
+    private final long incrementMillis;
+
+    private TimeControl(Type type, long baseMillis, long incrementMillis) {
+        this.type = type;
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    public static TimeControl suddenDeath(long totalMillis) {
+        return new TimeControl(Type.SUDDEN_DEATH, requirePositive(totalMillis), 0);
+    }
+
+    public static TimeControl increment(long baseMillis, long incrementMillis) {
+        if (incrementMillis < 0) {
+            throw new IllegalArgumentException("每步加秒不可為負: " + incrementMillis);
+        }
+        return new TimeControl(Type.INCREMENT, requirePositive(baseMillis), incrementMillis);
+    }
+
+    public static TimeControl perMove(long millisPerMove) {
+        return new TimeControl(Type.FIXED_PER_MOVE, requirePositive(millisPerMove), 0);
+    }
+
+    /**
+     * 解析命令列形式的時間規則（秒數可有小數）：
+     * "none" 不計時、"300" 包干 300 秒、"180+2" 180 秒加每步 2 秒、"1/move" 每步 1 秒。
+     *
+     * @throws IllegalArgumentException 格式不正確
+     */
+    public static TimeControl parse(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (s.equals("none")) {
+                return UNLIMITED;
+            }
+            if (s.endsWith("/move")) {
+                return perMove(seconds(s.substring(0, s.length() - "/move".length())));
+            }
+            int plus = s.indexOf('+');
+            if (plus >= 0) {
+                return increment(seconds(s.substring(0, plus)), seconds(s.substring(plus + 1)));
+            }
+            return suddenDeath(seconds(s));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("無法解析時間規則: " + text, e);
+        }
+    }
+
+    private static long seconds(String s) {
+        return Math.round(Double.parseDouble(s) * 1000);
+    }
+
+    private static long requirePositive(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("時間必須為正數: " + millis);
+        }
+        return millis;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isUnlimited() {
+        return type == Type.UNLIMITED;
+    }
+
+    /**
+     * 每方的起始時間；每步固定時間時為每一步的上限。
+     */
+    public long getBaseMillis() {
+        return baseMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    /**
+     * 給介面顯示的說明文字。
+     */
+    @Override
+    public String toString() {
+        switch (type) {
+            case SUDDEN_DEATH:
+                return "每方 " + describe(baseMillis);
+            case INCREMENT:
+                return "每方 " + describe(baseMillis) + " + 每步 " + describe(incrementMillis);
+            case FIXED_PER_MOVE:
+                return "每步 " + describe(baseMillis);
+            default:
+                return "不計時";
+        }
+    }
+
+    private static String describe(long millis) {
+        if (millis % 60_000 == 0) {
+            return millis / 60_000 + " 分鐘";
+        }
+        if (millis % 1000 == 0) {
+            return millis / 1000 + " 秒";
+        }
+        return BigDecimal.valueOf(millis, 3).stripTrailingZeros().toPlainString() + " 秒";
+    }
+}
@@ -0,0 +1,44 @@
+package com.boardgames.common;
+
+/**
+ * 依時鐘為引擎配置每一步的思考時間。
+ * 剩餘時間平均分給預估的剩餘步數，加上大部分的加秒，再依遊戲階段加權；
+ * 上限為目標的數倍，但一定保留安全餘裕，避免因排程延遲而超時。
+ */
+public final class TimeManager {
+
+    /** 預留給執行緒排程、介面更新等額外開銷的時間。 */
+    public static final long SAFETY_MARGIN_MILLIS = 30;
+    /** 目標時間最多可延長到幾倍（搜尋不穩定時）。 */
+    private static final int HARD_FACTOR = 4;
+    /** 單步最多使用剩餘時間的比例。 */
+    private static final double MAX_FRACTION = 0.35;
+
+    private TimeManager() {
+    }
+
+    /**
+     * 配置一步的時間預算。
+     *
+     * @param control 時間規則；不計時時回傳 null
+     * @param remainingMillis 行棋方目前剩餘的時間（每步固定時間時為這一步剩下的時間）
+     * @param movesLeft 行棋方預估還要走幾步（至少 1）
+     * @param phaseWeight 遊戲階段的權重，1.0 為平均，關鍵階段可大於 1
+     */
+    public static TimeBudget allocate(TimeControl control, long remainingMillis, int movesLeft, double phaseWeight) {
+        if (control.isUnlimited()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        long available = Math.max(1, remainingMillis - SAFETY_MARGIN_MILLIS);
+        if (control.getType() == TimeControl.Type.FIXED_PER_MOVE) {
+            // 這一步的時間用不完也不會留到下一步，目標設為幾乎全部
+            return new TimeBudget(start, available * 9 / 10, available);
+        }
+        long increment = control.getType() == TimeControl.Type.INCREMENT ? control.getIncrementMillis() : 0;
+        long target = (long) ((available / (double) Math.max(1, movesLeft) + increment * 0.8) * phaseWeight);
+        long hard = Math.min(target * HARD_FACTOR, Math.max(target, (long) (available * MAX_FRACTION)));
+        hard = Math.min(hard, available);
+        return new TimeBudget(start, Math.min(target, hard), hard);
+    }
+}
@@ -0,0 +1,202 @@
+package com.boardgames.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 搜尋用的置換表 (Transposition Table)，適用任何以兩個 64 位元遮罩（行棋方、對手）表示局面的遊戲。
+ * 每個項目 24 bytes，放在堆積外的 direct buffer 中，大型的表不增加 GC 的負擔。項目不對齊快取線，
+ * 每 8 個項目中有 2 個跨兩條線；補到 32 bytes 要多用三分之一的記憶體，而 JDK 8 也無法指定 direct buffer 的對齊，
+ * 補齊後仍可能跨線，因此維持 24 bytes，同樣的預算放得下較多項目。
+ * 保存完整的局面（兩個 long）以避免雜湊碰撞誤判，另外保存分數、深度、界限種類與最佳步。
+ * 替換策略為「較新一輪搜尋或較深的結果優先」。
+ *
+ * 以群組名稱建立的表受 MemoryBudget 管理：預算改變時只記下新的容量，在下一次 newSearch() 才重新配置
+ * （內容清空），因此仍然只有擁有者的執行緒會碰到表。容量只在 2 的冪次真的改變時才重新配置，
+ * 而且份額要超過下一個冪次 1/GROW_MARGIN 才變大，份額在邊界附近來回時表不會反覆清空。配置失敗時容量減半重試，最小到 MIN_LOG2_CAPACITY；
+ * 失敗過的容量在份額下次改變之前不再嘗試，份額改變時（可能是其他成員釋放了記憶體）重新從份額對應的容量試起。
+ * 不是執行緒安全的，每個搜尋引擎擁有自己的一張表。
+ */
+public class TranspositionTable implements MemoryBudget.Component {
+
+    public static final int BOUND_EXACT = 0;
+    public static final int BOUND_LOWER = 1;
+    public static final int BOUND_UPPER = 2;
+
+    public static final int ENTRY_BYTES = 24;
+    public static final int MIN_LOG2_CAPACITY = 10;
+    // 項目位置以 int 計算，整張表不超過 2GB
+    public static final int MAX_LOG2_CAPACITY = 26;
+    // 變大需要的餘裕（1/8）；縮小立刻套用，使用量不超過份額
+    private static final int GROW_MARGIN = 8;
+
+    // 項目內的位置：行棋方、對手、分數、data = generation(15) | depth(8) | bound(2) | move+1(7)，data 為 0 表示空項目
+    private static final int PLAYER = 0;
+    private static final int OPPONENT = 8;
+    private static final int SCORE = 16;
+    private static final int DATA = 20;
+
+    private ByteBuffer entries;
+    private int mask;
+    private volatile int requestedLog2; // MemoryBudget 要求的容量，由 newSearch() 套用
+    // 曾經配置失敗的最小容量，份額改變前不再嘗試；resize 會從其他執行緒重設
+    private volatile int failedLog2 = MAX_LOG2_CAPACITY + 1;
+
+    private int generation = 1;
+    private int used;
+
+    /**
+     * 固定容量的表。
+     *
+     * @param log2Capacity 容量的以 2 為底對數（例如 18 代表 262144 個項目）
+     */
+    public TranspositionTable(int log2Capacity) {
+        allocate(Math.max(MIN_LOG2_CAPACITY, Math.min(MAX_LOG2_CAPACITY, log2Capacity)));
+        EngineMetrics.get().addTableGauge(this, t -> t.used, TranspositionTable::capacity);
+    }
+
+    /**
+     * 容量由 MemoryBudget 中 group 群組的份額決定的表。
+     */
+    public TranspositionTable(String group) {
+        MemoryBudget.get().register(group, this);
+        allocate(requestedLog2);
+        EngineMetrics.get().addTableGauge(this, t -> t.used, TranspositionTable::capacity);
+    }
+
+    /**
+     * 開始新一輪搜尋，讓舊結果可以被優先替換。
+     */
+    public void newSearch() {
+        int log2 = Math.min(requestedLog2, failedLog2 - 1);
+        if (log2 != 0 && log2 != Integer.numberOfTrailingZeros(mask + 1)) {
+            allocate(log2);
+        }
+        generation = (generation % 0x7FFF) + 1;
+    }
+
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            entries.putInt(i * ENTRY_BYTES + DATA, 0);
+        }
+        used = 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 查詢局面，找不到時回傳 -1，否則回傳項目的索引供 getter 讀取。
+     */
+    public int probe(long player, long opponent) {
+        int index = index(player, opponent);
+        int offset = index * ENTRY_BYTES;
+        if (entries.getInt(offset + DATA) != 0 && entries.getLong(offset + PLAYER) == player
+                && entries.getLong(offset + OPPONENT) == opponent) {
+            return index;
+        }
+        return -1;
+    }
+
+    public int score(int entry) {
+        return entries.getInt(entry * ENTRY_BYTES + SCORE);
+    }
+
+    public int depth(int entry) {
+        return (entries.getInt(entry * ENTRY_BYTES + DATA) >>> 9) & 0xFF;
+    }
+
+    public int bound(int entry) {
+        return (entries.getInt(entry * ENTRY_BYTES + DATA) >>> 7) & 0x3;
+    }
+
+    /**
+     * 最佳步的格子編號，沒有時回傳 -1。
+     */
+    public int move(int entry) {
+        return (entries.getInt(entry * ENTRY_BYTES + DATA) & 0x7F) - 1;
+    }
+
+    public void store(long player, long opponent, int score, int depth, int bound, int move) {
+        int offset = index(player, opponent) * ENTRY_BYTES;
+        int old = entries.getInt(offset + DATA);
+        if (old != 0) {
+            boolean sameGeneration = (old >>> 17) == generation;
+            boolean samePosition = entries.getLong(offset + PLAYER) == player && entries.getLong(offset + OPPONENT) == opponent;
+            if (sameGeneration && !samePosition && ((old >>> 9) & 0xFF) > depth) {
+                return; // 保留同一輪中較深的結果
+            }
+        } else {
+            used++;
+        }
+        entries.putLong(offset + PLAYER, player);
+        entries.putLong(offset + OPPONENT, opponent);
+        entries.putInt(offset + SCORE, score);
+        entries.putInt(offset + DATA, (generation << 17) | (Math.min(depth, 0xFF) << 9) | (bound << 7) | (move + 1));
+    }
+
+    // --- MemoryBudget.Component ---
+
+    @Override
+    public long minBytes() {
+        return (long) ENTRY_BYTES << MIN_LOG2_CAPACITY;
+    }
+
+    @Override
+    public long maxBytes() {
+        return (long) ENTRY_BYTES << MAX_LOG2_CAPACITY;
+    }
+
+    @Override
+    public long usedBytes() {
+        return (long) ENTRY_BYTES * (mask + 1);
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    /**
+     * 記下份額內最大的 2 的冪次容量，下一次 newSearch() 時生效（可從任何執行緒呼叫）。
+     * 比目前要求的容量大、但份額沒有多出 1/GROW_MARGIN 時維持較小的一級。
+     * MemoryBudget 只在份額改變時呼叫，因此之前配置失敗的紀錄也在這時清除，先前的失敗可能只是暫時的。
+     */
+    @Override
+    public void resize(long bytes) {
+        int log2 = 63 - Long.numberOfLeadingZeros(Math.max(1, bytes / ENTRY_BYTES));
+        log2 = Math.max(MIN_LOG2_CAPACITY, Math.min(MAX_LOG2_CAPACITY, log2));
+        int current = requestedLog2;
+        long size = (long) ENTRY_BYTES << log2;
+        if (current != 0 && log2 > current && bytes < size + size / GROW_MARGIN) {
+            log2--;
+        }
+        failedLog2 = MAX_LOG2_CAPACITY + 1;
+        requestedLog2 = log2;
+    }
+
+    // 直接記憶體不夠時容量減半重試；舊的表在 GC 回收 buffer 時才釋放，重試前先放掉參考
+    private void allocate(int log2) {
+        entries = null;
+        for (int bits = log2; ; bits--) {
+            try {
+                entries = ByteBuffer.allocateDirect(ENTRY_BYTES << bits).order(ByteOrder.nativeOrder());
+                mask = (1 << bits) - 1;
+                used = 0;
+                return;
+            } catch (OutOfMemoryError e) {
+                failedLog2 = bits;
+                if (bits <= MIN_LOG2_CAPACITY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private int index(long player, long opponent) {
+        long h = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 31);
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+}
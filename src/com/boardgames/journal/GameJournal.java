@@ -0,0 +1,456 @@
+package com.boardgames.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 進行中對局的預寫日誌 (write-ahead log)。每個程序寫自己的一個日誌檔，所有對局共用；
+ * 每接受一步就附加一筆固定長度的紀錄，由背景執行緒批次寫入並 fsync（group commit），
+ * 同一批的所有對局共用一次 fsync。
+ *
+ * <pre>
+ * 紀錄 15 bytes：int CRC32（涵蓋之後 11 bytes）、byte 類型、long 對局編號、short 值
+ *   START  值 = 遊戲種類 &lt;&lt; 8 | 棋盤邊長   （新對局或 reset，清掉之前的落子）
+ *   MOVE   值 = 格子編號
+ *   END    值 = 0                            （對局結束或放棄，不需要復原）
+ * </pre>
+ *
+ * 開啟時先讀取目錄中其他已結束程序留下的日誌（檔案鎖仍被持有的屬於執行中的程序，會略過），
+ * 把未結束的對局重新寫進新的日誌並 fsync 後才刪除舊檔，因此復原途中再次當機也不會遺失對局。
+ * 日誌結尾寫到一半的紀錄（CRC 不符）視為未寫入。
+ *
+ * 預設為非同步模式：落子只把紀錄放進記憶體緩衝區（幾十奈秒），最多 commitInterval 之後落盤；
+ * durable 模式下落子會等到自己的紀錄 fsync 完成才返回，同時等待的對局共用同一次 fsync。
+ *
+ * 啟動時加上 -Dboardgames.journal.dir=目錄 即為所有遊戲視窗啟用日誌（見 shared）。
+ */
+public class GameJournal implements Closeable {
+
+    /** 可以寫入日誌的遊戲種類。 */
+    public enum Game {
+        REVERSI,
+        TICTACTOE,
+        QUBIC
+    }
+
+    static final byte START = 1;
+    static final byte MOVE = 2;
+    static final byte END = 3;
+    static final int RECORD_BYTES = 15;
+
+    private static final String SUFFIX = ".wal";
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    private static final String DIR_PROPERTY = "boardgames.journal.dir";
+    private static final String DURABLE_PROPERTY = "boardgames.journal.durable";
+
+    private static volatile GameJournal shared;
+    private static volatile boolean sharedOpened;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final boolean durable;
+    private final long commitIntervalNanos;
+    private final List<RecoveredGame> recovered;
+    private final Thread syncThread;
+
+    // 以下由 lock 保護
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_BYTES);
+    private long nextId;
+    private long appended; // 已放進緩衝區的紀錄數
+    private long synced;   // 已 fsync 的紀錄數
+    private long pendingSince; // 緩衝區由空變成非空的時間
+    private int waiters;
+    private boolean syncIdle; // 背景執行緒正在等待工作；只有這時才需要叫醒它，避免每筆紀錄都 notifyAll
+    private boolean closed;
+    private IOException failure;
+
+    private long syncs;
+
+    private GameJournal(Path file, FileChannel channel, FileLock fileLock, boolean durable,
+                        long commitIntervalMillis, List<RecoveredGame> recovered, long nextId) {
+        this.file = file;
+        this.channel = channel;
+        this.fileLock = fileLock;
+        this.durable = durable;
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.recovered = recovered;
+        this.nextId = nextId;
+        syncThread = new Thread(this::syncLoop, "Journal-Sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * 以非同步模式、5 毫秒的提交間隔開啟日誌。
+     */
+    public static GameJournal open(Path dir) throws IOException {
+        return open(dir, false, 5);
+    }
+
+    /**
+     * 在 dir 中建立這個程序的日誌，並復原其他已結束程序留下的未完成對局（見 getRecovered）。
+     *
+     * @param durable              落子是否等到紀錄 fsync 完成才返回
+     * @param commitIntervalMillis 非同步模式下緩衝區最多累積多久就落盤
+     */
+    public static GameJournal open(Path dir, boolean durable, long commitIntervalMillis) throws IOException {
+        Files.createDirectories(dir);
+        List<FileChannel> oldChannels = new ArrayList<>();
+        List<Path> oldFiles = new ArrayList<>();
+        Map<String, RecoveredGame> games = new LinkedHashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            List<Path> files = new ArrayList<>();
+            stream.forEach(files::add);
+            Collections.sort(files);
+            for (Path old : files) {
+                FileChannel oldChannel = FileChannel.open(old, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                if (oldChannel.tryLock() == null) {
+                    oldChannel.close(); // 另一個執行中的程序的日誌
+                    continue;
+                }
+                oldChannels.add(oldChannel);
+                oldFiles.add(old);
+                readRecords(old, oldChannel, games);
+            }
+        }
+
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        Path file = dir.resolve("journal-" + System.currentTimeMillis() + "-" + pid + SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        FileLock fileLock = channel.lock();
+
+        // 未結束的對局以新的編號重新寫入，fsync 之後才能刪除舊檔
+        List<RecoveredGame> unfinished = new ArrayList<>();
+        long id = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 256);
+        CRC32 crc = new CRC32();
+        for (RecoveredGame game : games.values()) {
+            if (game.finished) {
+                continue;
+            }
+            game.id = ++id;
+            writeRecord(channel, buffer, crc, START, game.id, game.getGame().ordinal() << 8 | game.getBoardSize());
+            for (int cell : game.getMoves()) {
+                writeRecord(channel, buffer, crc, MOVE, game.id, cell);
+            }
+            unfinished.add(game);
+        }
+        drain(channel, buffer);
+        channel.force(false);
+        for (int i = 0; i < oldFiles.size(); i++) {
+            oldChannels.get(i).close();
+            Files.delete(oldFiles.get(i));
+        }
+
+        GameJournal journal = new GameJournal(file, channel, fileLock, durable, commitIntervalMillis,
+                Collections.unmodifiableList(unfinished), id);
+        for (RecoveredGame game : unfinished) {
+            game.journal = journal;
+        }
+        return journal;
+    }
+
+    /**
+     * 依 -Dboardgames.journal.dir（以及 -Dboardgames.journal.durable=true）開啟的共用日誌；
+     * 沒有設定或無法開啟時回傳 null。程序正常結束時會關閉日誌並把緩衝區落盤。
+     */
+    public static GameJournal shared() {
+        if (!sharedOpened) {
+            synchronized (GameJournal.class) {
+                if (!sharedOpened) {
+                    String dir = System.getProperty(DIR_PROPERTY);
+                    if (dir != null) {
+                        try {
+                            GameJournal journal = open(Paths.get(dir), Boolean.getBoolean(DURABLE_PROPERTY), 5);
+                            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                                try {
+                                    journal.close();
+                                } catch (IOException e) {
+                                    System.err.println("關閉對局日誌失敗: " + e);
+                                }
+                            }, "Journal-Shutdown"));
+                            shared = journal;
+                        } catch (IOException e) {
+                            System.err.println("無法開啟對局日誌: " + e);
+                        }
+                    }
+                    sharedOpened = true;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 開啟時從舊日誌復原的未結束對局，依原本開始的順序排列。
+     */
+    public List<RecoveredGame> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * 開始記錄一局新的對局。
+     */
+    public JournalSession start(Game game, int boardSize) {
+        long id;
+        synchronized (lock) {
+            id = ++nextId;
+        }
+        JournalSession session = new JournalSession(this, id, game);
+        session.restart(boardSize);
+        return session;
+    }
+
+    /**
+     * 附加一筆紀錄；durable 模式下等到它 fsync 完成。日誌已關閉或寫入失敗後不再記錄，對局照常進行。
+     */
+    void append(byte type, long id, int value) {
+        synchronized (lock) {
+            while (active.remaining() < RECORD_BYTES && !closed && failure == null) {
+                wakeSyncThread(); // 緩衝區滿了，等背景執行緒換上空的緩衝區
+                waitQuietly();
+            }
+            if (closed || failure != null) {
+                return;
+            }
+            if (active.position() == 0) {
+                pendingSince = System.nanoTime();
+            }
+            int start = active.position();
+            active.position(start + 4);
+            active.put(type).putLong(id).putShort((short) value);
+            crc.reset();
+            crc.update(active.array(), start + 4, RECORD_BYTES - 4);
+            active.putInt(start, (int) crc.getValue());
+            long mark = ++appended;
+            if (!durable) {
+                if (active.position() >= BUFFER_BYTES / 2) {
+                    wakeSyncThread();
+                }
+                return;
+            }
+            waiters++;
+            wakeSyncThread();
+            try {
+                while (synced < mark && failure == null) {
+                    waitQuietly();
+                }
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    /** 必須持有 lock。 */
+    private void wakeSyncThread() {
+        if (syncIdle) {
+            syncIdle = false;
+            lock.notifyAll();
+        }
+    }
+
+    private void waitQuietly() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待日誌落盤時被中斷", e);
+        }
+    }
+
+    private void syncLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long upTo;
+            synchronized (lock) {
+                while (!readyToSync()) {
+                    if (closed && active.position() == 0) {
+                        return;
+                    }
+                    long waitNanos = active.position() == 0
+                            ? commitIntervalNanos
+                            : commitIntervalNanos - (System.nanoTime() - pendingSince);
+                    syncIdle = true;
+                    try {
+                        lock.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+                    } catch (InterruptedException e) {
+                        return;
+                    } finally {
+                        syncIdle = false;
+                    }
+                }
+                batch = active;
+                active = spare;
+                spare = null;
+                upTo = appended;
+                lock.notifyAll(); // 等待空間的落子可以繼續
+            }
+
+            IOException error = null;
+            try {
+                drain(channel, batch);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+                batch.clear();
+            }
+
+            synchronized (lock) {
+                spare = batch;
+                syncs++;
+                if (error != null) {
+                    failure = error;
+                    System.err.println("對局日誌寫入失敗，停止記錄: " + error);
+                } else {
+                    synced = upTo;
+                }
+                lock.notifyAll();
+                if (error != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** 必須持有 lock。 */
+    private boolean readyToSync() {
+        if (active.position() == 0 || spare == null) {
+            return false;
+        }
+        return closed || waiters > 0 || active.position() >= BUFFER_BYTES / 2
+                || System.nanoTime() - pendingSince >= commitIntervalNanos;
+    }
+
+    /**
+     * 把緩衝區中的紀錄落盤並關閉日誌檔。未結束的對局仍留在日誌裡，下次開啟時會被復原。
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            syncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待日誌落盤時被中斷");
+        }
+        fileLock.release();
+        channel.close();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /** 已附加的紀錄數。 */
+    public long getAppended() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    /** 已執行的 fsync 次數（每次涵蓋一批紀錄）。 */
+    public long getSyncs() {
+        synchronized (lock) {
+            return syncs;
+        }
+    }
+
+    private static void writeRecord(FileChannel channel, ByteBuffer buffer, CRC32 crc,
+                                    byte type, long id, int value) throws IOException {
+        if (buffer.remaining() < RECORD_BYTES) {
+            drain(channel, buffer);
+        }
+        int start = buffer.position();
+        buffer.position(start + 4);
+        buffer.put(type).putLong(id).putShort((short) value);
+        crc.reset();
+        crc.update(buffer.array(), start + 4, RECORD_BYTES - 4);
+        buffer.putInt(start, (int) crc.getValue());
+    }
+
+    /** 把緩衝區（寫入模式）的內容全部寫到檔案並清空。 */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 讀取一個舊日誌的紀錄，遇到 CRC 不符或不完整的紀錄就停止（當機時寫到一半的結尾）。
+     */
+    private static void readRecords(Path path, FileChannel channel, Map<String, RecoveredGame> games)
+            throws IOException {
+        long size = channel.size();
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (data.hasRemaining() && channel.read(data) >= 0) {
+            // 讀到滿或檔案結尾
+        }
+        data.flip();
+        CRC32 crc = new CRC32();
+        String prefix = path.getFileName() + "#";
+        while (data.remaining() >= RECORD_BYTES) {
+            int start = data.position();
+            int stored = data.getInt();
+            crc.reset();
+            crc.update(data.array(), start + 4, RECORD_BYTES - 4);
+            if ((int) crc.getValue() != stored) {
+                break;
+            }
+            byte type = data.get();
+            long id = data.getLong();
+            int value = data.getShort() & 0xFFFF;
+            String key = prefix + id;
+            RecoveredGame game = games.get(key);
+            if (type == START) {
+                int ordinal = value >>> 8;
+                if (ordinal >= Game.values().length) {
+                    break;
+                }
+                if (game == null) {
+                    game = new RecoveredGame();
+                    games.put(key, game);
+                }
+                game.restart(Game.values()[ordinal], value & 0xFF);
+            } else if (game != null && type == MOVE) {
+                game.addMove(value);
+            } else if (game != null && type == END) {
+                game.finished = true;
+            } else {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.boardgames.journal;
+
+/**
+ * 一局對局在 GameJournal 中的紀錄。遊戲模型在每次接受落子、重新開始與結束時呼叫對應的方法；
+ * 同一個物件可以跨越多次 reset 重複使用。
+ */
+public final class JournalSession {
+
+    private final GameJournal journal;
+    private final long id;
+    private final GameJournal.Game game;
+
+    JournalSession(GameJournal journal, long id, GameJournal.Game game) {
+        this.journal = journal;
+        this.id = id;
+        this.game = game;
+    }
+
+    /**
+     * 記錄一步已接受的落子。
+     *
+     * @param cell 格子編號（黑白棋 row * size + col、井字棋 row * 3 + col、立體井字棋 level * 16 + row * 4 + col）
+     */
+    public void move(int cell) {
+        journal.append(GameJournal.MOVE, id, cell);
+    }
+
+    /**
+     * 以新的棋盤邊長重新開始，之前的落子不再需要復原。
+     */
+    public void restart(int boardSize) {
+        journal.append(GameJournal.START, id, game.ordinal() << 8 | boardSize);
+    }
+
+    /**
+     * 對局已結束（或被放棄），不需要復原。之後再 restart 會重新開始記錄。
+     */
+    public void finish() {
+        journal.append(GameJournal.END, id, 0);
+    }
+
+    public GameJournal.Game getGame() {
+        return game;
+    }
+}
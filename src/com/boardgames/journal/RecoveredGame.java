@@ -0,0 +1,62 @@
+package com.boardgames.journal;
+
+import java.util.Arrays;
+
+/**
+ * 從日誌復原的未結束對局：遊戲種類、棋盤邊長與依序的落子。
+ * 遊戲模型依序重放這些落子之後，以 resume 取得紀錄並繼續寫入同一份日誌。
+ */
+public final class RecoveredGame {
+
+    private GameJournal.Game game;
+    private int boardSize;
+    private int[] moves = new int[16];
+    private int moveCount;
+    boolean finished;
+    long id;
+    GameJournal journal;
+
+    RecoveredGame() {
+    }
+
+    void restart(GameJournal.Game game, int boardSize) {
+        this.game = game;
+        this.boardSize = boardSize;
+        moveCount = 0;
+        finished = false;
+    }
+
+    void addMove(int cell) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moveCount * 2);
+        }
+        moves[moveCount++] = cell;
+    }
+
+    public GameJournal.Game getGame() {
+        return game;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * 依序的落子格子編號（編號方式見 JournalSession.move）。
+     */
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    /**
+     * 取得這局的紀錄以繼續寫入；之前的落子已經在新的日誌中，不需要重新記錄。
+     */
+    public JournalSession resume() {
+        return new JournalSession(journal, id, game);
+    }
+
+    @Override
+    public String toString() {
+        return game + " " + boardSize + "x" + boardSize + "，" + moveCount + " 手";
+    }
+}
@@ -0,0 +1,76 @@
+package com.boardgames.reversi;
+
+import java.util.Locale;
+
+/**
+ * 多主變例分析中的一條變化：根節點的候選步、分數與主變例 (principal variation)。
+ * 建立後不可變，可以直接交給其他執行緒。
+ */
+public final class AnalysisLine {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final boolean exact;
+    private final int[] pv;
+
+    public AnalysisLine(int move, int score, int depth, boolean exact, int[] pv) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.exact = exact;
+        this.pv = pv.clone();
+    }
+
+    /** 候選步的格子編號 (row * 8 + col)。 */
+    public int getMove() {
+        return move;
+    }
+
+    /** 以行棋方角度的分數（1/ReversiEvaluator.SCALE 子）。 */
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** 分數是否為解到終局的精確值。 */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * 主變例，第一步就是候選步本身；-1 代表虛手。
+     */
+    public int[] getPrincipalVariation() {
+        return pv.clone();
+    }
+
+    /**
+     * 分數的簡短文字：精確值以整數子數表示，其餘保留一位小數。
+     */
+    public String formatScore() {
+        if (exact) {
+            return String.format(Locale.ROOT, "%+d", score / ReversiEvaluator.SCALE);
+        }
+        return String.format(Locale.ROOT, "%+.1f", score / (double) ReversiEvaluator.SCALE);
+    }
+
+    public String formatPrincipalVariation() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pv.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(Bitboard.squareName(pv[i]));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return Bitboard.squareName(move) + " " + formatScore() + " (深度 " + depth + "): " + formatPrincipalVariation();
+    }
+}
@@ -0,0 +1,10 @@
+package com.boardgames.reversi;
+
+/**
+ * 接收多主變例分析的進度。由執行分析的執行緒呼叫，實作時不應阻塞太久。
+ */
+@FunctionalInterface
+public interface AnalysisListener {
+
+    void onUpdate(AnalysisUpdate update);
+}
@@ -0,0 +1,56 @@
+package com.boardgames.reversi;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 反覆加深完成一個深度時發出的分析快照：依分數由高到低排列的前 K 條變化，以及到目前為止的搜尋量。
+ */
+public final class AnalysisUpdate {
+
+    private final int depth;
+    private final boolean exact;
+    private final long nodes;
+    private final long nanos;
+    private final List<AnalysisLine> lines;
+
+    public AnalysisUpdate(int depth, boolean exact, long nodes, long nanos, List<AnalysisLine> lines) {
+        this.depth = depth;
+        this.exact = exact;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.lines = Collections.unmodifiableList(lines);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** 是否已解到終局；此時不會再有後續更新。 */
+    public boolean isExact() {
+        return exact;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double nodesPerSecond() {
+        return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+    }
+
+    /**
+     * 依分數由高到低排列的變化（第一條即為最佳步）。
+     */
+    public List<AnalysisLine> getLines() {
+        return lines;
+    }
+
+    public AnalysisLine getBest() {
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.boardgames.reversi;
+
+/**
+ * 8x8 黑白棋的位元棋盤 (Bitboard) 運算。
+ * 每一方的棋子以一個 long 表示，第 row * 8 + col 個位元代表 (row, col)。
+ * 合法步與翻轉的計算全部以位移和遮罩完成，不需要逐格掃描，也不配置任何物件。
+ */
+public final class Bitboard {
+
+    public static final int SIZE = 8;
+    public static final int SQUARES = 64;
+
+    // 排除第 0 欄 / 第 7 欄的遮罩，避免水平方向位移時跨列繞回
+    private static final long NOT_COL_0 = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_COL_7 = 0x7F7F7F7F7F7F7F7FL;
+
+    /** 初始局面的黑子 (d5, e4)。 */
+    public static final long INITIAL_BLACK = (1L << (3 * 8 + 4)) | (1L << (4 * 8 + 3));
+    /** 初始局面的白子 (d4, e5)。 */
+    public static final long INITIAL_WHITE = (1L << (3 * 8 + 3)) | (1L << (4 * 8 + 4));
+
+    private Bitboard() {
+    }
+
+    public static int square(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    /**
+     * 將整個棋子集合往指定方向移動一格（0..7 依序為 東、西、南、北、東南、西北、西南、東北）。
+     */
+    public static long shift(long bits, int direction) {
+        switch (direction) {
+            case 0: return (bits << 1) & NOT_COL_0;
+            case 1: return (bits >>> 1) & NOT_COL_7;
+            case 2: return bits << 8;
+            case 3: return bits >>> 8;
+            case 4: return (bits << 9) & NOT_COL_0;
+            case 5: return (bits >>> 9) & NOT_COL_7;
+            case 6: return (bits << 7) & NOT_COL_7;
+            default: return (bits >>> 7) & NOT_COL_0;
+        }
+    }
+
+    /**
+     * 計算 player 所有合法落子點。
+     *
+     * @param player 行棋方的棋子
+     * @param opponent 對手的棋子
+     * @return 合法落子點的位元集合
+     */
+    public static long legalMoves(long player, long opponent) {
+        long empty = ~(player | opponent);
+        long moves = 0;
+        for (int d = 0; d < 8; d++) {
+            // 沿著方向連續延伸對手棋子，最多 6 格
+            long t = shift(player, d) & opponent;
+            t |= shift(t, d) & opponent;
+            t |= shift(t, d) & opponent;
+            t |= shift(t, d) & opponent;
+            t |= shift(t, d) & opponent;
+            t |= shift(t, d) & opponent;
+            moves |= shift(t, d) & empty;
+        }
+        return moves;
+    }
+
+    /**
+     * 計算 player 在 square 落子時會被翻轉的對手棋子（不檢查 square 本身是否為空）。
+     */
+    public static long flips(long player, long opponent, int square) {
+        long move = 1L << square;
+        long flipped = 0;
+        for (int d = 0; d < 8; d++) {
+            long line = 0;
+            long t = shift(move, d);
+            while ((t & opponent) != 0) {
+                line |= t;
+                t = shift(t, d);
+            }
+            if ((t & player) != 0) {
+                flipped |= line;
+            }
+        }
+        return flipped;
+    }
+
+    /**
+     * 與某個集合相鄰（八方向）的所有格子。
+     */
+    public static long neighbours(long bits) {
+        long result = 0;
+        for (int d = 0; d < 8; d++) {
+            result |= shift(bits, d);
+        }
+        return result;
+    }
+
+    /**
+     * 終局分數（以行棋方角度計算的子數差），空格依正式規則歸勝方。
+     */
+    public static int finalScore(long player, long opponent) {
+        int own = Long.bitCount(player);
+        int opp = Long.bitCount(opponent);
+        int empties = SQUARES - own - opp;
+        if (own > opp) {
+            return own - opp + empties;
+        } else if (own < opp) {
+            return own - opp - empties;
+        }
+        return 0;
+    }
+
+    /**
+     * 從 char[][] 棋盤取出指定符號的位元集合。
+     */
+    public static long fromBoard(char[][] board, char symbol) {
+        long bits = 0;
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (board[i][j] == symbol) {
+                    bits |= 1L << square(i, j);
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 將位元棋盤轉成 64 字元的文字（X 為行棋方，O 為對手，- 為空格），方便除錯與存檔。
+     */
+    public static String toString(long player, long opponent) {
+        StringBuilder sb = new StringBuilder(SQUARES);
+        for (int sq = 0; sq < SQUARES; sq++) {
+            long bit = 1L << sq;
+            sb.append((player & bit) != 0 ? 'X' : (opponent & bit) != 0 ? 'O' : '-');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 以 a1..h8 表示法輸出格子名稱（欄為字母，列為數字）。
+     */
+    public static String squareName(int square) {
+        if (square < 0) {
+            return "pass";
+        }
+        return "" + (char) ('a' + square % SIZE) + (square / SIZE + 1);
+    }
+}
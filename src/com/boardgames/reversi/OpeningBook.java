@@ -0,0 +1,571 @@
+package com.boardgames.reversi;
+
+import com.boardgames.common.BoardSymmetry;
+import com.boardgames.common.CancellationToken;
+import com.boardgames.common.EngineScheduler;
+import com.boardgames.common.MemoryBudget;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 8x8 黑白棋的自我學習開局庫。
+ *
+ * 每下完一局就把前 maxPlies 手經過的局面加入開局庫，累計局數與終局子數差，並以 negamax 把葉節點的值往回傳：
+ * 葉節點的值是搜尋分數（算作一局）與經過該局面的每一局實際結果的平均。
+ * 之後在 EngineScheduler 的背景優先權下，對這局路徑上的每個局面搜尋「書外最好的一步」（偏離步），
+ * 把它當作新的葉節點加入開局庫。輸掉的開局因此會被往回傳的負值淘汰，改走偏離步或其他較好的分支。
+ *
+ * 局面以對稱正規化雜湊為鍵，互為旋轉或鏡射的局面共用一筆資料。每筆資料是不可變的 Entry，
+ * 更新時整筆換掉（copy-on-write），因此查詢完全不加鎖，可以和學習同時進行；寫入由一把鎖串行化。
+ * 檔案是固定長度的二進位紀錄，每個局面 26 位元組，先寫到暫存檔再以原子性的改名取代舊檔。
+ *
+ * 共用的開局庫登記在 MemoryBudget 的 reversi.book 群組；估計的大小超過份額時不再搜尋偏離步（不再長出新的分支），
+ * 對局結果仍然照常累計，每局最多增加 maxPlies 個局面。
+ */
+public final class OpeningBook implements MemoryBudget.Component {
+
+    /** 預設的開局庫檔案。 */
+    public static final String DEFAULT_BOOK_PATH = "data/reversi.book";
+    /** 沒有搜尋分數。 */
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+    /** 預設收錄的手數。 */
+    public static final int DEFAULT_MAX_PLIES = 20;
+    /** 預設的背景搜尋深度。 */
+    public static final int DEFAULT_SEARCH_DEPTH = 8;
+
+    private static final int MAGIC = 0x52424b31; // "RBK1"
+    private static final int RECORD_BYTES = 26;
+    private static final int GAME_SCORE_DEPTH = 1; // 對局中的搜尋分數深度未知，任何背景搜尋都會取代它
+    // 每個局面在堆積上大約的大小：ConcurrentHashMap 的節點與陣列槽、Long 鍵與 Entry
+    private static final int ENTRY_HEAP_BYTES = 96;
+
+    private static final ThreadLocal<ReversiSearch> SEARCH =
+            ThreadLocal.withInitial(ReversiSearch::new);
+
+    private static volatile OpeningBook shared;
+    private static boolean sharedOpened;
+
+    /**
+     * 開局庫中的一個局面（行棋方角度），不可變。
+     */
+    public static final class Entry {
+        final int games;
+        final int scoreSum;
+        final int searchValue;
+        final int searchDepth;
+        final int expandedDepth;
+        final int value;
+
+        Entry(int games, int scoreSum, int searchValue, int searchDepth, int expandedDepth, int value) {
+            this.games = games;
+            this.scoreSum = scoreSum;
+            this.searchValue = searchValue;
+            this.searchDepth = searchDepth;
+            this.expandedDepth = expandedDepth;
+            this.value = value;
+        }
+
+        Entry withValue(int newValue) {
+            return new Entry(games, scoreSum, searchValue, searchDepth, expandedDepth, newValue);
+        }
+
+        /** 經過這個局面的對局數。 */
+        public int getGames() {
+            return games;
+        }
+
+        /** 平均終局子數差（行棋方角度），沒有對局時為 0。 */
+        public double getAverageResult() {
+            return games == 0 ? 0 : (double) scoreSum / games;
+        }
+
+        /** 搜尋分數（1/SCALE 子），沒有時為 NO_SCORE。 */
+        public int getSearchValue() {
+            return searchDepth == 0 ? NO_SCORE : searchValue;
+        }
+
+        public int getSearchDepth() {
+            return searchDepth;
+        }
+
+        /** 是否已在背景搜尋過書外最好的一步。 */
+        public boolean isExpanded() {
+            return expandedDepth > 0;
+        }
+
+        /** negamax 傳回的值（1/SCALE 子，行棋方角度）。 */
+        public int getValue() {
+            return value;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final File file; // null 表示不存檔
+    private final int maxPlies;
+    private final int searchDepth;
+    private final Object writeLock = new Object();
+    private final Object saveLock = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean learning = true;
+    private volatile long limitBytes = Long.MAX_VALUE;
+
+    /**
+     * 建立空的開局庫。
+     *
+     * @param file 存檔位置，null 表示只留在記憶體
+     */
+    public OpeningBook(File file, int maxPlies, int searchDepth) {
+        this(file, maxPlies, searchDepth, new ConcurrentHashMap<>());
+    }
+
+    private OpeningBook(File file, int maxPlies, int searchDepth, ConcurrentHashMap<Long, Entry> entries) {
+        if (maxPlies < 1 || searchDepth < 1) {
+            throw new IllegalArgumentException("手數與搜尋深度必須是正數: " + maxPlies + ", " + searchDepth);
+        }
+        this.file = file;
+        this.maxPlies = maxPlies;
+        this.searchDepth = searchDepth;
+        this.entries = entries;
+    }
+
+    /**
+     * 讀取開局庫；檔案不存在時回傳空的開局庫，之後存回同一個檔案。
+     *
+     * @throws IOException 檔案格式錯誤或讀取失敗
+     */
+    public static OpeningBook load(File file, int maxPlies, int searchDepth) throws IOException {
+        if (!file.isFile()) {
+            return new OpeningBook(file, maxPlies, searchDepth);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是開局庫檔案: " + file);
+            }
+            int count = in.readInt();
+            if (count < 0 || (long) count * RECORD_BYTES > file.length()) {
+                throw new IOException("開局庫檔案已損毀: " + file);
+            }
+            ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>(count * 4 / 3 + 16);
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                int games = in.readInt();
+                int scoreSum = in.readInt();
+                int searchValue = in.readInt();
+                int depth = in.readUnsignedByte();
+                int expanded = in.readUnsignedByte();
+                int value = in.readInt();
+                entries.put(key, new Entry(games, scoreSum, searchValue, depth, expanded, value));
+            }
+            return new OpeningBook(file, maxPlies, searchDepth, entries);
+        }
+    }
+
+    /**
+     * 程式共用的開局庫：讀取 -Dboardgames.reversi.book 指定的檔案（預設 data/reversi.book），
+     * 以 -Dboardgames.reversi.book=none 關閉。讀取失敗時印出錯誤並回傳 null。
+     */
+    public static OpeningBook shared() {
+        OpeningBook book = shared;
+        if (book == null) {
+            synchronized (OpeningBook.class) {
+                if (!sharedOpened) {
+                    String path = System.getProperty("boardgames.reversi.book", DEFAULT_BOOK_PATH);
+                    if (!path.equals("none")) {
+                        try {
+                            shared = load(new File(path), DEFAULT_MAX_PLIES, DEFAULT_SEARCH_DEPTH);
+                            MemoryBudget.get().register(MemoryBudget.REVERSI_BOOK, shared);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                    sharedOpened = true;
+                }
+                book = shared;
+            }
+        }
+        return book;
+    }
+
+    /**
+     * 設定下完一局後是否在背景搜尋偏離步（預設開啟）。關閉時仍累計對局結果並存檔。
+     */
+    public void setLearning(boolean learning) {
+        this.learning = learning;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // --- MemoryBudget.Component ---
+
+    @Override
+    public long minBytes() {
+        return 0;
+    }
+
+    @Override
+    public long maxBytes() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public long usedBytes() {
+        return (long) entries.size() * ENTRY_HEAP_BYTES;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    @Override
+    public void resize(long bytes) {
+        limitBytes = bytes;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    public int getSearchDepth() {
+        return searchDepth;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 查詢局面（不加鎖）。
+     *
+     * @return 不在開局庫中時回傳 null
+     */
+    public Entry lookup(long player, long opponent) {
+        return entries.get(key(player, opponent));
+    }
+
+    /**
+     * 開局庫建議的一步（不加鎖）：從已經搜尋過偏離步的局面中，選出讓對手的值最低的書內子局面。
+     * 局面不在開局庫中或還沒搜尋過偏離步時，書內的分支不一定比書外的好，回傳 -1 交給搜尋決定。
+     *
+     * @return 格子編號，沒有建議時回傳 -1
+     */
+    public int bestMove(long player, long opponent) {
+        Entry entry = lookup(player, opponent);
+        if (entry == null || entry.expandedDepth == 0) {
+            return -1;
+        }
+        long moves = Bitboard.legalMoves(player, opponent);
+        int bestMove = -1;
+        int bestValue = NO_SCORE;
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flips = Bitboard.flips(player, opponent, sq);
+            Entry child = lookup(opponent & ~flips, player | flips | (1L << sq));
+            if (child != null && -child.value > bestValue) {
+                bestValue = -child.value;
+                bestMove = sq;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * 記錄一局已下完的 8x8 對局，更新開局庫並（學習開啟時）在背景搜尋偏離步，完成後存檔。
+     *
+     * @param moves 從初始局面開始的每一步（row * 8 + col），虛手不記錄
+     * @param count 步數
+     * @param scores 每一步落子前行棋方的搜尋分數（1/SCALE 子），未知時為 NO_SCORE；整個陣列可為 null
+     * @throws IllegalArgumentException 有不合法的步或對局沒有結束
+     */
+    public void recordGame(int[] moves, int count, int[] scores) {
+        int plies = Math.min(count, maxPlies);
+        long[] players = new long[plies + 1];
+        long[] opponents = new long[plies + 1];
+        boolean[] blackToMove = new boolean[plies + 1];
+        long player = Bitboard.INITIAL_BLACK;
+        long opponent = Bitboard.INITIAL_WHITE;
+        boolean black = true;
+        int recorded = 0;
+        for (int i = 0; i <= count; i++) {
+            if (Bitboard.legalMoves(player, opponent) == 0 && Bitboard.legalMoves(opponent, player) != 0) {
+                long t = player; // 虛手
+                player = opponent;
+                opponent = t;
+                black = !black;
+            }
+            if (i <= plies) {
+                players[i] = player;
+                opponents[i] = opponent;
+                blackToMove[i] = black;
+                recorded = i + 1;
+            }
+            if (i == count) {
+                break;
+            }
+            int sq = moves[i];
+            if (sq < 0 || sq >= Bitboard.SQUARES || (Bitboard.legalMoves(player, opponent) & (1L << sq)) == 0) {
+                throw new IllegalArgumentException("第 " + (i + 1) + " 步不合法: " + Bitboard.squareName(sq));
+            }
+            long flips = Bitboard.flips(player, opponent, sq);
+            long next = opponent & ~flips;
+            opponent = player | flips | (1L << sq);
+            player = next;
+            black = !black;
+        }
+        if (Bitboard.legalMoves(player, opponent) != 0 || Bitboard.legalMoves(opponent, player) != 0) {
+            throw new IllegalArgumentException("對局尚未結束");
+        }
+        int blackResult = black ? Bitboard.finalScore(player, opponent) : -Bitboard.finalScore(player, opponent);
+
+        synchronized (writeLock) {
+            // 這局走進了還沒人下過的子局面（通常是上次找到的偏離步），它已經不算書外，父局面要重新找下一個偏離步
+            boolean[] reexpand = new boolean[recorded];
+            for (int i = 0; i + 1 < recorded; i++) {
+                Entry child = entries.get(key(players[i + 1], opponents[i + 1]));
+                reexpand[i] = child == null || child.games == 0;
+            }
+            for (int i = 0; i < recorded; i++) {
+                long k = key(players[i], opponents[i]);
+                Entry old = entries.get(k);
+                int result = blackToMove[i] ? blackResult : -blackResult;
+                int searchValue = old == null ? 0 : old.searchValue;
+                int depth = old == null ? 0 : old.searchDepth;
+                if (scores != null && i < count && scores[i] != NO_SCORE && depth < GAME_SCORE_DEPTH) {
+                    searchValue = scores[i];
+                    depth = GAME_SCORE_DEPTH;
+                }
+                entries.put(k, new Entry(old == null ? 1 : old.games + 1, (old == null ? 0 : old.scoreSum) + result,
+                        searchValue, depth, old == null || reexpand[i] ? 0 : old.expandedDepth, old == null ? 0 : old.value));
+            }
+            propagate(players, opponents, recorded);
+        }
+
+        pending.incrementAndGet();
+        int nodes = recorded;
+        EngineScheduler.get().submit(EngineScheduler.Priority.BACKGROUND, "Opening book",
+                        token -> learn(players, opponents, nodes, token))
+                .future().whenComplete((result, error) -> {
+                    if (error != null) {
+                        error.printStackTrace();
+                    }
+                    synchronized (pending) {
+                        pending.decrementAndGet();
+                        pending.notifyAll();
+                    }
+                });
+    }
+
+    /**
+     * 等待所有背景學習工作完成（離線工具使用）。
+     */
+    public void awaitLearning() throws InterruptedException {
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                pending.wait();
+            }
+        }
+    }
+
+    // 在背景搜尋路徑上每個局面的偏離步與最後的葉節點，最後重新傳值並存檔。被搶占時整個工作會重新執行，
+    // 已完成的部分留在開局庫中，重跑時會跳過
+    private Void learn(long[] players, long[] opponents, int count, CancellationToken token) throws IOException {
+        if (learning && usedBytes() < limitBytes) {
+            ReversiSearch search = SEARCH.get();
+            search.setCancellationToken(token);
+            search.prepare(); // value() 不會自行開始新的一輪，表的新容量也在這時套用
+            try {
+                for (int i = count - 1; i >= 0; i--) {
+                    long player = players[i];
+                    long opponent = opponents[i];
+                    Entry entry = lookup(player, opponent);
+                    if (entry == null || Bitboard.legalMoves(player, opponent) == 0) {
+                        continue;
+                    }
+                    if (i == count - 1 && entry.searchDepth < searchDepth && !hasChildren(player, opponent)) {
+                        int value = search.value(player, opponent, searchDepth);
+                        token.throwIfCancelled();
+                        storeSearch(player, opponent, value, searchDepth);
+                    }
+                    // 收錄的最後一手不找偏離步，開局庫不會超出 maxPlies
+                    if (i < maxPlies && entry.expandedDepth < searchDepth) {
+                        expand(player, opponent, search, token);
+                    }
+                }
+            } finally {
+                search.setCancellationToken(null);
+            }
+            synchronized (writeLock) {
+                propagate(players, opponents, count);
+            }
+        }
+        save();
+        return null;
+    }
+
+    // 搜尋書外的每一步，把子局面值最低（對行棋方最好）的一步加入開局庫
+    private void expand(long player, long opponent, ReversiSearch search, CancellationToken token) {
+        long moves = Bitboard.legalMoves(player, opponent);
+        long bestPlayer = 0;
+        long bestOpponent = 0;
+        int bestValue = Integer.MAX_VALUE;
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flips = Bitboard.flips(player, opponent, sq);
+            long childPlayer = opponent & ~flips;
+            long childOpponent = player | flips | (1L << sq);
+            if (lookup(childPlayer, childOpponent) != null) {
+                continue;
+            }
+            int value = search.value(childPlayer, childOpponent, searchDepth - 1);
+            token.throwIfCancelled();
+            if (value < bestValue) {
+                bestValue = value;
+                bestPlayer = childPlayer;
+                bestOpponent = childOpponent;
+            }
+        }
+        synchronized (writeLock) {
+            if (bestValue != Integer.MAX_VALUE) {
+                storeSearch(bestPlayer, bestOpponent, bestValue, searchDepth - 1);
+            }
+            long k = key(player, opponent);
+            Entry old = entries.get(k);
+            if (old != null && old.expandedDepth < searchDepth) {
+                entries.put(k, new Entry(old.games, old.scoreSum, old.searchValue, old.searchDepth, searchDepth, old.value));
+            }
+        }
+    }
+
+    private void storeSearch(long player, long opponent, int value, int depth) {
+        synchronized (writeLock) {
+            long k = key(player, opponent);
+            Entry old = entries.get(k);
+            if (old == null) {
+                entries.put(k, new Entry(0, 0, value, depth, 0, value));
+            } else if (old.searchDepth < depth) {
+                Entry updated = new Entry(old.games, old.scoreSum, value, depth, old.expandedDepth, old.value);
+                entries.put(k, updated.withValue(computeValue(player, opponent, updated)));
+            }
+        }
+    }
+
+    // 從最深的局面往回重新計算路徑上每個局面的值；呼叫端持有 writeLock
+    private void propagate(long[] players, long[] opponents, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            long k = key(players[i], opponents[i]);
+            Entry entry = entries.get(k);
+            if (entry != null) {
+                int value = computeValue(players[i], opponents[i], entry);
+                if (value != entry.value) {
+                    entries.put(k, entry.withValue(value));
+                }
+            }
+        }
+    }
+
+    // 有書內子局面時取 negamax，否則是葉節點
+    private int computeValue(long player, long opponent, Entry entry) {
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0) {
+            if (Bitboard.legalMoves(opponent, player) == 0) {
+                return Bitboard.finalScore(player, opponent) * ReversiEvaluator.SCALE;
+            }
+            Entry passed = lookup(opponent, player);
+            return passed != null ? -passed.value : leafValue(entry);
+        }
+        int best = NO_SCORE;
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flips = Bitboard.flips(player, opponent, sq);
+            Entry child = lookup(opponent & ~flips, player | flips | (1L << sq));
+            if (child != null) {
+                best = Math.max(best, -child.value);
+            }
+        }
+        return best == NO_SCORE ? leafValue(entry) : best;
+    }
+
+    // 葉節點的值：搜尋分數當作一局，和每一局的實際結果平均。同一條開局一直輸，值就會一直往下掉，
+    // 直到某個上游局面的偏離步比它好為止
+    private static int leafValue(Entry entry) {
+        long sum = (long) entry.scoreSum * ReversiEvaluator.SCALE;
+        int weight = entry.games;
+        if (entry.searchDepth > 0) {
+            sum += entry.searchValue;
+            weight++;
+        }
+        return weight == 0 ? 0 : (int) Math.round((double) sum / weight);
+    }
+
+    private boolean hasChildren(long player, long opponent) {
+        long moves = Bitboard.legalMoves(player, opponent);
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            long flips = Bitboard.flips(player, opponent, sq);
+            if (lookup(opponent & ~flips, player | flips | (1L << sq)) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 寫入檔案：先寫暫存檔再原子性地改名，寫到一半當機也不會損壞舊檔。沒有檔案位置時不做任何事。
+     */
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        synchronized (saveLock) {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            // 邊走訪邊寫，筆數在寫完之後才確定，因此先寫到記憶體
+            int count = 0;
+            ByteArrayOutputStream records = new ByteArrayOutputStream(entries.size() * RECORD_BYTES);
+            DataOutputStream data = new DataOutputStream(records);
+            for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                data.writeLong(e.getKey());
+                data.writeInt(entry.games);
+                data.writeInt(entry.scoreSum);
+                data.writeInt(entry.searchValue);
+                data.writeByte(entry.searchDepth);
+                data.writeByte(entry.expandedDepth);
+                data.writeInt(entry.value);
+                count++;
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(count);
+                records.writeTo(out);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static long key(long player, long opponent) {
+        return BoardSymmetry.canonicalHash(player, opponent);
+    }
+}
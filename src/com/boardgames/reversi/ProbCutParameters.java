@@ -0,0 +1,192 @@
+package com.boardgames.reversi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Multi-ProbCut 的回歸參數。
+ * 對每一組（深層深度 d、淺層深度 d'、遊戲階段），以 v_d ≈ a * v_d' + b、殘差標準差 sigma 描述淺層與深層搜尋值的關係。
+ * 搜尋時用淺層結果推估深層結果超出 alpha/beta 視窗的機率，夠有把握時直接剪枝。
+ *
+ * 檔案為純文字，與評估權重放在同一個目錄（預設 data/reversi.probcut），每行一組：
+ * <pre>
+ * # depth shallow stage a b sigma
+ * 8 4 2 1.013 -3.2 412.7
+ * </pre>
+ * 分數單位與搜尋相同（1/ReversiEvaluator.SCALE 子）。
+ */
+public class ProbCutParameters {
+
+    public static final String DEFAULT_PATH = "data/reversi.probcut";
+
+    /** 支援的最大深層深度。 */
+    public static final int MAX_DEPTH = 32;
+
+    private static volatile ProbCutParameters defaultInstance;
+
+    // cuts[depth] 依淺層深度由小到大排列，讓較便宜的檢查先做
+    private final Cut[][] cuts = new Cut[MAX_DEPTH + 1][];
+
+    /**
+     * 一組淺層檢查；每個階段各有一組回歸係數。
+     */
+    public static final class Cut {
+        public final int depth;
+        public final int shallowDepth;
+        public final double[] a = new double[ReversiEvaluator.STAGES];
+        public final double[] b = new double[ReversiEvaluator.STAGES];
+        public final double[] sigma = new double[ReversiEvaluator.STAGES];
+        final boolean[] present = new boolean[ReversiEvaluator.STAGES];
+
+        Cut(int depth, int shallowDepth) {
+            this.depth = depth;
+            this.shallowDepth = shallowDepth;
+        }
+
+        public boolean hasStage(int stage) {
+            return present[stage];
+        }
+    }
+
+    public ProbCutParameters() {
+        for (int d = 0; d <= MAX_DEPTH; d++) {
+            cuts[d] = new Cut[0];
+        }
+    }
+
+    /**
+     * 取得共用參數：讀取 -Dboardgames.reversi.probcut 指定的檔案（預設 data/reversi.probcut）。
+     * 沒有參數檔時回傳空的參數組，此時 ProbCut 不會產生任何剪枝。
+     */
+    public static ProbCutParameters getDefault() {
+        ProbCutParameters params = defaultInstance;
+        if (params == null) {
+            synchronized (ProbCutParameters.class) {
+                params = defaultInstance;
+                if (params == null) {
+                    File file = new File(System.getProperty("boardgames.reversi.probcut", DEFAULT_PATH));
+                    params = new ProbCutParameters();
+                    if (file.isFile()) {
+                        try {
+                            params = load(file);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                    defaultInstance = params;
+                }
+            }
+        }
+        return params;
+    }
+
+    /**
+     * 取得深層深度 depth 可用的淺層檢查，沒有時回傳空陣列。
+     */
+    public Cut[] cutsFor(int depth) {
+        return depth <= MAX_DEPTH ? cuts[depth] : cuts[0]; // cuts[0] 恆為空
+    }
+
+    public boolean isEmpty() {
+        for (Cut[] list : cuts) {
+            if (list.length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(int depth, int shallowDepth, int stage, double a, double b, double sigma) {
+        if (depth > MAX_DEPTH || shallowDepth >= depth || shallowDepth < 0) {
+            throw new IllegalArgumentException("不合理的深度組合: " + depth + "/" + shallowDepth);
+        }
+        Cut cut = null;
+        for (Cut c : cuts[depth]) {
+            if (c.shallowDepth == shallowDepth) {
+                cut = c;
+            }
+        }
+        if (cut == null) {
+            cut = new Cut(depth, shallowDepth);
+            Cut[] list = new Cut[cuts[depth].length + 1];
+            int i = 0;
+            for (Cut c : cuts[depth]) {
+                if (c.shallowDepth < shallowDepth) {
+                    list[i++] = c;
+                }
+            }
+            list[i++] = cut;
+            for (Cut c : cuts[depth]) {
+                if (c.shallowDepth > shallowDepth) {
+                    list[i++] = c;
+                }
+            }
+            cuts[depth] = list;
+        }
+        cut.a[stage] = a;
+        cut.b[stage] = b;
+        cut.sigma[stage] = sigma;
+        cut.present[stage] = true;
+    }
+
+    public static ProbCutParameters load(File file) throws IOException {
+        ProbCutParameters params = new ProbCutParameters();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 6) {
+                    throw new IOException(file + " 第 " + lineNumber + " 行格式錯誤");
+                }
+                try {
+                    params.put(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                            Double.parseDouble(parts[3]), Double.parseDouble(parts[4]), Double.parseDouble(parts[5]));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + " 第 " + lineNumber + " 行格式錯誤", e);
+                }
+            }
+        }
+        return params;
+    }
+
+    public void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("# Multi-ProbCut 參數：v_depth ~= a * v_shallow + b，sigma 為殘差標準差");
+            out.println("# depth shallow stage a b sigma");
+            for (Cut cut : all()) {
+                for (int stage = 0; stage < ReversiEvaluator.STAGES; stage++) {
+                    if (cut.present[stage]) {
+                        out.printf(Locale.ROOT, "%d %d %d %.5f %.3f %.3f%n", cut.depth, cut.shallowDepth, stage,
+                                cut.a[stage], cut.b[stage], cut.sigma[stage]);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Cut> all() {
+        List<Cut> all = new ArrayList<>();
+        for (Cut[] list : cuts) {
+            for (Cut cut : list) {
+                all.add(cut);
+            }
+        }
+        return all;
+    }
+}
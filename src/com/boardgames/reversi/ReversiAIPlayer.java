@@ -1,83 +1,227 @@
 package com.boardgames.reversi;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import com.boardgames.common.CancellationToken;
+import com.boardgames.common.GameClock;
+import com.boardgames.common.TimeBudget;
+import com.boardgames.common.TimeManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 黑白棋的 AI 玩家邏輯。
- * 採用「貪婪演算法」(Greedy Algorithm)，選擇能翻轉最多棋子的位置。
+ * 使用 ReversiSearch 進行 alpha-beta 搜尋：中盤搜尋固定深度並以樣式評估函數判斷局面，
+ * 剩餘空格夠少時直接解到終局。8x8 以外的棋盤改用 WideReversiSearch，搜尋深度較淺。
+ * 有對局時鐘時，8x8 改由 TimeManager 依剩餘時間與遊戲階段配置思考時間，反覆加深到時間用完或解到終局為止。
+ * 8x8 的開局先查共用的 OpeningBook，開局庫有建議時直接採用，不花搜尋時間。
+ * 置換表的大小由 MemoryBudget 決定；預算緊到表小於 SMALL_TABLE_ENTRIES 時，中盤少搜一層，避免小表造成大量重複搜尋。
+ * 以 -Dboardgames.reversi.trace=true 啟動時，8x8 每一步的搜尋樹都寫入 -Dboardgames.reversi.trace.dir（預設 traces）
+ * 下的追蹤檔，可用 SearchTraceTool 檢視。
  */
 public class ReversiAIPlayer {
 
+    /** 中盤的搜尋深度。 */
+    public static final int MIDGAME_DEPTH = 6;
+    /** 剩餘空格數不超過此值時改為終局精確搜尋。 */
+    public static final int EXACT_EMPTIES = 12;
+    /** 非 8x8 棋盤的搜尋深度。 */
+    public static final int WIDE_DEPTH = 4;
+    /** 非 8x8 棋盤剩餘空格數不超過此值時搜尋到終局。 */
+    public static final int WIDE_EXACT_EMPTIES = 8;
+    /** 有時間預算時的最大搜尋深度（實際深度由時間決定）。 */
+    public static final int TIMED_MAX_DEPTH = 60;
+    /** 置換表項目數少於此值時，中盤的搜尋深度減一。 */
+    public static final int SMALL_TABLE_ENTRIES = 1 << 14;
+    /** 開局（空格數多於此值）分配較少的時間。 */
+    private static final int OPENING_EMPTIES = 44;
+
+    // 每條執行緒各自擁有搜尋引擎（含置換表與每層的走法緩衝區），多個視窗或自我對弈執行緒同時思考時互不等待，
+    // 搜尋過程也不配置任何物件
+    private static final ThreadLocal<ReversiSearch> SEARCH = ThreadLocal.withInitial(ReversiSearch::new);
+    private static final ThreadLocal<WideReversiSearch> WIDE_SEARCH = ThreadLocal.withInitial(WideReversiSearch::new);
+
+    /** findBestSquare 在沒有合法步時的回傳值。 */
+    public static final int NO_MOVE = -1;
+
     /**
      * 為 AI 玩家尋找最佳落子點。
-     * 這個 AI 會計算每個合法位置能翻轉的棋子數量，並選擇數量最多的那個位置。
-     * 如果有多個位置翻轉數量相同，則隨機選擇一個。
      *
      * @param game 當前的遊戲物件（用於取得棋盤和玩家資訊）
      * @return 包含 [row, col] 的陣列表示最佳位置，如果沒有合法步數則回傳 null
      */
     public static int[] findBestMove(ReversiGame game) {
-        List<int[]> validMoves = new ArrayList<>();
-        int maxFlips = 0;
-        
-        char[][] board = game.getBoard();
-        char player = game.getCurrentPlayer(); // AI 當前的顏色
-
-        // 遍歷整個棋盤尋找合法步數
-        for (int i = 0; i < game.getBoardSize(); i++) {
-            for (int j = 0; j < game.getBoardSize(); j++) {
-                if (game.isValidMoveForPlayer(i, j, player)) {
-                    // 計算這一步能翻轉多少棋子
-                    int flips = countFlips(board, i, j, player);
-                    
-                    if (flips > maxFlips) {
-                        // 找到更好的步數，清除舊的紀錄
-                        maxFlips = flips;
-                        validMoves.clear();
-                        validMoves.add(new int[]{i, j});
-                    } else if (flips == maxFlips) {
-                        // 找到一樣好的步數，加入列表
-                        validMoves.add(new int[]{i, j});
-                    }
-                }
-            }
-        }
+        return findBestMove(game.getPosition());
+    }
 
-        if (validMoves.isEmpty()) {
+    /**
+     * 為輪到的一方尋找最佳落子點。局面不可變，可以在任何執行緒呼叫。
+     *
+     * @return 包含 [row, col] 的陣列表示最佳位置，如果沒有合法步數或遊戲已結束則回傳 null
+     */
+    public static int[] findBestMove(ReversiPosition position) {
+        int square = findBestSquare(position);
+        if (square == NO_MOVE) {
             return null; // 無法移動
         }
+        int size = position.getBoardSize();
+        return new int[]{square / size, square % size};
+    }
+
+    /**
+     * 在對局時鐘的限制下為輪到的一方尋找最佳落子點。clock 為 null 或不計時時與 findBestMove(position) 相同。
+     *
+     * @return 包含 [row, col] 的陣列表示最佳位置，如果沒有合法步數或遊戲已結束則回傳 null
+     */
+    public static int[] findBestMove(ReversiPosition position, GameClock clock) {
+        return findBestMove(position, clock, null);
+    }
 
-        // 從最佳選擇中隨機挑選一個（增加變化性）
-        Random random = new Random();
-        return validMoves.get(random.nextInt(validMoves.size()));
+    /**
+     * 與 findBestMove(position, clock) 相同，但 token 取消時提早結束並回傳目前最好的一步（8x8 才有效）。
+     * 供 EngineScheduler 的工作使用。
+     *
+     * @param clock 可為 null（不計時）
+     * @param token 可為 null
+     */
+    public static int[] findBestMove(ReversiPosition position, GameClock clock, CancellationToken token) {
+        SearchResult result = findBestResult(position, clock, token);
+        if (result == null) {
+            return null;
+        }
+        int size = position.getBoardSize();
+        return new int[]{result.bestMove / size, result.bestMove % size};
     }
 
     /**
-     * 計算在指定位置落子能翻轉的棋子數量。
+     * 與 findBestMove(position, clock, token) 相同，但回傳整個搜尋結果，讓呼叫端可以把分數交給
+     * ReversiGame.makeMove(row, col, score)。bestMove 為 row * size + col；
+     * 開局庫的步與非 8x8 棋盤沒有搜尋分數，score 為 OpeningBook.NO_SCORE。
+     *
+     * @param clock 可為 null（不計時）
+     * @param token 可為 null
+     * @return 沒有合法步或遊戲已結束時回傳 null
      */
-    private static int countFlips(char[][] board, int row, int col, char player) {
-        int flips = 0;
-        char opponent = (player == 'B') ? 'W' : 'B';
-        int[] dr = {-1, -1, -1, 0, 0, 1, 1, 1};
-        int[] dc = {-1, 0, 1, -1, 1, -1, 0, 1};
-
-        for (int i = 0; i < 8; i++) {
-            int r = row + dr[i];
-            int c = col + dc[i];
-            int lineFlips = 0;
-            // 沿著方向計算對手棋子
-            while (r >= 0 && r < board.length && c >= 0 && c < board.length && board[r][c] == opponent) {
-                r += dr[i];
-                c += dc[i];
-                lineFlips++;
-            }
-            // 必須在最後遇到己方棋子才算數
-            if (lineFlips > 0 && r >= 0 && r < board.length && c >= 0 && c < board.length && board[r][c] == player) {
-                flips += lineFlips;
+    public static SearchResult findBestResult(ReversiPosition position, GameClock clock, CancellationToken token) {
+        if (token == null) {
+            return bestResult(position, clock, null);
+        }
+        ReversiSearch search = SEARCH.get();
+        search.setCancellationToken(token);
+        try {
+            return bestResult(position, clock, token);
+        } finally {
+            search.setCancellationToken(null);
+        }
+    }
+
+    /**
+     * 與 findBestMove 相同，但以格子編號 (row * size + col) 回傳，不配置結果陣列。
+     *
+     * @return 格子編號，沒有合法步或遊戲已結束時回傳 NO_MOVE
+     */
+    public static int findBestSquare(ReversiPosition position) {
+        return findBestSquare(position, null);
+    }
+
+    /**
+     * 與 findBestMove(position, clock) 相同，但以格子編號回傳。
+     * 非 8x8 棋盤的搜尋很快，仍使用固定深度。
+     */
+    public static int findBestSquare(ReversiPosition position, GameClock clock) {
+        SearchResult result = bestResult(position, clock, null);
+        return result == null ? NO_MOVE : result.bestMove;
+    }
+
+    // 不計時（clock 為 null 或無限制）時搜尋固定深度；非 8x8 棋盤一律如此
+    private static SearchResult bestResult(ReversiPosition position, GameClock clock, CancellationToken token) {
+        if (position.getGameState() != ReversiGame.GameState.PLAYING) {
+            return null;
+        }
+        int empties = position.getEmpties();
+        if (position.getBoardSize() != Bitboard.SIZE) {
+            int square = WIDE_SEARCH.get().search(position, empties <= WIDE_EXACT_EMPTIES ? empties : WIDE_DEPTH);
+            return unscored(square);
+        }
+        char player = position.getSideToMove(); // AI 當前的顏色
+        long own = position.getBits(player);
+        long opponent = position.getBits(player == 'B' ? 'W' : 'B');
+        // 時間預算在等待預熱之前配置，等待的時間也算在這一步裡
+        TimeBudget budget = clock == null ? null : TimeManager.allocate(clock.getControl(),
+                clock.remainingMillis(player), movesLeft(empties), phaseWeight(empties));
+        int book = bookMove(own, opponent, token, budget);
+        if (book != NO_MOVE) {
+            return unscored(book);
+        }
+        SearchResult result = budget == null
+                ? search(own, opponent, empties <= EXACT_EMPTIES ? empties : midgameDepth(), null)
+                : search(own, opponent, TIMED_MAX_DEPTH, budget);
+        return result.bestMove == NO_MOVE ? null : result;
+    }
+
+    private static SearchResult unscored(int square) {
+        return square == NO_MOVE ? null : new SearchResult(square, OpeningBook.NO_SCORE, 0, false, 0, 0);
+    }
+
+    private static SearchResult search(long own, long opponent, int depth, TimeBudget budget) {
+        ReversiSearch search = SEARCH.get();
+        SearchTrace trace = SearchTrace.ENABLED ? openTrace(own, opponent) : null;
+        if (trace == null) {
+            return search.search(own, opponent, depth, budget);
+        }
+        search.setTrace(trace);
+        try {
+            return search.search(own, opponent, depth, budget);
+        } finally {
+            try {
+                trace.close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
-        return flips;
     }
-}
\ No newline at end of file
+
+    // 檔名帶上局面的子數與時間，同一局的追蹤檔依手數排序
+    private static SearchTrace openTrace(long own, long opponent) {
+        File dir = new File(System.getProperty("boardgames.reversi.trace.dir", "traces"));
+        File file = new File(dir, String.format("reversi-%02d-%d.rst", Long.bitCount(own | opponent), System.currentTimeMillis()));
+        try {
+            SearchTrace trace = new SearchTrace(file, Long.getLong("boardgames.reversi.trace.maxNodes", 2_000_000), Bitboard.SQUARES);
+            System.err.println("搜尋樹寫入 " + file);
+            return trace;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // 只在開局庫收錄的手數內查詢，之後的局面一定不在書中。
+    // 8x8 的每一步都先經過這裡，介面啟動的背景預熱還沒結束時在此等它載入開局庫與權重；
+    // 思考被取消時不再等，計時對局最多等目標時間的一半，其餘留給搜尋
+    private static int bookMove(long own, long opponent, CancellationToken token, TimeBudget budget) {
+        ReversiWarmup.awaitIfStarted(token, budget == null ? ReversiWarmup.NO_DEADLINE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget.getSoftMillis()) / 2);
+        OpeningBook book = OpeningBook.shared();
+        if (book == null || Long.bitCount(own | opponent) - 4 > book.getMaxPlies()) {
+            return NO_MOVE;
+        }
+        return book.bestMove(own, opponent);
+    }
+
+    private static int midgameDepth() {
+        return SEARCH.get().getTable().capacity() < SMALL_TABLE_ENTRIES ? MIDGAME_DEPTH - 1 : MIDGAME_DEPTH;
+    }
+
+    // 行棋方還要走的步數：每人大約填一半的空格
+    private static int movesLeft(int empties) {
+        return Math.max(1, (empties + 1) / 2);
+    }
+
+    // 開局的走法差異不大，分配較少的時間；中盤是勝負關鍵，多給一些；終局交給精確搜尋，維持平均
+    private static double phaseWeight(int empties) {
+        if (empties > OPENING_EMPTIES) {
+            return 0.6;
+        }
+        return empties > EXACT_EMPTIES + 8 ? 1.3 : 1.0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.boardgames.reversi;
+
+import com.boardgames.common.EngineScheduler;
+import com.boardgames.common.EngineTask;
+import com.boardgames.common.MemoryBudget;
+
+/**
+ * 背景分析工作階段：把多主變例分析當作低優先權工作交給 EngineScheduler，並持續回報進度。
+ * 每次 start() 都會先停止上一次分析；回報給 listener 的更新只屬於最近一次 start() 的局面，
+ * 已被取代的分析即使還有更新送出也會被丟棄。目前只支援 8x8 棋盤。
+ *
+ * 分析可能被電腦落子等互動工作搶占，之後由排程器從頭重新執行；重新執行時只回報比之前更深的結果，
+ * 畫面不會倒退。
+ *
+ * start() 與 stop() 應由同一條執行緒（通常是 EDT）呼叫。
+ */
+public class ReversiAnalysis {
+
+    public static final int DEFAULT_MULTI_PV = 4;
+    public static final int DEFAULT_MAX_DEPTH = 60;
+
+    private final EngineScheduler scheduler;
+    private final ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), MemoryBudget.REVERSI_ANALYSIS);
+    private volatile int generation;
+    private EngineTask<AnalysisUpdate> task;
+
+    public ReversiAnalysis() {
+        this(EngineScheduler.get());
+    }
+
+    public ReversiAnalysis(EngineScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 開始分析局面；局面不是 8x8 或遊戲已結束時只會停止目前的分析。
+     *
+     * @param listener 在排程器的工作執行緒上被呼叫
+     */
+    public void start(ReversiPosition position, int multiPv, int maxDepth, AnalysisListener listener) {
+        stop();
+        if (position.getBoardSize() != Bitboard.SIZE || position.getGameState() != ReversiGame.GameState.PLAYING) {
+            return;
+        }
+        int id = generation;
+        char side = position.getSideToMove();
+        long player = position.getBits(side);
+        long opponent = position.getBits(side == 'B' ? 'W' : 'B');
+        int[] reportedDepth = {0}; // 被搶占後重新執行時，跳過已回報過的深度
+        task = scheduler.submit(EngineScheduler.Priority.BACKGROUND, "Reversi analysis", token -> {
+            search.setCancellationToken(token);
+            try {
+                AnalysisUpdate result = search.analyze(player, opponent, maxDepth, multiPv, update -> {
+                    if (generation == id && update.getDepth() > reportedDepth[0]) {
+                        reportedDepth[0] = update.getDepth();
+                        listener.onUpdate(update);
+                    }
+                });
+                token.throwIfCancelled(); // 中途停止的結果不完整；被搶占時排程器會重新執行
+                return result;
+            } finally {
+                search.setCancellationToken(null);
+            }
+        });
+    }
+
+    /**
+     * 停止目前的分析並等待工作結束；之後不會再有更新送到舊的 listener，搜尋引擎也可以安全地重新使用。
+     */
+    public void stop() {
+        generation++;
+        EngineTask<AnalysisUpdate> running = task;
+        task = null;
+        if (running != null) {
+            running.cancel();
+            running.awaitTermination();
+        }
+    }
+
+    public boolean isRunning() {
+        EngineTask<AnalysisUpdate> running = task;
+        return running != null && !running.isDone();
+    }
+}
@@ -0,0 +1,359 @@
+package com.boardgames.reversi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 黑白棋的局面評估函數。
+ * 採用分階段的線性模型：棋盤切成數種「樣式」(pattern)，每種樣式的每一種黑白空組合都有一個權重，
+ * 另外加上行動力、潛在行動力與奇偶性等純量特徵。評估值以行棋方角度預測終局子數差，
+ * 單位為 1/SCALE 子，與搜尋的終局分數相同。
+ *
+ * 權重檔格式（大端序）：int 魔術數字 'RVEW'、int 版本、int 階段數、int 每階段特徵數，之後依階段順序存放 float。
+ * 找不到權重檔時使用由位置權重表推導出的預設值。
+ */
+public class ReversiEvaluator {
+
+    public static final int SCALE = 100;
+    public static final int STAGES = 6;
+
+    public static final String DEFAULT_WEIGHTS_PATH = "data/reversi.weights";
+
+    private static final int MAGIC = 0x52564557; // "RVEW"
+    private static final int VERSION = 1;
+
+    // --- 樣式定義 ---
+    // 每個樣式實例是一串格子；同一種樣式的所有實例共用同一張權重表，
+    // 格子的排列順序在對稱變換下一致，因此可以互相共享。
+    public static final int PATTERN_EDGE = 0;
+    public static final int PATTERN_CORNER = 1;
+    public static final int PATTERN_DIAGONAL = 2;
+    public static final int PATTERN_SECOND_ROW = 3;
+    public static final int PATTERN_TYPES = 4;
+
+    static final int[][] PATTERN_INSTANCES;
+    static final int[] PATTERN_INSTANCE_TYPE;
+    static final int[] PATTERN_SIZE = new int[PATTERN_TYPES];
+    static final int[] PATTERN_OFFSET = new int[PATTERN_TYPES];
+
+    // --- 純量特徵（接在樣式權重表之後） ---
+    public static final int SCALAR_BIAS = 0;
+    public static final int SCALAR_MOBILITY = 1;
+    public static final int SCALAR_POTENTIAL_MOBILITY = 2;
+    public static final int SCALAR_PARITY = 3;
+    public static final int SCALARS = 4;
+
+    public static final int SCALAR_OFFSET;
+    public static final int FEATURES_PER_STAGE;
+
+    private static final int[] POW3 = new int[10];
+
+    static {
+        POW3[0] = 1;
+        for (int i = 1; i < POW3.length; i++) {
+            POW3[i] = POW3[i - 1] * 3;
+        }
+
+        int[][] edge = new int[4][8];
+        int[][] secondRow = new int[4][8];
+        for (int i = 0; i < 8; i++) {
+            edge[0][i] = Bitboard.square(0, i);
+            edge[1][i] = Bitboard.square(7, i);
+            edge[2][i] = Bitboard.square(i, 0);
+            edge[3][i] = Bitboard.square(i, 7);
+            secondRow[0][i] = Bitboard.square(1, i);
+            secondRow[1][i] = Bitboard.square(6, i);
+            secondRow[2][i] = Bitboard.square(i, 1);
+            secondRow[3][i] = Bitboard.square(i, 6);
+        }
+        int[][] corner = new int[4][9];
+        int[][] cornerAnchors = {{0, 0, 1, 1}, {0, 7, 1, -1}, {7, 0, -1, 1}, {7, 7, -1, -1}};
+        for (int k = 0; k < 4; k++) {
+            int[] a = cornerAnchors[k];
+            for (int i = 0; i < 9; i++) {
+                corner[k][i] = Bitboard.square(a[0] + a[2] * (i / 3), a[1] + a[3] * (i % 3));
+            }
+        }
+        int[][] diagonal = new int[2][8];
+        for (int i = 0; i < 8; i++) {
+            diagonal[0][i] = Bitboard.square(i, i);
+            diagonal[1][i] = Bitboard.square(i, 7 - i);
+        }
+
+        int[][][] byType = {edge, corner, diagonal, secondRow};
+        int count = 0;
+        for (int[][] instances : byType) {
+            count += instances.length;
+        }
+        PATTERN_INSTANCES = new int[count][];
+        PATTERN_INSTANCE_TYPE = new int[count];
+        int n = 0;
+        int offset = 0;
+        for (int type = 0; type < PATTERN_TYPES; type++) {
+            for (int[] instance : byType[type]) {
+                PATTERN_INSTANCES[n] = instance;
+                PATTERN_INSTANCE_TYPE[n] = type;
+                n++;
+            }
+            PATTERN_SIZE[type] = POW3[byType[type][0].length];
+            PATTERN_OFFSET[type] = offset;
+            offset += PATTERN_SIZE[type];
+        }
+        SCALAR_OFFSET = offset;
+        FEATURES_PER_STAGE = offset + SCALARS;
+    }
+
+    private static volatile ReversiEvaluator defaultInstance;
+
+    // weights[stage * FEATURES_PER_STAGE + feature]，建立後不再修改，可安全地跨執行緒共用
+    private final float[] weights;
+
+    public ReversiEvaluator(float[] weights) {
+        if (weights.length != STAGES * FEATURES_PER_STAGE) {
+            throw new IllegalArgumentException("權重數量不符: " + weights.length);
+        }
+        this.weights = weights;
+    }
+
+    /**
+     * 取得共用的評估函數：優先讀取 -Dboardgames.reversi.weights 指定的檔案（預設 data/reversi.weights），
+     * 讀取失敗時退回預設權重。
+     */
+    public static ReversiEvaluator getDefault() {
+        ReversiEvaluator evaluator = defaultInstance;
+        if (evaluator == null) {
+            synchronized (ReversiEvaluator.class) {
+                evaluator = defaultInstance;
+                if (evaluator == null) {
+                    evaluator = loadOrDefault(new File(System.getProperty("boardgames.reversi.weights", DEFAULT_WEIGHTS_PATH)));
+                    defaultInstance = evaluator;
+                }
+            }
+        }
+        return evaluator;
+    }
+
+    static ReversiEvaluator loadOrDefault(File file) {
+        if (file.isFile()) {
+            try {
+                return load(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return new ReversiEvaluator(defaultWeights());
+    }
+
+    /**
+     * 評估局面。
+     *
+     * @param player 行棋方的棋子
+     * @param opponent 對手的棋子
+     * @return 以行棋方角度的評估值（1/SCALE 子）
+     */
+    public int evaluate(long player, long opponent) {
+        int base = stage(player, opponent) * FEATURES_PER_STAGE;
+        float sum = weights[base + SCALAR_OFFSET + SCALAR_BIAS];
+        for (int i = 0; i < PATTERN_INSTANCES.length; i++) {
+            int type = PATTERN_INSTANCE_TYPE[i];
+            sum += weights[base + PATTERN_OFFSET[type] + patternIndex(PATTERN_INSTANCES[i], player, opponent)];
+        }
+        long empty = ~(player | opponent);
+        sum += weights[base + SCALAR_OFFSET + SCALAR_MOBILITY] * mobility(player, opponent);
+        sum += weights[base + SCALAR_OFFSET + SCALAR_POTENTIAL_MOBILITY] * potentialMobility(player, opponent, empty);
+        sum += weights[base + SCALAR_OFFSET + SCALAR_PARITY] * parity(empty);
+        return Math.round(sum * SCALE);
+    }
+
+    public float[] getWeights() {
+        return weights.clone();
+    }
+
+    /** features() 最多產生的特徵數。 */
+    public static final int MAX_FEATURES = PATTERN_INSTANCES.length + SCALARS;
+
+    /**
+     * 將局面展開成稀疏特徵：indices 為權重陣列中的位置（已含階段偏移），values 為對應的特徵值。
+     * 評估值等於 SCALE * Σ weights[indices[i]] * values[i]，離線調參工具以此計算梯度。
+     *
+     * @param indices 長度至少為 MAX_FEATURES 的輸出陣列
+     * @param values 長度至少為 MAX_FEATURES 的輸出陣列
+     * @return 特徵數
+     */
+    public static int features(long player, long opponent, int[] indices, float[] values) {
+        int base = stage(player, opponent) * FEATURES_PER_STAGE;
+        int n = 0;
+        for (int i = 0; i < PATTERN_INSTANCES.length; i++) {
+            int type = PATTERN_INSTANCE_TYPE[i];
+            indices[n] = base + PATTERN_OFFSET[type] + patternIndex(PATTERN_INSTANCES[i], player, opponent);
+            values[n++] = 1.0f;
+        }
+        long empty = ~(player | opponent);
+        indices[n] = base + SCALAR_OFFSET + SCALAR_BIAS;
+        values[n++] = 1.0f;
+        indices[n] = base + SCALAR_OFFSET + SCALAR_MOBILITY;
+        values[n++] = mobility(player, opponent);
+        indices[n] = base + SCALAR_OFFSET + SCALAR_POTENTIAL_MOBILITY;
+        values[n++] = potentialMobility(player, opponent, empty);
+        indices[n] = base + SCALAR_OFFSET + SCALAR_PARITY;
+        values[n++] = parity(empty);
+        return n;
+    }
+
+    /** 樣式實例的數量。 */
+    public static int patternInstanceCount() {
+        return PATTERN_INSTANCES.length;
+    }
+
+    /** 第 instance 個樣式實例的格子（三進位索引由低位到高位的順序）。 */
+    public static int[] patternSquares(int instance) {
+        return PATTERN_INSTANCES[instance].clone();
+    }
+
+    /** 第 instance 個樣式實例的權重表在每個階段中的起點。 */
+    public static int patternOffset(int instance) {
+        return PATTERN_OFFSET[PATTERN_INSTANCE_TYPE[instance]];
+    }
+
+    // --- 特徵計算（評估與離線調參共用） ---
+
+    public static int stage(long player, long opponent) {
+        int discs = Long.bitCount(player | opponent);
+        return Math.min(STAGES - 1, Math.max(0, (discs - 4) / 10));
+    }
+
+    /**
+     * 以三進位計算樣式實例的索引：0 為空格、1 為行棋方、2 為對手。
+     */
+    public static int patternIndex(int[] squares, long player, long opponent) {
+        int index = 0;
+        for (int i = 0; i < squares.length; i++) {
+            long bit = 1L << squares[i];
+            if ((player & bit) != 0) {
+                index += POW3[i];
+            } else if ((opponent & bit) != 0) {
+                index += 2 * POW3[i];
+            }
+        }
+        return index;
+    }
+
+    public static int mobility(long player, long opponent) {
+        return Long.bitCount(Bitboard.legalMoves(player, opponent)) - Long.bitCount(Bitboard.legalMoves(opponent, player));
+    }
+
+    /**
+     * 潛在行動力：與對手棋子相鄰的空格數減去與己方棋子相鄰的空格數。
+     */
+    public static int potentialMobility(long player, long opponent, long empty) {
+        return Long.bitCount(Bitboard.neighbours(opponent) & empty) - Long.bitCount(Bitboard.neighbours(player) & empty);
+    }
+
+    /**
+     * 奇偶性：剩餘空格為奇數時，行棋方通常能下最後一手。
+     */
+    public static int parity(long empty) {
+        return (Long.bitCount(empty) & 1) == 1 ? 1 : -1;
+    }
+
+    // --- 預設權重 ---
+
+    // 傳統的位置權重表（單位：子）
+    private static final float[] SQUARE_VALUES = {
+            10.0f, -2.0f, 1.0f, 0.5f, 0.5f, 1.0f, -2.0f, 10.0f,
+            -2.0f, -5.0f, -0.2f, -0.2f, -0.2f, -0.2f, -5.0f, -2.0f,
+            1.0f, -0.2f, 0.1f, 0.1f, 0.1f, 0.1f, -0.2f, 1.0f,
+            0.5f, -0.2f, 0.1f, 0.0f, 0.0f, 0.1f, -0.2f, 0.5f,
+            0.5f, -0.2f, 0.1f, 0.0f, 0.0f, 0.1f, -0.2f, 0.5f,
+            1.0f, -0.2f, 0.1f, 0.1f, 0.1f, 0.1f, -0.2f, 1.0f,
+            -2.0f, -5.0f, -0.2f, -0.2f, -0.2f, -0.2f, -5.0f, -2.0f,
+            10.0f, -2.0f, 1.0f, 0.5f, 0.5f, 1.0f, -2.0f, 10.0f,
+    };
+
+    /**
+     * 由位置權重表推導預設的樣式權重：每個格子的價值平均分攤給涵蓋它的所有樣式實例，
+     * 使得所有樣式加總後恰好等於位置權重表的總和。
+     */
+    public static float[] defaultWeights() {
+        int[] coverage = new int[Bitboard.SQUARES];
+        for (int[] instance : PATTERN_INSTANCES) {
+            for (int sq : instance) {
+                coverage[sq]++;
+            }
+        }
+        float[] stageWeights = new float[FEATURES_PER_STAGE];
+        for (int type = 0; type < PATTERN_TYPES; type++) {
+            int[] canonical = null;
+            for (int i = 0; i < PATTERN_INSTANCES.length; i++) {
+                if (PATTERN_INSTANCE_TYPE[i] == type) {
+                    canonical = PATTERN_INSTANCES[i];
+                    break;
+                }
+            }
+            for (int index = 0; index < PATTERN_SIZE[type]; index++) {
+                float value = 0;
+                int rest = index;
+                for (int sq : canonical) {
+                    int state = rest % 3;
+                    rest /= 3;
+                    if (state != 0) {
+                        float share = SQUARE_VALUES[sq] / coverage[sq];
+                        value += state == 1 ? share : -share;
+                    }
+                }
+                stageWeights[PATTERN_OFFSET[type] + index] = value;
+            }
+        }
+        stageWeights[SCALAR_OFFSET + SCALAR_MOBILITY] = 0.6f;
+        stageWeights[SCALAR_OFFSET + SCALAR_POTENTIAL_MOBILITY] = 0.2f;
+        stageWeights[SCALAR_OFFSET + SCALAR_PARITY] = 0.5f;
+
+        float[] all = new float[STAGES * FEATURES_PER_STAGE];
+        for (int stage = 0; stage < STAGES; stage++) {
+            System.arraycopy(stageWeights, 0, all, stage * FEATURES_PER_STAGE, FEATURES_PER_STAGE);
+        }
+        return all;
+    }
+
+    // --- 權重檔讀寫 ---
+
+    public static ReversiEvaluator load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("不是有效的權重檔: " + file);
+            }
+            int stages = in.readInt();
+            int features = in.readInt();
+            if (stages != STAGES || features != FEATURES_PER_STAGE) {
+                throw new IOException("權重檔的特徵配置與程式不符: " + file);
+            }
+            float[] weights = new float[stages * features];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = in.readFloat();
+            }
+            return new ReversiEvaluator(weights);
+        }
+    }
+
+    public static void save(float[] weights, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(STAGES);
+            out.writeInt(FEATURES_PER_STAGE);
+            for (float w : weights) {
+                out.writeFloat(w);
+            }
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package com.boardgames.reversi;
 
 import com.boardgames.GameSelectionGUI;
+import com.boardgames.common.EdtCoalescer;
+import com.boardgames.common.EngineScheduler;
+import com.boardgames.common.EngineTask;
+import com.boardgames.common.GameClock;
+import com.boardgames.common.StartupTimer;
+import com.boardgames.common.TimeControl;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.JournalSession;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.reversi.dataset.PositionIndex;
+import com.boardgames.spectator.SpectatorFeed;
+import com.boardgames.spectator.SpectatorServer;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 黑白棋的圖形使用者介面 (GUI)。
- * 負責繪製棋盤、棋子，處理使用者互動，並使用 SwingWorker 處理 AI 運算。
+ * 負責繪製棋盤、棋子，處理使用者互動，AI 運算與分析交給共用的 EngineScheduler。
+ * 8x8 棋盤可開啟「顯示分析」，由背景分析執行緒持續在每個合法步的格子上標示分數。
+ * 選擇時間規則後會顯示雙方的時鐘，電腦依剩餘時間分配思考時間，超時的一方判負。
+ * 有對局資料庫索引（PositionIndex）時，「對局資料庫」顯示經過目前局面的對局數、勝負統計與各個下一步的統計。
  */
 public class ReversiGUI extends JFrame {
     public enum GameMode {
@@ -18,17 +35,83 @@ public class ReversiGUI extends JFrame {
         PLAYER_VS_AI
     }
 
-    private static final int BOARD_SIZE = 8;
+    // 可選的棋盤邊長
+    private static final Integer[] BOARD_SIZES = {6, 8, 10, 12, 14, 16};
+    // 可選的時間規則
+    private static final TimeControl[] TIME_CONTROLS = {
+            TimeControl.UNLIMITED,
+            TimeControl.suddenDeath(60_000),
+            TimeControl.suddenDeath(300_000),
+            TimeControl.increment(180_000, 2_000),
+            TimeControl.perMove(1_000),
+            TimeControl.perMove(5_000)
+    };
+    private static final int CLOCK_REFRESH_MILLIS = 100;
+    private static final int MIN_AI_DELAY_MILLIS = 500;
+
+    private static final Color BOARD_COLOR = new Color(0, 128, 0);
+    private static final Color BEST_MOVE_COLOR = new Color(0, 160, 96);
+    // 對局資料庫最多列出幾個下一步
+    private static final int EXPLORER_MOVES = 5;
+
     private final CardLayout cardLayout = new CardLayout();
     private final JPanel mainPanel = new JPanel(cardLayout);
-    private final JButton[][] buttons = new JButton[BOARD_SIZE][BOARD_SIZE];
+    private int boardSize;
+    private JButton[][] buttons;
+    private JPanel boardPanel;
+    private JComboBox<Integer> sizeSelector;
+    private JComboBox<TimeControl> timeSelector;
     private JLabel statusLabel;
     private JLabel scoreLabel;
+    private JLabel clockLabel;
+    // 定期刷新時鐘顯示並檢查超時
+    private final Timer clockTimer = new Timer(CLOCK_REFRESH_MILLIS, e -> tickClock());
+    private JCheckBox analysisToggle;
+    private JLabel analysisLabel;
+    private JCheckBox explorerToggle;
+    private JLabel explorerLabel;
+    private boolean explorerLoading; // 正在等背景預熱開啟對局索引，只在 EDT 上讀寫
     private final ReversiGame game;
+    private String spectatorChannel; // 觀戰頻道名稱，沒有啟動觀戰伺服器時為 null
     private GameMode gameMode;
+    private EngineTask<SearchResult> aiTask; // 進行中的電腦思考，只在 EDT 上讀寫
+
+    private final ReversiAnalysis analysis = new ReversiAnalysis();
+    // 分析執行緒的更新先合併再交給 EDT，分析跑多快都不會塞滿事件佇列
+    private final EdtCoalescer<AnalysisSnapshot> analysisUpdates = new EdtCoalescer<>(this::showAnalysis);
+
+    // 分析結果與它所屬的局面，EDT 用局面參考判斷結果是否已過期
+    private static final class AnalysisSnapshot {
+        final ReversiPosition position;
+        final AnalysisUpdate update;
+
+        AnalysisSnapshot(ReversiPosition position, AnalysisUpdate update) {
+            this.position = position;
+            this.update = update;
+        }
+    }
 
     public ReversiGUI() {
-        this.game = new ReversiGame();
+        this(null);
+    }
+
+    /**
+     * 以對局日誌復原的一局開啟視窗，直接以玩家 vs. 玩家繼續；recovered 為 null 時與無參數建構子相同。
+     */
+    public ReversiGUI(RecoveredGame recovered) {
+        this.game = recovered == null ? new ReversiGame() : ReversiGame.replay(recovered);
+        GameJournal journal = GameJournal.shared();
+        if (recovered == null && journal != null) {
+            game.setJournal(journal.start(GameJournal.Game.REVERSI, game.getBoardSize()));
+        }
+        // 開局庫與權重在背景預熱時載入，不佔用 EDT；載入後下完的 8x8 對局交給開局庫學習
+        ReversiWarmup.start().thenRun(() -> SwingUtilities.invokeLater(() -> game.setOpeningBook(OpeningBook.shared())));
+        SpectatorServer spectators = SpectatorServer.shared();
+        if (spectators != null) {
+            SpectatorFeed feed = new SpectatorFeed();
+            spectatorChannel = spectators.register("reversi", feed);
+            game.setSpectatorFeed(feed);
+        }
 
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -36,7 +119,7 @@ public class ReversiGUI extends JFrame {
             e.printStackTrace();
         }
 
-        setTitle("黑白棋 (Reversi)");
+        setTitle(spectatorChannel == null ? "黑白棋 (Reversi)" : "黑白棋 (Reversi) - 觀戰頻道 " + spectatorChannel);
         setSize(600, 750);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
@@ -49,6 +132,9 @@ public class ReversiGUI extends JFrame {
 
         add(mainPanel);
         cardLayout.show(mainPanel, "MODE_SELECTION");
+        if (recovered != null) {
+            resumeGame();
+        }
     }
 
     private JPanel createModeSelectionPanel() {
@@ -63,6 +149,31 @@ public class ReversiGUI extends JFrame {
         gbc.insets = new Insets(10, 10, 30, 10);
         panel.add(titleLabel, gbc);
 
+        JPanel sizePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        JLabel sizeLabel = new JLabel("棋盤大小：");
+        sizeLabel.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        sizeSelector = new JComboBox<>(BOARD_SIZES);
+        sizeSelector.setSelectedItem(ReversiGame.DEFAULT_BOARD_SIZE);
+        sizeSelector.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, value + " x " + value, index, isSelected, cellHasFocus);
+            }
+        });
+        sizePanel.add(sizeLabel);
+        sizePanel.add(sizeSelector);
+        gbc.insets = new Insets(0, 40, 10, 40);
+        panel.add(sizePanel, gbc);
+
+        JPanel timePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        JLabel timeLabel = new JLabel("時間規則：");
+        timeLabel.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        timeSelector = new JComboBox<>(TIME_CONTROLS);
+        timePanel.add(timeLabel);
+        timePanel.add(timeSelector);
+        panel.add(timePanel, gbc);
+
         JButton pvpButton = new JButton("玩家 vs. 玩家");
         pvpButton.setFont(new Font("微軟正黑體", Font.BOLD, 18));
         pvpButton.setMargin(new Insets(10, 0, 10, 0));
@@ -79,6 +190,16 @@ public class ReversiGUI extends JFrame {
         JButton backButton = new JButton("返回遊戲選擇");
         backButton.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
         backButton.addActionListener(e -> {
+            cancelAITurn();
+            analysis.stop();
+            stopClock();
+            JournalSession session = game.getJournal();
+            if (session != null) {
+                session.finish(); // 放棄這局，下次啟動不需要復原
+            }
+            if (spectatorChannel != null) {
+                SpectatorServer.shared().unregister(spectatorChannel);
+            }
             this.dispose();
             new GameSelectionGUI().setVisible(true);
         });
@@ -88,6 +209,13 @@ public class ReversiGUI extends JFrame {
         return panel;
     }
 
+    // 不論從哪裡關閉視窗，還沒下完的對局都不再算作進行中
+    @Override
+    public void dispose() {
+        game.close();
+        super.dispose();
+    }
+
     private JPanel createGamePanel() {
         JPanel gamePanel = new JPanel(new BorderLayout(10, 10));
         gamePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -97,72 +225,169 @@ public class ReversiGUI extends JFrame {
         statusLabel.setFont(new Font("微軟正黑體", Font.BOLD, 24));
         scoreLabel = new JLabel("黑: 2, 白: 2", SwingConstants.CENTER);
         scoreLabel.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        clockLabel = new JLabel(" ", SwingConstants.CENTER);
+        clockLabel.setFont(new Font("微軟正黑體", Font.BOLD, 18));
         headerPanel.add(statusLabel, BorderLayout.NORTH);
+        headerPanel.add(clockLabel, BorderLayout.CENTER);
         headerPanel.add(scoreLabel, BorderLayout.SOUTH);
 
-        JPanel boardPanel = new JPanel(new GridLayout(BOARD_SIZE, BOARD_SIZE));
-        boardPanel.setBackground(new Color(0, 128, 0)); // 經典綠色背景
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                buttons[i][j] = new JButton();
-                buttons[i][j].setBackground(new Color(0, 128, 0));
-                buttons[i][j].setOpaque(true);
-                buttons[i][j].setBorder(BorderFactory.createLineBorder(Color.BLACK));
-                buttons[i][j].addActionListener(new ButtonClickListener(i, j));
-                boardPanel.add(buttons[i][j]);
-            }
-        }
+        boardPanel = new JPanel();
+        boardPanel.setBackground(BOARD_COLOR); // 經典綠色背景
+        buildBoard(game.getBoardSize());
 
         JButton newGameButton = new JButton("新遊戲");
         newGameButton.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
-        newGameButton.addActionListener(e -> cardLayout.show(mainPanel, "MODE_SELECTION"));
+        newGameButton.addActionListener(e -> {
+            cancelAITurn();
+            stopAnalysis();
+            stopClock();
+            cardLayout.show(mainPanel, "MODE_SELECTION");
+        });
+
+        analysisToggle = new JCheckBox("顯示分析");
+        analysisToggle.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        analysisToggle.addActionListener(e -> updateView());
+        analysisLabel = new JLabel(" ", SwingConstants.CENTER);
+        analysisLabel.setFont(new Font("微軟正黑體", Font.PLAIN, 14));
+
+        explorerToggle = new JCheckBox("對局資料庫");
+        explorerToggle.setFont(new Font("微軟正黑體", Font.PLAIN, 16));
+        explorerToggle.addActionListener(e -> updateView());
+        explorerLabel = new JLabel(" ", SwingConstants.CENTER);
+        explorerLabel.setFont(new Font("微軟正黑體", Font.PLAIN, 14));
+
+        JPanel togglePanel = new JPanel(new GridLayout(0, 1));
+        togglePanel.add(analysisToggle);
+        togglePanel.add(explorerToggle);
+        JPanel infoPanel = new JPanel(new GridLayout(0, 1));
+        infoPanel.add(analysisLabel);
+        infoPanel.add(explorerLabel);
+
+        JPanel footerPanel = new JPanel(new BorderLayout(10, 5));
+        footerPanel.add(newGameButton, BorderLayout.CENTER);
+        footerPanel.add(togglePanel, BorderLayout.EAST);
+        footerPanel.add(infoPanel, BorderLayout.SOUTH);
 
         gamePanel.add(headerPanel, BorderLayout.NORTH);
         gamePanel.add(boardPanel, BorderLayout.CENTER);
-        gamePanel.add(newGameButton, BorderLayout.SOUTH);
+        gamePanel.add(footerPanel, BorderLayout.SOUTH);
 
         return gamePanel;
     }
 
+    /**
+     * 依邊長重新建立棋盤按鈕。
+     */
+    private void buildBoard(int size) {
+        boardSize = size;
+        buttons = new JButton[size][size];
+        boardPanel.removeAll();
+        boardPanel.setLayout(new GridLayout(size, size));
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                buttons[i][j] = new JButton();
+                buttons[i][j].setBackground(BOARD_COLOR);
+                buttons[i][j].setOpaque(true);
+                buttons[i][j].setHorizontalTextPosition(SwingConstants.CENTER); // 分析分數疊在提示點上
+                buttons[i][j].setForeground(Color.WHITE);
+                buttons[i][j].setFont(new Font("Dialog", Font.BOLD, 12));
+                buttons[i][j].setBorder(BorderFactory.createLineBorder(Color.BLACK));
+                buttons[i][j].addActionListener(new ButtonClickListener(i, j));
+                boardPanel.add(buttons[i][j]);
+            }
+        }
+        boardPanel.revalidate();
+    }
+
     private void startGame(GameMode mode) {
         this.gameMode = mode;
-        game.reset();
+        int size = (Integer) sizeSelector.getSelectedItem();
+        game.reset(size);
+        if (size != boardSize) {
+            buildBoard(size);
+        }
+        analysisToggle.setEnabled(size == Bitboard.SIZE); // 分析與對局資料庫只支援 8x8
+        explorerToggle.setEnabled(size == Bitboard.SIZE);
+        TimeControl control = (TimeControl) timeSelector.getSelectedItem();
+        game.setClock(control.isUnlimited() ? null : new GameClock(control, 'B', 'W'));
+        if (game.getClock() != null) {
+            clockTimer.start();
+        }
+        updateClockLabel();
+        cardLayout.show(mainPanel, "GAME");
+        mainPanel.validate(); // 先完成版面配置，棋子圖示才能依按鈕實際大小繪製
         updateView();
+    }
+
+    /**
+     * 不重置棋盤，直接以玩家 vs. 玩家繼續目前的對局（從對局日誌復原時使用）。
+     */
+    private void resumeGame() {
+        this.gameMode = GameMode.PLAYER_VS_PLAYER;
+        sizeSelector.setSelectedItem(game.getBoardSize());
+        analysisToggle.setEnabled(boardSize == Bitboard.SIZE);
+        explorerToggle.setEnabled(boardSize == Bitboard.SIZE);
+        updateClockLabel();
         cardLayout.show(mainPanel, "GAME");
+        mainPanel.validate();
+        updateView();
     }
 
     /**
      * 處理 AI 的回合。
-     * 使用 SwingWorker 在背景執行緒中計算最佳步數，避免凍結 UI。
+     * 以互動優先權交給共用的 EngineScheduler 計算，避免凍結 UI；多個視窗或分析同時執行時也不會超額使用 CPU。
      */
     private void handleAITurn() {
+        stopAnalysis(); // 讓出 CPU 給 AI
         setBoardEnabled(false); // AI 思考時鎖定棋盤
-        SwingWorker<int[], Void> worker = new SwingWorker<>() {
-            @Override
-            protected int[] doInBackground() throws Exception {
-                Thread.sleep(500); // 模擬思考時間
-                return ReversiAIPlayer.findBestMove(game);
+        // 在 EDT 上取得不可變的局面快照交給工作執行緒，工作執行緒不會碰到 ReversiGame 本身
+        ReversiPosition position = game.getPosition();
+        GameClock clock = game.getClock();
+        long start = System.nanoTime();
+        EngineTask<SearchResult> task = EngineScheduler.get().submit(EngineScheduler.Priority.INTERACTIVE, "Reversi AI",
+                token -> ReversiAIPlayer.findBestResult(position, clock, token));
+        aiTask = task;
+        task.future().whenComplete((move, error) -> SwingUtilities.invokeLater(() -> {
+            if (task != aiTask) {
+                return; // 已被取消（開新局或返回選單）
             }
-
-            @Override
-            protected void done() {
-                try {
-                    int[] aiMove = get();
-                    if (aiMove != null) {
-                        game.makeMove(aiMove[0], aiMove[1]);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    updateView();
-                    // 如果遊戲仍在進行，解鎖棋盤
-                    if (game.getGameState() == ReversiGame.GameState.PLAYING) {
-                        setBoardEnabled(true);
-                    }
-                }
+            if (error != null) {
+                error.printStackTrace();
             }
-        };
-        worker.execute();
+            // 不計時的對局至少「思考」一下，避免電腦瞬間落子；計時對局的思考時間由時鐘決定
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            int delay = clock == null ? (int) Math.max(0, MIN_AI_DELAY_MILLIS - elapsedMillis) : 0;
+            Timer timer = new Timer(delay, e -> applyAIMove(task, position, move));
+            timer.setRepeats(false);
+            timer.start();
+        }));
+    }
+
+    private void applyAIMove(EngineTask<SearchResult> task, ReversiPosition position, SearchResult aiMove) {
+        if (task != aiTask) {
+            return;
+        }
+        aiTask = null;
+        // 思考期間若已開新局或超時，局面參考會不同，這手就作廢
+        if (aiMove != null && game.getPosition() == position) {
+            // 分數隨著這一步記錄，對局結束時交給開局庫
+            int size = position.getBoardSize();
+            game.makeMove(aiMove.bestMove / size, aiMove.bestMove % size, aiMove.score);
+            StartupTimer.markFirstAiMove();
+        }
+        updateView();
+        // 黑棋無子可下時電腦繼續走
+        if (gameMode == GameMode.PLAYER_VS_AI && game.getGameState() == ReversiGame.GameState.PLAYING
+                && game.getCurrentPlayer() == 'W') {
+            handleAITurn();
+        }
+    }
+
+    private void cancelAITurn() {
+        if (aiTask != null) {
+            aiTask.cancel();
+            aiTask = null;
+        }
     }
 
     private class ButtonClickListener implements ActionListener {
@@ -191,8 +416,8 @@ public class ReversiGUI extends JFrame {
     }
 
     private void setBoardEnabled(boolean enabled) {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
                 buttons[i][j].setEnabled(enabled);
             }
         }
@@ -237,16 +462,17 @@ public class ReversiGUI extends JFrame {
      * 包含按鈕圖示、分數和狀態文字。
      */
     private void updateView() {
-        char currentPlayer = game.getCurrentPlayer();
-        boolean isGameOver = game.getGameState() != ReversiGame.GameState.PLAYING;
+        // 整個畫面都從同一個局面快照讀取，避免棋盤、分數與狀態文字來自不同的時間點
+        ReversiPosition position = game.getPosition();
+        boolean isGameOver = position.getGameState() != ReversiGame.GameState.PLAYING;
         int buttonSize = buttons[0][0].getWidth();
 
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                char symbol = game.getSymbolAt(i, j);
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                char symbol = position.getSymbolAt(i, j);
                 JButton button = buttons[i][j];
-                button.setText(""); // 黑白棋不使用文字，只用圖示
-                button.setBackground(new Color(0, 128, 0));
+                button.setText(""); // 棋子只用圖示，文字保留給分析分數
+                button.setBackground(BOARD_COLOR);
 
                 if (symbol == 'B') {
                     button.setIcon(createPieceIcon(Color.BLACK, buttonSize));
@@ -256,7 +482,7 @@ public class ReversiGUI extends JFrame {
                     button.setDisabledIcon(createPieceIcon(Color.LIGHT_GRAY, buttonSize));
                 } else { // 空格
                     // 顯示合法步數的提示
-                    if (!isGameOver && game.isValidMoveForPlayer(i, j, currentPlayer)) {
+                    if (!isGameOver && position.isLegal(i, j)) {
                         button.setIcon(createHintIcon(buttonSize));
                         button.setDisabledIcon(createHintIcon(buttonSize));
                     } else {
@@ -267,25 +493,140 @@ public class ReversiGUI extends JFrame {
             }
         }
 
-        updateStatusLabel();
-        int[] score = game.getScore();
-        scoreLabel.setText(String.format("黑棋: %d, 白棋: %d", score[0], score[1]));
+        updateStatusLabel(position);
+        scoreLabel.setText(String.format("黑棋: %d, 白棋: %d", position.getCount('B'), position.getCount('W')));
 
         setBoardEnabled(!isGameOver);
+        refreshAnalysis(position);
+        refreshExplorer(position);
+    }
+
+    /**
+     * 在對局資料庫中查詢目前局面。索引是記憶體映射的排序檔，每次查詢只是幾次二分搜尋，直接在 EDT 上執行；
+     * 第一次開啟索引要讀檔並建立映射，交給 ReversiWarmup 在背景完成，開好之前只顯示載入中。
+     */
+    private void refreshExplorer(ReversiPosition position) {
+        if (!explorerToggle.isSelected() || position.getBoardSize() != Bitboard.SIZE
+                || position.getGameState() != ReversiGame.GameState.PLAYING) {
+            explorerLabel.setText(" ");
+            return;
+        }
+        if (!PositionIndex.isSharedOpened()) {
+            explorerLabel.setText("對局資料庫載入中…");
+            if (!explorerLoading) {
+                explorerLoading = true;
+                ReversiWarmup.start().thenRun(() -> SwingUtilities.invokeLater(() -> {
+                    explorerLoading = false;
+                    if (PositionIndex.isSharedOpened()) {
+                        refreshExplorer(game.getPosition());
+                    } else {
+                        explorerLabel.setText("無法載入對局索引"); // 預熱在開啟索引之前就失敗了
+                    }
+                }));
+            }
+            return;
+        }
+        PositionIndex index = PositionIndex.shared();
+        if (index == null) {
+            explorerLabel.setText("沒有對局索引（以 PositionIndexTool 建立，或以 -Dboardgames.reversi.index 指定）");
+            return;
+        }
+        char side = position.getSideToMove();
+        long player = position.getBits(side);
+        long opponent = position.getBits(side == 'B' ? 'W' : 'B');
+        PositionIndex.Stats stats = index.lookup(player, opponent);
+        if (stats == null) {
+            explorerLabel.setText(String.format("資料庫 %,d 局中沒有對局經過這個局面", index.gameCount()));
+            return;
+        }
+        List<int[]> moves = new ArrayList<>(); // {格子, 局數, 得分率 x 1000}
+        long legal = Bitboard.legalMoves(player, opponent);
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            PositionIndex.Stats child = index.lookupMove(player, opponent, sq);
+            if (child != null) {
+                moves.add(new int[]{sq, child.getGames(), (int) Math.round(child.getScore() * 1000)});
+            }
+        }
+        moves.sort((a, b) -> Integer.compare(b[1], a[1]));
+        StringBuilder text = new StringBuilder(String.format("%,d 局經過此局面，%s 勝 %d / 和 %d / 負 %d",
+                stats.getGames(), side == 'B' ? "黑棋" : "白棋", stats.getWins(), stats.getDraws(), stats.getLosses()));
+        for (int i = 0; i < Math.min(EXPLORER_MOVES, moves.size()); i++) {
+            int[] move = moves.get(i);
+            text.append(String.format("　%s %,d 局 %.1f%%", Bitboard.squareName(move[0]), move[1], move[2] / 10.0));
+        }
+        explorerLabel.setText(text.toString());
+    }
+
+    /**
+     * 依目前局面重新開始或停止背景分析。
+     * 人機對戰中輪到電腦時不分析，避免和 AI 搶 CPU。
+     */
+    private void refreshAnalysis(ReversiPosition position) {
+        boolean wanted = analysisToggle.isSelected()
+                && position.getBoardSize() == Bitboard.SIZE
+                && position.getGameState() == ReversiGame.GameState.PLAYING
+                && !(gameMode == GameMode.PLAYER_VS_AI && position.getSideToMove() == 'W');
+        if (!wanted) {
+            stopAnalysis();
+            return;
+        }
+        analysisUpdates.clear();
+        analysisLabel.setText("分析中…");
+        // 每個合法步都要標示分數；前 multiPv 名以外只會得到上界，因此主變例數取合法步數
+        char side = position.getSideToMove();
+        int legalMoves = Long.bitCount(Bitboard.legalMoves(position.getBits(side), position.getBits(side == 'B' ? 'W' : 'B')));
+        analysis.start(position, legalMoves, ReversiAnalysis.DEFAULT_MAX_DEPTH,
+                update -> analysisUpdates.post(new AnalysisSnapshot(position, update)));
+    }
+
+    private void stopAnalysis() {
+        analysis.stop();
+        analysisUpdates.clear();
+        analysisLabel.setText(" ");
+    }
+
+    /**
+     * 在 EDT 上把分析結果畫到棋盤：每個合法步的格子顯示分數，最佳步以較亮的底色標示。
+     */
+    private void showAnalysis(AnalysisSnapshot snapshot) {
+        // 局面已改變或已關閉分析時，這筆結果作廢
+        if (snapshot.position != game.getPosition() || !analysisToggle.isSelected()) {
+            return;
+        }
+        AnalysisUpdate update = snapshot.update;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                buttons[i][j].setText("");
+                buttons[i][j].setBackground(BOARD_COLOR);
+            }
+        }
+        for (AnalysisLine line : update.getLines()) {
+            JButton button = buttons[line.getMove() / Bitboard.SIZE][line.getMove() % Bitboard.SIZE];
+            button.setText(line.formatScore());
+            if (line == update.getBest()) {
+                button.setBackground(BEST_MOVE_COLOR);
+            }
+        }
+        AnalysisLine best = update.getBest();
+        analysisLabel.setText(String.format("深度 %d%s　%,d 節點　%s %s：%s",
+                update.getDepth(), update.isExact() ? "（終局）" : "", update.getNodes(),
+                Bitboard.squareName(best.getMove()), best.formatScore(), best.formatPrincipalVariation()));
     }
 
-    private void updateStatusLabel() {
-        ReversiGame.GameState state = game.getGameState();
+    private void updateStatusLabel(ReversiPosition position) {
+        ReversiGame.GameState state = position.getGameState();
         String statusText;
         switch (state) {
             case PLAYING:
-                statusText = "輪到 " + (game.getCurrentPlayer() == 'B' ? "黑棋" : "白棋");
+                statusText = "輪到 " + (position.getSideToMove() == 'B' ? "黑棋" : "白棋");
                 break;
             case BLACK_WINS:
-                statusText = "遊戲結束：黑棋獲勝！";
+                statusText = flagged('W') ? "遊戲結束：白棋超時，黑棋獲勝！" : "遊戲結束：黑棋獲勝！";
                 break;
             case WHITE_WINS:
-                statusText = "遊戲結束：白棋獲勝！";
+                statusText = flagged('B') ? "遊戲結束：黑棋超時，白棋獲勝！" : "遊戲結束：白棋獲勝！";
                 break;
             case DRAW:
                 statusText = "遊戲結束：平局！";
@@ -296,4 +637,37 @@ public class ReversiGUI extends JFrame {
         }
         statusLabel.setText(statusText);
     }
-}
\ No newline at end of file
+
+    private boolean flagged(char side) {
+        GameClock clock = game.getClock();
+        return clock != null && clock.isFlagged(side);
+    }
+
+    private void tickClock() {
+        if (game.checkTime()) {
+            updateView(); // 輪到的一方超時，遊戲結束
+        }
+        updateClockLabel();
+        if (game.getGameState() != ReversiGame.GameState.PLAYING) {
+            clockTimer.stop();
+        }
+    }
+
+    private void updateClockLabel() {
+        GameClock clock = game.getClock();
+        if (clock == null) {
+            clockLabel.setText(" ");
+            return;
+        }
+        char running = clock.getRunningSide();
+        clockLabel.setText(String.format("%s黑 %s　　%s白 %s",
+                running == 'B' ? "▶ " : "", GameClock.format(clock.remainingMillis('B')),
+                running == 'W' ? "▶ " : "", GameClock.format(clock.remainingMillis('W'))));
+    }
+
+    private void stopClock() {
+        clockTimer.stop();
+        game.setClock(null);
+        updateClockLabel();
+    }
+}
@@ -1,8 +1,19 @@
 package com.boardgames.reversi;
 
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.GameClock;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.JournalSession;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.spectator.SpectatorFeed;
+import com.boardgames.spectator.SpectatorFrames;
+
 /**
  * 黑白棋 (Reversi) 的遊戲邏輯模型 (Model)。
  * 負責處理棋盤狀態、翻轉棋子規則、判斷勝負等核心邏輯。
+ * 可選擇搭配 GameClock 計時：每次落子切換時鐘，輪到的一方超時即判負。
+ * 也可以接上 SpectatorFeed，把每一步以差異訊框廣播給觀眾；接上 JournalSession 則每一步寫入對局日誌，當機後可以復原。
+ * 接上 OpeningBook 時，8x8 對局正常下完（不含超時判負）後把整局交給開局庫學習。
  */
 public class ReversiGame {
 
@@ -13,14 +24,31 @@ public class ReversiGame {
         DRAW        // 平局
     }
 
-    private final int BOARD_SIZE = 8;
-    private char[][] board; // 8x8 棋盤
-    private char currentPlayer; // 當前玩家 ('B' 為黑, 'W' 為白)
-    private GameState gameState;
+    /** 預設的棋盤邊長。 */
+    public static final int DEFAULT_BOARD_SIZE = 8;
+
+    // 目前的局面。ReversiPosition 不可變，每次落子都換成新的物件（copy-on-write），
+    // 因此其他執行緒透過 getPosition() 拿到的快照永遠一致，不需要加鎖
+    private volatile ReversiPosition position;
+    private boolean countedAsActive; // 是否已計入 EngineMetrics 的進行中局數
+    private volatile GameClock clock; // null 表示不計時
+    private volatile SpectatorFeed spectatorFeed; // null 表示不廣播
+    private volatile JournalSession journal; // null 表示不寫日誌
+    private volatile OpeningBook openingBook; // null 表示不學習
+    // 這一局從初始局面開始的每一步與落子方當時的搜尋分數，只由落子的執行緒存取
+    private int[] moves;
+    private int[] scores;
+    private int moveCount;
 
     public ReversiGame() {
-        board = new char[BOARD_SIZE][BOARD_SIZE];
-        reset();
+        this(DEFAULT_BOARD_SIZE);
+    }
+
+    /**
+     * @param boardSize 棋盤邊長，必須是 6 到 16 之間的偶數
+     */
+    public ReversiGame(int boardSize) {
+        reset(boardSize);
     }
 
     /**
@@ -28,228 +56,311 @@ public class ReversiGame {
      * 清空棋盤，放置初始的四顆棋子，並設定黑棋先手。
      */
     public void reset() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                board[i][j] = ' ';
-            }
+        reset(position.getBoardSize());
+    }
+
+    /**
+     * 以新的棋盤邊長重置遊戲。
+     *
+     * @throws IllegalArgumentException 邊長不是 6 到 16 之間的偶數
+     */
+    public void reset(int boardSize) {
+        position = ReversiPosition.initial(boardSize);
+        moves = new int[boardSize * boardSize];
+        scores = new int[boardSize * boardSize];
+        moveCount = 0;
+        GameClock current = clock;
+        if (current != null) {
+            current.reset();
+            current.start('B');
+        }
+
+        if (countedAsActive) {
+            EngineMetrics.get().gameAbandoned(); // 上一局尚未結束就重新開始
+        }
+        EngineMetrics.get().gameStarted();
+        countedAsActive = true;
+        JournalSession session = journal;
+        if (session != null) {
+            session.restart(boardSize);
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * 放棄這一局：還沒下完時不再計入 EngineMetrics 的進行中局數。視窗關閉或工具用完對局時呼叫，重複呼叫沒有作用；
+     * 之後仍可以 reset() 開始新的一局。
+     */
+    public void close() {
+        if (countedAsActive) {
+            EngineMetrics.get().gameAbandoned();
+            countedAsActive = false;
         }
-        // 初始佈局：中間交叉放置黑白棋
-        board[3][3] = 'W';
-        board[3][4] = 'B';
-        board[4][3] = 'B';
-        board[4][4] = 'W';
-        currentPlayer = 'B'; // 黑棋總是先手
-        gameState = GameState.PLAYING;
     }
 
     /**
      * 執行落子動作。
+     * 若對手無步可走，控制權會保留在目前玩家（Pass）；雙方都無法下子時遊戲結束。
      *
      * @param row 列索引
      * @param col 行索引
      * @return 如果落子成功回傳 true，否則回傳 false
      */
     public boolean makeMove(int row, int col) {
-        if (!isValidMove(row, col)) {
+        return makeMove(row, col, OpeningBook.NO_SCORE);
+    }
+
+    /**
+     * 與 makeMove(row, col) 相同，並記下落子方在落子前的搜尋分數（1/ReversiEvaluator.SCALE 子，例如
+     * ReversiAIPlayer.findBestResult 的 score），對局結束時連同棋譜交給開局庫；不知道時傳 OpeningBook.NO_SCORE。
+     */
+    public boolean makeMove(int row, int col, int score) {
+        if (checkTime()) {
+            return false; // 已經超時，這一步不算
+        }
+        ReversiPosition next = position.play(row, col);
+        if (next == null) {
             return false;
         }
+        ReversiPosition previous = position;
+        position = next;
+        JournalSession session = journal;
+        if (session != null) {
+            session.move(row * next.getBoardSize() + col);
+        }
+        moves[moveCount] = row * next.getBoardSize() + col;
+        scores[moveCount] = score;
+        moveCount++;
+        publishMove(previous, next, row, col);
 
-        board[row][col] = currentPlayer; // 放置棋子
-        flipDiscs(row, col); // 翻轉對手棋子
-
-        // 檢查遊戲是否結束
-        if (isGameOver()) {
-            updateFinalGameState();
-        } else {
-            // 切換到對手
-            char nextPlayer = getOpponent();
-            // 如果對手有合法步數，則切換玩家
-            if (hasValidMove(nextPlayer)) {
-                switchPlayer();
-            } else if (!hasValidMove(currentPlayer)) {
-                // 如果對手無步可走，且當前玩家也無步可走（雙方都無法下子），遊戲結束
-                // 注意：如果對手無步可走但當前玩家還有步可走，則控制權會保留在當前玩家（Pass）
-                updateFinalGameState();
+        GameClock current = clock;
+        if (current != null) {
+            if (next.getGameState() == GameState.PLAYING) {
+                current.switchTo(next.getSideToMove()); // 對手虛手時仍由同一方繼續計時
+            } else {
+                current.stop();
             }
-            // 如果對手無步可走但當前玩家可以，則不切換玩家 (隱含的 Pass 規則)
         }
-
+        finishIfOver(next);
+        OpeningBook book = openingBook;
+        if (book != null && next.getGameState() != GameState.PLAYING && next.getBoardSize() == Bitboard.SIZE) {
+            book.recordGame(moves, moveCount, scores);
+        }
         return true;
     }
 
     /**
-     * 翻轉落子位置周圍可以被夾住的對手棋子。
+     * 檢查輪到的一方是否已經超時；超時時遊戲立即結束，由另一方獲勝。
+     * 介面應定期呼叫（例如以計時器），不計時或遊戲已結束時不做任何事。
+     *
+     * @return 這次呼叫是否判定了超時
      */
-    private void flipDiscs(int row, int col) {
-        // 八個方向的偏移量
-        int[] dr = {-1, -1, -1, 0, 0, 1, 1, 1};
-        int[] dc = {-1, 0, 1, -1, 1, -1, 0, 1};
+    public boolean checkTime() {
+        ReversiPosition current = position;
+        GameClock currentClock = clock;
+        if (currentClock == null || current.getGameState() != GameState.PLAYING
+                || !currentClock.isFlagged(current.getSideToMove())) {
+            return false;
+        }
+        currentClock.stop();
+        ReversiPosition forfeited = current.timeForfeit(current.getSideToMove());
+        position = forfeited;
+        finishIfOver(forfeited);
+        publishSnapshot();
+        return true;
+    }
 
-        for (int i = 0; i < 8; i++) {
-            int r = row + dr[i];
-            int c = col + dc[i];
-            boolean foundOpponent = false;
-            // 沿著該方向尋找連續的對手棋子
-            while (r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == getOpponent()) {
-                r += dr[i];
-                c += dc[i];
-                foundOpponent = true;
-            }
-            // 如果找到了對手棋子，且最後一個是己方棋子，則表示可以夾住
-            if (foundOpponent && r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == currentPlayer) {
-                // 往回翻轉中間的所有棋子
-                int curR = row + dr[i];
-                int curC = col + dc[i];
-                while (curR != r || curC != c) {
-                    board[curR][curC] = currentPlayer;
-                    curR += dr[i];
-                    curC += dc[i];
-                }
+    private void finishIfOver(ReversiPosition next) {
+        if (next.getGameState() != GameState.PLAYING && countedAsActive) {
+            EngineMetrics.get().gameFinished();
+            countedAsActive = false;
+            JournalSession session = journal;
+            if (session != null) {
+                session.finish();
             }
         }
     }
-    
+
     /**
-     * 檢查目前的落子是否合法（是否能翻轉至少一顆棋子）。
+     * 設定對局時鐘並從黑棋開始計時（通常在 reset 之前或之後立刻呼叫）；null 表示不計時。
+     * 之後每次 reset 都會重置時鐘。
      */
-    public boolean isValidMove(int row, int col) {
-        // 檢查邊界和是否為空位
-        if (row < 0 || row >= BOARD_SIZE || col < 0 || col >= BOARD_SIZE || board[row][col] != ' ') {
-            return false;
+    public void setClock(GameClock clock) {
+        GameClock previous = this.clock;
+        if (previous != null) {
+            previous.stop();
         }
-
-        // 檢查八個方向
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0) continue;
-
-                int r = row + dr;
-                int c = col + dc;
-                boolean foundOpponent = false;
-                // 尋找對手棋子
-                while (r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == getOpponent()) {
-                    r += dr;
-                    c += dc;
-                    foundOpponent = true;
-                }
-                // 如果找到對手棋子且被己方棋子包夾，則為合法步
-                if (foundOpponent && r >= 0 && r < BOARD_SIZE && c >= 0 && c < BOARD_SIZE && board[r][c] == currentPlayer) {
-                    return true;
-                }
+        this.clock = clock;
+        if (clock != null) {
+            clock.reset();
+            if (position.getGameState() == GameState.PLAYING) {
+                clock.start(position.getSideToMove());
             }
         }
-        return false;
     }
 
     /**
-     * 檢查指定玩家是否有任何合法的落子點。
+     * 目前的對局時鐘，不計時時回傳 null。
      */
-    private boolean hasValidMove(char player) {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (isValidMoveForPlayer(i, j, player)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    public GameClock getClock() {
+        return clock;
     }
 
     /**
-     * 模擬檢查指定玩家在特定位置落子是否合法。
-     * 用於 AI 計算或顯示提示，不會實際改變遊戲狀態。
+     * 設定觀戰頻道並立刻發布目前局面的快照；之後每一步發布一個差異訊框，reset 與超時判負發布快照。
+     * null 表示停止廣播。
      */
-    public boolean isValidMoveForPlayer(int row, int col, char player) {
-        if (board[row][col] != ' ') {
-            return false;
-        }
-        // 暫時切換當前玩家來檢查
-        char originalPlayer = currentPlayer;
-        currentPlayer = player;
-        boolean isValid = isValidMove(row, col);
-        currentPlayer = originalPlayer; // 恢復當前玩家
-        return isValid;
+    public void setSpectatorFeed(SpectatorFeed feed) {
+        this.spectatorFeed = feed;
+        publishSnapshot();
     }
-    
-    private void switchPlayer() {
-        currentPlayer = getOpponent();
+
+    /**
+     * 設定對局日誌的紀錄（由 GameJournal.start 或 RecoveredGame.resume 取得）；null 表示停止記錄。
+     * 應在新局開始前設定，之後每一步、reset 與對局結束都會寫入日誌。
+     */
+    public void setJournal(JournalSession session) {
+        this.journal = session;
     }
 
-    private char getOpponent() {
-        return (currentPlayer == 'B') ? 'W' : 'B';
+    /**
+     * 目前的對局日誌紀錄，不寫日誌時回傳 null。
+     */
+    public JournalSession getJournal() {
+        return journal;
     }
 
     /**
-     * 判斷遊戲是否結束（雙方都無法移動）。
+     * 設定對局結束後要學習的開局庫；null 表示不學習。只有 8x8 的對局會被記錄，
+     * 以 makeMove(row, col, score) 落子的步會連同搜尋分數一起記錄。
+     * 目前只有 ReversiGUI 設定開局庫：自我對弈（SelfPlayGame）有隨機步、ProbCutFitter compare 刻意關掉部分剪枝，
+     * 兩者的對局都不適合拿來學習，不會寫入開局庫；要在無介面的環境訓練開局庫請用 OpeningBookTool。
      */
-    private boolean isGameOver() {
-        return !hasValidMove('B') && !hasValidMove('W');
+    public void setOpeningBook(OpeningBook book) {
+        this.openingBook = book;
     }
 
     /**
-     * 結算遊戲結果。
+     * 重放日誌中復原的一局黑白棋，並繼續把之後的落子記錄到同一份日誌。時鐘不會復原。
+     *
+     * @throws IllegalArgumentException 不是黑白棋的紀錄，或其中有不合法的落子
      */
-    private void updateFinalGameState() {
-        int blackCount = 0;
-        int whiteCount = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (board[i][j] == 'B') {
-                    blackCount++;
-                } else if (board[i][j] == 'W') {
-                    whiteCount++;
-                }
+    public static ReversiGame replay(RecoveredGame recovered) {
+        if (recovered.getGame() != GameJournal.Game.REVERSI) {
+            throw new IllegalArgumentException("不是黑白棋的紀錄: " + recovered);
+        }
+        int size = recovered.getBoardSize();
+        ReversiGame game = new ReversiGame(size);
+        for (int cell : recovered.getMoves()) {
+            if (!game.makeMove(cell / size, cell % size)) {
+                throw new IllegalArgumentException("紀錄中有不合法的落子: " + cell);
             }
         }
-        if (blackCount > whiteCount) {
-            gameState = GameState.BLACK_WINS;
-        } else if (whiteCount > blackCount) {
-            gameState = GameState.WHITE_WINS;
-        } else {
-            gameState = GameState.DRAW;
+        game.setJournal(recovered.resume());
+        return game;
+    }
+
+    private void publishSnapshot() {
+        SpectatorFeed feed = spectatorFeed;
+        if (feed == null) {
+            return;
         }
+        ReversiPosition current = position;
+        long[] black = new long[WideBitboard.MAX_WORDS];
+        long[] white = new long[WideBitboard.MAX_WORDS];
+        current.copyBits('B', black);
+        current.copyBits('W', white);
+        feed.publish(SpectatorFrames.reversiSnapshot(current.getBoardSize(), side(current.getSideToMove()),
+                current.getGameState().ordinal(), black, white));
     }
-    
-    public int[] getScore() {
-        int blackCount = 0;
-        int whiteCount = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (board[i][j] == 'B') {
-                    blackCount++;
-                } else if (board[i][j] == 'W') {
-                    whiteCount++;
-                }
-            }
+
+    private void publishMove(ReversiPosition previous, ReversiPosition next, int row, int col) {
+        SpectatorFeed feed = spectatorFeed;
+        if (feed == null) {
+            return;
+        }
+        // 被翻轉的子 = 對手落子前有、落子後沒有的子
+        char opponent = previous.getSideToMove() == 'B' ? 'W' : 'B';
+        long[] flips = new long[WideBitboard.MAX_WORDS];
+        long[] after = new long[WideBitboard.MAX_WORDS];
+        previous.copyBits(opponent, flips);
+        next.copyBits(opponent, after);
+        for (int i = 0; i < flips.length; i++) {
+            flips[i] &= ~after[i];
         }
-        return new int[]{blackCount, whiteCount};
+        int size = next.getBoardSize();
+        feed.publish(SpectatorFrames.reversiMove(size, side(previous.getSideToMove()), row * size + col,
+                next.getGameState().ordinal(), side(next.getSideToMove()), flips));
+    }
+
+    private static int side(char player) {
+        return player == 'B' ? 0 : 1;
+    }
+
+    /**
+     * 檢查目前的落子是否合法（是否能翻轉至少一顆棋子）。
+     */
+    public boolean isValidMove(int row, int col) {
+        return position.isLegal(row, col);
+    }
+
+    /**
+     * 檢查指定玩家在特定位置落子是否合法。
+     * 用於 AI 計算或顯示提示，不會改變遊戲狀態。
+     */
+    public boolean isValidMoveForPlayer(int row, int col, char player) {
+        return position.isLegalFor(row, col, player);
+    }
+
+    /**
+     * 取得目前局面的不可變快照（O(1)，不複製棋盤），可以交給其他執行緒使用。
+     */
+    public ReversiPosition getPosition() {
+        return position;
+    }
+
+    public int[] getScore() {
+        ReversiPosition current = position;
+        return new int[]{current.getCount('B'), current.getCount('W')};
     }
 
     // --- Getter 方法 ---
     public int getBoardSize() {
-        return BOARD_SIZE;
+        return position.getBoardSize();
     }
 
     public char getCurrentPlayer() {
-        return currentPlayer;
+        return position.getSideToMove();
     }
 
     public GameState getGameState() {
-        return gameState;
+        return position.getGameState();
     }
 
     public char getSymbolAt(int row, int col) {
-        return board[row][col];
+        return position.getSymbolAt(row, col);
+    }
+
+    /**
+     * 取得指定玩家棋子的位元集合（第 row * 8 + col 個位元代表該格），供 8x8 的 AI 與離線工具使用。
+     *
+     * @throws IllegalStateException 棋盤不是 8x8
+     */
+    public long getBits(char player) {
+        return position.getBits(player);
+    }
+
+    /**
+     * 將指定玩家棋子的多字組位元棋盤（第 row * size + col 個位元代表該格）複製到 dest，適用任何邊長。
+     */
+    public void copyBits(char player, long[] dest) {
+        position.copyBits(player, dest);
     }
 
     /**
      * 取得棋盤副本。
      */
     public char[][] getBoard() {
-        char[][] boardCopy = new char[BOARD_SIZE][BOARD_SIZE];
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            System.arraycopy(board[i], 0, boardCopy[i], 0, BOARD_SIZE);
-        }
-        return boardCopy;
+        return position.toBoard();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,246 @@
+package com.boardgames.reversi;
+
+import java.util.Arrays;
+
+/**
+ * 不可變的黑白棋局面：雙方棋子的位元棋盤、輪到哪一方、上一手是否因對手無步可走而虛手，以及勝負狀態。
+ * 建立後內容永不改變，因此可以在 EDT、AI 背景執行緒與分析工具之間直接共用，不需要加鎖或複製 char[][]。
+ *
+ * ReversiGame 以 copy-on-write 的方式持有目前的局面：每次落子產生新的 ReversiPosition 並替換參考，
+ * 所以 ReversiGame.getPosition() 是 O(1) 的，而且拿到的快照不會被之後的落子影響。
+ * 雙方棋子一律以 WideBitboard 的多字組形式（長度 WideBitboard.MAX_WORDS 的 long[]，第 row * size + col 個位元）保存。
+ * 只有 8x8 可以用 getBits 取得單一 long（與 Bitboard 的格子編號相同），其他邊長一律以 copyBits 取得多字組形式。
+ */
+public final class ReversiPosition {
+
+    private final int size;
+    private final long[] black; // 長度為 WideBitboard.MAX_WORDS，建立後不再修改也不外流
+    private final long[] white;
+    private final char sideToMove;
+    private final boolean passed;
+    private final ReversiGame.GameState state;
+
+    private ReversiPosition(int size, long[] black, long[] white, char sideToMove, boolean passed,
+                            ReversiGame.GameState state) {
+        this.size = size;
+        this.black = black;
+        this.white = white;
+        this.sideToMove = sideToMove;
+        this.passed = passed;
+        this.state = state;
+    }
+
+    /**
+     * 指定邊長的初始局面（黑棋先手）。
+     *
+     * @throws IllegalArgumentException 邊長不是 6 到 16 之間的偶數
+     */
+    public static ReversiPosition initial(int size) {
+        long[] black = new long[WideBitboard.MAX_WORDS];
+        long[] white = new long[WideBitboard.MAX_WORDS];
+        WideBitboard.of(size).initial(black, white);
+        return new ReversiPosition(size, black, white, 'B', false, ReversiGame.GameState.PLAYING);
+    }
+
+    /**
+     * 8x8 的局面（例如資料集中的紀錄）。勝負狀態依雙方是否還有合法步判斷。
+     *
+     * @param sideToMove 'B' 或 'W'
+     */
+    public static ReversiPosition of(long black, long white, char sideToMove) {
+        long[] b = new long[WideBitboard.MAX_WORDS];
+        long[] w = new long[WideBitboard.MAX_WORDS];
+        b[0] = black;
+        w[0] = white;
+        long own = sideToMove == 'B' ? black : white;
+        long opp = sideToMove == 'B' ? white : black;
+        ReversiGame.GameState state = ReversiGame.GameState.PLAYING;
+        if (Bitboard.legalMoves(own, opp) == 0 && Bitboard.legalMoves(opp, own) == 0) {
+            state = result(Long.bitCount(black), Long.bitCount(white));
+        }
+        return new ReversiPosition(Bitboard.SIZE, b, w, sideToMove, false, state);
+    }
+
+    /**
+     * 指定一方超時判負後的局面：棋盤不變，由另一方獲勝。
+     *
+     * @param loser 超時的一方（'B' 或 'W'）
+     */
+    public ReversiPosition timeForfeit(char loser) {
+        ReversiGame.GameState result = loser == 'B' ? ReversiGame.GameState.WHITE_WINS : ReversiGame.GameState.BLACK_WINS;
+        return new ReversiPosition(size, black, white, sideToMove, passed, result);
+    }
+
+    /**
+     * 在 (row, col) 落子後的局面；輪到的一方若無步可走會自動虛手，雙方都無步可走時結算勝負。
+     *
+     * @return 新局面；落子不合法或遊戲已結束時回傳 null
+     */
+    public ReversiPosition play(int row, int col) {
+        if (state != ReversiGame.GameState.PLAYING || row < 0 || row >= size || col < 0 || col >= size) {
+            return null;
+        }
+        WideBitboard geometry = WideBitboard.of(size);
+        long[] own = (sideToMove == 'B' ? black : white).clone();
+        long[] opp = (sideToMove == 'B' ? white : black).clone();
+        long[] scratch = new long[WideBitboard.MAX_WORDS];
+        if (!geometry.makeMove(own, opp, row * size + col, scratch)) {
+            return null;
+        }
+
+        char next = opponentOf(sideToMove);
+        boolean skipped = false;
+        ReversiGame.GameState nextState = ReversiGame.GameState.PLAYING;
+        long[] moves = new long[WideBitboard.MAX_WORDS];
+        geometry.legalMoves(opp, own, moves, scratch);
+        if (WideBitboard.isEmpty(moves)) {
+            geometry.legalMoves(own, opp, moves, scratch);
+            if (WideBitboard.isEmpty(moves)) {
+                // 雙方都無法下子，遊戲結束
+                nextState = sideToMove == 'B'
+                        ? result(WideBitboard.count(own), WideBitboard.count(opp))
+                        : result(WideBitboard.count(opp), WideBitboard.count(own));
+            } else {
+                // 對手無步可走，控制權保留在目前玩家（Pass）
+                next = sideToMove;
+                skipped = true;
+            }
+        }
+        return sideToMove == 'B'
+                ? new ReversiPosition(size, own, opp, next, skipped, nextState)
+                : new ReversiPosition(size, opp, own, next, skipped, nextState);
+    }
+
+    /**
+     * 輪到的一方在 (row, col) 落子是否合法。
+     */
+    public boolean isLegal(int row, int col) {
+        return isLegalFor(row, col, sideToMove);
+    }
+
+    /**
+     * 指定玩家在 (row, col) 落子是否合法（不論目前輪到誰）。
+     */
+    public boolean isLegalFor(int row, int col, char player) {
+        if (row < 0 || row >= size || col < 0 || col >= size) {
+            return false;
+        }
+        return WideBitboard.of(size).isLegal(bitsOf(player), bitsOf(opponentOf(player)), row * size + col);
+    }
+
+    public int getBoardSize() {
+        return size;
+    }
+
+    public char getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * 上一手落子後，對手是否因無步可走而被跳過（因此又輪到同一方）。
+     */
+    public boolean isPassed() {
+        return passed;
+    }
+
+    public ReversiGame.GameState getGameState() {
+        return state;
+    }
+
+    public char getSymbolAt(int row, int col) {
+        int square = row * size + col;
+        if (WideBitboard.get(black, square)) {
+            return 'B';
+        }
+        return WideBitboard.get(white, square) ? 'W' : ' ';
+    }
+
+    public int getCount(char player) {
+        return WideBitboard.count(bitsOf(player));
+    }
+
+    public int getEmpties() {
+        return size * size - WideBitboard.count(black) - WideBitboard.count(white);
+    }
+
+    /**
+     * 取得指定玩家棋子的位元集合（第 row * 8 + col 個位元代表該格）。
+     *
+     * @throws IllegalStateException 棋盤不是 8x8
+     */
+    public long getBits(char player) {
+        if (size != Bitboard.SIZE) {
+            throw new IllegalStateException("單一 long 的位元棋盤只支援 8x8，目前為 " + size + "x" + size);
+        }
+        return bitsOf(player)[0];
+    }
+
+    /**
+     * 將指定玩家棋子的多字組位元棋盤複製到 dest（長度至少為 WideBitboard.MAX_WORDS）。
+     */
+    public void copyBits(char player, long[] dest) {
+        System.arraycopy(bitsOf(player), 0, dest, 0, WideBitboard.MAX_WORDS);
+    }
+
+    /**
+     * 轉成新的 char[][]（'B'、'W' 或空白）。
+     */
+    public char[][] toBoard() {
+        char[][] board = new char[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                board[i][j] = getSymbolAt(i, j);
+            }
+        }
+        return board;
+    }
+
+    private long[] bitsOf(char player) {
+        return player == 'B' ? black : white;
+    }
+
+    private static char opponentOf(char player) {
+        return player == 'B' ? 'W' : 'B';
+    }
+
+    private static ReversiGame.GameState result(int blackCount, int whiteCount) {
+        if (blackCount > whiteCount) {
+            return ReversiGame.GameState.BLACK_WINS;
+        } else if (whiteCount > blackCount) {
+            return ReversiGame.GameState.WHITE_WINS;
+        }
+        return ReversiGame.GameState.DRAW;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReversiPosition)) {
+            return false;
+        }
+        ReversiPosition other = (ReversiPosition) o;
+        return size == other.size && sideToMove == other.sideToMove && passed == other.passed
+                && state == other.state && Arrays.equals(black, other.black) && Arrays.equals(white, other.white);
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * Arrays.hashCode(black) + Arrays.hashCode(white)) * 31 + size * 2 + (sideToMove == 'B' ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                char symbol = getSymbolAt(i, j);
+                sb.append(symbol == ' ' ? '-' : symbol);
+            }
+            sb.append('\n');
+        }
+        sb.append(state == ReversiGame.GameState.PLAYING ? "輪到 " + sideToMove : state.toString());
+        return sb.toString();
+    }
+}
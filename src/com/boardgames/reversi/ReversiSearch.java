@@ -0,0 +1,633 @@
+package com.boardgames.reversi;
+
+import com.boardgames.common.CancellationToken;
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.MemoryBudget;
+import com.boardgames.common.TimeBudget;
+import com.boardgames.common.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 黑白棋的搜尋引擎。
+ * 以反覆加深 (Iterative Deepening) 的 alpha-beta（negamax 形式）搭配置換表與走法排序；
+ * 剩餘空格不超過搜尋深度時直接解到終局，取得精確分數。
+ *
+ * 可選擇開啟 Multi-ProbCut 選擇性搜尋：在深層節點先做淺層搜尋，
+ * 依 ProbCutParameters 的回歸結果推估深層搜尋是否幾乎必定超出 alpha/beta 視窗，若是則直接剪枝。
+ * 預設值取自 -Dboardgames.reversi.probcut.enabled（預設開啟，但沒有參數檔時不會產生任何剪枝）。
+ *
+ * 每個實例擁有自己的置換表與走法緩衝區，不是執行緒安全的；多執行緒請各自建立實例。
+ * 唯一可以從其他執行緒呼叫的是 stop()：搜尋會在數千個節點內停下，並回傳最後一個完成的深度的結果。
+ * 也可以用 setCancellationToken 交給排程器的取消訊號，效果與 stop() 相同。
+ * 以 -Dboardgames.reversi.trace=true 啟動時，可用 setTrace 把下一次 search 的搜尋樹寫入 SearchTrace。
+ */
+public class ReversiSearch {
+
+    public static final int INFINITY = 1_000_000;
+
+    // 每一步都消耗深度，而 pass 不會連續發生，因此遞迴層數不會超過兩倍的剩餘空格數
+    private static final int MAX_PLY = 128;
+    private static final int MAX_MOVES = 34;
+
+    // 淺層節點使用的靜態格子優先度：角最高、X 格最低
+    private static final int[] SQUARE_PRIORITY = new int[Bitboard.SQUARES];
+
+    static {
+        int[] quadrant = {
+                9, 2, 7, 6,
+                2, 0, 3, 3,
+                7, 3, 5, 4,
+                6, 3, 4, 4,
+        };
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int r = row < 4 ? row : 7 - row;
+                int c = col < 4 ? col : 7 - col;
+                SQUARE_PRIORITY[Bitboard.square(row, col)] = quadrant[r * 4 + c];
+            }
+        }
+    }
+
+    private final ReversiEvaluator evaluator;
+    private final TranspositionTable table;
+    private ProbCutParameters probCutParameters = ProbCutParameters.getDefault();
+    private boolean probCutEnabled = Boolean.parseBoolean(System.getProperty("boardgames.reversi.probcut.enabled", "true"));
+    private double probCutThreshold = 1.5;
+
+    // 每一層預先配置的走法與排序鍵，搜尋時不配置任何物件
+    private final int[][] moveLists = new int[MAX_PLY][MAX_MOVES];
+    private final int[][] moveKeys = new int[MAX_PLY][MAX_MOVES];
+
+    private final int[] pvBuffer = new int[MAX_PLY];
+
+    private boolean selective; // 目前這次搜尋是否允許 ProbCut（終局精確搜尋時關閉）
+    private volatile boolean stopRequested;
+    private long deadline = Long.MAX_VALUE; // 時間預算的上限（System.nanoTime() 時間軸），到了就中止
+    private CancellationToken cancellation; // 可為 null
+    private SearchTrace pendingTrace; // 下一次 search 要記錄到的追蹤檔
+    private SearchTrace tracing; // 進行中的 search 正在記錄的追蹤檔，沒有記錄時為 null
+    private int traceMove; // 記錄時，下一個 negamax 節點是由哪一步（或虛手、ProbCut 檢查）進入的
+    private boolean traceTerminal; // 記錄時，剛結束的 negamaxNode 是否直接回傳了終局子數差
+    private boolean aborted; // 本次搜尋已因 stop() 中止，尚未回傳的分數都不可信
+    private int rootBestMove;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+
+    /**
+     * 使用預設評估函數，置換表大小由 MemoryBudget 的 reversi.search 群組決定。
+     */
+    public ReversiSearch() {
+        this(ReversiEvaluator.getDefault(), MemoryBudget.REVERSI_SEARCH);
+    }
+
+    public ReversiSearch(ReversiEvaluator evaluator, int log2TableSize) {
+        this.evaluator = evaluator;
+        this.table = new TranspositionTable(log2TableSize);
+    }
+
+    /**
+     * @param budgetGroup 置換表所屬的 MemoryBudget 群組
+     */
+    public ReversiSearch(ReversiEvaluator evaluator, String budgetGroup) {
+        this.evaluator = evaluator;
+        this.table = new TranspositionTable(budgetGroup);
+    }
+
+    // --- 設定 ---
+
+    public void setProbCutEnabled(boolean enabled) {
+        this.probCutEnabled = enabled;
+    }
+
+    public boolean isProbCutEnabled() {
+        return probCutEnabled;
+    }
+
+    public void setProbCutParameters(ProbCutParameters parameters) {
+        this.probCutParameters = parameters;
+    }
+
+    /**
+     * 設定剪枝門檻（以標準差為單位），越大越保守。
+     */
+    public void setProbCutThreshold(double threshold) {
+        this.probCutThreshold = threshold;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * 要求正在進行的 search 或 analyze 儘快結束（可從任何執行緒呼叫）。
+     * 下一次 search 或 analyze 開始時會清除這個要求。
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * 設定之後的搜尋要遵守的取消訊號（null 表示沒有）；訊號取消時搜尋就像呼叫了 stop() 一樣結束。
+     * 與 stop() 不同，訊號在搜尋開始前就已取消也有效。
+     */
+    public void setCancellationToken(CancellationToken token) {
+        this.cancellation = token;
+    }
+
+    /**
+     * 把下一次 search（只有一次，結束後自動解除）的搜尋樹寫入 trace；呼叫端在搜尋後自行 close()。
+     *
+     * @throws IllegalStateException 沒有以 -Dboardgames.reversi.trace=true 啟動
+     */
+    public void setTrace(SearchTrace trace) {
+        if (!SearchTrace.ENABLED) {
+            throw new IllegalStateException("記錄搜尋樹需要以 -Dboardgames.reversi.trace=true 啟動");
+        }
+        this.pendingTrace = trace;
+    }
+
+    // --- 搜尋入口 ---
+
+    /**
+     * 以反覆加深搜尋最佳步。
+     *
+     * @param player 行棋方的棋子
+     * @param opponent 對手的棋子
+     * @param maxDepth 最大搜尋深度；大於等於剩餘空格數時會解到終局
+     */
+    public SearchResult search(long player, long opponent, int maxDepth) {
+        return search(player, opponent, maxDepth, null);
+    }
+
+    /**
+     * 在時間預算內以反覆加深搜尋最佳步。
+     * 每完成一輪就依預算與最佳步的穩定度決定要不要開始下一輪；超過預算上限時中止進行中的一輪，
+     * 回傳最後一個完成的深度。第一輪（深度 1）一定會完成。
+     *
+     * @param budget 時間預算，null 表示只受 maxDepth 限制
+     */
+    public SearchResult search(long player, long opponent, int maxDepth, TimeBudget budget) {
+        if (!SearchTrace.ENABLED || pendingTrace == null) {
+            return iterate(player, opponent, maxDepth, budget);
+        }
+        tracing = pendingTrace;
+        pendingTrace = null;
+        traceTerminal = false; // 沒有記錄的搜尋也會設定，但不會清掉
+        tracing.begin(player, opponent);
+        try {
+            return iterate(player, opponent, maxDepth, budget);
+        } finally {
+            tracing.finish();
+            tracing = null;
+        }
+    }
+
+    private SearchResult iterate(long player, long opponent, int maxDepth, TimeBudget budget) {
+        long start = System.nanoTime();
+        begin();
+
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0) {
+            return new SearchResult(-1, 0, 0, false, 0, System.nanoTime() - start);
+        }
+
+        int empties = Bitboard.SQUARES - Long.bitCount(player | opponent);
+        int bestMove = Long.numberOfTrailingZeros(moves);
+        int bestScore = 0;
+        int completedDepth = 0;
+        int stableIterations = 0;
+        boolean exact = false;
+        for (int depth = 1; depth <= Math.max(1, maxDepth); depth++) {
+            boolean solving = depth >= empties;
+            int d = solving ? empties : depth;
+            selective = probCutEnabled && !solving;
+            int score = searchRoot(player, opponent, moves, d, bestMove);
+            if (aborted) {
+                break; // 保留上一個完成的深度
+            }
+            stableIterations = completedDepth > 0 && rootBestMove == bestMove ? stableIterations + 1 : 0;
+            bestScore = score;
+            bestMove = rootBestMove;
+            completedDepth = d;
+            exact = solving;
+            if (exact) {
+                break;
+            }
+            if (budget != null) {
+                if (!budget.shouldStartIteration(System.nanoTime(), stableIterations)) {
+                    break;
+                }
+                deadline = budget.hardDeadline(); // 從第二輪開始才受上限約束
+            }
+        }
+        deadline = Long.MAX_VALUE;
+
+        long nanos = System.nanoTime() - start;
+        EngineMetrics.get().recordMove(nodes, nanos);
+        EngineMetrics.get().recordTableProbes(tableProbes, tableHits);
+        return new SearchResult(bestMove, bestScore, completedDepth, exact, nodes, nanos);
+    }
+
+    /**
+     * 以固定深度、完整視窗計算局面的值（不經過反覆加深），供離線工具與開局庫學習使用。
+     * 不會重設統計與時間限制，也不會開始新一輪置換表；一批 value 呼叫之前請先呼叫 prepare()。
+     */
+    public int value(long player, long opponent, int depth) {
+        aborted = false;
+        int empties = Bitboard.SQUARES - Long.bitCount(player | opponent);
+        selective = probCutEnabled && depth < empties;
+        return negamax(player, opponent, depth, -INFINITY, INFINITY, 0, false);
+    }
+
+    /**
+     * 多主變例 (Multi-PV) 分析：以反覆加深找出分數最高的前 multiPv 個候選步，各附主變例。
+     * 前 multiPv 名以外的候選步以目前第 multiPv 名的分數作為 alpha 搜尋，只得到上界，因此只比單一最佳步的搜尋慢一些；
+     * multiPv 不小於合法步數時，每個合法步都有精確（在該深度下）的分數。
+     * 每完成一個深度就透過 listener 送出一次快照；解到終局、達到 maxDepth 或被 stop() 中止時結束。
+     *
+     * @param listener 可為 null
+     * @return 最後一個完成的深度的快照；沒有合法步或第一個深度就被中止時回傳 null
+     */
+    public AnalysisUpdate analyze(long player, long opponent, int maxDepth, int multiPv, AnalysisListener listener) {
+        long start = System.nanoTime();
+        begin();
+        long moves = Bitboard.legalMoves(player, opponent);
+        int count = Long.bitCount(moves);
+        if (count == 0) {
+            return null;
+        }
+        int[] rootMoves = new int[count];
+        int[] rootScores = new int[count];
+        for (int i = 0; i < count; i++) {
+            rootMoves[i] = Long.numberOfTrailingZeros(moves);
+            rootScores[i] = SQUARE_PRIORITY[rootMoves[i]];
+            moves &= moves - 1;
+        }
+        int k = Math.max(1, Math.min(multiPv, count));
+        int[] topScores = new int[k];
+
+        int empties = Bitboard.SQUARES - Long.bitCount(player | opponent);
+        AnalysisUpdate last = null;
+        for (int depth = 1; depth <= Math.max(1, maxDepth); depth++) {
+            boolean solving = depth >= empties;
+            int d = solving ? empties : depth;
+            selective = probCutEnabled && !solving;
+            sortByScore(rootMoves, rootScores, count);
+
+            int found = 0;
+            int[] scores = new int[count];
+            for (int i = 0; i < count; i++) {
+                // 已經湊滿 k 名時，只需知道這一步能否超過第 k 名
+                int alpha = found < k ? -INFINITY : topScores[k - 1];
+                int sq = rootMoves[i];
+                long flipped = Bitboard.flips(player, opponent, sq);
+                int score = -negamax(opponent & ~flipped, player | flipped | (1L << sq), d - 1, -INFINITY, -alpha, 1, false);
+                if (aborted) {
+                    break;
+                }
+                scores[i] = score;
+                if (score > alpha) {
+                    int j = Math.min(found, k - 1);
+                    while (j > 0 && topScores[j - 1] < score) {
+                        topScores[j] = topScores[j - 1];
+                        j--;
+                    }
+                    topScores[j] = score;
+                    found = Math.min(k, found + 1);
+                }
+            }
+            if (aborted) {
+                break;
+            }
+            System.arraycopy(scores, 0, rootScores, 0, count);
+            sortByScore(rootMoves, rootScores, count);
+            table.store(player, opponent, rootScores[0], d, TranspositionTable.BOUND_EXACT, rootMoves[0]);
+
+            List<AnalysisLine> lines = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                int length = principalVariation(player, opponent, rootMoves[i], d);
+                int[] pv = new int[length];
+                System.arraycopy(pvBuffer, 0, pv, 0, length);
+                lines.add(new AnalysisLine(rootMoves[i], rootScores[i], d, solving, pv));
+            }
+            last = new AnalysisUpdate(d, solving, nodes, System.nanoTime() - start, lines);
+            if (listener != null) {
+                listener.onUpdate(last);
+            }
+            if (solving) {
+                break;
+            }
+        }
+
+        EngineMetrics.get().recordMove(nodes, System.nanoTime() - start);
+        EngineMetrics.get().recordTableProbes(tableProbes, tableHits);
+        return last;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 開始新的一批 value 呼叫：與 search 開始時相同，清除 stop()、時間限制與節點統計，
+     * 並讓置換表進入新的一輪（套用 MemoryBudget 要求的新容量）。search 與 analyze 會自行呼叫。
+     */
+    public void prepare() {
+        begin();
+    }
+
+    // --- 內部實作 ---
+
+    private void begin() {
+        stopRequested = false;
+        aborted = false;
+        deadline = Long.MAX_VALUE;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        table.newSearch();
+    }
+
+    // 依分數由高到低排序（插入排序，分數相同時保持原順序）
+    private static void sortByScore(int[] moves, int[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                moves[j] = moves[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            moves[j] = move;
+            scores[j] = score;
+        }
+    }
+
+    /**
+     * 從置換表沿著最佳步取出主變例並寫入 pvBuffer（第一步為 firstMove，-1 代表虛手）。
+     *
+     * @return 主變例長度
+     */
+    private int principalVariation(long player, long opponent, int firstMove, int maxLength) {
+        int length = 0;
+        pvBuffer[length++] = firstMove;
+        long flipped = Bitboard.flips(player, opponent, firstMove);
+        long p = opponent & ~flipped;
+        long o = player | flipped | (1L << firstMove);
+        while (length < maxLength) {
+            long moves = Bitboard.legalMoves(p, o);
+            if (moves == 0) {
+                if (Bitboard.legalMoves(o, p) == 0) {
+                    break; // 終局
+                }
+                pvBuffer[length++] = -1;
+                long t = p;
+                p = o;
+                o = t;
+                continue;
+            }
+            int entry = table.probe(p, o);
+            int move = entry >= 0 ? table.move(entry) : -1;
+            if (move < 0 || (moves & (1L << move)) == 0) {
+                break;
+            }
+            pvBuffer[length++] = move;
+            flipped = Bitboard.flips(p, o, move);
+            long t = p;
+            p = o & ~flipped;
+            o = t | flipped | (1L << move);
+        }
+        return length;
+    }
+
+    private int searchRoot(long player, long opponent, long moves, int depth, int previousBest) {
+        if (SearchTrace.ENABLED && tracing != null) {
+            tracing.enter(SearchTrace.MOVE_ROOT, 0, depth, -INFINITY, INFINITY);
+            int score = searchRootNode(player, opponent, moves, depth, previousBest);
+            tracing.exit(score, aborted, false);
+            return score;
+        }
+        return searchRootNode(player, opponent, moves, depth, previousBest);
+    }
+
+    private int searchRootNode(long player, long opponent, long moves, int depth, int previousBest) {
+        nodes++;
+        int[] list = moveLists[0];
+        int count = orderMoves(player, opponent, moves, previousBest, depth, 0);
+        int alpha = -INFINITY;
+        int best = -INFINITY;
+        int bestMove = list[0];
+        for (int i = 0; i < count; i++) {
+            int sq = list[i];
+            long flipped = Bitboard.flips(player, opponent, sq);
+            if (SearchTrace.ENABLED) {
+                traceMove = sq;
+            }
+            int score = -negamax(opponent & ~flipped, player | flipped | (1L << sq), depth - 1, -INFINITY, -alpha, 1, false);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = sq;
+                alpha = Math.max(alpha, score);
+            }
+        }
+        table.store(player, opponent, best, depth, TranspositionTable.BOUND_EXACT, bestMove);
+        rootBestMove = bestMove;
+        return best;
+    }
+
+    // 記錄搜尋樹時在節點前後呼叫 SearchTrace；ENABLED 為 false 時 JIT 只留下 negamaxNode 的呼叫
+    private int negamax(long player, long opponent, int depth, int alpha, int beta, int ply, boolean passed) {
+        if (SearchTrace.ENABLED && tracing != null) {
+            tracing.enter(traceMove, ply, depth, alpha, beta);
+            int score = negamaxNode(player, opponent, depth, alpha, beta, ply, passed);
+            // 子節點的旗標都已在它們自己的 exit 前清掉，這裡讀到的只會是這個節點設定的
+            boolean terminal = traceTerminal;
+            traceTerminal = false;
+            tracing.exit(score, aborted, terminal);
+            return score;
+        }
+        return negamaxNode(player, opponent, depth, alpha, beta, ply, passed);
+    }
+
+    private int negamaxNode(long player, long opponent, int depth, int alpha, int beta, int ply, boolean passed) {
+        nodes++;
+        if ((nodes & 0xFFF) == 0 && (stopRequested || System.nanoTime() > deadline
+                || (cancellation != null && cancellation.isCancelled()))) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (depth <= 0) {
+            if ((player | opponent) == -1L) {
+                // 終局搜尋的深度恰好等於空格數，最後一層是滿盤：必須回傳實際子數差而不是評估值
+                if (SearchTrace.ENABLED) {
+                    traceTerminal = true;
+                }
+                return Bitboard.finalScore(player, opponent) * ReversiEvaluator.SCALE;
+            }
+            return evaluator.evaluate(player, opponent);
+        }
+
+        long moves = Bitboard.legalMoves(player, opponent);
+        if (moves == 0) {
+            if (passed) {
+                if (SearchTrace.ENABLED) {
+                    traceTerminal = true;
+                }
+                return Bitboard.finalScore(player, opponent) * ReversiEvaluator.SCALE; // 雙方都無法落子
+            }
+            if (SearchTrace.ENABLED) {
+                traceMove = SearchTrace.MOVE_PASS;
+            }
+            return -negamax(opponent, player, depth, -beta, -alpha, ply + 1, true);
+        }
+
+        int alphaOriginal = alpha;
+        int tableMove = -1;
+        tableProbes++;
+        int entry = table.probe(player, opponent);
+        if (entry >= 0) {
+            tableHits++;
+            tableMove = table.move(entry);
+            if (table.depth(entry) >= depth) {
+                int score = table.score(entry);
+                int bound = table.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // 深度涵蓋所有剩餘空格的節點一律完整搜尋，確保置換表中這類項目都是精確的終局值
+        if (selective && depth >= 2 && depth < Bitboard.SQUARES - Long.bitCount(player | opponent)) {
+            int cut = probCut(player, opponent, depth, alpha, beta, ply, passed);
+            if (aborted) {
+                return 0;
+            }
+            if (cut != Integer.MIN_VALUE) {
+                return cut;
+            }
+        }
+
+        int[] list = moveLists[ply];
+        int count = orderMoves(player, opponent, moves, tableMove, depth, ply);
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int sq = list[i];
+            long flipped = Bitboard.flips(player, opponent, sq);
+            if (SearchTrace.ENABLED) {
+                traceMove = sq;
+            }
+            int score = -negamax(opponent & ~flipped, player | flipped | (1L << sq), depth - 1, -beta, -alpha, ply + 1, false);
+            if (aborted) {
+                return 0; // 中止時不寫入置換表
+            }
+            if (score > best) {
+                best = score;
+                bestMove = sq;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= alphaOriginal ? TranspositionTable.BOUND_UPPER
+                : best >= beta ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT;
+        table.store(player, opponent, best, depth, bound, bestMove);
+        return best;
+    }
+
+    /**
+     * Multi-ProbCut：依序嘗試此深度設定的每一組淺層檢查（由淺到深）。
+     *
+     * @return 可以剪枝時回傳對應的界限值，否則回傳 Integer.MIN_VALUE
+     */
+    private int probCut(long player, long opponent, int depth, int alpha, int beta, int ply, boolean passed) {
+        int stage = ReversiEvaluator.stage(player, opponent);
+        for (ProbCutParameters.Cut cut : probCutParameters.cutsFor(depth)) {
+            if (!cut.hasStage(stage) || cut.a[stage] <= 0) {
+                continue;
+            }
+            double a = cut.a[stage];
+            double b = cut.b[stage];
+            double margin = probCutThreshold * cut.sigma[stage];
+
+            // 淺層值達到 betaBound 時，深層值 >= beta 的機率夠高
+            if (beta < INFINITY) {
+                int betaBound = clamp((int) Math.ceil((beta + margin - b) / a));
+                if (SearchTrace.ENABLED) {
+                    traceMove = SearchTrace.MOVE_PROBE;
+                }
+                if (negamax(player, opponent, cut.shallowDepth, betaBound - 1, betaBound, ply, passed) >= betaBound) {
+                    return beta;
+                }
+            }
+            // 淺層值不超過 alphaBound 時，深層值 <= alpha 的機率夠高
+            if (alpha > -INFINITY) {
+                int alphaBound = clamp((int) Math.floor((alpha - margin - b) / a));
+                if (SearchTrace.ENABLED) {
+                    traceMove = SearchTrace.MOVE_PROBE;
+                }
+                if (negamax(player, opponent, cut.shallowDepth, alphaBound, alphaBound + 1, ply, passed) <= alphaBound) {
+                    return alpha;
+                }
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    private static int clamp(int score) {
+        return Math.max(-INFINITY + 1, Math.min(INFINITY - 1, score));
+    }
+
+    /**
+     * 將合法步填入該層的緩衝區並排序：置換表的最佳步最先；
+     * 較深的節點以「落子後對手的行動力」由少到多排序，淺層節點只用靜態格子優先度。
+     *
+     * @return 走法數量
+     */
+    private int orderMoves(long player, long opponent, long moves, int firstMove, int depth, int ply) {
+        int[] list = moveLists[ply];
+        int[] keys = moveKeys[ply];
+        int count = 0;
+        while (moves != 0) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            int key;
+            if (sq == firstMove) {
+                key = Integer.MAX_VALUE;
+            } else if (depth >= 3) {
+                long flipped = Bitboard.flips(player, opponent, sq);
+                long newPlayer = player | flipped | (1L << sq);
+                long newOpponent = opponent & ~flipped;
+                key = -16 * Long.bitCount(Bitboard.legalMoves(newOpponent, newPlayer)) + SQUARE_PRIORITY[sq];
+            } else {
+                key = SQUARE_PRIORITY[sq];
+            }
+            // 插入排序（由大到小）
+            int i = count++;
+            while (i > 0 && keys[i - 1] < key) {
+                keys[i] = keys[i - 1];
+                list[i] = list[i - 1];
+                i--;
+            }
+            keys[i] = key;
+            list[i] = sq;
+        }
+        return count;
+    }
+}
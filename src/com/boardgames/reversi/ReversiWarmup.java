@@ -0,0 +1,145 @@
+package com.boardgames.reversi;
+
+import com.boardgames.common.CancellationToken;
+import com.boardgames.reversi.dataset.PositionIndex;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 黑白棋引擎的背景預熱：在低優先權的執行緒上讀取評估權重、ProbCut 參數、開局庫與對局資料庫索引，
+ * 再以幾個合成局面跑一小段中盤與終局搜尋，讓 JIT 在電腦第一次真正思考之前就把搜尋熱路徑編譯好。
+ *
+ * 介面在第一個視窗出現後呼叫 start()；ReversiAIPlayer 在預熱進行中時先等它完成（awaitIfStarted），
+ * 避免第一步和預熱搶 CPU 又跑在直譯模式。等待會因為思考被取消或計時對局的等待期限到了而提早結束，
+ * 不會讓電腦卡住或超時。沒有呼叫 start() 的離線工具完全不受影響。
+ */
+public final class ReversiWarmup {
+
+    /** awaitIfStarted 不設期限。 */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final int MIDGAME_POSITIONS = 8;
+    private static final int MIDGAME_PLIES = 20;
+    // 等待時每隔多久檢查一次取消訊號
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static volatile CompletableFuture<Void> ready;
+
+    private ReversiWarmup() {
+    }
+
+    /**
+     * 開始預熱（重複呼叫只會執行一次）。
+     *
+     * @return 資源載入與預熱搜尋都完成時完成的 future；預熱失敗（包括 Error）時仍會正常完成，錯誤只印出
+     */
+    public static CompletableFuture<Void> start() {
+        CompletableFuture<Void> future = ready;
+        if (future == null) {
+            synchronized (ReversiWarmup.class) {
+                future = ready;
+                if (future == null) {
+                    CompletableFuture<Void> created = new CompletableFuture<>();
+                    Thread thread = new Thread(() -> {
+                        try {
+                            run();
+                        } catch (RuntimeException e) {
+                            e.printStackTrace();
+                        } finally {
+                            // Error 照樣往外丟（由執行緒的預設處理器印出），但等待的一方不能因此永遠卡住
+                            created.complete(null);
+                        }
+                    }, "Reversi-Warmup");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    ready = created;
+                    future = created;
+                    thread.start();
+                }
+            }
+        }
+        return future;
+    }
+
+    /**
+     * 預熱已經開始時等它完成；沒有開始時立刻回傳。token 取消、到了 deadlineNanos（System.nanoTime() 的時間軸）
+     * 或執行緒被中斷時也會提早回傳，此時預熱仍在背景繼續。
+     *
+     * @param token 可為 null
+     * @param deadlineNanos 最晚等到何時，NO_DEADLINE 表示不限
+     */
+    public static void awaitIfStarted(CancellationToken token, long deadlineNanos) {
+        CompletableFuture<Void> future = ready;
+        if (future == null) {
+            return;
+        }
+        while (!future.isDone() && (token == null || !token.isCancelled())) {
+            long wait = POLL_NANOS;
+            if (deadlineNanos != NO_DEADLINE) {
+                wait = Math.min(wait, deadlineNanos - System.nanoTime());
+                if (wait <= 0) {
+                    return;
+                }
+            }
+            try {
+                future.get(wait, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // 繼續檢查取消訊號與期限
+            } catch (ExecutionException e) {
+                return; // 不會發生：預熱的 future 一定正常完成
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void run() {
+        ReversiEvaluator evaluator = ReversiEvaluator.getDefault();
+        ProbCutParameters.getDefault();
+        OpeningBook.shared();
+        PositionIndex.shared(); // 介面的對局資料庫在這之前只顯示載入中
+
+        // 固定種子的隨機對局產生中盤與終局局面；置換表小一點，配置很快
+        ReversiSearch search = new ReversiSearch(evaluator, 16);
+        Random random = new Random(1);
+        for (int i = 0; i < MIDGAME_POSITIONS; i++) {
+            long[] position = randomPosition(random, MIDGAME_PLIES);
+            search.search(position[0], position[1], ReversiAIPlayer.MIDGAME_DEPTH);
+        }
+        long[] endgame = randomPosition(random, Bitboard.SQUARES - 4 - ReversiAIPlayer.EXACT_EMPTIES);
+        search.search(endgame[0], endgame[1], Bitboard.SQUARES);
+    }
+
+    // 從初始局面隨機下 plies 手（遇到虛手就換邊，終局就提早停止），回傳 {行棋方, 對手}
+    private static long[] randomPosition(Random random, int plies) {
+        long player = Bitboard.INITIAL_BLACK;
+        long opponent = Bitboard.INITIAL_WHITE;
+        for (int i = 0; i < plies; i++) {
+            long moves = Bitboard.legalMoves(player, opponent);
+            if (moves == 0) {
+                if (Bitboard.legalMoves(opponent, player) == 0) {
+                    break;
+                }
+                long t = player;
+                player = opponent;
+                opponent = t;
+                moves = Bitboard.legalMoves(player, opponent);
+            }
+            int k = random.nextInt(Long.bitCount(moves));
+            for (int j = 0; j < k; j++) {
+                moves &= moves - 1;
+            }
+            int sq = Long.numberOfTrailingZeros(moves);
+            long flips = Bitboard.flips(player, opponent, sq);
+            long next = opponent & ~flips;
+            opponent = player | flips | (1L << sq);
+            player = next;
+        }
+        return new long[]{player, opponent};
+    }
+}
@@ -0,0 +1,38 @@
+package com.boardgames.reversi;
+
+/**
+ * 一次搜尋的結果。
+ */
+public class SearchResult {
+
+    /** 最佳步的格子編號 (row * 8 + col)，沒有合法步時為 -1。 */
+    public final int bestMove;
+    /** 以行棋方角度的分數（1/ReversiEvaluator.SCALE 子）。 */
+    public final int score;
+    /** 完成的搜尋深度。 */
+    public final int depth;
+    /** 是否已搜尋到終局（分數為精確值）。 */
+    public final boolean exact;
+    public final long nodes;
+    public final long nanos;
+
+    public SearchResult(int bestMove, int score, int depth, boolean exact, long nodes, long nanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.exact = exact;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    public double nodesPerSecond() {
+        return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s score=%.2f depth=%d%s nodes=%d time=%.1fms",
+                Bitboard.squareName(bestMove), score / (double) ReversiEvaluator.SCALE, depth,
+                exact ? " (exact)" : "", nodes, nanos / 1e6);
+    }
+}
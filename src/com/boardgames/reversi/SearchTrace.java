@@ -0,0 +1,238 @@
+package com.boardgames.reversi;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 把一次 ReversiSearch.search 的搜尋樹寫入二進位追蹤檔，用來事後檢查引擎為什麼選了某一步。檔案格式為
+ * <pre>
+ * 標頭 40 bytes：int 魔術數字 'RSTR'、int 版本、long 行棋方、long 對手、long 紀錄數、long 超出限制而略過的節點數
+ * 紀錄 20 bytes：int 子樹紀錄數（含自己）、byte 走法、byte 層數、byte 剩餘深度、byte 節點類型、int alpha、int beta、int 分數
+ * </pre>
+ * 紀錄依後序（子節點先於父節點）寫出：節點 i 的最後一個子節點是 i - 1，前一個兄弟是「子節點位置 - 子節點的子樹紀錄數」，
+ * 因此不需要任何指標就能從任何節點往下展開，檢視器只需讀取展開到的節點。每一輪反覆加深的根節點都在最外層，最後一筆是最後一輪。
+ * alpha、beta 是節點進入時的視窗，分數都是該節點行棋方的角度。
+ *
+ * 需要以 -Dboardgames.reversi.trace=true 啟動才能使用；沒有開啟時 ENABLED 在類別載入時就固定為 false，
+ * JIT 把它當成常數，搜尋中的記錄程式碼全部被刪除，不影響搜尋速度。紀錄數超過上限或層數超過 maxPly 的節點不寫入，
+ * 只在父節點標上 TRUNCATED；上限之內永遠保留尚未結束的祖先節點所需的空間，所以樹的結構一定完整。
+ * 寫入錯誤不會中斷搜尋，在 close() 時才丟出。
+ */
+public final class SearchTrace implements Closeable {
+
+    public static final boolean ENABLED = Boolean.getBoolean("boardgames.reversi.trace");
+
+    public static final int MAGIC = 0x52535452; // "RSTR"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 40;
+    public static final int RECORD_BYTES = 20;
+
+    /** 特殊的走法值 */
+    public static final int MOVE_ROOT = -2;
+    public static final int MOVE_PASS = -1;
+    public static final int MOVE_PROBE = -3; // ProbCut 的淺層檢查（同一個局面）
+
+    /** 節點類型 */
+    public static final int TYPE_EXACT = 0;
+    public static final int TYPE_LOWER = 1; // 分數 >= beta（剪枝）
+    public static final int TYPE_UPPER = 2; // 分數 <= alpha
+    public static final int TYPE_LEAF = 3; // 深度用完，靜態評估
+    public static final int TYPE_TERMINAL = 4; // 雙方都無法落子（含滿盤），分數是實際子數差
+    public static final int TYPE_TABLE = 5; // 置換表直接回傳
+    public static final int TYPE_PROBCUT = 6; // 淺層檢查後剪枝
+    public static final int TYPE_ABORTED = 7; // 搜尋中止，分數不可信
+    public static final int TRUNCATED = 0x80; // 有子節點因為限制沒有寫入
+    public static final int TYPE_MASK = 0x7F;
+
+    private static final String[] TYPE_NAMES = {"精確", "下界", "上界", "葉節點", "終局", "置換表", "ProbCut", "中止"};
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 3276);
+    private final long maxRecords;
+    private final int maxPly;
+    private long player;
+    private long opponent;
+    private long records;
+    private long dropped;
+    private IOException error;
+
+    // 目前路徑上的節點（遞迴深度，ProbCut 的淺層檢查與父節點同層數但多一層遞迴）
+    private int top = -1;
+    private long[] start = new long[256];
+    private byte[] move = new byte[256];
+    private byte[] ply = new byte[256];
+    private byte[] depth = new byte[256];
+    private int[] alpha = new int[256];
+    private int[] beta = new int[256];
+    private boolean[] recorded = new boolean[256];
+    private boolean[] truncated = new boolean[256];
+    private boolean[] hadMove = new boolean[256];
+    private boolean[] hadProbe = new boolean[256];
+
+    /**
+     * @param maxRecords 最多寫入的節點數（檔案大小約為 maxRecords × 20 bytes）
+     * @param maxPly 只記錄層數不超過 maxPly 的節點
+     */
+    public SearchTrace(File file, long maxRecords, int maxPly) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // 讀取端以單一記憶體映射開啟，檔案不超過 2GB
+        this.maxRecords = Math.max(1, Math.min(maxRecords, (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES));
+        this.maxPly = maxPly;
+    }
+
+    public static String typeName(int type) {
+        return TYPE_NAMES[type & TYPE_MASK];
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    // --- 由 ReversiSearch 呼叫 ---
+
+    void begin(long player, long opponent) {
+        this.player = player;
+        this.opponent = opponent;
+        try {
+            channel.position(HEADER_BYTES);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void enter(int nodeMove, int nodePly, int nodeDepth, int nodeAlpha, int nodeBeta) {
+        int parent = top++;
+        if (top == start.length) {
+            grow();
+        }
+        if (parent >= 0) {
+            if (nodeMove == MOVE_PROBE) {
+                hadProbe[parent] = true;
+            } else {
+                hadMove[parent] = true;
+            }
+        }
+        // 每個還沒結束的已記錄祖先都需要一筆紀錄，先保留起來
+        boolean keep = (parent < 0 || recorded[parent]) && nodePly <= maxPly && records + top + 1 <= maxRecords;
+        recorded[top] = keep;
+        if (!keep) {
+            dropped++;
+            if (parent >= 0 && recorded[parent]) {
+                truncated[parent] = true;
+            }
+            return;
+        }
+        start[top] = records;
+        move[top] = (byte) nodeMove;
+        ply[top] = (byte) nodePly;
+        depth[top] = (byte) nodeDepth;
+        alpha[top] = nodeAlpha;
+        beta[top] = nodeBeta;
+        truncated[top] = false;
+        hadMove[top] = false;
+        hadProbe[top] = false;
+    }
+
+    void exit(int score, boolean aborted, boolean terminal) {
+        int i = top--;
+        if (!recorded[i] || error != null) {
+            return;
+        }
+        int type;
+        if (aborted) {
+            type = TYPE_ABORTED;
+        } else if (terminal) {
+            type = TYPE_TERMINAL; // 包括深度剛好用完時的滿盤
+        } else if (depth[i] <= 0) {
+            type = TYPE_LEAF;
+        } else if (!hadMove[i]) {
+            type = hadProbe[i] ? TYPE_PROBCUT : TYPE_TABLE;
+        } else if (score >= beta[i]) {
+            type = TYPE_LOWER;
+        } else if (score <= alpha[i]) {
+            type = TYPE_UPPER;
+        } else {
+            type = TYPE_EXACT;
+        }
+        if (buffer.remaining() < RECORD_BYTES) {
+            flushBuffer();
+        }
+        buffer.putInt((int) (records - start[i] + 1));
+        buffer.put(move[i]).put(ply[i]).put(depth[i]).put((byte) (type | (truncated[i] ? TRUNCATED : 0)));
+        buffer.putInt(alpha[i]).putInt(beta[i]).putInt(score);
+        records++;
+    }
+
+    /**
+     * 搜尋結束時呼叫：寫出緩衝區並填入標頭。
+     */
+    void finish() {
+        flushBuffer();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(player).putLong(opponent).putLong(records).putLong(dropped).flip();
+        try {
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void flushBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+        buffer.clear();
+    }
+
+    // 第一個錯誤留到 close() 再丟出；之後不再寫入任何紀錄
+    private void fail(IOException e) {
+        if (error == null) {
+            error = e;
+        }
+        buffer.clear();
+    }
+
+    private void grow() {
+        int n = start.length * 2;
+        start = Arrays.copyOf(start, n);
+        move = Arrays.copyOf(move, n);
+        ply = Arrays.copyOf(ply, n);
+        depth = Arrays.copyOf(depth, n);
+        alpha = Arrays.copyOf(alpha, n);
+        beta = Arrays.copyOf(beta, n);
+        recorded = Arrays.copyOf(recorded, n);
+        truncated = Arrays.copyOf(truncated, n);
+        hadMove = Arrays.copyOf(hadMove, n);
+        hadProbe = Arrays.copyOf(hadProbe, n);
+    }
+}
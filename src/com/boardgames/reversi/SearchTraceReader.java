@@ -0,0 +1,129 @@
+package com.boardgames.reversi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以記憶體映射開啟 SearchTrace 寫出的追蹤檔。節點以紀錄編號表示；children 只讀取該節點的直接子節點，
+ * 因此數百萬個節點的追蹤檔也只有實際展開的部分會從磁碟載入。多條執行緒可以同時讀取。
+ */
+public class SearchTraceReader {
+
+    private final MappedByteBuffer buffer;
+    private final long player;
+    private final long opponent;
+    private final int count;
+    private final long dropped;
+
+    public SearchTraceReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("追蹤檔超過 2GB: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < SearchTrace.HEADER_BYTES || buffer.getInt(0) != SearchTrace.MAGIC
+                || buffer.getInt(4) != SearchTrace.VERSION) {
+            throw new IOException("不是有效的搜尋追蹤檔: " + file);
+        }
+        player = buffer.getLong(8);
+        opponent = buffer.getLong(16);
+        long declared = buffer.getLong(24);
+        dropped = buffer.getLong(32);
+        long available = (buffer.capacity() - SearchTrace.HEADER_BYTES) / SearchTrace.RECORD_BYTES;
+        if (declared > available) {
+            throw new IOException("追蹤檔不完整（搜尋沒有正常結束？）: " + file);
+        }
+        count = (int) declared;
+    }
+
+    /** 搜尋開始時的行棋方棋子 */
+    public long getPlayer() {
+        return player;
+    }
+
+    public long getOpponent() {
+        return opponent;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** 因為紀錄數或層數限制而沒有寫入的節點數 */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * 最外層的節點（每一輪反覆加深的根），依搜尋順序。
+     */
+    public int[] roots() {
+        return siblingsBefore(count, 0);
+    }
+
+    /**
+     * 節點的直接子節點，依搜尋順序。
+     */
+    public int[] children(int node) {
+        return siblingsBefore(node, node - subtreeSize(node) + 1);
+    }
+
+    public int subtreeSize(int node) {
+        return buffer.getInt(offset(node));
+    }
+
+    /** 進入這個節點的走法：格子編號，或 SearchTrace.MOVE_ROOT / MOVE_PASS / MOVE_PROBE */
+    public int move(int node) {
+        return buffer.get(offset(node) + 4);
+    }
+
+    public int ply(int node) {
+        return buffer.get(offset(node) + 5);
+    }
+
+    public int depth(int node) {
+        return buffer.get(offset(node) + 6);
+    }
+
+    /** SearchTrace.TYPE_* */
+    public int type(int node) {
+        return buffer.get(offset(node) + 7) & SearchTrace.TYPE_MASK;
+    }
+
+    public boolean isTruncated(int node) {
+        return (buffer.get(offset(node) + 7) & SearchTrace.TRUNCATED) != 0;
+    }
+
+    public int alpha(int node) {
+        return buffer.getInt(offset(node) + 8);
+    }
+
+    public int beta(int node) {
+        return buffer.getInt(offset(node) + 12);
+    }
+
+    public int score(int node) {
+        return buffer.getInt(offset(node) + 16);
+    }
+
+    // 紀錄 [first, end) 中最外層的節點：從 end - 1 開始，每次跳過一整棵子樹
+    private int[] siblingsBefore(int end, int first) {
+        int n = 0;
+        for (int i = end - 1; i >= first; i -= subtreeSize(i)) {
+            n++;
+        }
+        int[] nodes = new int[n];
+        for (int i = end - 1; i >= first; i -= subtreeSize(i)) {
+            nodes[--n] = i;
+        }
+        return nodes;
+    }
+
+    private static int offset(int node) {
+        return SearchTrace.HEADER_BYTES + node * SearchTrace.RECORD_BYTES;
+    }
+}
@@ -0,0 +1,285 @@
+package com.boardgames.reversi;
+
+/**
+ * 可變大小黑白棋（邊長為 6 到 16 的偶數）的多字組位元棋盤。
+ * 每一方的棋子以 long[] 表示，第 row * size + col 個位元存放在 words[index >>> 6] 的第 (index & 63) 位元，
+ * 最大的 16x16 棋盤也只需要 4 個 long。方向位移以跨字組的移位加上欄遮罩完成，
+ * 因此產生合法步時不需要逐格掃描；8x8 時的排列與 Bitboard 完全相同，並直接交給 Bitboard 的單字組實作。
+ *
+ * 物件本身只保存不可變的幾何資訊（遮罩與位移量），可以在執行緒之間共用；
+ * 所有運算都寫入呼叫端提供的陣列（長度至少為 MAX_WORDS），不會配置物件。
+ */
+public final class WideBitboard {
+
+    public static final int MIN_SIZE = 6;
+    public static final int MAX_SIZE = 16;
+    public static final int MAX_WORDS = (MAX_SIZE * MAX_SIZE + 63) / 64;
+
+    // 方向順序與 Bitboard.shift 相同：東、西、南、北、東南、西北、西南、東北
+    private static final int[] DELTA_ROW = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final int[] DELTA_COL = {1, -1, 0, 0, 1, -1, -1, 1};
+
+    private static final WideBitboard[] BY_SIZE = new WideBitboard[MAX_SIZE + 1];
+
+    static {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2) {
+            BY_SIZE[size] = new WideBitboard(size);
+        }
+    }
+
+    private final int size;
+    private final int squares;
+    private final int words;
+    private final long[] full;
+    private final long[][] sourceMask; // 位移前先去掉會跨越左右邊界的欄
+    private final int[] shifts;        // 正數往高位元、負數往低位元
+
+    private WideBitboard(int size) {
+        this.size = size;
+        this.squares = size * size;
+        this.words = (squares + 63) / 64;
+        this.full = new long[words];
+        long[] notFirstCol = new long[words];
+        long[] notLastCol = new long[words];
+        for (int sq = 0; sq < squares; sq++) {
+            set(full, sq);
+            if (sq % size != 0) {
+                set(notFirstCol, sq);
+            }
+            if (sq % size != size - 1) {
+                set(notLastCol, sq);
+            }
+        }
+        this.sourceMask = new long[8][];
+        this.shifts = new int[8];
+        for (int d = 0; d < 8; d++) {
+            shifts[d] = DELTA_ROW[d] * size + DELTA_COL[d];
+            sourceMask[d] = DELTA_COL[d] > 0 ? notLastCol : DELTA_COL[d] < 0 ? notFirstCol : full;
+        }
+    }
+
+    /**
+     * 取得指定邊長的幾何物件。
+     *
+     * @throws IllegalArgumentException 邊長不是 6 到 16 之間的偶數
+     */
+    public static WideBitboard of(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE || size % 2 != 0) {
+            throw new IllegalArgumentException("棋盤大小必須是 " + MIN_SIZE + " 到 " + MAX_SIZE + " 之間的偶數: " + size);
+        }
+        return BY_SIZE[size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int squares() {
+        return squares;
+    }
+
+    public int words() {
+        return words;
+    }
+
+    /**
+     * 將初始的四顆棋子放到棋盤中央（左上與右下為白）。
+     */
+    public void initial(long[] black, long[] white) {
+        clear(black);
+        clear(white);
+        int h = size / 2;
+        set(white, (h - 1) * size + h - 1);
+        set(black, (h - 1) * size + h);
+        set(black, h * size + h - 1);
+        set(white, h * size + h);
+    }
+
+    /**
+     * 就地將整個棋子集合往指定方向移動一格。
+     */
+    public void shift(long[] bits, int direction) {
+        long[] mask = sourceMask[direction];
+        int n = shifts[direction];
+        if (n > 0) {
+            // 往高位元移動：由高字組往低字組處理，讀到的低字組都還是舊值
+            for (int w = words - 1; w >= 0; w--) {
+                long carry = w > 0 ? (bits[w - 1] & mask[w - 1]) >>> (64 - n) : 0;
+                bits[w] = (((bits[w] & mask[w]) << n) | carry) & full[w];
+            }
+        } else {
+            int m = -n;
+            for (int w = 0; w < words; w++) {
+                long carry = w + 1 < words ? (bits[w + 1] & mask[w + 1]) << (64 - m) : 0;
+                bits[w] = ((bits[w] & mask[w]) >>> m) | carry;
+            }
+        }
+    }
+
+    /**
+     * 計算 player 所有合法落子點並寫入 moves。
+     *
+     * @param scratch 暫存陣列，內容會被覆寫
+     */
+    public void legalMoves(long[] player, long[] opponent, long[] moves, long[] scratch) {
+        clear(moves);
+        if (size == Bitboard.SIZE) {
+            moves[0] = Bitboard.legalMoves(player[0], opponent[0]);
+            return;
+        }
+        for (int d = 0; d < 8; d++) {
+            // x 為「從己方棋子出發、目前為止都是對手棋子」的射線前緣；每往前一步，前緣落在空格即為合法步
+            System.arraycopy(player, 0, scratch, 0, words);
+            shift(scratch, d);
+            boolean alive = and(scratch, opponent);
+            while (alive) {
+                shift(scratch, d);
+                alive = false;
+                for (int w = 0; w < words; w++) {
+                    long x = scratch[w];
+                    moves[w] |= x & ~(player[w] | opponent[w]);
+                    x &= opponent[w];
+                    scratch[w] = x;
+                    alive |= x != 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 計算 player 在 square 落子時會被翻轉的對手棋子並寫入 flipped（不檢查 square 本身是否為空）。
+     *
+     * @return 是否至少翻轉一顆
+     */
+    public boolean flips(long[] player, long[] opponent, int square, long[] flipped) {
+        clear(flipped);
+        if (size == Bitboard.SIZE) {
+            flipped[0] = Bitboard.flips(player[0], opponent[0], square);
+            return flipped[0] != 0;
+        }
+        boolean any = false;
+        int row = square / size;
+        int col = square % size;
+        for (int d = 0; d < 8; d++) {
+            int r = row + DELTA_ROW[d];
+            int c = col + DELTA_COL[d];
+            int count = 0;
+            while (inside(r, c) && get(opponent, r * size + c)) {
+                r += DELTA_ROW[d];
+                c += DELTA_COL[d];
+                count++;
+            }
+            if (count > 0 && inside(r, c) && get(player, r * size + c)) {
+                for (int i = 1; i <= count; i++) {
+                    set(flipped, (row + DELTA_ROW[d] * i) * size + col + DELTA_COL[d] * i);
+                }
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * player 在 square 落子是否合法；只沿八條射線檢查，不需要暫存陣列。
+     */
+    public boolean isLegal(long[] player, long[] opponent, int square) {
+        if (square < 0 || square >= squares || get(player, square) || get(opponent, square)) {
+            return false;
+        }
+        int row = square / size;
+        int col = square % size;
+        for (int d = 0; d < 8; d++) {
+            int r = row + DELTA_ROW[d];
+            int c = col + DELTA_COL[d];
+            int count = 0;
+            while (inside(r, c) && get(opponent, r * size + c)) {
+                r += DELTA_ROW[d];
+                c += DELTA_COL[d];
+                count++;
+            }
+            if (count > 0 && inside(r, c) && get(player, r * size + c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在 square 落子並翻轉棋子。
+     *
+     * @param scratch 暫存陣列，內容會被覆寫
+     * @return 落子是否合法（不合法時棋盤不變）
+     */
+    public boolean makeMove(long[] player, long[] opponent, int square, long[] scratch) {
+        if (get(player, square) || get(opponent, square) || !flips(player, opponent, square, scratch)) {
+            return false;
+        }
+        for (int w = 0; w < words; w++) {
+            player[w] |= scratch[w];
+            opponent[w] &= ~scratch[w];
+        }
+        set(player, square);
+        return true;
+    }
+
+    private boolean inside(int row, int col) {
+        return row >= 0 && row < size && col >= 0 && col < size;
+    }
+
+    // --- 與邊長無關的位元操作 ---
+
+    public static boolean get(long[] bits, int square) {
+        return (bits[square >>> 6] & (1L << square)) != 0;
+    }
+
+    public static void set(long[] bits, int square) {
+        bits[square >>> 6] |= 1L << square;
+    }
+
+    public static void clear(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] = 0;
+        }
+    }
+
+    public static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取出最低的位元編號並從集合中移除；集合為空時回傳 -1。
+     */
+    public static int pollFirst(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != 0) {
+                int bit = Long.numberOfTrailingZeros(bits[w]);
+                bits[w] &= bits[w] - 1;
+                return (w << 6) + bit;
+            }
+        }
+        return -1;
+    }
+
+    // bits &= mask，回傳結果是否非空
+    private boolean and(long[] bits, long[] mask) {
+        boolean any = false;
+        for (int w = 0; w < words; w++) {
+            bits[w] &= mask[w];
+            any |= bits[w] != 0;
+        }
+        return any;
+    }
+}
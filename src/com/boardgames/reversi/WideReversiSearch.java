@@ -0,0 +1,194 @@
+package com.boardgames.reversi;
+
+import com.boardgames.common.EngineMetrics;
+
+/**
+ * 任意邊長（6x6 到 16x16）黑白棋的 alpha-beta 搜尋。
+ * 8x8 另有樣式評估與置換表的 ReversiSearch；這裡只用位元遮罩計算的簡單評估
+ * （角、X 格、C 格、邊與行動力），搭配固定深度的 negamax，適合較大的棋盤。
+ *
+ * 每一層的棋盤與合法步緩衝區都預先配置，搜尋過程不配置物件；同一個實例不可同時被多條執行緒使用。
+ */
+public class WideReversiSearch {
+
+    private static final int INF = 1_000_000;
+    private static final int MAX_PLY = WideBitboard.MAX_SIZE * WideBitboard.MAX_SIZE + 8;
+
+    private static final int CORNER_WEIGHT = 30;
+    private static final int X_SQUARE_WEIGHT = -12;
+    private static final int C_SQUARE_WEIGHT = -5;
+    private static final int EDGE_WEIGHT = 3;
+    private static final int MOBILITY_WEIGHT = 2;
+
+    private final long[][] players = new long[MAX_PLY][WideBitboard.MAX_WORDS];
+    private final long[][] opponents = new long[MAX_PLY][WideBitboard.MAX_WORDS];
+    private final long[][] moveLists = new long[MAX_PLY][WideBitboard.MAX_WORDS];
+    private final long[] scratch = new long[WideBitboard.MAX_WORDS];
+    private final long[] mobilityScratch = new long[WideBitboard.MAX_WORDS];
+
+    private WideBitboard geometry;
+    private long[] corners;
+    private long[] xSquares;
+    private long[] cSquares;
+    private long[] edges;
+    private long nodes;
+
+    /**
+     * 搜尋最佳落子點。
+     *
+     * @param size 棋盤邊長
+     * @param player 行棋方棋子（多字組位元棋盤）
+     * @param opponent 對手棋子
+     * @param depth 搜尋深度
+     * @return 最佳落子的格子編號 (row * size + col)，沒有合法步時回傳 -1
+     */
+    public int search(int size, long[] player, long[] opponent, int depth) {
+        System.arraycopy(player, 0, players[0], 0, WideBitboard.MAX_WORDS);
+        System.arraycopy(opponent, 0, opponents[0], 0, WideBitboard.MAX_WORDS);
+        return searchRoot(size, depth);
+    }
+
+    /**
+     * 為局面中輪到的一方搜尋最佳落子點；棋子直接複製到預先配置的根節點緩衝區，不配置物件。
+     */
+    public int search(ReversiPosition position, int depth) {
+        char player = position.getSideToMove();
+        position.copyBits(player, players[0]);
+        position.copyBits(player == 'B' ? 'W' : 'B', opponents[0]);
+        return searchRoot(position.getBoardSize(), depth);
+    }
+
+    private int searchRoot(int size, int depth) {
+        long start = System.nanoTime();
+        prepare(size);
+        nodes = 0;
+
+        long[] moves = moveLists[0];
+        geometry.legalMoves(players[0], opponents[0], moves, scratch);
+        int best = -1;
+        int alpha = -INF;
+        // 角優先，其餘依格子編號
+        for (int pass = 0; pass < 2; pass++) {
+            for (int w = 0; w < geometry.words(); w++) {
+                long word = moves[w] & (pass == 0 ? corners[w] : ~corners[w]);
+                while (word != 0) {
+                    int sq = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    play(0, sq);
+                    int score = -negamax(1, depth - 1, -INF, -alpha, false);
+                    if (best < 0 || score > alpha) {
+                        alpha = score;
+                        best = sq;
+                    }
+                }
+            }
+        }
+        EngineMetrics.get().recordMove(nodes, System.nanoTime() - start);
+        return best;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private void prepare(int size) {
+        if (geometry != null && geometry.size() == size) {
+            return;
+        }
+        geometry = WideBitboard.of(size);
+        corners = new long[WideBitboard.MAX_WORDS];
+        xSquares = new long[WideBitboard.MAX_WORDS];
+        cSquares = new long[WideBitboard.MAX_WORDS];
+        edges = new long[WideBitboard.MAX_WORDS];
+        int last = size - 1;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int sq = r * size + c;
+                boolean edgeRow = r == 0 || r == last;
+                boolean edgeCol = c == 0 || c == last;
+                int cornerDistance = Math.max(Math.min(r, last - r), Math.min(c, last - c));
+                if (edgeRow && edgeCol) {
+                    WideBitboard.set(corners, sq);
+                } else if (cornerDistance == 1 && !edgeRow && !edgeCol) {
+                    WideBitboard.set(xSquares, sq);
+                } else if (cornerDistance == 1) {
+                    WideBitboard.set(cSquares, sq);
+                } else if (edgeRow || edgeCol) {
+                    WideBitboard.set(edges, sq);
+                }
+            }
+        }
+    }
+
+    // 將 ply 層的局面在 sq 落子後寫入 ply + 1 層（雙方互換）
+    private void play(int ply, int sq) {
+        long[] p = players[ply + 1];
+        long[] o = opponents[ply + 1];
+        System.arraycopy(opponents[ply], 0, p, 0, WideBitboard.MAX_WORDS);
+        System.arraycopy(players[ply], 0, o, 0, WideBitboard.MAX_WORDS);
+        geometry.makeMove(o, p, sq, scratch);
+    }
+
+    private int negamax(int ply, int depth, int alpha, int beta, boolean passed) {
+        nodes++;
+        long[] player = players[ply];
+        long[] opponent = opponents[ply];
+        long[] moves = moveLists[ply];
+        geometry.legalMoves(player, opponent, moves, scratch);
+        if (WideBitboard.isEmpty(moves)) {
+            if (passed) {
+                return finalScore(player, opponent);
+            }
+            // 虛手：雙方互換後由對手繼續
+            System.arraycopy(opponent, 0, players[ply + 1], 0, WideBitboard.MAX_WORDS);
+            System.arraycopy(player, 0, opponents[ply + 1], 0, WideBitboard.MAX_WORDS);
+            return -negamax(ply + 1, depth, -beta, -alpha, true);
+        }
+        if (depth <= 0) {
+            return evaluate(player, opponent, moves);
+        }
+
+        int best = -INF;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int w = 0; w < geometry.words(); w++) {
+                long word = moves[w] & (pass == 0 ? corners[w] : ~corners[w]);
+                while (word != 0) {
+                    int sq = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    play(ply, sq);
+                    int score = -negamax(ply + 1, depth - 1, -beta, -alpha, false);
+                    if (score > best) {
+                        best = score;
+                        if (score > alpha) {
+                            alpha = score;
+                            if (alpha >= beta) {
+                                return best;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int evaluate(long[] player, long[] opponent, long[] moves) {
+        geometry.legalMoves(opponent, player, mobilityScratch, scratch);
+        int score = MOBILITY_WEIGHT * (WideBitboard.count(moves) - WideBitboard.count(mobilityScratch));
+        for (int w = 0; w < geometry.words(); w++) {
+            long p = player[w];
+            long o = opponent[w];
+            score += CORNER_WEIGHT * (Long.bitCount(p & corners[w]) - Long.bitCount(o & corners[w]));
+            score += X_SQUARE_WEIGHT * (Long.bitCount(p & xSquares[w]) - Long.bitCount(o & xSquares[w]));
+            score += C_SQUARE_WEIGHT * (Long.bitCount(p & cSquares[w]) - Long.bitCount(o & cSquares[w]));
+            score += EDGE_WEIGHT * (Long.bitCount(p & edges[w]) - Long.bitCount(o & edges[w]));
+        }
+        return score;
+    }
+
+    // 終局分數遠大於任何評估值，確保必勝或必敗的分支優先
+    private int finalScore(long[] player, long[] opponent) {
+        int diff = WideBitboard.count(player) - WideBitboard.count(opponent);
+        return diff == 0 ? 0 : (diff > 0 ? 10_000 : -10_000) + diff;
+    }
+}
@@ -0,0 +1,27 @@
+package com.boardgames.reversi.batch;
+
+/**
+ * 對一整批局面同時計算合法步、翻轉與評估值。結果與逐一呼叫 Bitboard / ReversiEvaluator 完全相同。
+ *
+ * 實作會在內部保留暫存緩衝區，不是執行緒安全的；每條執行緒以 BatchKernels.create 各建一個。
+ */
+public interface BatchKernel {
+
+    /** 實作名稱（例如 "vector 512-bit" 或 "scalar"），供量測工具顯示。 */
+    String getName();
+
+    /**
+     * moves[i] = Bitboard.legalMoves(batch.player(i), batch.opponent(i))。
+     */
+    void legalMoves(PositionBatch batch, long[] moves);
+
+    /**
+     * flips[i] = Bitboard.flips(batch.player(i), batch.opponent(i), squares[i])。
+     */
+    void flips(PositionBatch batch, int[] squares, long[] flips);
+
+    /**
+     * scores[i] = evaluator.evaluate(batch.player(i), batch.opponent(i))，evaluator 是建立核心時指定的評估函數。
+     */
+    void evaluate(PositionBatch batch, int[] scores);
+}
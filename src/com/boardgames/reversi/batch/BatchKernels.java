@@ -0,0 +1,59 @@
+package com.boardgames.reversi.batch;
+
+import com.boardgames.reversi.ReversiEvaluator;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * 建立 BatchKernel：有 Vector API（jdk.incubator.vector）時使用 SIMD 實作，否則退回純量實作。
+ *
+ * SIMD 實作放在 src-vector/ 中，需要 JDK 17 以上另外編譯（見 README），執行時也要加上
+ * --add-modules jdk.incubator.vector。類別或模組不存在時自動使用純量實作，
+ * 因此一般的 javac -d bin $(find src ...) 不受影響。-Dboardgames.reversi.batch=scalar 可強制使用純量實作。
+ */
+public final class BatchKernels {
+
+    private static final String VECTOR_KERNEL = "com.boardgames.reversi.batch.VectorBatchKernel";
+
+    private BatchKernels() {
+    }
+
+    /**
+     * 以共用的預設評估函數建立核心。
+     */
+    public static BatchKernel create() {
+        return create(ReversiEvaluator.getDefault());
+    }
+
+    /**
+     * 建立使用 evaluator 評估的核心，優先使用 SIMD 實作。
+     */
+    public static BatchKernel create(ReversiEvaluator evaluator) {
+        if (!"scalar".equals(System.getProperty("boardgames.reversi.batch"))) {
+            BatchKernel vector = createVector(evaluator);
+            if (vector != null) {
+                return vector;
+            }
+        }
+        return scalar(evaluator);
+    }
+
+    /**
+     * 純量實作（逐一呼叫單一局面的版本）。
+     */
+    public static BatchKernel scalar(ReversiEvaluator evaluator) {
+        return new ScalarBatchKernel(evaluator);
+    }
+
+    /**
+     * SIMD 實作；沒有編譯 src-vector 或執行時沒有 jdk.incubator.vector 模組時回傳 null。
+     */
+    public static BatchKernel createVector(ReversiEvaluator evaluator) {
+        try {
+            Constructor<?> constructor = Class.forName(VECTOR_KERNEL).getDeclaredConstructor(ReversiEvaluator.class);
+            return (BatchKernel) constructor.newInstance(evaluator);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
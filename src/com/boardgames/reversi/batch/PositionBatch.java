@@ -0,0 +1,78 @@
+package com.boardgames.reversi.batch;
+
+/**
+ * 一批互相獨立的 8x8 局面，以 structure-of-arrays 存放：行棋方與對手的 64 位元遮罩各一個陣列，
+ * 批次運算可以一次載入連續的多個局面。容量固定，不是執行緒安全的。
+ */
+public final class PositionBatch {
+
+    private final long[] players;
+    private final long[] opponents;
+    private int size;
+
+    public PositionBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必須是正數: " + capacity);
+        }
+        this.players = new long[capacity];
+        this.opponents = new long[capacity];
+    }
+
+    /**
+     * 加入一個局面。
+     *
+     * @return 局面在批次中的索引
+     * @throws IllegalStateException 批次已滿
+     */
+    public int add(long player, long opponent) {
+        if (size == players.length) {
+            throw new IllegalStateException("批次已滿: " + size);
+        }
+        players[size] = player;
+        opponents[size] = opponent;
+        return size++;
+    }
+
+    /** 覆寫第 index 個局面（例如落子之後）。 */
+    public void set(int index, long player, long opponent) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index + " >= " + size);
+        }
+        players[index] = player;
+        opponents[index] = opponent;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return players.length;
+    }
+
+    public boolean isFull() {
+        return size == players.length;
+    }
+
+    public long player(int index) {
+        return players[index];
+    }
+
+    public long opponent(int index) {
+        return opponents[index];
+    }
+
+    /** 行棋方遮罩的底層陣列（前 size() 個有效），批次運算直接讀取，不複製。 */
+    public long[] players() {
+        return players;
+    }
+
+    /** 對手遮罩的底層陣列（前 size() 個有效）。 */
+    public long[] opponents() {
+        return opponents;
+    }
+}
@@ -0,0 +1,48 @@
+package com.boardgames.reversi.batch;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+
+/**
+ * 逐一呼叫單一局面版本的純量實作，沒有 Vector API 時使用，也是量測與驗證的基準。
+ */
+final class ScalarBatchKernel implements BatchKernel {
+
+    private final ReversiEvaluator evaluator;
+
+    ScalarBatchKernel(ReversiEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void legalMoves(PositionBatch batch, long[] moves) {
+        long[] players = batch.players();
+        long[] opponents = batch.opponents();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            moves[i] = Bitboard.legalMoves(players[i], opponents[i]);
+        }
+    }
+
+    @Override
+    public void flips(PositionBatch batch, int[] squares, long[] flips) {
+        long[] players = batch.players();
+        long[] opponents = batch.opponents();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            flips[i] = Bitboard.flips(players[i], opponents[i], squares[i]);
+        }
+    }
+
+    @Override
+    public void evaluate(PositionBatch batch, int[] scores) {
+        long[] players = batch.players();
+        long[] opponents = batch.opponents();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            scores[i] = evaluator.evaluate(players[i], opponents[i]);
+        }
+    }
+}
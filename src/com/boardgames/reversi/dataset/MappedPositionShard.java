@@ -0,0 +1,60 @@
+package com.boardgames.reversi.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以記憶體映射方式開啟的分片檔，可依索引隨機存取紀錄；
+ * 資料由作業系統的分頁快取管理，不佔用 Java heap，多條執行緒可以同時讀取。
+ */
+public class MappedPositionShard {
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    public MappedPositionShard(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("分片檔超過 2GB，請以較小的分片大小重新產生: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < PositionDataset.HEADER_BYTES
+                || buffer.getInt(0) != PositionDataset.MAGIC || buffer.getInt(4) != PositionDataset.VERSION) {
+            throw new IOException("不是有效的局面分片檔: " + file);
+        }
+        long declared = buffer.getLong(8);
+        long available = (buffer.capacity() - PositionDataset.HEADER_BYTES) / PositionDataset.RECORD_BYTES;
+        count = (int) Math.min(declared, available);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long black(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    public long white(int index) {
+        return buffer.getLong(offset(index) + 8);
+    }
+
+    public int sideToMove(int index) {
+        return buffer.get(offset(index) + 16);
+    }
+
+    /**
+     * 終局子數差（黑方角度）。
+     */
+    public int score(int index) {
+        return buffer.get(offset(index) + 17);
+    }
+
+    private static int offset(int index) {
+        return PositionDataset.HEADER_BYTES + index * PositionDataset.RECORD_BYTES;
+    }
+}
@@ -0,0 +1,47 @@
+package com.boardgames.reversi.dataset;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 自我對弈局面資料集的檔案格式定義。
+ * 資料集由多個分片 (shard) 檔案組成，每個分片是：
+ * <pre>
+ * 標頭 16 bytes：int 魔術數字 'RVPS'、int 版本、long 紀錄數
+ * 紀錄 18 bytes：long 黑子、long 白子、byte 行棋方 (0 黑 / 1 白)、byte 終局子數差（黑方角度，空格歸勝方）
+ * </pre>
+ * 全部採大端序、固定長度，因此可以循序串流讀取，也可以直接記憶體映射後以索引存取。
+ */
+public final class PositionDataset {
+
+    public static final int MAGIC = 0x52565053; // "RVPS"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 18;
+    public static final String EXTENSION = ".rvp";
+
+    public static final int BLACK_TO_MOVE = 0;
+    public static final int WHITE_TO_MOVE = 1;
+
+    private PositionDataset() {
+    }
+
+    /**
+     * 列出資料集的所有分片：參數是檔案時只回傳它本身，是目錄時回傳其中所有 .rvp 檔（依檔名排序）。
+     */
+    public static List<File> shards(File fileOrDirectory) {
+        List<File> shards = new ArrayList<>();
+        if (fileOrDirectory.isDirectory()) {
+            File[] files = fileOrDirectory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+            if (files != null) {
+                Arrays.sort(files);
+                shards.addAll(Arrays.asList(files));
+            }
+        } else if (fileOrDirectory.isFile()) {
+            shards.add(fileOrDirectory);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,264 @@
+package com.boardgames.reversi.dataset;
+
+import com.boardgames.common.BoardSymmetry;
+import com.boardgames.reversi.Bitboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 對局資料庫的局面索引：查詢「哪些對局經過這個局面、結果如何」。由 PositionIndexBuilder 產生，檔案格式為
+ * <pre>
+ * 標頭 32 bytes：int 魔術數字 'RPIX'、int 版本、int 對局數、int 局面數、long 串列區起點、long 對局區起點
+ * 局面 28 bytes（依雜湊由小到大）：long 對稱正規化雜湊、int 勝、int 和、int 負、long 對局串列在串列區的位移
+ * 串列區：每個局面經過它的對局編號，由小到大，第一個存原值、之後存差值，都以 7 位元一組的變長整數編碼
+ * 對局區：對局數 × int 對局資料的位移（相對於對局區起點），接著每局 byte 步數、byte 終局子數差（黑方角度）、每步一個 byte 格子
+ * </pre>
+ * 勝、和、負都以該局面的行棋方角度計算，因此顏色互換、對稱變換後相同的局面合併為同一筆。
+ *
+ * 整個檔案以記憶體映射開啟，查詢只是在局面區做二分搜尋，不需要把索引讀進 Java heap；多條執行緒可以同時查詢。
+ */
+public class PositionIndex {
+
+    public static final int MAGIC = 0x52504958; // "RPIX"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int ENTRY_BYTES = 28;
+    public static final String DEFAULT_INDEX_PATH = "data/reversi.index";
+
+    /** 行棋方角度的對局結果，存在排序紀錄中 */
+    static final int LOSS = 0;
+    static final int DRAW = 1;
+    static final int WIN = 2;
+
+    private static volatile PositionIndex shared;
+    private static volatile boolean sharedOpened;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int gameCount;
+    private final int positionCount;
+    private final long postingsStart;
+    private final long gamesStart;
+
+    /**
+     * 一個局面的統計（行棋方角度）。
+     */
+    public static final class Stats {
+        private final int wins;
+        private final int draws;
+        private final int losses;
+
+        Stats(int wins, int draws, int losses) {
+            this.wins = wins;
+            this.draws = draws;
+            this.losses = losses;
+        }
+
+        public int getGames() {
+            return wins + draws + losses;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        /**
+         * 行棋方的得分率（勝 1 分、和 0.5 分）。
+         */
+        public double getScore() {
+            return (wins + draws * 0.5) / getGames();
+        }
+    }
+
+    public PositionIndex(File file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("索引檔超過 2GB: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("不是有效的局面索引檔: " + file);
+        }
+        gameCount = buffer.getInt(8);
+        positionCount = buffer.getInt(12);
+        postingsStart = buffer.getLong(16);
+        gamesStart = buffer.getLong(24);
+        if (postingsStart != HEADER_BYTES + (long) positionCount * ENTRY_BYTES || gamesStart < postingsStart
+                || gamesStart + 4L * gameCount > buffer.capacity()) {
+            throw new IOException("局面索引檔不完整: " + file);
+        }
+    }
+
+    /**
+     * 程式共用的索引：開啟 -Dboardgames.reversi.index 指定的檔案（預設 data/reversi.index）。
+     * 檔案不存在時回傳 null；開啟失敗時印出錯誤並回傳 null。
+     */
+    public static PositionIndex shared() {
+        PositionIndex index = shared;
+        if (index == null) {
+            synchronized (PositionIndex.class) {
+                if (!sharedOpened) {
+                    File path = new File(System.getProperty("boardgames.reversi.index", DEFAULT_INDEX_PATH));
+                    if (path.isFile()) {
+                        try {
+                            shared = new PositionIndex(path);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                    sharedOpened = true;
+                }
+                index = shared;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * shared() 是否已經開啟過（不論有沒有索引檔）。為 true 時呼叫 shared() 不會再碰到磁碟，
+     * 介面以此避免在 EDT 上開檔與建立記憶體映射。
+     */
+    public static boolean isSharedOpened() {
+        return sharedOpened;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int gameCount() {
+        return gameCount;
+    }
+
+    public int positionCount() {
+        return positionCount;
+    }
+
+    /**
+     * 行棋方為 player 時的局面統計，沒有任何對局經過時回傳 null。
+     */
+    public Stats lookup(long player, long opponent) {
+        int entry = find(BoardSymmetry.canonicalHash(player, opponent));
+        if (entry < 0) {
+            return null;
+        }
+        int offset = entryOffset(entry);
+        return new Stats(buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getInt(offset + 16));
+    }
+
+    /**
+     * 行棋方 player 下在 square 之後的局面統計，換算成 player 的角度（對手因此虛手時也正確）；
+     * 沒有對局這樣下過時回傳 null。square 必須是合法步。
+     */
+    public Stats lookupMove(long player, long opponent, int square) {
+        long flips = Bitboard.flips(player, opponent, square);
+        long nextPlayer = opponent & ~flips;
+        long nextOpponent = player | flips | (1L << square);
+        if (Bitboard.legalMoves(nextPlayer, nextOpponent) == 0) {
+            return lookup(nextOpponent, nextPlayer); // 對手虛手，仍是 player 行棋
+        }
+        Stats child = lookup(nextPlayer, nextOpponent);
+        return child == null ? null : new Stats(child.losses, child.draws, child.wins);
+    }
+
+    /**
+     * 經過這個局面的對局編號（由小到大），最多 limit 個。
+     */
+    public int[] games(long player, long opponent, int limit) {
+        int entry = find(BoardSymmetry.canonicalHash(player, opponent));
+        if (entry < 0) {
+            return new int[0];
+        }
+        int offset = entryOffset(entry);
+        int count = Math.min(limit, buffer.getInt(offset + 8) + buffer.getInt(offset + 12) + buffer.getInt(offset + 16));
+        int[] ids = new int[count];
+        int position = (int) (postingsStart + buffer.getLong(offset + 20));
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = buffer.get(position++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            id += delta;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * 對局的棋譜（格子編號，虛手不記錄）。
+     */
+    public int[] gameMoves(int game) {
+        int offset = gameOffset(game);
+        int[] moves = new int[buffer.get(offset) & 0xFF];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = buffer.get(offset + 2 + i);
+        }
+        return moves;
+    }
+
+    /**
+     * 對局的終局子數差（黑方角度，空格歸勝方）。
+     */
+    public int gameResult(int game) {
+        return buffer.get(gameOffset(game) + 1);
+    }
+
+    /**
+     * 以 f5d6c3... 表示的棋譜。
+     */
+    public String gameTranscript(int game) {
+        StringBuilder sb = new StringBuilder();
+        for (int square : gameMoves(game)) {
+            sb.append(Bitboard.squareName(square));
+        }
+        return sb.toString();
+    }
+
+    // 在依雜湊排序的局面區做二分搜尋，回傳局面編號，找不到時回傳 -1
+    private int find(long hash) {
+        int low = 0;
+        int high = positionCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = buffer.getLong(entryOffset(mid));
+            if (key < hash) {
+                low = mid + 1;
+            } else if (key > hash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int entryOffset(int entry) {
+        return HEADER_BYTES + entry * ENTRY_BYTES;
+    }
+
+    private int gameOffset(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("對局編號 " + game + "，共 " + gameCount + " 局");
+        }
+        return (int) (gamesStart + 4L * gameCount + buffer.getInt((int) (gamesStart + 4L * game)));
+    }
+}
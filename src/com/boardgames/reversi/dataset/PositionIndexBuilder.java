@@ -0,0 +1,365 @@
+package com.boardgames.reversi.dataset;
+
+import com.boardgames.common.BoardSymmetry;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiGame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 從對局紀錄建立 PositionIndex。每一局都以 ReversiGame 重下一遍，記下每一手之前的局面（對稱正規化雜湊）與
+ * 行棋方角度的結果，不合法或沒有下完的對局略過。
+ *
+ * 紀錄數量不受記憶體限制：(雜湊, 對局編號) 先累積在固定大小的緩衝區，滿了就排序後寫成一段暫存檔，
+ * finish() 時再把各段合併成排序好的局面區與串列區。暫存檔放在輸出檔旁邊，最後組合成完整的索引檔再一次換上，
+ * 中途失敗不會留下半個索引。不是執行緒安全的。
+ */
+public class PositionIndexBuilder implements Closeable {
+
+    /** 每段暫存檔的紀錄數，每筆在記憶體中占 16 bytes */
+    public static final int DEFAULT_RUN_SIZE = 1 << 22;
+
+    private final File file;
+    private final File directory;
+    private final long[] hashes;
+    private final long[] payloads;
+    private int buffered;
+    private final List<File> runs = new ArrayList<>();
+    private final List<File> temporaries = new ArrayList<>();
+
+    private final File gameDataFile;
+    private final DataOutputStream gameData;
+    private int gameDataSize;
+    private int[] gameOffsets = new int[1024];
+    private int gameCount;
+
+    private final ReversiGame game = new ReversiGame();
+    private final long[] gameHashes = new long[Bitboard.SQUARES];
+    private final char[] gameMovers = new char[Bitboard.SQUARES];
+
+    public PositionIndexBuilder(File file) throws IOException {
+        this(file, DEFAULT_RUN_SIZE);
+    }
+
+    public PositionIndexBuilder(File file, int runSize) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        this.directory = parent;
+        this.hashes = new long[runSize];
+        this.payloads = new long[runSize];
+        this.gameDataFile = temporary(".games");
+        this.gameData = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(gameDataFile)));
+    }
+
+    /**
+     * 把 f5d6c3... 形式的棋譜解析成格子編號（大小寫皆可，虛手不寫），格式不對時回傳 null。
+     */
+    public static int[] parseMoves(String transcript) {
+        String line = transcript.trim();
+        int end = 0;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+            end++;
+        }
+        if (end % 2 != 0 || end / 2 > Bitboard.SQUARES) {
+            return null;
+        }
+        int[] moves = new int[end / 2];
+        for (int i = 0; i < moves.length; i++) {
+            int col = Character.toLowerCase(line.charAt(2 * i)) - 'a';
+            int row = line.charAt(2 * i + 1) - '1';
+            if (col < 0 || col >= Bitboard.SIZE || row < 0 || row >= Bitboard.SIZE) {
+                return null;
+            }
+            moves[i] = row * Bitboard.SIZE + col;
+        }
+        return moves;
+    }
+
+    /**
+     * 加入一局以文字表示的棋譜（同 parseMoves，第一個空白之後的內容忽略）。
+     *
+     * @return 是否收錄；格式錯誤、含不合法的步或沒有下完時回傳 false
+     */
+    public boolean addGame(String transcript) throws IOException {
+        int[] moves = parseMoves(transcript);
+        return moves != null && addGame(moves, moves.length);
+    }
+
+    /**
+     * 加入一局 8x8 的棋譜，收錄的對局依加入順序從 0 開始編號。
+     *
+     * @return 是否收錄；含不合法的步或沒有下完時回傳 false
+     */
+    public boolean addGame(int[] moves, int count) throws IOException {
+        game.reset(Bitboard.SIZE);
+        for (int i = 0; i < count; i++) {
+            char mover = game.getCurrentPlayer();
+            gameMovers[i] = mover;
+            gameHashes[i] = BoardSymmetry.canonicalHash(game.getBits(mover), game.getBits(mover == 'B' ? 'W' : 'B'));
+            if (game.getGameState() != ReversiGame.GameState.PLAYING
+                    || !game.makeMove(moves[i] / Bitboard.SIZE, moves[i] % Bitboard.SIZE)) {
+                game.close();
+                return false;
+            }
+        }
+        if (game.getGameState() == ReversiGame.GameState.PLAYING) {
+            game.close();
+            return false;
+        }
+        int blackScore = Bitboard.finalScore(game.getBits('B'), game.getBits('W'));
+
+        int id = gameCount++;
+        if (id == gameOffsets.length) {
+            gameOffsets = Arrays.copyOf(gameOffsets, id * 2);
+        }
+        gameOffsets[id] = gameDataSize;
+        gameData.writeByte(count);
+        gameData.writeByte(blackScore);
+        for (int i = 0; i < count; i++) {
+            gameData.writeByte(moves[i]);
+        }
+        gameDataSize += 2 + count;
+
+        for (int i = 0; i < count; i++) {
+            int score = gameMovers[i] == 'B' ? blackScore : -blackScore;
+            int result = score > 0 ? PositionIndex.WIN : score < 0 ? PositionIndex.LOSS : PositionIndex.DRAW;
+            if (buffered == hashes.length) {
+                flushRun();
+            }
+            hashes[buffered] = gameHashes[i];
+            payloads[buffered] = (long) id << 2 | result;
+            buffered++;
+        }
+        return true;
+    }
+
+    public int gameCount() {
+        return gameCount;
+    }
+
+    /**
+     * 合併暫存檔並寫出索引檔，回傳索引中的局面數。之後不能再加入對局。
+     */
+    public int finish() throws IOException {
+        flushRun();
+        gameData.close();
+
+        File entriesFile = temporary(".entries");
+        File postingsFile = temporary(".postings");
+        int positions = 0;
+        long postingsSize = 0;
+        PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> compare(a.hash, a.payload, b.hash, b.payload));
+        try (DataOutputStream entries = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(entriesFile)));
+             DataOutputStream postings = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(postingsFile)))) {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                long hash = queue.peek().hash;
+                int[] counts = new int[3];
+                long postingsOffset = postingsSize;
+                int previous = 0;
+                int lastId = -1;
+                while (!queue.isEmpty() && queue.peek().hash == hash) {
+                    RunReader reader = queue.poll();
+                    int id = (int) (reader.payload >>> 2);
+                    if (id != lastId) {
+                        counts[(int) (reader.payload & 3)]++;
+                        postingsSize += writeVarint(postings, id - previous);
+                        previous = id;
+                        lastId = id;
+                    }
+                    if (reader.next()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+                entries.writeLong(hash);
+                entries.writeInt(counts[PositionIndex.WIN]);
+                entries.writeInt(counts[PositionIndex.DRAW]);
+                entries.writeInt(counts[PositionIndex.LOSS]);
+                entries.writeLong(postingsOffset);
+                positions++;
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+
+        long postingsStart = PositionIndex.HEADER_BYTES + (long) positions * PositionIndex.ENTRY_BYTES;
+        long gamesStart = postingsStart + postingsSize;
+        if (gamesStart + 4L * gameCount + gameDataSize > Integer.MAX_VALUE) {
+            throw new IOException("索引超過 2GB，請把對局分成幾個較小的資料庫: " + file);
+        }
+        File tmp = temporary(".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(PositionIndex.MAGIC);
+            out.writeInt(PositionIndex.VERSION);
+            out.writeInt(gameCount);
+            out.writeInt(positions);
+            out.writeLong(postingsStart);
+            out.writeLong(gamesStart);
+            copy(entriesFile, out);
+            copy(postingsFile, out);
+            for (int i = 0; i < gameCount; i++) {
+                out.writeInt(gameOffsets[i]);
+            }
+            copy(gameDataFile, out);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return positions;
+    }
+
+    /**
+     * 刪除所有暫存檔；沒有呼叫 finish() 時不會產生索引檔。
+     */
+    @Override
+    public void close() throws IOException {
+        gameData.close();
+        for (File temporary : temporaries) {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    private void flushRun() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        sort(hashes, payloads, 0, buffered);
+        File run = temporary(".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            for (int i = 0; i < buffered; i++) {
+                out.writeLong(hashes[i]);
+                out.writeLong(payloads[i]);
+            }
+        }
+        runs.add(run);
+        buffered = 0;
+    }
+
+    private File temporary(String suffix) throws IOException {
+        File temporary = File.createTempFile(file.getName() + ".", suffix, directory);
+        temporaries.add(temporary);
+        return temporary;
+    }
+
+    private static int writeVarint(DataOutputStream out, int value) throws IOException {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+            bytes++;
+        }
+        out.writeByte(value);
+        return bytes;
+    }
+
+    private static void copy(File from, OutputStream to) throws IOException {
+        try (InputStream in = new FileInputStream(from)) {
+            byte[] chunk = new byte[1 << 16];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                to.write(chunk, 0, n);
+            }
+        }
+    }
+
+    private static int compare(long hash1, long payload1, long hash2, long payload2) {
+        int c = Long.compare(hash1, hash2);
+        return c != 0 ? c : Long.compare(payload1, payload2);
+    }
+
+    // 依 (雜湊, 對局編號) 排序兩個平行陣列的 [from, to)；小的一側遞迴、大的一側迴圈，遞迴深度不超過 log n
+    private static void sort(long[] keys, long[] values, int from, int to) {
+        while (to - from > 16) {
+            int mid = (from + to) >>> 1;
+            long pivotKey = keys[mid];
+            long pivotValue = values[mid];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) {
+                    i++;
+                }
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            if (j + 1 - from < to - i) {
+                sort(keys, values, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(keys[j - 1], values[j - 1], keys[j], values[j]) > 0; j--) {
+                swap(keys, values, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, long[] values, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    // 循序讀取一段排序好的暫存檔
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        long hash;
+        long payload;
+
+        RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+        }
+
+        boolean next() throws IOException {
+            try {
+                hash = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            payload = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.boardgames.reversi.dataset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 循序串流讀取單一分片檔，記憶體用量固定，不受資料集大小影響。
+ * 用法：
+ * <pre>
+ * try (PositionShardReader reader = new PositionShardReader(file)) {
+ *     while (reader.next()) {
+ *         use(reader.black(), reader.white(), reader.sideToMove(), reader.score());
+ *     }
+ * }
+ * </pre>
+ * 讀取過程不配置任何物件。
+ */
+public class PositionShardReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(PositionDataset.RECORD_BYTES * 3641);
+    private final long count;
+    private long read;
+
+    private long black;
+    private long white;
+    private int sideToMove;
+    private int score;
+
+    public PositionShardReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(PositionDataset.HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // 讀滿標頭
+        }
+        header.flip();
+        if (header.remaining() < PositionDataset.HEADER_BYTES
+                || header.getInt() != PositionDataset.MAGIC || header.getInt() != PositionDataset.VERSION) {
+            channel.close();
+            throw new IOException("不是有效的局面分片檔: " + file);
+        }
+        count = header.getLong();
+        buffer.flip(); // 一開始視為空緩衝區
+    }
+
+    /**
+     * 讀取下一筆紀錄。
+     *
+     * @return 沒有更多紀錄時回傳 false
+     */
+    public boolean next() throws IOException {
+        if (read >= count) {
+            return false;
+        }
+        if (buffer.remaining() < PositionDataset.RECORD_BYTES) {
+            buffer.compact();
+            while (buffer.position() < PositionDataset.RECORD_BYTES) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("分片檔在第 " + read + " 筆紀錄處提早結束");
+                }
+            }
+            buffer.flip();
+        }
+        black = buffer.getLong();
+        white = buffer.getLong();
+        sideToMove = buffer.get();
+        score = buffer.get();
+        read++;
+        return true;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long black() {
+        return black;
+    }
+
+    public long white() {
+        return white;
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * 終局子數差（黑方角度）。
+     */
+    public int score() {
+        return score;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,84 @@
+package com.boardgames.reversi.dataset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 寫入單一分片檔。紀錄先累積在 64KB 的直接緩衝區，滿了才寫入檔案；
+ * 關閉時回填標頭中的紀錄數。不是執行緒安全的，每條執行緒應各自寫自己的分片。
+ */
+public class PositionShardWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(PositionDataset.RECORD_BYTES * 3641);
+    private long count;
+
+    public PositionShardWriter(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader();
+    }
+
+    public void write(long black, long white, int sideToMove, int score) throws IOException {
+        if (buffer.remaining() < PositionDataset.RECORD_BYTES) {
+            flushBuffer();
+        }
+        buffer.putLong(black);
+        buffer.putLong(white);
+        buffer.put((byte) sideToMove);
+        buffer.put((byte) score);
+        count++;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 把緩衝區寫入檔案、更新標頭的紀錄數並強制落盤。
+     * 之後即使程式當掉，讀取端也能看到到目前為止的所有紀錄（標頭之後多出的半筆資料會被忽略）。
+     */
+    public void sync() throws IOException {
+        flushBuffer();
+        writeHeader();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PositionDataset.HEADER_BYTES);
+        header.putInt(PositionDataset.MAGIC).putInt(PositionDataset.VERSION).putLong(count).flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        if (channel.position() < PositionDataset.HEADER_BYTES) {
+            channel.position(PositionDataset.HEADER_BYTES);
+        }
+    }
+}
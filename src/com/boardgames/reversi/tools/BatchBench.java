@@ -0,0 +1,157 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.batch.BatchKernel;
+import com.boardgames.reversi.batch.BatchKernels;
+import com.boardgames.reversi.batch.PositionBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 比較批次核心與逐一呼叫單一局面版本的吞吐量（每秒局面數），並核對兩者的結果完全相同。
+ *
+ * <pre>
+ * javac -d bin $(find src -name "*.java")
+ * javac --add-modules jdk.incubator.vector -cp bin -d bin $(find src-vector -name "*.java")
+ * java --add-modules jdk.incubator.vector -cp bin com.boardgames.reversi.tools.BatchBench --positions 1000000 --batch 4096
+ * </pre>
+ *
+ * 局面來自隨機對局，每個局面再隨機選一個合法步量測翻轉。結果不一致時結束代碼為 1。
+ */
+public class BatchBench {
+
+    private interface Operation {
+        void run(BatchKernel kernel, PositionBatch batch, int[] squares, long[] longs, int[] ints);
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        int positions = options.getInt("--positions", 1_000_000);
+        int batchSize = options.getInt("--batch", 4096);
+        int rounds = options.getInt("--rounds", 5);
+        long seed = options.getLong("--seed", 1);
+
+        List<PositionBatch> batches = new ArrayList<>();
+        List<int[]> squares = new ArrayList<>();
+        generate(positions, batchSize, new Random(seed), batches, squares);
+
+        ReversiEvaluator evaluator = new ReversiEvaluator(ReversiEvaluator.defaultWeights());
+        BatchKernel scalar = BatchKernels.scalar(evaluator);
+        BatchKernel vector = BatchKernels.createVector(evaluator);
+        System.out.printf(Locale.ROOT, "%d 個局面，每批 %d 個，量測 %d 輪取最快%n", positions, batchSize, rounds);
+        if (vector == null) {
+            System.out.println("沒有 Vector API 實作（需編譯 src-vector 並加上 --add-modules jdk.incubator.vector），只量測純量版本");
+        } else {
+            System.out.println("批次核心: " + vector.getName());
+        }
+
+        int mismatches = 0;
+        mismatches += measure("合法步", (k, b, s, l, i) -> k.legalMoves(b, l), scalar, vector, batches, squares, batchSize, rounds);
+        mismatches += measure("翻轉", (k, b, s, l, i) -> k.flips(b, s, l), scalar, vector, batches, squares, batchSize, rounds);
+        mismatches += measure("評估", (k, b, s, l, i) -> k.evaluate(b, i), scalar, vector, batches, squares, batchSize, rounds);
+        if (mismatches > 0) {
+            System.out.println("批次核心與單一局面版本的結果有 " + mismatches + " 筆不一致");
+            System.exit(1);
+        }
+    }
+
+    private static int measure(String label, Operation operation, BatchKernel scalar, BatchKernel vector,
+                               List<PositionBatch> batches, List<int[]> squares, int batchSize, int rounds) {
+        long[] expectedLongs = new long[batchSize];
+        int[] expectedInts = new int[batchSize];
+        long[] longs = new long[batchSize];
+        int[] ints = new int[batchSize];
+        int mismatches = 0;
+        if (vector != null) {
+            for (int b = 0; b < batches.size(); b++) {
+                PositionBatch batch = batches.get(b);
+                operation.run(scalar, batch, squares.get(b), expectedLongs, expectedInts);
+                operation.run(vector, batch, squares.get(b), longs, ints);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (longs[i] != expectedLongs[i] || ints[i] != expectedInts[i]) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+
+        double scalarRate = rate(operation, scalar, batches, squares, longs, ints, rounds);
+        if (vector == null) {
+            System.out.printf(Locale.ROOT, "%-4s 單一局面 %8.2f M 局面/秒%n", label, scalarRate / 1e6);
+        } else {
+            double vectorRate = rate(operation, vector, batches, squares, longs, ints, rounds);
+            System.out.printf(Locale.ROOT, "%-4s 單一局面 %8.2f M 局面/秒，批次 %8.2f M 局面/秒（%.2fx）%s%n", label,
+                    scalarRate / 1e6, vectorRate / 1e6, vectorRate / scalarRate, mismatches == 0 ? "" : "  不一致 " + mismatches);
+        }
+        return mismatches;
+    }
+
+    // 每輪跑過全部批次，取最快的一輪；第一輪兼作 JIT 暖身
+    private static double rate(Operation operation, BatchKernel kernel, List<PositionBatch> batches, List<int[]> squares,
+                               long[] longs, int[] ints, int rounds) {
+        long best = Long.MAX_VALUE;
+        long count = 0;
+        for (int r = 0; r <= rounds; r++) {
+            long start = System.nanoTime();
+            count = 0;
+            for (int b = 0; b < batches.size(); b++) {
+                operation.run(kernel, batches.get(b), squares.get(b), longs, ints);
+                count += batches.get(b).size();
+            }
+            long nanos = System.nanoTime() - start;
+            if (r > 0) {
+                best = Math.min(best, nanos);
+            }
+        }
+        return count * 1e9 / best;
+    }
+
+    private static void generate(int positions, int batchSize, Random random, List<PositionBatch> batches,
+                                 List<int[]> squares) {
+        PositionBatch batch = null;
+        int[] batchSquares = null;
+        int generated = 0;
+        while (generated < positions) {
+            long player = Bitboard.INITIAL_BLACK;
+            long opponent = Bitboard.INITIAL_WHITE;
+            while (generated < positions) {
+                long moves = Bitboard.legalMoves(player, opponent);
+                if (moves == 0) {
+                    if (Bitboard.legalMoves(opponent, player) == 0) {
+                        break;
+                    }
+                    long t = player;
+                    player = opponent;
+                    opponent = t;
+                    continue;
+                }
+                int sq = randomSquare(moves, random);
+                if (batch == null || batch.isFull()) {
+                    batch = new PositionBatch(Math.min(batchSize, positions - generated));
+                    batchSquares = new int[batch.capacity()];
+                    batches.add(batch);
+                    squares.add(batchSquares);
+                }
+                batchSquares[batch.add(player, opponent)] = sq;
+                generated++;
+                long flips = Bitboard.flips(player, opponent, sq);
+                long next = opponent & ~flips;
+                opponent = player | flips | (1L << sq);
+                player = next;
+            }
+        }
+    }
+
+    private static int randomSquare(long moves, Random random) {
+        int k = random.nextInt(Long.bitCount(moves));
+        for (int i = 0; i < k; i++) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+}
@@ -0,0 +1,252 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 終局測試集：逐一把局面解到終局，核對精確分數，並回報每個局面的時間、節點數與每秒節點數。
+ *
+ * <pre>
+ * java -cp bin com.boardgames.reversi.tools.EndgameSuite --suite data/endgame/suite.txt
+ * java -cp bin com.boardgames.reversi.tools.EndgameSuite --suite data/endgame/suite.txt --reference data/endgame/reference.txt
+ * java -cp bin com.boardgames.reversi.tools.EndgameSuite --suite data/endgame/suite.txt --threads 4 --write-reference 新檔案
+ * </pre>
+ *
+ * 測試集每行一個局面：64 個字元的棋盤（a1, b1, ..., h8；X 黑、O 白、- 空）、行棋方 X 或 O、
+ * 行棋方角度的精確終局子數差（空格歸勝方），# 之後為註解。
+ *
+ * 為了讓節點數可以重現，每個局面都用新的搜尋實例（空的置換表）、內建的預設評估權重，並關閉 ProbCut。
+ * 指定 --reference 時與參考結果比較：分數錯誤、節點數或時間超過參考值的 --tolerance 倍（時間另需多出 --min-ms）
+ * 都視為退步，結束代碼為 1。時間只在同一台機器、相同執行緒數下比較才有意義。
+ */
+public class EndgameSuite {
+
+    private static final class Position {
+        final int index;
+        final long black;
+        final long white;
+        final boolean blackToMove;
+        final int expected;
+        final String comment;
+
+        Position(int index, long black, long white, boolean blackToMove, int expected, String comment) {
+            this.index = index;
+            this.black = black;
+            this.white = white;
+            this.blackToMove = blackToMove;
+            this.expected = expected;
+            this.comment = comment;
+        }
+
+        int empties() {
+            return Bitboard.SQUARES - Long.bitCount(black | white);
+        }
+    }
+
+    private static final class Reference {
+        final long nodes;
+        final double millis;
+
+        Reference(long nodes, double millis) {
+            this.nodes = nodes;
+            this.millis = millis;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        if (!options.has("--suite")) {
+            System.out.println("用法: EndgameSuite --suite 檔案 [--threads T] [--table-bits B] [--warmup N]");
+            System.out.println("      [--reference 檔案] [--tolerance 1.3] [--min-ms 5] [--write-reference 檔案]");
+            return;
+        }
+        List<Position> positions = readSuite(new File(options.get("--suite", "")));
+        int threads = options.getInt("--threads", 1);
+        int tableBits = options.getInt("--table-bits", 20);
+        double tolerance = options.getDouble("--tolerance", 1.3);
+        double minMillis = options.getDouble("--min-ms", 5);
+        Map<Integer, Reference> reference = options.has("--reference")
+                ? readReference(new File(options.get("--reference", ""))) : null;
+
+        for (int i = 0; i < options.getInt("--warmup", 0); i++) {
+            solveAll(positions, threads, tableBits); // 讓 JIT 先編譯完，計時才穩定
+        }
+        SearchResult[] results = solveAll(positions, threads, tableBits);
+
+        System.out.println("  #  空格  預期  結果  最佳步        節點數      時間(ms)    節點/秒  狀態");
+        int wrong = 0;
+        int regressions = 0;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        double referenceMillis = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            Position position = positions.get(i);
+            SearchResult result = results[i];
+            int score = result.score / ReversiEvaluator.SCALE;
+            double millis = result.nanos / 1e6;
+            totalNodes += result.nodes;
+            totalNanos += result.nanos;
+
+            StringBuilder status = new StringBuilder();
+            if (score != position.expected) {
+                status.append("錯誤");
+                wrong++;
+            } else {
+                status.append("OK");
+            }
+            Reference ref = reference == null ? null : reference.get(position.index);
+            if (ref != null) {
+                referenceMillis += ref.millis;
+                if (result.nodes > ref.nodes * tolerance) {
+                    status.append(String.format(Locale.ROOT, " 節點數退步 (%d -> %d)", ref.nodes, result.nodes));
+                    regressions++;
+                }
+                if (millis > ref.millis * tolerance && millis - ref.millis >= minMillis) {
+                    status.append(String.format(Locale.ROOT, " 時間退步 (%.1f -> %.1f ms)", ref.millis, millis));
+                    regressions++;
+                }
+            }
+            System.out.printf(Locale.ROOT, "%3d  %4d  %+4d  %+4d  %-6s %14d %12.1f %10.0f  %s%s%n",
+                    position.index, position.empties(), position.expected, score,
+                    Bitboard.squareName(result.bestMove), result.nodes, millis, result.nodesPerSecond(),
+                    status, position.comment.isEmpty() ? "" : "  # " + position.comment);
+        }
+
+        double totalMillis = totalNanos / 1e6;
+        System.out.printf(Locale.ROOT, "合計 %d 個局面，%d 個錯誤；%d 個節點，%.1f ms（各局面耗時總和），%.0f 節點/秒%n",
+                positions.size(), wrong, totalNodes, totalMillis, totalNanos == 0 ? 0.0 : totalNodes * 1e9 / totalNanos);
+        if (reference != null) {
+            if (referenceMillis > 0 && totalMillis > referenceMillis * tolerance) {
+                System.out.printf(Locale.ROOT, "總時間退步: %.1f -> %.1f ms%n", referenceMillis, totalMillis);
+                regressions++;
+            }
+            System.out.println(regressions == 0 ? "與參考結果相比沒有退步" : "與參考結果相比有 " + regressions + " 項退步");
+        }
+
+        if (options.has("--write-reference")) {
+            File out = new File(options.get("--write-reference", ""));
+            writeReference(out, positions, results, threads);
+            System.out.println("參考結果已寫入 " + out);
+        }
+        if (wrong > 0 || regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 以 threads 條執行緒平行解所有局面（每條執行緒輪流取下一個局面），結果依原本的順序排列。
+     */
+    private static SearchResult[] solveAll(List<Position> positions, int threads, int tableBits) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SearchResult>> futures = new ArrayList<>();
+            for (Position position : positions) {
+                futures.add(pool.submit(() -> solve(position, tableBits)));
+            }
+            SearchResult[] results = new SearchResult[positions.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = futures.get(i).get();
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static SearchResult solve(Position position, int tableBits) {
+        ReversiSearch search = new ReversiSearch(new ReversiEvaluator(ReversiEvaluator.defaultWeights()), tableBits);
+        search.setProbCutEnabled(false);
+        long player = position.blackToMove ? position.black : position.white;
+        long opponent = position.blackToMove ? position.white : position.black;
+        if (Bitboard.legalMoves(player, opponent) == 0) {
+            if (Bitboard.legalMoves(opponent, player) == 0) {
+                return new SearchResult(-1, Bitboard.finalScore(player, opponent) * ReversiEvaluator.SCALE, 0, true, 0, 0);
+            }
+            // 行棋方必須 pass：從對手的角度解，分數取負號
+            SearchResult result = search.search(opponent, player, Bitboard.SQUARES);
+            return new SearchResult(-1, -result.score, result.depth, result.exact, result.nodes, result.nanos);
+        }
+        return search.search(player, opponent, Bitboard.SQUARES);
+    }
+
+    private static List<Position> readSuite(File file) throws IOException {
+        List<Position> positions = new ArrayList<>();
+        int lineNumber = 0;
+        for (String raw : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            int hash = raw.indexOf('#');
+            String line = (hash >= 0 ? raw.substring(0, hash) : raw).trim();
+            String comment = hash >= 0 ? raw.substring(hash + 1).trim() : "";
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 3 || fields[0].length() != Bitboard.SQUARES
+                    || !(fields[1].equals("X") || fields[1].equals("O"))) {
+                throw new IOException(file + " 第 " + lineNumber + " 行格式錯誤: " + raw);
+            }
+            long black = 0;
+            long white = 0;
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+                char c = fields[0].charAt(sq);
+                if (c == 'X') {
+                    black |= 1L << sq;
+                } else if (c == 'O') {
+                    white |= 1L << sq;
+                } else if (c != '-') {
+                    throw new IOException(file + " 第 " + lineNumber + " 行有未知的符號: " + c);
+                }
+            }
+            positions.add(new Position(positions.size() + 1, black, white, fields[1].equals("X"),
+                    Integer.parseInt(fields[2]), comment));
+        }
+        return positions;
+    }
+
+    private static Map<Integer, Reference> readReference(File file) throws IOException {
+        Map<Integer, Reference> reference = new HashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            reference.put(Integer.parseInt(fields[0]), new Reference(Long.parseLong(fields[2]), Double.parseDouble(fields[3])));
+        }
+        return reference;
+    }
+
+    private static void writeReference(File file, List<Position> positions, SearchResult[] results, int threads)
+            throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.printf("# EndgameSuite 參考結果（%d 條執行緒, %s %s）%n", threads,
+                    System.getProperty("java.vm.name"), System.getProperty("java.version"));
+            out.println("# 編號 分數 節點數 時間(ms)");
+            for (int i = 0; i < positions.size(); i++) {
+                out.printf(Locale.ROOT, "%d %d %d %.1f%n", positions.get(i).index,
+                        results[i].score / ReversiEvaluator.SCALE, results[i].nodes, results[i].nanos / 1e6);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.OpeningBook;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 開局庫的離線工具。
+ *
+ * <pre>
+ * learn 自我對弈並把每一局交給開局庫學習（有建議時照開局庫下，否則搜尋），每局印出前幾手與結果
+ *       java -cp bin com.boardgames.reversi.tools.OpeningBookTool learn --games 200 --depth 6 --book data/reversi.book
+ * show  列出某個局面在開局庫中的資料與書內的每一步
+ *       java -cp bin com.boardgames.reversi.tools.OpeningBookTool show --book data/reversi.book --moves f5d6c3
+ * </pre>
+ */
+public class OpeningBookTool {
+
+    private static final int SHOWN_PLIES = 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Options options = new Options(args);
+        switch (args[0]) {
+            case "learn":
+                learn(options);
+                break;
+            case "show":
+                show(options);
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法: OpeningBookTool learn [--book 檔案] [--games N] [--depth D] [--max-plies P] [--search-depth S]");
+        System.out.println("                        [--random-plies R] [--seed S]");
+        System.out.println("      OpeningBookTool show [--book 檔案] [--moves f5d6c3...]");
+    }
+
+    private static OpeningBook open(Options options) throws Exception {
+        File file = new File(options.get("--book", OpeningBook.DEFAULT_BOOK_PATH));
+        return OpeningBook.load(file, options.getInt("--max-plies", OpeningBook.DEFAULT_MAX_PLIES),
+                options.getInt("--search-depth", OpeningBook.DEFAULT_SEARCH_DEPTH));
+    }
+
+    private static void learn(Options options) throws Exception {
+        OpeningBook book = open(options);
+        int games = options.getInt("--games", 100);
+        int depth = options.getInt("--depth", 6);
+        int randomPlies = options.getInt("--random-plies", 0);
+        Random random = new Random(options.getLong("--seed", 1));
+        ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 20);
+        System.out.println("開局庫 " + book.getFile() + "：" + book.size() + " 個局面");
+
+        int[] moves = new int[Bitboard.SQUARES];
+        int[] scores = new int[Bitboard.SQUARES];
+        int blackWins = 0;
+        int whiteWins = 0;
+        long start = System.nanoTime();
+        for (int g = 1; g <= games; g++) {
+            long player = Bitboard.INITIAL_BLACK;
+            long opponent = Bitboard.INITIAL_WHITE;
+            boolean black = true;
+            int count = 0;
+            int bookMoves = 0;
+            while (true) {
+                long legal = Bitboard.legalMoves(player, opponent);
+                if (legal == 0) {
+                    if (Bitboard.legalMoves(opponent, player) == 0) {
+                        break;
+                    }
+                    long t = player;
+                    player = opponent;
+                    opponent = t;
+                    black = !black;
+                    continue;
+                }
+                int sq;
+                int score = OpeningBook.NO_SCORE;
+                if (count < randomPlies) {
+                    sq = randomMove(legal, random);
+                } else if ((sq = book.bestMove(player, opponent)) >= 0) {
+                    bookMoves++;
+                } else {
+                    SearchResult result = search.search(player, opponent, depth);
+                    sq = result.bestMove;
+                    score = result.score;
+                }
+                moves[count] = sq;
+                scores[count] = score;
+                count++;
+                long flips = Bitboard.flips(player, opponent, sq);
+                long next = opponent & ~flips;
+                opponent = player | flips | (1L << sq);
+                player = next;
+                black = !black;
+            }
+            int blackScore = black ? Bitboard.finalScore(player, opponent) : -Bitboard.finalScore(player, opponent);
+            if (blackScore > 0) {
+                blackWins++;
+            } else if (blackScore < 0) {
+                whiteWins++;
+            }
+            book.recordGame(moves, count, scores);
+            book.awaitLearning(); // 下一局就能用上這一局學到的結果
+
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < Math.min(count, SHOWN_PLIES); i++) {
+                line.append(Bitboard.squareName(moves[i]));
+            }
+            System.out.printf(Locale.ROOT, "第 %d 局 %s... 黑 %+d，書內 %d 步，開局庫 %d 個局面%n",
+                    g, line, blackScore, bookMoves, book.size());
+        }
+        OpeningBook.Entry root = book.lookup(Bitboard.INITIAL_BLACK, Bitboard.INITIAL_WHITE);
+        System.out.printf(Locale.ROOT, "黑勝 %d、白勝 %d、和 %d；初始局面的值 %+.2f；共 %.1f 秒%n", blackWins, whiteWins,
+                games - blackWins - whiteWins, root == null ? 0.0 : (double) root.getValue() / ReversiEvaluator.SCALE,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void show(Options options) throws Exception {
+        OpeningBook book = open(options);
+        long player = Bitboard.INITIAL_BLACK;
+        long opponent = Bitboard.INITIAL_WHITE;
+        String line = options.get("--moves", "");
+        for (int i = 0; i + 1 < line.length(); i += 2) {
+            if (Bitboard.legalMoves(player, opponent) == 0) {
+                long t = player;
+                player = opponent;
+                opponent = t;
+            }
+            int sq = (line.charAt(i + 1) - '1') * Bitboard.SIZE + (line.charAt(i) - 'a');
+            if (sq < 0 || sq >= Bitboard.SQUARES || (Bitboard.legalMoves(player, opponent) & (1L << sq)) == 0) {
+                System.out.println("不合法的步: " + line.substring(i, i + 2));
+                return;
+            }
+            long flips = Bitboard.flips(player, opponent, sq);
+            long next = opponent & ~flips;
+            opponent = player | flips | (1L << sq);
+            player = next;
+        }
+        System.out.println(Bitboard.toString(player, opponent) + "（X 為行棋方）");
+        OpeningBook.Entry entry = book.lookup(player, opponent);
+        if (entry == null) {
+            System.out.println("不在開局庫中（共 " + book.size() + " 個局面）");
+            return;
+        }
+        System.out.println(describe(entry));
+
+        List<int[]> children = new ArrayList<>(); // {格子, 行棋方角度的值}
+        long legal = Bitboard.legalMoves(player, opponent);
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            long flips = Bitboard.flips(player, opponent, sq);
+            OpeningBook.Entry child = book.lookup(opponent & ~flips, player | flips | (1L << sq));
+            if (child != null) {
+                children.add(new int[]{sq, -child.getValue()});
+            }
+        }
+        children.sort((a, b) -> Integer.compare(b[1], a[1]));
+        System.out.println("書內的步（行棋方角度的值）：");
+        for (int[] child : children) {
+            int sq = child[0];
+            long flips = Bitboard.flips(player, opponent, sq);
+            System.out.printf(Locale.ROOT, "%+8.2f  %s  %s%n", (double) child[1] / ReversiEvaluator.SCALE,
+                    Bitboard.squareName(sq), describe(book.lookup(opponent & ~flips, player | flips | (1L << sq))));
+        }
+        int best = book.bestMove(player, opponent);
+        System.out.println("建議: " + (best < 0 ? "無（交給搜尋）" : Bitboard.squareName(best)));
+    }
+
+    private static String describe(OpeningBook.Entry entry) {
+        int searchValue = entry.getSearchValue();
+        return String.format(Locale.ROOT, "值 %+.2f，%d 局平均 %+.1f，搜尋分數 %s，%s", (double) entry.getValue() / ReversiEvaluator.SCALE,
+                entry.getGames(), entry.getAverageResult(),
+                searchValue == OpeningBook.NO_SCORE ? "無"
+                        : String.format(Locale.ROOT, "%+.2f（深度 %d）", (double) searchValue / ReversiEvaluator.SCALE,
+                        entry.getSearchDepth()),
+                entry.isExpanded() ? "已搜尋偏離步" : "尚未搜尋偏離步");
+    }
+
+    private static int randomMove(long moves, Random random) {
+        int k = random.nextInt(Long.bitCount(moves));
+        for (int i = 0; i < k; i++) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+}
@@ -0,0 +1,166 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.dataset.PositionIndex;
+import com.boardgames.reversi.dataset.PositionIndexBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 對局資料庫局面索引的工具。
+ *
+ * <pre>
+ * build 從棋譜檔建立索引；--input 可以是檔案或目錄（目錄中的所有檔案依檔名排序）。
+ *       棋譜檔每行一局，以 f5d6c3... 表示（虛手不寫），空白之後的內容與 # 開頭的行忽略
+ *       java -cp bin com.boardgames.reversi.tools.PositionIndexTool build --input games/ --out data/reversi.index
+ * query 列出經過某個局面的對局數、行棋方的勝和負、書中下一步的統計與前幾局的棋譜
+ *       java -cp bin com.boardgames.reversi.tools.PositionIndexTool query --index data/reversi.index --moves f5d6c3 --games 10
+ * </pre>
+ */
+public class PositionIndexTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Options options = new Options(args);
+        switch (args[0]) {
+            case "build":
+                build(options);
+                break;
+            case "query":
+                query(options);
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法: PositionIndexTool build --input 檔案或目錄 [--out 檔案] [--run-size N]");
+        System.out.println("      PositionIndexTool query [--index 檔案] [--moves f5d6c3...] [--games N]");
+    }
+
+    private static void build(Options options) throws IOException {
+        List<File> inputs = inputs(new File(options.get("--input", "games")));
+        if (inputs.isEmpty()) {
+            System.out.println("找不到棋譜檔: " + options.get("--input", "games"));
+            return;
+        }
+        File out = new File(options.get("--out", PositionIndex.DEFAULT_INDEX_PATH));
+        long start = System.nanoTime();
+        int skipped = 0;
+        try (PositionIndexBuilder builder = new PositionIndexBuilder(out,
+                options.getInt("--run-size", PositionIndexBuilder.DEFAULT_RUN_SIZE))) {
+            for (File input : inputs) {
+                try (BufferedReader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    int lineNumber = 0;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        line = line.trim();
+                        if (line.isEmpty() || line.startsWith("#")) {
+                            continue;
+                        }
+                        if (!builder.addGame(line)) {
+                            skipped++;
+                            if (skipped <= 10) {
+                                System.out.println("略過 " + input.getName() + ":" + lineNumber + "（不合法或沒有下完）");
+                            }
+                        }
+                    }
+                }
+            }
+            int positions = builder.finish();
+            System.out.printf(Locale.ROOT, "%d 局、%d 個局面寫入 %s（%d bytes），略過 %d 局，共 %.1f 秒%n",
+                    builder.gameCount(), positions, out, out.length(), skipped, (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static List<File> inputs(File fileOrDirectory) {
+        List<File> files = new ArrayList<>();
+        if (fileOrDirectory.isDirectory()) {
+            File[] listed = fileOrDirectory.listFiles(File::isFile);
+            if (listed != null) {
+                Arrays.sort(listed);
+                files.addAll(Arrays.asList(listed));
+            }
+        } else if (fileOrDirectory.isFile()) {
+            files.add(fileOrDirectory);
+        }
+        return files;
+    }
+
+    private static void query(Options options) throws IOException {
+        PositionIndex index = new PositionIndex(new File(options.get("--index", PositionIndex.DEFAULT_INDEX_PATH)));
+        String line = options.get("--moves", "");
+        int[] moves = PositionIndexBuilder.parseMoves(line);
+        if (moves == null) {
+            System.out.println("棋譜格式錯誤: " + line);
+            return;
+        }
+        long player = Bitboard.INITIAL_BLACK;
+        long opponent = Bitboard.INITIAL_WHITE;
+        for (int sq : moves) {
+            if (Bitboard.legalMoves(player, opponent) == 0) {
+                long t = player;
+                player = opponent;
+                opponent = t;
+            }
+            if ((Bitboard.legalMoves(player, opponent) & (1L << sq)) == 0) {
+                System.out.println("不合法的步: " + Bitboard.squareName(sq));
+                return;
+            }
+            long flips = Bitboard.flips(player, opponent, sq);
+            long next = opponent & ~flips;
+            opponent = player | flips | (1L << sq);
+            player = next;
+        }
+        if (Bitboard.legalMoves(player, opponent) == 0) {
+            long t = player;
+            player = opponent;
+            opponent = t;
+        }
+        System.out.println(Bitboard.toString(player, opponent) + "（X 為行棋方）");
+
+        long start = System.nanoTime();
+        PositionIndex.Stats stats = index.lookup(player, opponent);
+        int[] games = index.games(player, opponent, options.getInt("--games", 10));
+        double millis = (System.nanoTime() - start) / 1e6;
+        if (stats == null) {
+            System.out.printf(Locale.ROOT, "沒有對局經過這個局面（資料庫共 %d 局，查詢 %.3f ms）%n", index.gameCount(), millis);
+            return;
+        }
+        System.out.printf(Locale.ROOT, "%s（查詢 %.3f ms）%n", describe(stats), millis);
+
+        System.out.println("下一步（行棋方角度）：");
+        long legal = Bitboard.legalMoves(player, opponent);
+        while (legal != 0) {
+            int sq = Long.numberOfTrailingZeros(legal);
+            legal &= legal - 1;
+            PositionIndex.Stats child = index.lookupMove(player, opponent, sq);
+            if (child != null) {
+                System.out.printf(Locale.ROOT, "  %s  %s%n", Bitboard.squareName(sq), describe(child));
+            }
+        }
+        System.out.println("對局：");
+        for (int game : games) {
+            System.out.printf(Locale.ROOT, "  #%d 黑 %+d  %s%n", game, index.gameResult(game), index.gameTranscript(game));
+        }
+    }
+
+    private static String describe(PositionIndex.Stats stats) {
+        return String.format(Locale.ROOT, "%d 局，行棋方勝 %d、和 %d、負 %d（得分率 %.1f%%）",
+                stats.getGames(), stats.getWins(), stats.getDraws(), stats.getLosses(), stats.getScore() * 100);
+    }
+}
@@ -0,0 +1,393 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.GameClock;
+import com.boardgames.common.Options;
+import com.boardgames.common.TimeBudget;
+import com.boardgames.common.TimeControl;
+import com.boardgames.common.TimeManager;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ProbCutParameters;
+import com.boardgames.reversi.ReversiAIPlayer;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-ProbCut 參數的離線擬合與效果比較工具。
+ *
+ * <pre>
+ * fit     以自我對弈產生局面，對每組（深層深度, 淺層深度, 階段）做線性回歸，寫出參數檔
+ *         java -cp bin com.boardgames.reversi.tools.ProbCutFitter fit --games 200 --max-depth 8 --out data/reversi.probcut
+ * compare 比較開關 ProbCut 時的 time-to-depth，並以固定深度互相對戰量測棋力
+ *         java -cp bin com.boardgames.reversi.tools.ProbCutFitter compare --positions 50 --depth 8 --games 20
+ *         加上 --time（例如 "10+0.1"，格式見 TimeControl.parse）時，對戰改為在對局時鐘下比較，
+ *         每步的思考時間由 TimeManager 配置，超時判負
+ * </pre>
+ */
+public class ProbCutFitter {
+
+    private static final int MIN_SAMPLES = 30;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Options options = new Options(args);
+        switch (args[0]) {
+            case "fit":
+                fit(options);
+                break;
+            case "compare":
+                compare(options);
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法: ProbCutFitter fit [--games N] [--max-depth D] [--threads T] [--seed S] [--out 檔案]");
+        System.out.println("      ProbCutFitter compare [--positions N] [--depth D] [--games G] [--seed S] [--params 檔案] [--time 規則]");
+    }
+
+    // --- 擬合 ---
+
+    private static void fit(Options options) throws Exception {
+        int games = options.getInt("--games", 200);
+        int maxDepth = options.getInt("--max-depth", 8);
+        int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+        long seed = options.getLong("--seed", 1);
+        File out = new File(options.get("--out", ProbCutParameters.DEFAULT_PATH));
+
+        List<long[]> positions = generatePositions(games, maxDepth, new Random(seed));
+        System.out.printf("產生 %d 個局面，以 %d 條執行緒計算深度 1..%d 的搜尋值%n", positions.size(), threads, maxDepth);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Regression[][][]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            futures.add(pool.submit(() -> collect(positions, first, threads, maxDepth)));
+        }
+        Regression[][][] total = newRegressions(maxDepth);
+        for (Future<Regression[][][]> future : futures) {
+            Regression[][][] part = future.get();
+            for (int d = 0; d <= maxDepth; d++) {
+                for (int s = 0; s < d; s++) {
+                    for (int stage = 0; stage < ReversiEvaluator.STAGES; stage++) {
+                        total[d][s][stage].merge(part[d][s][stage]);
+                    }
+                }
+            }
+        }
+        pool.shutdown();
+
+        ProbCutParameters params = new ProbCutParameters();
+        System.out.println("depth shallow stage     n        a         b     sigma");
+        for (int d = 3; d <= maxDepth; d++) {
+            for (int s : shallowDepths(d)) {
+                for (int stage = 0; stage < ReversiEvaluator.STAGES; stage++) {
+                    Regression r = total[d][s][stage];
+                    if (r.n < MIN_SAMPLES) {
+                        continue;
+                    }
+                    params.put(d, s, stage, r.slope(), r.intercept(), r.sigma());
+                    System.out.printf("%5d %7d %5d %5d %8.4f %9.2f %9.2f%n", d, s, stage, r.n, r.slope(), r.intercept(), r.sigma());
+                }
+            }
+        }
+        params.save(out);
+        System.out.printf("完成，耗時 %.1f 秒，參數已寫入 %s%n", (System.nanoTime() - start) / 1e9, out);
+    }
+
+    /**
+     * Multi-ProbCut 的淺層深度：與深層深度同奇偶的約一半深度，以及再淺兩層的便宜檢查。
+     */
+    static int[] shallowDepths(int depth) {
+        int s = depth / 2;
+        if ((s & 1) != (depth & 1)) {
+            s--;
+        }
+        s = Math.max(1, s);
+        return s > 2 ? new int[]{s - 2, s} : new int[]{s};
+    }
+
+    private static Regression[][][] collect(List<long[]> positions, int first, int step, int maxDepth) {
+        ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 18);
+        search.setProbCutEnabled(false); // 參數必須以完整寬度搜尋的結果擬合
+        Regression[][][] regressions = newRegressions(maxDepth);
+        int[] values = new int[maxDepth + 1];
+        for (int i = first; i < positions.size(); i += step) {
+            long player = positions.get(i)[0];
+            long opponent = positions.get(i)[1];
+            int stage = ReversiEvaluator.stage(player, opponent);
+            search.prepare();
+            for (int d = 1; d <= maxDepth; d++) {
+                values[d] = search.value(player, opponent, d);
+            }
+            for (int d = 3; d <= maxDepth; d++) {
+                for (int s : shallowDepths(d)) {
+                    regressions[d][s][stage].add(values[s], values[d]);
+                }
+            }
+        }
+        return regressions;
+    }
+
+    private static Regression[][][] newRegressions(int maxDepth) {
+        Regression[][][] regressions = new Regression[maxDepth + 1][][];
+        for (int d = 0; d <= maxDepth; d++) {
+            regressions[d] = new Regression[d][ReversiEvaluator.STAGES];
+            for (int s = 0; s < d; s++) {
+                for (int stage = 0; stage < ReversiEvaluator.STAGES; stage++) {
+                    regressions[d][s][stage] = new Regression();
+                }
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * 以隨機開局加上淺層搜尋的自我對弈產生中盤局面（排除深層搜尋就會解到終局的局面）。
+     */
+    static List<long[]> generatePositions(int games, int maxDepth, Random random) {
+        ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 16);
+        search.setProbCutEnabled(false);
+        List<long[]> positions = new ArrayList<>();
+        for (int g = 0; g < games; g++) {
+            long player = Bitboard.INITIAL_BLACK;
+            long opponent = Bitboard.INITIAL_WHITE;
+            int randomPlies = 4 + random.nextInt(8);
+            for (int ply = 0; ; ply++) {
+                long moves = Bitboard.legalMoves(player, opponent);
+                if (moves == 0) {
+                    if (Bitboard.legalMoves(opponent, player) == 0) {
+                        break;
+                    }
+                    long tmp = player;
+                    player = opponent;
+                    opponent = tmp;
+                    continue;
+                }
+                int empties = Bitboard.SQUARES - Long.bitCount(player | opponent);
+                if (ply >= randomPlies && empties > maxDepth) {
+                    positions.add(new long[]{player, opponent});
+                }
+                int sq;
+                if (ply < randomPlies || random.nextInt(8) == 0) {
+                    sq = randomMove(moves, random);
+                } else {
+                    sq = search.search(player, opponent, 2).bestMove;
+                }
+                long flipped = Bitboard.flips(player, opponent, sq);
+                long next = opponent & ~flipped;
+                opponent = player | flipped | (1L << sq);
+                player = next;
+            }
+        }
+        return positions;
+    }
+
+    private static int randomMove(long moves, Random random) {
+        int k = random.nextInt(Long.bitCount(moves));
+        for (int i = 0; i < k; i++) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    // --- 比較 ---
+
+    private static void compare(Options options) throws Exception {
+        int positionCount = options.getInt("--positions", 50);
+        int depth = options.getInt("--depth", 8);
+        int games = options.getInt("--games", 20);
+        long seed = options.getLong("--seed", 7);
+        ProbCutParameters params = options.has("--params")
+                ? ProbCutParameters.load(new File(options.get("--params", null)))
+                : ProbCutParameters.getDefault();
+        if (params.isEmpty()) {
+            System.out.println("警告：沒有 ProbCut 參數（請先執行 fit），兩種設定的結果會相同");
+        }
+
+        Random random = new Random(seed);
+        List<long[]> positions = generatePositions(Math.max(1, positionCount / 20 + 1), depth, random);
+        while (positions.size() > positionCount) {
+            positions.remove(random.nextInt(positions.size()));
+        }
+
+        System.out.printf("Time-to-depth（深度 %d，%d 個局面）%n", depth, positions.size());
+        for (boolean enabled : new boolean[]{false, true}) {
+            long nodes = 0;
+            long nanos = 0;
+            for (long[] position : positions) {
+                ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 18);
+                search.setProbCutParameters(params);
+                search.setProbCutEnabled(enabled);
+                SearchResult result = search.search(position[0], position[1], depth);
+                nodes += result.nodes;
+                nanos += result.nanos;
+            }
+            System.out.printf("  ProbCut %-3s: 平均 %.1f ms，平均 %d 節點%n", enabled ? "開" : "關",
+                    nanos / 1e6 / positions.size(), nodes / positions.size());
+        }
+
+        TimeControl control = TimeControl.parse(options.get("--time", "none"));
+        if (control.isUnlimited()) {
+            System.out.printf("對戰（深度 %d，%d 組開局 x 2 色）%n", depth, games);
+        } else {
+            System.out.printf("對戰（%s，%d 組開局 x 2 色）%n", control, games);
+        }
+        int wins = 0;
+        int draws = 0;
+        int losses = 0;
+        long discs = 0;
+        for (int g = 0; g < games; g++) {
+            long[] opening = randomOpening(random, 6);
+            for (int color = 0; color < 2; color++) {
+                int result = playMatch(opening, depth, control, params, color == 0);
+                discs += result;
+                if (result > 0) {
+                    wins++;
+                } else if (result == 0) {
+                    draws++;
+                } else {
+                    losses++;
+                }
+            }
+        }
+        System.out.printf("  ProbCut 開 vs 關：%d 勝 %d 和 %d 敗，平均子數差 %+.2f%n",
+                wins, draws, losses, discs / (double) (2 * games));
+    }
+
+    private static long[] randomOpening(Random random, int plies) {
+        long player = Bitboard.INITIAL_BLACK;
+        long opponent = Bitboard.INITIAL_WHITE;
+        for (int ply = 0; ply < plies; ply++) {
+            long moves = Bitboard.legalMoves(player, opponent);
+            int sq = randomMove(moves, random);
+            long flipped = Bitboard.flips(player, opponent, sq);
+            long next = opponent & ~flipped;
+            opponent = player | flipped | (1L << sq);
+            player = next;
+        }
+        return new long[]{player, opponent};
+    }
+
+    /**
+     * 以固定深度（或在對局時鐘下）對戰一局，回傳開啟 ProbCut 一方的終局子數差；超時的一方以 -64 計。
+     */
+    private static int playMatch(long[] opening, int depth, TimeControl control, ProbCutParameters params,
+                                 boolean selectiveMovesFirst) {
+        ReversiSearch[] engines = new ReversiSearch[2];
+        for (int i = 0; i < 2; i++) {
+            engines[i] = new ReversiSearch(ReversiEvaluator.getDefault(), 18);
+            engines[i].setProbCutParameters(params);
+            engines[i].setProbCutEnabled(i == 0);
+        }
+        long player = opening[0];
+        long opponent = opening[1];
+        int side = selectiveMovesFirst ? 0 : 1; // 目前行棋的是哪個引擎
+        // 時鐘以引擎編號區分雙方：'0' 是開啟 ProbCut 的一方
+        GameClock clock = control.isUnlimited() ? null : new GameClock(control, '0', '1');
+        if (clock != null) {
+            clock.start(sideName(side));
+        }
+        while (true) {
+            long moves = Bitboard.legalMoves(player, opponent);
+            if (moves == 0) {
+                if (Bitboard.legalMoves(opponent, player) == 0) {
+                    int score = Bitboard.finalScore(player, opponent);
+                    return side == 0 ? score : -score;
+                }
+            } else {
+                int sq;
+                if (clock != null) {
+                    int empties = Bitboard.SQUARES - Long.bitCount(player | opponent);
+                    TimeBudget budget = TimeManager.allocate(control, clock.remainingMillis(sideName(side)),
+                            Math.max(1, (empties + 1) / 2), 1.0);
+                    sq = engines[side].search(player, opponent, ReversiAIPlayer.TIMED_MAX_DEPTH, budget).bestMove;
+                    if (clock.isFlagged(sideName(side))) {
+                        return side == 0 ? -Bitboard.SQUARES : Bitboard.SQUARES;
+                    }
+                } else {
+                    sq = engines[side].search(player, opponent, depth).bestMove;
+                }
+                long flipped = Bitboard.flips(player, opponent, sq);
+                long next = opponent & ~flipped;
+                opponent = player | flipped | (1L << sq);
+                player = next;
+            }
+            if (moves == 0) {
+                long tmp = player;
+                player = opponent;
+                opponent = tmp;
+            }
+            side ^= 1;
+            if (clock != null) {
+                clock.switchTo(sideName(side)); // 虛手也切換，虛手的一方不耗時
+            }
+        }
+    }
+
+    private static char sideName(int side) {
+        return (char) ('0' + side);
+    }
+
+    /**
+     * 簡單線性回歸 y = a x + b 的累加器。
+     */
+    static final class Regression {
+        long n;
+        double sumX;
+        double sumY;
+        double sumXX;
+        double sumXY;
+        double sumYY;
+
+        void add(double x, double y) {
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            sumYY += y * y;
+        }
+
+        void merge(Regression other) {
+            n += other.n;
+            sumX += other.sumX;
+            sumY += other.sumY;
+            sumXX += other.sumXX;
+            sumXY += other.sumXY;
+            sumYY += other.sumYY;
+        }
+
+        double slope() {
+            double sxx = sumXX - sumX * sumX / n;
+            double sxy = sumXY - sumX * sumY / n;
+            return sxx == 0 ? 1.0 : sxy / sxx;
+        }
+
+        double intercept() {
+            return (sumY - slope() * sumX) / n;
+        }
+
+        double sigma() {
+            double a = slope();
+            double b = intercept();
+            // 殘差平方和 = Σ(y - a x - b)^2 展開後以累加值計算
+            double ss = sumYY - 2 * a * sumXY - 2 * b * sumY + a * a * sumXX + 2 * a * b * sumX + n * b * b;
+            return Math.sqrt(Math.max(0, ss) / Math.max(1, n - 2));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchResult;
+import com.boardgames.reversi.SearchTrace;
+import com.boardgames.reversi.SearchTraceReader;
+import com.boardgames.reversi.dataset.PositionIndexBuilder;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * 搜尋樹追蹤檔的工具。
+ *
+ * <pre>
+ * record 從 f5d6... 之後的局面搜尋一次並寫入追蹤檔（需要 -Dboardgames.reversi.trace=true）
+ *        java -Dboardgames.reversi.trace=true -cp bin com.boardgames.reversi.tools.SearchTraceTool record --moves f5d6c3 --depth 8 --out trace.rst
+ * print  以文字列出某個節點（預設為最外層）往下幾層，每個節點最多列出 --limit 個子節點
+ *        java -cp bin com.boardgames.reversi.tools.SearchTraceTool print --trace trace.rst --node 12345 --levels 2
+ * view   以視窗檢視，節點在展開時才讀取
+ *        java -cp bin com.boardgames.reversi.tools.SearchTraceTool view --trace trace.rst
+ * </pre>
+ */
+public class SearchTraceTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        Options options = new Options(args);
+        switch (args[0]) {
+            case "record":
+                record(options);
+                break;
+            case "print":
+                print(options);
+                break;
+            case "view":
+                view(options);
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法: SearchTraceTool record [--moves f5d6...] [--depth D] [--out 檔案] [--max-nodes N] [--max-ply P]");
+        System.out.println("      SearchTraceTool print --trace 檔案 [--node 編號] [--levels L] [--limit N]");
+        System.out.println("      SearchTraceTool view --trace 檔案");
+    }
+
+    private static void record(Options options) throws IOException {
+        if (!SearchTrace.ENABLED) {
+            System.out.println("請加上 -Dboardgames.reversi.trace=true 執行");
+            System.exit(1);
+        }
+        int[] moves = PositionIndexBuilder.parseMoves(options.get("--moves", ""));
+        if (moves == null) {
+            System.out.println("棋譜格式錯誤: " + options.get("--moves", ""));
+            return;
+        }
+        long player = Bitboard.INITIAL_BLACK;
+        long opponent = Bitboard.INITIAL_WHITE;
+        for (int sq : moves) {
+            if (Bitboard.legalMoves(player, opponent) == 0) {
+                long t = player;
+                player = opponent;
+                opponent = t;
+            }
+            if ((Bitboard.legalMoves(player, opponent) & (1L << sq)) == 0) {
+                System.out.println("不合法的步: " + Bitboard.squareName(sq));
+                return;
+            }
+            long flips = Bitboard.flips(player, opponent, sq);
+            long next = opponent & ~flips;
+            opponent = player | flips | (1L << sq);
+            player = next;
+        }
+        if (Bitboard.legalMoves(player, opponent) == 0) {
+            long t = player;
+            player = opponent;
+            opponent = t;
+        }
+
+        File out = new File(options.get("--out", "trace.rst"));
+        ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 20);
+        SearchResult result;
+        SearchTrace trace = new SearchTrace(out, options.getLong("--max-nodes", 2_000_000),
+                options.getInt("--max-ply", Bitboard.SQUARES));
+        try {
+            search.setTrace(trace);
+            result = search.search(player, opponent, options.getInt("--depth", 8));
+        } finally {
+            trace.close();
+        }
+        System.out.println(result);
+        System.out.printf(Locale.ROOT, "%,d 個節點寫入 %s（%,d bytes），%,d 個超出限制未記錄%n",
+                trace.getRecords(), out, out.length(), trace.getDropped());
+    }
+
+    private static void print(Options options) throws IOException {
+        SearchTraceReader reader = new SearchTraceReader(new File(options.get("--trace", "trace.rst")));
+        int levels = options.getInt("--levels", 1);
+        int limit = options.getInt("--limit", 40);
+        System.out.println(Bitboard.toString(reader.getPlayer(), reader.getOpponent()) + "（X 為行棋方）");
+        System.out.printf(Locale.ROOT, "%,d 個節點，%,d 個超出限制未記錄%n", reader.size(), reader.getDropped());
+        if (options.has("--node")) {
+            print(reader, options.getInt("--node", 0), 0, levels, limit);
+        } else {
+            for (int root : reader.roots()) {
+                print(reader, root, 0, levels - 1, limit);
+            }
+        }
+    }
+
+    private static void print(SearchTraceReader reader, int node, int indent, int levels, int limit) {
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < indent; i++) {
+            prefix.append("  ");
+        }
+        System.out.println(prefix + "#" + node + " " + SearchTraceViewer.describe(reader, node));
+        if (levels <= 0 || reader.subtreeSize(node) == 1) {
+            return;
+        }
+        int[] children = reader.children(node);
+        for (int i = 0; i < Math.min(limit, children.length); i++) {
+            print(reader, children[i], indent + 1, levels - 1, limit);
+        }
+        if (children.length > limit) {
+            System.out.println(prefix + "  ...（另外 " + (children.length - limit) + " 個）");
+        }
+    }
+
+    private static void view(Options options) throws IOException {
+        File file = new File(options.get("--trace", "trace.rst"));
+        SearchTraceReader reader = new SearchTraceReader(file);
+        SwingUtilities.invokeLater(() -> new SearchTraceViewer(reader, file.getName()).setVisible(true));
+    }
+}
@@ -0,0 +1,209 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchTrace;
+import com.boardgames.reversi.SearchTraceReader;
+
+import javax.swing.*;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.util.Locale;
+
+/**
+ * 搜尋追蹤檔的檢視視窗：左邊是搜尋樹，右邊是選取節點的資料與局面。
+ * 樹狀模型直接讀取 SearchTraceReader，節點只在展開時才讀取子節點，已展開的節點把子節點編號快取起來。
+ */
+public class SearchTraceViewer extends JFrame {
+
+    private final SearchTraceReader reader;
+    private final JTextArea details = new JTextArea();
+
+    // 樹上的一個節點；children 第一次被問到時才讀取
+    private final class Node {
+        final int index;
+        private Node[] children;
+
+        Node(int index) {
+            this.index = index;
+        }
+
+        Node[] children() {
+            if (children == null) {
+                int[] indices = index < 0 ? reader.roots() : reader.children(index);
+                children = new Node[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    children[i] = new Node(indices[i]);
+                }
+            }
+            return children;
+        }
+
+        boolean isLeaf() {
+            return index >= 0 && reader.subtreeSize(index) == 1;
+        }
+
+        @Override
+        public String toString() {
+            return index < 0 ? String.format("搜尋（%,d 個節點）", reader.size()) : describe(reader, index);
+        }
+    }
+
+    private final class LazyTreeModel implements TreeModel {
+        private final Node root = new Node(-1);
+
+        @Override
+        public Object getRoot() {
+            return root;
+        }
+
+        @Override
+        public Object getChild(Object parent, int index) {
+            return ((Node) parent).children()[index];
+        }
+
+        @Override
+        public int getChildCount(Object parent) {
+            return ((Node) parent).isLeaf() ? 0 : ((Node) parent).children().length;
+        }
+
+        @Override
+        public boolean isLeaf(Object node) {
+            return ((Node) node).isLeaf();
+        }
+
+        @Override
+        public int getIndexOfChild(Object parent, Object child) {
+            Node[] children = ((Node) parent).children();
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == child) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void valueForPathChanged(TreePath path, Object newValue) {
+        }
+
+        @Override
+        public void addTreeModelListener(TreeModelListener l) {
+        }
+
+        @Override
+        public void removeTreeModelListener(TreeModelListener l) {
+        }
+    }
+
+    public SearchTraceViewer(SearchTraceReader reader, String title) {
+        this.reader = reader;
+        setTitle("搜尋樹 - " + title);
+        setSize(1000, 700);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        JTree tree = new JTree(new LazyTreeModel());
+        tree.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        tree.addTreeSelectionListener(e -> showDetails(e.getNewLeadSelectionPath()));
+        details.setEditable(false);
+        details.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(tree), new JScrollPane(details));
+        split.setResizeWeight(0.65);
+        add(split);
+        showDetails(null);
+    }
+
+    /**
+     * 一行的節點摘要：走法、層數、剩餘深度、視窗、分數、類型與子樹大小。
+     */
+    public static String describe(SearchTraceReader reader, int node) {
+        return String.format(Locale.ROOT, "%-5s 層%2d 深%2d [%s, %s] %s %s%s（%,d）", moveName(reader.move(node)),
+                reader.ply(node), reader.depth(node), score(reader.alpha(node)), score(reader.beta(node)),
+                score(reader.score(node)), SearchTrace.typeName(reader.type(node)),
+                reader.isTruncated(node) ? " 有省略" : "", reader.subtreeSize(node));
+    }
+
+    static String moveName(int move) {
+        switch (move) {
+            case SearchTrace.MOVE_ROOT:
+                return "根";
+            case SearchTrace.MOVE_PROBE:
+                return "檢查";
+            default:
+                return Bitboard.squareName(move);
+        }
+    }
+
+    static String score(int score) {
+        if (score >= ReversiSearch.INFINITY) {
+            return "+inf";
+        } else if (score <= -ReversiSearch.INFINITY) {
+            return "-inf";
+        }
+        return String.format(Locale.ROOT, "%+.2f", (double) score / ReversiEvaluator.SCALE);
+    }
+
+    // 沿著選取的路徑從起始局面重下一遍，得到節點的局面（行棋方以 X 表示）
+    private void showDetails(TreePath path) {
+        long player = reader.getPlayer();
+        long opponent = reader.getOpponent();
+        StringBuilder line = new StringBuilder();
+        Node node = null;
+        if (path != null) {
+            for (Object element : path.getPath()) {
+                node = (Node) element;
+                if (node.index < 0) {
+                    continue;
+                }
+                int move = reader.move(node.index);
+                if (move == SearchTrace.MOVE_PASS) {
+                    long t = player;
+                    player = opponent;
+                    opponent = t;
+                    line.append(" pass");
+                } else if (move >= 0) {
+                    long flips = Bitboard.flips(player, opponent, move);
+                    long next = opponent & ~flips;
+                    opponent = player | flips | (1L << move);
+                    player = next;
+                    line.append(' ').append(Bitboard.squareName(move));
+                }
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        if (node == null || node.index < 0) {
+            text.append(String.format("%,d 個節點", reader.size()));
+            if (reader.getDropped() > 0) {
+                text.append(String.format("，%,d 個超出限制未記錄", reader.getDropped()));
+            }
+            text.append("\n\n");
+        } else {
+            int i = node.index;
+            text.append("路徑:").append(line.length() == 0 ? " （根）" : line).append('\n');
+            text.append("走法: ").append(moveName(reader.move(i))).append('\n');
+            text.append("層數: ").append(reader.ply(i)).append("　剩餘深度: ").append(reader.depth(i)).append('\n');
+            text.append("視窗: [").append(score(reader.alpha(i))).append(", ").append(score(reader.beta(i))).append("]\n");
+            text.append("分數: ").append(score(reader.score(i))).append("（行棋方角度）\n");
+            text.append("類型: ").append(SearchTrace.typeName(reader.type(i)))
+                    .append(reader.isTruncated(i) ? "（部分子節點超出限制未記錄）" : "").append('\n');
+            text.append(String.format("子樹: %,d 個節點%n%n", reader.subtreeSize(i)));
+        }
+        String board = Bitboard.toString(player, opponent);
+        text.append("  a b c d e f g h\n");
+        for (int row = 0; row < Bitboard.SIZE; row++) {
+            text.append(row + 1);
+            for (int col = 0; col < Bitboard.SIZE; col++) {
+                text.append(' ').append(board.charAt(row * Bitboard.SIZE + col));
+            }
+            text.append('\n');
+        }
+        text.append("（X 為行棋方）");
+        details.setText(text.toString());
+        details.setCaretPosition(0);
+    }
+}
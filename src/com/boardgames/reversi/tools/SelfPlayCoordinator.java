@@ -0,0 +1,501 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.BoardSymmetry;
+import com.boardgames.common.ConcurrentLongSet;
+import com.boardgames.common.Options;
+import com.boardgames.reversi.dataset.PositionDataset;
+import com.boardgames.reversi.dataset.PositionShardReader;
+import com.boardgames.reversi.dataset.PositionShardWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分散式自我對弈的協調程序：把對局切成固定種子的批次，透過本機 TCP 分給多個工作程序 (SelfPlayWorker) JVM，
+ * 收到的局面去重後寫進資料集分片。每個 JVM 有自己的堆積與 GC，大量對弈時不會互相拖累。
+ *
+ * 可靠性：
+ * <ul>
+ * <li>批次至少完成一次：工作程序斷線、當掉或超過租約時間沒有回應時，它手上的批次會重新排隊，
+ *     協調程序自動啟動的工作程序結束時也會重新啟動（有次數上限）。</li>
+ * <li>可接續：每個批次的局面先寫入分片並落盤 (PositionShardWriter.sync)，才在進度檔記錄完成並落盤。
+ *     協調程序中斷後以同一個輸出目錄再執行一次，就只會分派尚未完成的批次。</li>
+ * <li>重做的批次用相同種子下出相同的局面，重新啟動時從既有分片重建去重集合，因此重複的局面不會寫兩次。</li>
+ * </ul>
+ *
+ * <pre>
+ * java -cp bin com.boardgames.reversi.tools.SelfPlayCoordinator --games 100000 --workers 8 --out data/positions
+ * </pre>
+ */
+public class SelfPlayCoordinator {
+
+    /** 進度檔的檔名，放在輸出目錄。 */
+    public static final String PROGRESS_FILE = "selfplay.progress";
+
+    private static final int MAX_RESTARTS_PER_WORKER = 5;
+
+    private final int games;
+    private final int batchGames;
+    private final int depth;
+    private final int randomPlies;
+    private final double epsilon;
+    private final long seed;
+    private final int shardSize;
+    private final File outputDirectory;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    // 以下欄位由 lock 保護
+    private final Object lock = new Object();
+    private final ArrayDeque<Long> pending = new ArrayDeque<>();
+    private final BitSet completed = new BitSet();
+    private int batchCount;
+    private int completedCount;
+    private int requeued;
+    private int liveWorkers;
+    private boolean shuttingDown;
+
+    // 以下欄位只在 commit 內（持有 writerLock）使用
+    private final Object writerLock = new Object();
+    private ConcurrentLongSet seen;
+    private PositionShardWriter writer;
+    private int shardIndex;
+    private FileChannel progress;
+    private long positionsWritten;
+    private long duplicates;
+
+    private int leaseMillis = 10 * 60 * 1000;
+
+    public SelfPlayCoordinator(int games, int batchGames, int depth, int randomPlies, double epsilon, long seed,
+                               int shardSize, File outputDirectory) {
+        this.games = games;
+        this.batchGames = batchGames;
+        this.depth = depth;
+        this.randomPlies = randomPlies;
+        this.epsilon = epsilon;
+        this.seed = seed;
+        this.shardSize = shardSize;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        File out = new File(options.get("--out", "data/positions"));
+        int workers = options.getInt("--workers", Runtime.getRuntime().availableProcessors());
+
+        SelfPlayCoordinator coordinator = resume(out);
+        if (coordinator == null) {
+            coordinator = new SelfPlayCoordinator(
+                    options.getInt("--games", 1000),
+                    options.getInt("--batch", 20),
+                    options.getInt("--depth", 4),
+                    options.getInt("--random-plies", 10),
+                    options.getDouble("--epsilon", 0.05),
+                    options.getLong("--seed", System.nanoTime()),
+                    options.getInt("--shard-size", 1_000_000),
+                    out);
+        } else {
+            System.out.println("找到進度檔，沿用上次的設定接續執行: " + coordinator.describe());
+        }
+        coordinator.leaseMillis = options.getInt("--lease-seconds", 600) * 1000;
+
+        List<String> jvmArgs = new ArrayList<>();
+        String extra = options.get("--worker-jvm-args", "");
+        if (!extra.trim().isEmpty()) {
+            jvmArgs.addAll(Arrays.asList(extra.trim().split("\\s+")));
+        }
+        boolean spawn = !options.has("--no-spawn");
+        coordinator.run(options.getInt("--port", 0), spawn ? workers : 0, jvmArgs);
+    }
+
+    /**
+     * 從輸出目錄的進度檔讀回上次的設定；沒有進度檔時回傳 null。
+     */
+    public static SelfPlayCoordinator resume(File outputDirectory) throws IOException {
+        File file = new File(outputDirectory, PROGRESS_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+        String header;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            header = reader.readLine();
+        }
+        if (header == null || !header.startsWith("#")) {
+            throw new IOException("進度檔格式錯誤: " + file);
+        }
+        Options saved = new Options(header.substring(1).trim().split("\\s+"));
+        return new SelfPlayCoordinator(saved.getInt("--games", 0), saved.getInt("--batch", 1),
+                saved.getInt("--depth", 4), saved.getInt("--random-plies", 10), saved.getDouble("--epsilon", 0.05),
+                saved.getLong("--seed", 0), saved.getInt("--shard-size", 1_000_000), outputDirectory);
+    }
+
+    private String describe() {
+        return String.format(Locale.ROOT, "--games %d --batch %d --depth %d --random-plies %d --epsilon %s --seed %d --shard-size %d",
+                games, batchGames, depth, randomPlies, epsilon, seed, shardSize);
+    }
+
+    /**
+     * 執行到所有批次完成為止。
+     *
+     * @param port 監聽的本機連接埠，0 表示自動選擇
+     * @param workers 要自動啟動的工作程序數；0 表示只等待手動啟動的工作程序連線
+     * @param workerJvmArgs 傳給工作程序 JVM 的額外參數（例如 -Xmx512m）
+     */
+    public void run(int port, int workers, List<String> workerJvmArgs) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        prepare();
+        int remaining = batchCount - completedCount;
+        System.out.printf("自我對弈 %d 局，每批 %d 局，共 %d 批（尚餘 %d 批），輸出到 %s%n",
+                games, batchGames, batchCount, remaining, outputDirectory);
+
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("協調程序監聽 " + server.getLocalSocketAddress()
+                    + "，可用 SelfPlayWorker --port " + server.getLocalPort() + " 加入更多工作程序");
+            Thread acceptor = new Thread(() -> acceptLoop(server), "SelfPlay-Accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            List<WorkerProcess> processes = new ArrayList<>();
+            synchronized (lock) {
+                liveWorkers = workers;
+            }
+            for (int i = 0; i < workers && remaining > 0; i++) {
+                WorkerProcess process = new WorkerProcess(i, server.getLocalPort(), workerJvmArgs);
+                processes.add(process);
+                process.start();
+            }
+
+            synchronized (lock) {
+                while (completedCount < batchCount && (workers == 0 || liveWorkers > 0)) {
+                    lock.wait(1000);
+                }
+                shuttingDown = true;
+                lock.notifyAll();
+            }
+            for (WorkerProcess process : processes) {
+                process.awaitExit(5000);
+            }
+        } finally {
+            closeOutput();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "寫入 %d 個局面（略過 %d 個重複），重新分派 %d 批，耗時 %.1f 秒，%.0f 局面/秒%n",
+                positionsWritten, duplicates, requeued, seconds, positionsWritten / seconds);
+        if (completedCount < batchCount) {
+            throw new IOException("工作程序都已結束，尚有 " + (batchCount - completedCount)
+                    + " 批未完成；以相同的 --out 再執行一次即可接續");
+        }
+    }
+
+    /**
+     * 建立或讀回進度檔、從既有分片重建去重集合，並把尚未完成的批次放進佇列。
+     */
+    private void prepare() throws IOException {
+        outputDirectory.mkdirs();
+        batchCount = (games + batchGames - 1) / batchGames;
+        File file = new File(outputDirectory, PROGRESS_FILE);
+        if (file.isFile()) {
+            // 除了標頭之外每行是 "done 批次編號 局面數"；最後一行可能在寫到一半時中斷，無法解析就忽略
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 3 && parts[0].equals("done")) {
+                    try {
+                        int id = Integer.parseInt(parts[1]);
+                        if (id >= 0 && id < batchCount && !completed.get(id)) {
+                            completed.set(id);
+                            completedCount++;
+                        }
+                    } catch (NumberFormatException e) {
+                        // 寫到一半的行
+                    }
+                }
+            }
+        }
+        progress = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (progress.size() == 0) {
+            appendProgress("# " + describe());
+        }
+
+        seen = new ConcurrentLongSet(games * 50L);
+        long existing = 0;
+        for (File shard : PositionDataset.shards(outputDirectory)) {
+            try (PositionShardReader reader = new PositionShardReader(shard)) {
+                while (reader.next()) {
+                    boolean black = reader.sideToMove() == PositionDataset.BLACK_TO_MOVE;
+                    seen.add(BoardSymmetry.canonicalHash(black ? reader.black() : reader.white(),
+                            black ? reader.white() : reader.black()));
+                    existing++;
+                }
+            }
+        }
+        if (existing > 0) {
+            System.out.println("既有分片中已有 " + existing + " 個局面");
+        }
+
+        for (int id = 0; id < batchCount; id++) {
+            if (!completed.get(id)) {
+                pending.add((long) id);
+            }
+        }
+    }
+
+    private void acceptLoop(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "SelfPlay-Conn-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return; // 伺服器已關閉
+            }
+        }
+    }
+
+    /**
+     * 服務一個工作程序的連線。連線中斷或逾時時，把它手上的批次放回佇列。
+     */
+    private void serve(Socket socket) {
+        Long batch = null;
+        String name = String.valueOf(socket.getRemoteSocketAddress());
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            s.setSoTimeout(leaseMillis);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            name = SelfPlayProtocol.readHello(in);
+            while ((batch = takeBatch()) != null) {
+                long id = batch;
+                SelfPlayProtocol.writeBatch(out, new SelfPlayProtocol.Batch(id, gamesIn(id), seed * 31 + id,
+                        depth, randomPlies, epsilon));
+                if (in.readByte() != SelfPlayProtocol.RESULT || in.readLong() != id) {
+                    throw new IOException("預期批次 " + id + " 的結果");
+                }
+                int count = in.readInt();
+                long[] blacks = new long[count];
+                long[] whites = new long[count];
+                byte[] sides = new byte[count];
+                byte[] scores = new byte[count];
+                for (int i = 0; i < count; i++) {
+                    blacks[i] = in.readLong();
+                    whites[i] = in.readLong();
+                    sides[i] = in.readByte();
+                    scores[i] = in.readByte();
+                }
+                commit(id, blacks, whites, sides, scores, count);
+                batch = null;
+            }
+            SelfPlayProtocol.writeShutdown(out);
+        } catch (EOFException | SocketException e) {
+            // 工作程序結束或連線被關閉，下面重新排隊
+        } catch (IOException e) {
+            System.err.println("工作程序 " + name + " 發生錯誤: " + e);
+        } finally {
+            if (batch != null) {
+                requeue(batch, name);
+            }
+        }
+    }
+
+    private int gamesIn(long id) {
+        return (int) Math.min(batchGames, games - id * batchGames);
+    }
+
+    /**
+     * 取出下一個批次；佇列暫時是空的（其他工作程序還持有批次）時等待，全部完成時回傳 null。
+     */
+    private Long takeBatch() throws IOException {
+        synchronized (lock) {
+            while (pending.isEmpty() && !shuttingDown && completedCount < batchCount) {
+                try {
+                    lock.wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("等待批次時被中斷");
+                }
+            }
+            return shuttingDown || completedCount >= batchCount ? null : pending.poll();
+        }
+    }
+
+    private void requeue(long id, String worker) {
+        synchronized (lock) {
+            if (!completed.get((int) id)) {
+                pending.addFirst(id);
+                requeued++;
+                lock.notifyAll();
+                System.err.println("批次 " + id + " 未完成（" + worker + " 中斷），重新排隊");
+            }
+        }
+    }
+
+    /**
+     * 寫入一個批次的結果：去重、寫入分片並落盤，最後才在進度檔記錄完成。
+     * 同一批次的結果可能因重新分派而收到兩次，第二次直接忽略。
+     */
+    private void commit(long id, long[] blacks, long[] whites, byte[] sides, byte[] scores, int count) throws IOException {
+        synchronized (writerLock) {
+            synchronized (lock) {
+                if (completed.get((int) id)) {
+                    return;
+                }
+            }
+            int written = 0;
+            for (int i = 0; i < count; i++) {
+                boolean black = sides[i] == PositionDataset.BLACK_TO_MOVE;
+                if (!seen.add(BoardSymmetry.canonicalHash(black ? blacks[i] : whites[i], black ? whites[i] : blacks[i]))) {
+                    duplicates++;
+                    continue;
+                }
+                if (writer == null || writer.count() >= shardSize) {
+                    if (writer != null) {
+                        writer.close();
+                    }
+                    writer = new PositionShardWriter(new File(outputDirectory,
+                            String.format("distributed-%s-%04d%s", runId, shardIndex++, PositionDataset.EXTENSION)));
+                }
+                writer.write(blacks[i], whites[i], sides[i], scores[i]);
+                written++;
+            }
+            if (writer != null) {
+                writer.sync();
+            }
+            appendProgress("done " + id + " " + written);
+            positionsWritten += written;
+        }
+        synchronized (lock) {
+            completed.set((int) id);
+            completedCount++;
+            lock.notifyAll();
+            if (completedCount % Math.max(1, batchCount / 20) == 0 || completedCount == batchCount) {
+                System.out.printf("進度 %d / %d 批%n", completedCount, batchCount);
+            }
+        }
+    }
+
+    private void appendProgress(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            progress.write(bytes);
+        }
+        progress.force(false);
+    }
+
+    private void closeOutput() throws IOException {
+        synchronized (writerLock) {
+            try {
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+            } finally {
+                if (progress != null) {
+                    progress.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 協調程序啟動的一個工作程序 JVM；意外結束時重新啟動，直到工作完成或達到重新啟動次數上限。
+     */
+    private final class WorkerProcess {
+
+        private final int index;
+        private final List<String> command = new ArrayList<>();
+        private final Thread monitor;
+        private volatile Process process;
+
+        WorkerProcess(int index, int port, List<String> jvmArgs) {
+            this.index = index;
+            command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+            command.addAll(jvmArgs);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(SelfPlayWorker.class.getName());
+            command.add("--port");
+            command.add(Integer.toString(port));
+            command.add("--name");
+            command.add("worker-" + index);
+            this.monitor = new Thread(this::superviseLoop, "SelfPlay-Supervisor-" + index);
+            monitor.setDaemon(true);
+        }
+
+        void start() {
+            monitor.start();
+        }
+
+        private void superviseLoop() {
+            try {
+                for (int attempt = 0; attempt <= MAX_RESTARTS_PER_WORKER; attempt++) {
+                    process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                    forwardOutput(process);
+                    int exit = process.waitFor();
+                    synchronized (lock) {
+                        if (shuttingDown || completedCount >= batchCount) {
+                            return;
+                        }
+                    }
+                    System.err.println("工作程序 worker-" + index + " 意外結束（結束碼 " + exit + "），重新啟動");
+                }
+                System.err.println("工作程序 worker-" + index + " 重新啟動次數已達上限");
+            } catch (IOException e) {
+                System.err.println("無法啟動工作程序 worker-" + index + ": " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                synchronized (lock) {
+                    liveWorkers--;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        private void forwardOutput(Process p) {
+            Thread pump = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        System.err.println("[worker-" + index + "] " + line);
+                    }
+                } catch (IOException e) {
+                    // 工作程序已結束
+                }
+            }, "SelfPlay-Output-" + index);
+            pump.setDaemon(true);
+            pump.start();
+        }
+
+        void awaitExit(long millis) throws InterruptedException {
+            Process p = process;
+            monitor.join(millis);
+            if (p != null && p.isAlive()) {
+                p.destroy();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.dataset.PositionDataset;
+
+import java.util.Random;
+
+/**
+ * 一局自我對弈：透過 ReversiGame 與搜尋引擎下完一局，記錄每個局面與終局子數差。
+ * 前幾手與少數比例的步隨機選擇，讓局面更多樣。
+ * 紀錄緩衝區預先配置，同一個實例可以重複對弈；不是執行緒安全的，每條執行緒各用一個。
+ */
+final class SelfPlayGame {
+
+    private final int depth;
+    private final int randomPlies;
+    private final double epsilon;
+    private final ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 16);
+    private final ReversiGame game = new ReversiGame();
+
+    // 一局最多 60 手，終局後才知道分數，因此先記在緩衝區
+    private final long[] blacks = new long[64];
+    private final long[] whites = new long[64];
+    private final int[] sides = new int[64];
+    private int plies;
+    private int finalScore;
+
+    SelfPlayGame(int depth, int randomPlies, double epsilon) {
+        this.depth = depth;
+        this.randomPlies = randomPlies;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * 下完一局。結果可透過 plies / black / white / side / finalScore 取得，直到下一次呼叫。
+     */
+    void play(Random random) {
+        game.reset();
+        plies = 0;
+        while (game.getGameState() == ReversiGame.GameState.PLAYING) {
+            char player = game.getCurrentPlayer();
+            long black = game.getBits('B');
+            long white = game.getBits('W');
+            long own = player == 'B' ? black : white;
+            long opponent = player == 'B' ? white : black;
+            blacks[plies] = black;
+            whites[plies] = white;
+            sides[plies] = player == 'B' ? PositionDataset.BLACK_TO_MOVE : PositionDataset.WHITE_TO_MOVE;
+
+            int sq;
+            long moves = Bitboard.legalMoves(own, opponent);
+            if (plies < randomPlies || random.nextDouble() < epsilon) {
+                sq = randomMove(moves, random);
+            } else {
+                sq = search.search(own, opponent, depth).bestMove;
+            }
+            game.makeMove(sq / Bitboard.SIZE, sq % Bitboard.SIZE);
+            plies++;
+        }
+        finalScore = Bitboard.finalScore(game.getBits('B'), game.getBits('W'));
+    }
+
+    int plies() {
+        return plies;
+    }
+
+    long black(int ply) {
+        return blacks[ply];
+    }
+
+    long white(int ply) {
+        return whites[ply];
+    }
+
+    int side(int ply) {
+        return sides[ply];
+    }
+
+    /** 終局子數差（黑方角度）。 */
+    int finalScore() {
+        return finalScore;
+    }
+
+    /** 行棋方的棋子。 */
+    long own(int ply) {
+        return sides[ply] == PositionDataset.BLACK_TO_MOVE ? blacks[ply] : whites[ply];
+    }
+
+    long opponent(int ply) {
+        return sides[ply] == PositionDataset.BLACK_TO_MOVE ? whites[ply] : blacks[ply];
+    }
+
+    private static int randomMove(long moves, Random random) {
+        int k = random.nextInt(Long.bitCount(moves));
+        for (int i = 0; i < k; i++) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+}
@@ -0,0 +1,96 @@
+package com.boardgames.reversi.tools;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 分散式自我對弈中協調程序與工作程序之間的訊息格式（本機 TCP，大端序）。
+ * <pre>
+ * 工作程序 → 協調程序  HELLO   int 魔術數字、int 版本、UTF 名稱
+ * 協調程序 → 工作程序  BATCH   long 批次編號、int 局數、long 種子、int 深度、int 隨機手數、double epsilon
+ *                      SHUTDOWN 沒有更多工作
+ * 工作程序 → 協調程序  RESULT  long 批次編號、int 紀錄數、每筆紀錄同 .rvp 格式（long 黑、long 白、byte 行棋方、byte 子數差）
+ * </pre>
+ * 每個工作程序同時只持有一個批次：送出 RESULT 之後協調程序才回覆下一個 BATCH。
+ */
+final class SelfPlayProtocol {
+
+    static final int MAGIC = 0x53504C59; // "SPLY"
+    static final int VERSION = 1;
+
+    static final byte HELLO = 1;
+    static final byte BATCH = 2;
+    static final byte RESULT = 3;
+    static final byte SHUTDOWN = 4;
+
+    private SelfPlayProtocol() {
+    }
+
+    /** 一個批次的工作：以固定種子對弈固定局數，重做時產生完全相同的局面。 */
+    static final class Batch {
+        final long id;
+        final int games;
+        final long seed;
+        final int depth;
+        final int randomPlies;
+        final double epsilon;
+
+        Batch(long id, int games, long seed, int depth, int randomPlies, double epsilon) {
+            this.id = id;
+            this.games = games;
+            this.seed = seed;
+            this.depth = depth;
+            this.randomPlies = randomPlies;
+            this.epsilon = epsilon;
+        }
+    }
+
+    static void writeHello(DataOutputStream out, String name) throws IOException {
+        out.writeByte(HELLO);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(name);
+        out.flush();
+    }
+
+    /**
+     * 讀取 HELLO，回傳工作程序的名稱。
+     */
+    static String readHello(DataInputStream in) throws IOException {
+        if (in.readByte() != HELLO || in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("不是相容的自我對弈工作程序");
+        }
+        return in.readUTF();
+    }
+
+    static void writeBatch(DataOutputStream out, Batch batch) throws IOException {
+        out.writeByte(BATCH);
+        out.writeLong(batch.id);
+        out.writeInt(batch.games);
+        out.writeLong(batch.seed);
+        out.writeInt(batch.depth);
+        out.writeInt(batch.randomPlies);
+        out.writeDouble(batch.epsilon);
+        out.flush();
+    }
+
+    static void writeShutdown(DataOutputStream out) throws IOException {
+        out.writeByte(SHUTDOWN);
+        out.flush();
+    }
+
+    /**
+     * 讀取下一個批次，收到 SHUTDOWN 時回傳 null。
+     */
+    static Batch readBatch(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type == SHUTDOWN) {
+            return null;
+        }
+        if (type != BATCH) {
+            throw new IOException("預期 BATCH 訊息，收到 " + type);
+        }
+        return new Batch(in.readLong(), in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readDouble());
+    }
+}
@@ -0,0 +1,90 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Random;
+
+/**
+ * 分散式自我對弈的工作程序：連上本機的 SelfPlayCoordinator，反覆領取批次、
+ * 以 SelfPlayGame 對弈後把所有局面送回，直到協調程序通知結束。
+ * 通常由協調程序自動啟動，也可以手動啟動更多個：
+ *
+ * <pre>
+ * java -cp bin com.boardgames.reversi.tools.SelfPlayWorker --port 5123
+ * </pre>
+ */
+public class SelfPlayWorker {
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        String host = options.get("--host", InetAddress.getLoopbackAddress().getHostAddress());
+        int port = options.getInt("--port", 0);
+        if (port <= 0) {
+            System.out.println("用法: SelfPlayWorker --port 協調程序的連接埠 [--host 位址] [--name 名稱]");
+            return;
+        }
+        String name = options.get("--name", ManagementFactory.getRuntimeMXBean().getName());
+        try {
+            run(host, port, name);
+        } catch (EOFException e) {
+            System.out.println("協調程序已關閉連線");
+        }
+    }
+
+    /**
+     * 連線並處理批次，直到收到 SHUTDOWN 或連線中斷。
+     */
+    public static void run(String host, int port, String name) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            SelfPlayProtocol.writeHello(out, name);
+
+            SelfPlayProtocol.Batch batch;
+            while ((batch = SelfPlayProtocol.readBatch(in)) != null) {
+                // 每個批次用新的搜尋引擎（置換表是空的），重做同一批次時才會下出完全相同的棋
+                sendResult(out, batch, new SelfPlayGame(batch.depth, batch.randomPlies, batch.epsilon));
+            }
+        }
+    }
+
+    private static void sendResult(DataOutputStream out, SelfPlayProtocol.Batch batch, SelfPlayGame game) throws IOException {
+        // 紀錄數要寫在前面，因此先在記憶體裡累積整個批次（每局最多 60 筆）
+        Random random = new Random(batch.seed);
+        long[] blacks = new long[batch.games * 64];
+        long[] whites = new long[blacks.length];
+        byte[] sides = new byte[blacks.length];
+        byte[] scores = new byte[blacks.length];
+        int count = 0;
+        for (int g = 0; g < batch.games; g++) {
+            game.play(random);
+            for (int i = 0; i < game.plies(); i++) {
+                blacks[count] = game.black(i);
+                whites[count] = game.white(i);
+                sides[count] = (byte) game.side(i);
+                scores[count] = (byte) game.finalScore();
+                count++;
+            }
+        }
+        out.writeByte(SelfPlayProtocol.RESULT);
+        out.writeLong(batch.id);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(blacks[i]);
+            out.writeLong(whites[i]);
+            out.writeByte(sides[i]);
+            out.writeByte(scores[i]);
+        }
+        out.flush();
+    }
+}
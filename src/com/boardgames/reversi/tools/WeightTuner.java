@@ -0,0 +1,274 @@
+package com.boardgames.reversi.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.dataset.MappedPositionShard;
+import com.boardgames.reversi.dataset.PositionDataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 評估權重的離線調參工具。
+ * 從局面資料集（SelfPlayGenerator 產生的分片）串流讀取局面，即時展開樣式特徵，
+ * 以小批次梯度下降（AdaGrad 步長）擬合終局子數差，最後寫出 ReversiEvaluator 讀取的權重檔。
+ *
+ * 平行化方式：資料切成固定大小的區塊並在每個 epoch 打亂順序，各執行緒輪流領取區塊；
+ * 每一步每條執行緒把自己那份小批次的梯度累加在私有的累加器中，
+ * 全部到齊後（CyclicBarrier）再由最後抵達的執行緒合併並更新權重，因此不需要任何鎖。
+ *
+ * <pre>
+ * java -cp bin com.boardgames.reversi.tools.WeightTuner --data data/positions --epochs 10 --out data/reversi.weights
+ * </pre>
+ */
+public class WeightTuner {
+
+    private static final int CHUNK = 4096;
+
+    private final List<MappedPositionShard> shards = new ArrayList<>();
+    private final List<int[]> chunks = new ArrayList<>(); // {shard, start, end}
+    private final float[] weights;
+    private final float[] squaredGradients;
+    private final float[] batchGradient;
+    private final boolean[] batchTouched;
+    private final int[] batchTouchedList;
+    private int batchTouchedCount;
+
+    private final int threads;
+    private final int batchPerThread;
+    private final float learningRate;
+    private final float l2;
+
+    public WeightTuner(List<File> files, float[] initialWeights, int threads, int batchSize, float learningRate, float l2)
+            throws IOException {
+        for (File file : files) {
+            MappedPositionShard shard = new MappedPositionShard(file);
+            for (int start = 0; start < shard.size(); start += CHUNK) {
+                chunks.add(new int[]{shards.size(), start, Math.min(shard.size(), start + CHUNK)});
+            }
+            shards.add(shard);
+        }
+        this.weights = initialWeights.clone();
+        this.squaredGradients = new float[weights.length];
+        this.batchGradient = new float[weights.length];
+        this.batchTouched = new boolean[weights.length];
+        this.batchTouchedList = new int[weights.length];
+        this.threads = threads;
+        this.batchPerThread = Math.max(1, batchSize / threads);
+        this.learningRate = learningRate;
+        this.l2 = l2;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        List<File> files = PositionDataset.shards(new File(options.get("--data", "data/positions")));
+        if (files.isEmpty()) {
+            System.out.println("找不到局面資料（請先執行 SelfPlayGenerator），或以 --data 指定資料夾");
+            return;
+        }
+        int epochs = options.getInt("--epochs", 10);
+        int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+        int batch = options.getInt("--batch", 1024);
+        float learningRate = (float) options.getDouble("--lr", 0.05);
+        float l2 = (float) options.getDouble("--l2", 1e-4);
+        long seed = options.getLong("--seed", 1);
+        File out = new File(options.get("--out", ReversiEvaluator.DEFAULT_WEIGHTS_PATH));
+        float[] initial = options.has("--init")
+                ? ReversiEvaluator.load(new File(options.get("--init", null))).getWeights()
+                : ReversiEvaluator.defaultWeights();
+
+        WeightTuner tuner = new WeightTuner(files, initial, threads, batch, learningRate, l2);
+        System.out.printf("%d 個分片、%d 個局面，%d 條執行緒，批次 %d，學習率 %.3f%n",
+                files.size(), tuner.positionCount(), threads, batch, learningRate);
+        Random random = new Random(seed);
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            tuner.runEpoch(epoch, random);
+        }
+        ReversiEvaluator.save(tuner.weights, out);
+        System.out.println("權重已寫入 " + out);
+    }
+
+    public long positionCount() {
+        long count = 0;
+        for (MappedPositionShard shard : shards) {
+            count += shard.size();
+        }
+        return count;
+    }
+
+    /**
+     * 執行一個 epoch 並輸出平均誤差與吞吐量。
+     */
+    public void runEpoch(int epoch, Random random) throws InterruptedException {
+        Collections.shuffle(chunks, random);
+        AtomicInteger nextChunk = new AtomicInteger();
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(nextChunk);
+        }
+        CyclicBarrier barrier = new CyclicBarrier(threads, () -> applyBatch(workers));
+
+        long start = System.nanoTime();
+        Thread[] running = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Worker worker = workers[t];
+            running[t] = new Thread(() -> worker.run(barrier), "Tuner-" + t);
+            running[t].start();
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long count = 0;
+        double squaredError = 0;
+        double absoluteError = 0;
+        for (Worker worker : workers) {
+            count += worker.count;
+            squaredError += worker.squaredError;
+            absoluteError += worker.absoluteError;
+        }
+        System.out.printf("epoch %2d: MSE %.3f, MAE %.3f 子, %.0f 局面/秒%n",
+                epoch, squaredError / Math.max(1, count), absoluteError / Math.max(1, count), count / seconds);
+    }
+
+    /**
+     * 由最後抵達屏障的執行緒呼叫：合併所有執行緒的梯度並更新權重。
+     * 此時其他執行緒都在等待，因此可以安全地讀寫共用的權重陣列。
+     */
+    private void applyBatch(Worker[] workers) {
+        int samples = 0;
+        for (Worker worker : workers) {
+            samples += worker.batchCount;
+            for (int i = 0; i < worker.touchedCount; i++) {
+                int index = worker.touched[i];
+                if (!batchTouched[index]) {
+                    batchTouched[index] = true;
+                    batchTouchedList[batchTouchedCount++] = index;
+                }
+                batchGradient[index] += worker.gradient[index];
+            }
+            worker.clearBatch();
+        }
+        for (int i = 0; i < batchTouchedCount; i++) {
+            int index = batchTouchedList[i];
+            float g = batchGradient[index] / Math.max(1, samples) + l2 * weights[index];
+            squaredGradients[index] += g * g;
+            weights[index] -= learningRate * g / ((float) Math.sqrt(squaredGradients[index]) + 1e-6f);
+            batchGradient[index] = 0;
+            batchTouched[index] = false;
+        }
+        batchTouchedCount = 0;
+
+        boolean remaining = false;
+        for (Worker worker : workers) {
+            remaining |= !worker.exhausted;
+        }
+        for (Worker worker : workers) {
+            worker.finished = !remaining;
+        }
+    }
+
+    /**
+     * 單一執行緒的工作：領取資料區塊、計算預測誤差並累加梯度。
+     */
+    private final class Worker {
+        final float[] gradient = new float[weights.length];
+        final boolean[] marked = new boolean[weights.length];
+        final int[] touched = new int[weights.length];
+        int touchedCount;
+        int batchCount;
+
+        final int[] indices = new int[ReversiEvaluator.MAX_FEATURES];
+        final float[] values = new float[ReversiEvaluator.MAX_FEATURES];
+
+        final AtomicInteger nextChunk;
+        int shard = -1;
+        int position;
+        int end;
+        boolean exhausted;
+        volatile boolean finished;
+
+        long count;
+        double squaredError;
+        double absoluteError;
+
+        Worker(AtomicInteger nextChunk) {
+            this.nextChunk = nextChunk;
+        }
+
+        void run(CyclicBarrier barrier) {
+            try {
+                while (!finished) {
+                    for (int i = 0; i < batchPerThread && !exhausted; i++) {
+                        if (position >= end && !claimChunk()) {
+                            exhausted = true;
+                            break;
+                        }
+                        learn(position++);
+                    }
+                    barrier.await();
+                }
+            } catch (InterruptedException | BrokenBarrierException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private boolean claimChunk() {
+            int c = nextChunk.getAndIncrement();
+            if (c >= chunks.size()) {
+                return false;
+            }
+            int[] chunk = chunks.get(c);
+            shard = chunk[0];
+            position = chunk[1];
+            end = chunk[2];
+            return true;
+        }
+
+        private void learn(int index) {
+            MappedPositionShard data = shards.get(shard);
+            long black = data.black(index);
+            long white = data.white(index);
+            boolean blackToMove = data.sideToMove(index) == PositionDataset.BLACK_TO_MOVE;
+            long player = blackToMove ? black : white;
+            long opponent = blackToMove ? white : black;
+            float target = blackToMove ? data.score(index) : -data.score(index);
+
+            int n = ReversiEvaluator.features(player, opponent, indices, values);
+            float prediction = 0;
+            for (int i = 0; i < n; i++) {
+                prediction += weights[indices[i]] * values[i];
+            }
+            float error = prediction - target;
+            for (int i = 0; i < n; i++) {
+                int w = indices[i];
+                if (!marked[w]) {
+                    marked[w] = true;
+                    touched[touchedCount++] = w;
+                }
+                gradient[w] += error * values[i];
+            }
+            batchCount++;
+            count++;
+            squaredError += error * error;
+            absoluteError += Math.abs(error);
+        }
+
+        void clearBatch() {
+            for (int i = 0; i < touchedCount; i++) {
+                gradient[touched[i]] = 0;
+                marked[touched[i]] = false;
+            }
+            touchedCount = 0;
+            batchCount = 0;
+        }
+    }
+}
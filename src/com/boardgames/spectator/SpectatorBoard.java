@@ -0,0 +1,152 @@
+package com.boardgames.spectator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 由觀戰訊框重建的棋盤：收到 SNAPSHOT 時整個換掉，收到 MOVE 時套用差異。
+ * SpectatorFeed 用它保留最新局面以便產生重新同步用的快照，觀眾端也可以直接用它顯示棋盤。
+ * 不是執行緒安全的。
+ */
+public class SpectatorBoard {
+
+    private static final int MAX_WORDS = 4; // 16x16 黑白棋
+
+    private byte game;
+    private int size;
+    private int sequence;
+    private int sideToMove;
+    private int state;
+    private int lastMove = -1;
+    private final long[] first = new long[MAX_WORDS];
+    private final long[] second = new long[MAX_WORDS];
+
+    /**
+     * 套用一個訊框（從 position 開始讀，不改變 position）。
+     *
+     * @return MOVE 的序號沒有緊接在目前序號之後（中間漏了訊框）、或遊戲類型不符時回傳 false 且不改變棋盤，
+     *         此時需要重新同步
+     */
+    public boolean apply(ByteBuffer frame) {
+        int p = frame.position() + SpectatorFrames.HEADER_BYTES;
+        byte type = SpectatorFrames.type(frame);
+        byte frameGame = SpectatorFrames.game(frame);
+        int frameSequence = SpectatorFrames.sequence(frame);
+        if (type == SpectatorFrames.SNAPSHOT) {
+            applySnapshot(frame, p, frameGame);
+        } else if (type == SpectatorFrames.MOVE) {
+            if (frameGame != game || frameSequence != sequence + 1) {
+                return false;
+            }
+            applyMove(frame, p);
+        } else {
+            return false;
+        }
+        sequence = frameSequence;
+        return true;
+    }
+
+    private void applySnapshot(ByteBuffer frame, int p, byte frameGame) {
+        game = frameGame;
+        lastMove = -1;
+        Arrays.fill(first, 0);
+        Arrays.fill(second, 0);
+        if (frameGame == SpectatorFrames.REVERSI) {
+            size = frame.get(p);
+            sideToMove = frame.get(p + 1);
+            state = frame.get(p + 2);
+            int words = SpectatorFrames.words(size);
+            for (int i = 0; i < words; i++) {
+                first[i] = frame.getLong(p + 3 + 8 * i);
+                second[i] = frame.getLong(p + 3 + 8 * (words + i));
+            }
+        } else {
+            size = frameGame == SpectatorFrames.QUBIC ? 4 : 3;
+            sideToMove = frame.get(p);
+            state = frame.get(p + 1);
+            first[0] = frame.getLong(p + 2);
+            second[0] = frame.getLong(p + 10);
+        }
+    }
+
+    private void applyMove(ByteBuffer frame, int p) {
+        if (game == SpectatorFrames.REVERSI) {
+            int player = frame.get(p + 1);
+            int square = frame.getShort(p + 2);
+            long[] own = player == 0 ? first : second;
+            long[] opponent = player == 0 ? second : first;
+            int words = SpectatorFrames.words(size);
+            for (int i = 0; i < words; i++) {
+                long flips = frame.getLong(p + 6 + 8 * i);
+                own[i] |= flips;
+                opponent[i] &= ~flips;
+            }
+            own[square >>> 6] |= 1L << square;
+            lastMove = square;
+            state = frame.get(p + 4);
+            sideToMove = frame.get(p + 5);
+        } else {
+            int player = frame.get(p);
+            int cell = frame.get(p + 1);
+            (player == 0 ? first : second)[0] |= 1L << cell;
+            lastMove = cell;
+            state = frame.get(p + 2);
+            sideToMove = frame.get(p + 3);
+        }
+    }
+
+    /**
+     * 以目前的棋盤與序號編碼一個 SNAPSHOT 訊框；還沒收到任何訊框時回傳 null。
+     */
+    public ByteBuffer encodeSnapshot() {
+        if (game == 0) {
+            return null;
+        }
+        ByteBuffer frame = game == SpectatorFrames.REVERSI
+                ? SpectatorFrames.reversiSnapshot(size, sideToMove, state, first, second)
+                : SpectatorFrames.cellSnapshot(game, sideToMove, state, first[0], second[0]);
+        frame.putInt(SpectatorFrames.SEQUENCE_OFFSET, sequence);
+        return frame;
+    }
+
+    /** 遊戲類型（SpectatorFrames.REVERSI 等），還沒收到訊框時為 0。 */
+    public byte getGame() {
+        return game;
+    }
+
+    /** 棋盤邊長（黑白棋 6..16、井字棋 3、立體井字棋 4）。 */
+    public int getSize() {
+        return size;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /** 0 表示先手（黑 / X），1 表示後手。 */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /** GameState 的 ordinal：0 進行中、1 先手勝、2 後手勝、3 和局。 */
+    public int getState() {
+        return state;
+    }
+
+    /** 最後一步的格子，剛同步時為 -1。 */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * 指定格子上的棋子：0 空、1 先手、2 後手。
+     */
+    public int get(int cell) {
+        long bit = 1L << cell;
+        int word = cell >>> 6;
+        if ((first[word] & bit) != 0) {
+            return 1;
+        }
+        return (second[word] & bit) != 0 ? 2 : 0;
+    }
+}
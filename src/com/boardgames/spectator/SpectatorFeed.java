@@ -0,0 +1,126 @@
+package com.boardgames.spectator;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一局棋的觀戰頻道。遊戲每接受一步就發布一個差異訊框（見 SpectatorFrames），
+ * 頻道蓋上序號後把同一個唯讀緩衝區放進每位觀眾的佇列，不會為個別觀眾重新編碼或複製。
+ *
+ * 發布永遠不會被觀眾拖慢：放進佇列是 O(1) 且不等待，佇列滿的觀眾改以快照重新同步（見 SpectatorSubscription）。
+ * 頻道自己以 SpectatorBoard 保留最新局面，快照在每一步之後最多編碼一次，由所有需要重新同步的觀眾共用。
+ */
+public class SpectatorFeed {
+
+    /** 預設每位觀眾的佇列容量（訊框數）。 */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    /** 預設的重新同步次數上限，超過時踢出觀眾。 */
+    public static final int DEFAULT_MAX_RESYNCS = 16;
+
+    private final CopyOnWriteArrayList<SpectatorSubscription> subscribers = new CopyOnWriteArrayList<>();
+    private final SpectatorBoard board = new SpectatorBoard();
+    private int sequence;
+    private ByteBuffer snapshot; // 目前局面的快照快取，發布新訊框時作廢
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 發布一個訊框（SNAPSHOT 或 MOVE）。frame 之後不可再修改；頻道會寫入它的序號。
+     */
+    public void publish(ByteBuffer frame) {
+        synchronized (this) {
+            frame.putInt(frame.position() + SpectatorFrames.SEQUENCE_OFFSET, ++sequence);
+            board.apply(frame);
+            snapshot = null;
+            ByteBuffer shared = frame.asReadOnlyBuffer();
+            for (SpectatorSubscription subscriber : subscribers) {
+                subscriber.offer(shared);
+            }
+        }
+        published.increment();
+    }
+
+    /**
+     * 以預設的佇列容量與重新同步上限訂閱。
+     *
+     * @param onReadable 有新訊框可讀（或需要重新同步、訂閱被關閉）時呼叫，在發布端的執行緒上執行，不可阻塞；可為 null
+     */
+    public SpectatorSubscription subscribe(Runnable onReadable) {
+        return subscribe(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_RESYNCS, onReadable);
+    }
+
+    /**
+     * @param queueCapacity 佇列容量，必須是 2 的次方
+     * @param maxResyncs 重新同步次數上限；0 表示佇列一滿就踢出
+     */
+    public SpectatorSubscription subscribe(int queueCapacity, int maxResyncs, Runnable onReadable) {
+        SpectatorSubscription subscription = new SpectatorSubscription(this, queueCapacity, maxResyncs, onReadable);
+        subscribers.add(subscription);
+        if (onReadable != null) {
+            onReadable.run(); // 第一個訊框是快照，可以立刻讀
+        }
+        return subscription;
+    }
+
+    /**
+     * 目前局面的快照（唯讀，序號為最後發布的訊框序號）；還沒有發布過任何訊框時回傳 null。
+     */
+    public synchronized ByteBuffer snapshot() {
+        if (snapshot == null) {
+            ByteBuffer encoded = board.encodeSnapshot();
+            snapshot = encoded == null ? null : encoded.asReadOnlyBuffer();
+        }
+        return snapshot;
+    }
+
+    /**
+     * 關閉所有訂閱（例如遊戲視窗關閉時）。
+     */
+    public void closeAll() {
+        for (SpectatorSubscription subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    void remove(SpectatorSubscription subscription) {
+        subscribers.remove(subscription);
+    }
+
+    void recordOverflow() {
+        overflows.increment();
+    }
+
+    void recordResync() {
+        resyncs.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /** 觀眾佇列滿而需要重新同步的次數。 */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    public long getResyncs() {
+        return resyncs.sum();
+    }
+
+    /** 因重新同步太多次被踢出的觀眾數。 */
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,105 @@
+package com.boardgames.spectator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 觀戰訊框的編碼。每個訊框只編碼一次，之後由 SpectatorFeed 把同一個唯讀緩衝區分送給所有觀眾。
+ * <pre>
+ * 標頭 8 bytes：short 之後的長度、byte 類型、byte 遊戲、int 序號（由 SpectatorFeed 發布時填入）
+ * 黑白棋 MOVE     byte 邊長、byte 落子方、short 格子 (row * size + col)、byte 狀態、byte 下一手、被翻轉的子（每 64 格一個 long）
+ * 黑白棋 SNAPSHOT byte 邊長、byte 行棋方、byte 狀態、黑子、白子（每 64 格一個 long）
+ * 井字棋 MOVE     byte 落子方、byte 格子、byte 狀態、byte 下一手
+ * 井字棋 SNAPSHOT byte 行棋方、byte 狀態、long X、long O
+ * </pre>
+ * 落子方與行棋方以 0 表示先手（黑 / X）、1 表示後手（白 / O）；狀態是 GameState 的 ordinal
+ * （進行中、先手勝、後手勝、和局）。8x8 黑白棋的一步只有 22 bytes。
+ */
+public final class SpectatorFrames {
+
+    public static final byte SNAPSHOT = 1;
+    public static final byte MOVE = 2;
+
+    public static final byte REVERSI = 1;
+    public static final byte TICTACTOE = 2;
+    public static final byte QUBIC = 3;
+
+    public static final int HEADER_BYTES = 8;
+    /** 序號在訊框中的位置。 */
+    static final int SEQUENCE_OFFSET = 4;
+
+    private SpectatorFrames() {
+    }
+
+    /**
+     * 黑白棋的一步。
+     *
+     * @param flips 被翻轉的子，長度至少為 words(size)
+     */
+    public static ByteBuffer reversiMove(int size, int player, int square, int state, int nextSide, long[] flips) {
+        int words = words(size);
+        ByteBuffer frame = header(MOVE, REVERSI, 6 + 8 * words);
+        frame.put((byte) size).put((byte) player).putShort((short) square).put((byte) state).put((byte) nextSide);
+        for (int i = 0; i < words; i++) {
+            frame.putLong(flips[i]);
+        }
+        return finish(frame);
+    }
+
+    public static ByteBuffer reversiSnapshot(int size, int sideToMove, int state, long[] black, long[] white) {
+        int words = words(size);
+        ByteBuffer frame = header(SNAPSHOT, REVERSI, 3 + 16 * words);
+        frame.put((byte) size).put((byte) sideToMove).put((byte) state);
+        for (int i = 0; i < words; i++) {
+            frame.putLong(black[i]);
+        }
+        for (int i = 0; i < words; i++) {
+            frame.putLong(white[i]);
+        }
+        return finish(frame);
+    }
+
+    /**
+     * 井字棋或立體井字棋的一步。
+     *
+     * @param game TICTACTOE 或 QUBIC
+     */
+    public static ByteBuffer cellMove(byte game, int player, int cell, int state, int nextSide) {
+        ByteBuffer frame = header(MOVE, game, 4);
+        frame.put((byte) player).put((byte) cell).put((byte) state).put((byte) nextSide);
+        return finish(frame);
+    }
+
+    public static ByteBuffer cellSnapshot(byte game, int sideToMove, int state, long first, long second) {
+        ByteBuffer frame = header(SNAPSHOT, game, 18);
+        frame.put((byte) sideToMove).put((byte) state).putLong(first).putLong(second);
+        return finish(frame);
+    }
+
+    /** 邊長 size 的黑白棋盤需要幾個 long。 */
+    public static int words(int size) {
+        return (size * size + 63) / 64;
+    }
+
+    public static byte type(ByteBuffer frame) {
+        return frame.get(frame.position() + 2);
+    }
+
+    public static byte game(ByteBuffer frame) {
+        return frame.get(frame.position() + 3);
+    }
+
+    public static int sequence(ByteBuffer frame) {
+        return frame.getInt(frame.position() + SEQUENCE_OFFSET);
+    }
+
+    private static ByteBuffer header(byte type, byte game, int payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload);
+        frame.putShort((short) (HEADER_BYTES - 2 + payload)).put(type).put(game).putInt(0);
+        return frame;
+    }
+
+    private static ByteBuffer finish(ByteBuffer frame) {
+        frame.flip();
+        return frame;
+    }
+}
@@ -0,0 +1,298 @@
+package com.boardgames.spectator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 以本機 TCP 提供觀戰：所有連線由一條選擇器 (Selector) 執行緒以非阻塞 I/O 服務，
+ * 寫出的是 SpectatorFeed 共用的訊框緩衝區，因此數千位觀眾只需要一條執行緒。
+ *
+ * 觀眾連線後先送出頻道名稱（DataOutputStream.writeUTF 的格式），之後只會收到訊框（見 SpectatorFrames）。
+ * 寫不出去的觀眾不會擋住其他人：它的訂閱佇列滿了就改以快照重新同步，太慢則被踢出。
+ *
+ * 啟動時加上 -Dboardgames.spectator.port=連接埠，各遊戲視窗就會把對局登記到共用的伺服器（見 shared）。
+ */
+public class SpectatorServer implements Closeable {
+
+    private static final String PORT_PROPERTY = "boardgames.spectator.port";
+    private static final int MAX_NAME_BYTES = 256;
+
+    private static volatile SpectatorServer shared;
+    private static volatile boolean sharedFailed;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread loop;
+    private final Map<String, SpectatorFeed> feeds = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> nameCounters = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Connection> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * @param port 監聽的本機連接埠，0 表示自動選擇
+     */
+    public SpectatorServer(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        loop = new Thread(this::run, "Spectator-Server");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * 依 -Dboardgames.spectator.port 啟動的共用伺服器；沒有設定或無法啟動時回傳 null。
+     */
+    public static SpectatorServer shared() {
+        if (shared == null && !sharedFailed) {
+            synchronized (SpectatorServer.class) {
+                Integer port = Integer.getInteger(PORT_PROPERTY);
+                if (shared == null && !sharedFailed && port != null) {
+                    try {
+                        shared = new SpectatorServer(port);
+                        System.out.println("觀戰伺服器監聽 127.0.0.1:" + shared.getPort());
+                    } catch (IOException e) {
+                        sharedFailed = true;
+                        System.err.println("無法啟動觀戰伺服器: " + e);
+                    }
+                } else if (port == null) {
+                    sharedFailed = true;
+                }
+            }
+        }
+        return shared;
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * 以 "前綴-流水號" 的名稱登記頻道。
+     *
+     * @return 觀眾連線時要送出的頻道名稱
+     */
+    public String register(String prefix, SpectatorFeed feed) {
+        int n = nameCounters.computeIfAbsent(prefix, k -> new AtomicInteger()).incrementAndGet();
+        String name = prefix + "-" + n;
+        feeds.put(name, feed);
+        return name;
+    }
+
+    /**
+     * 取消登記並關閉該頻道的所有觀眾。
+     */
+    public void unregister(String name) {
+        SpectatorFeed feed = feeds.remove(name);
+        if (feed != null) {
+            feed.closeAll();
+        }
+    }
+
+    /** 目前的觀眾連線數。 */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = ready.poll()) != null) {
+                    connection.queued.set(false);
+                    connection.pump();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection c = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            c.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            c.pump();
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("觀戰伺服器停止: " + e);
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // 已在關閉中
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.incrementAndGet();
+        }
+    }
+
+    /**
+     * 一位觀眾的連線。除了 wake 之外都只在選擇器執行緒上執行。
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private SelectionKey key;
+        private ByteBuffer handshake = ByteBuffer.allocate(2 + MAX_NAME_BYTES);
+        private SpectatorSubscription subscription;
+        private ByteBuffer current;
+        private boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /** 由發布端呼叫：排進待處理佇列並喚醒選擇器。 */
+        void wake() {
+            if (queued.compareAndSet(false, true)) {
+                ready.add(this);
+                selector.wakeup();
+            }
+        }
+
+        void read() {
+            try {
+                if (handshake == null) {
+                    // 握手之後觀眾不應再送資料，讀到就丟掉；讀到結尾代表觀眾離開
+                    ByteBuffer discard = ByteBuffer.allocate(64);
+                    if (channel.read(discard) < 0) {
+                        close();
+                    }
+                    return;
+                }
+                if (channel.read(handshake) < 0) {
+                    close();
+                    return;
+                }
+                if (handshake.position() < 2) {
+                    return;
+                }
+                int length = handshake.getShort(0) & 0xFFFF;
+                if (length > MAX_NAME_BYTES) {
+                    close();
+                    return;
+                }
+                if (handshake.position() < 2 + length) {
+                    return;
+                }
+                String name = new String(handshake.array(), 2, length, StandardCharsets.UTF_8);
+                handshake = null;
+                SpectatorFeed feed = feeds.get(name);
+                if (feed == null) {
+                    close();
+                    return;
+                }
+                subscription = feed.subscribe(this::wake);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * 盡量把佇列中的訊框寫出去；socket 寫滿時改為等待 OP_WRITE。
+         */
+        void pump() {
+            if (closed || subscription == null) {
+                return;
+            }
+            try {
+                while (true) {
+                    if (current == null || !current.hasRemaining()) {
+                        current = subscription.poll();
+                        if (current == null) {
+                            if (subscription.isClosed()) {
+                                close();
+                            } else {
+                                key.interestOps(SelectionKey.OP_READ);
+                            }
+                            return;
+                        }
+                    }
+                    channel.write(current);
+                    if (current.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.decrementAndGet();
+            if (subscription != null) {
+                subscription.close();
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
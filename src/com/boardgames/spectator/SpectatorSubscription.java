@@ -0,0 +1,134 @@
+package com.boardgames.spectator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一位觀眾的訂閱：固定容量的單一生產者／單一消費者環形佇列，裝的是所有觀眾共用的唯讀訊框。
+ *
+ * 發布端（對局執行緒）放入訊框時絕不等待：佇列滿了就把這位觀眾標記為「需要重新同步」並丟掉之後的訊框，
+ * 觀眾讀完佇列中剩下的訊框後會改收到一個完整快照，接著從快照的序號之後繼續。
+ * 重新同步的次數超過上限時訂閱會被關閉（觀眾被踢出）。第一個收到的訊框一定是快照。
+ *
+ * poll 只能由一條執行緒呼叫。
+ */
+public final class SpectatorSubscription {
+
+    private final SpectatorFeed feed;
+    private final ByteBuffer[] ring;
+    private final int mask;
+    private final int maxResyncs;
+    private final Runnable onReadable;
+
+    // head 只由消費端寫、tail 只由發布端寫
+    private volatile long head;
+    private volatile long tail;
+    private volatile boolean resyncPending = true;
+    private volatile boolean closed;
+
+    // 以下只由消費端使用
+    private int resyncs = -1; // 第一次同步不算
+    private int snapshotSequence = -1;
+
+    SpectatorSubscription(SpectatorFeed feed, int capacity, int maxResyncs, Runnable onReadable) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("佇列容量必須是 2 的次方: " + capacity);
+        }
+        this.feed = feed;
+        this.ring = new ByteBuffer[capacity];
+        this.mask = capacity - 1;
+        this.maxResyncs = maxResyncs;
+        this.onReadable = onReadable;
+    }
+
+    /**
+     * 由 SpectatorFeed 在發布時呼叫（持有 feed 的鎖，因此同時只有一個生產者）。
+     */
+    void offer(ByteBuffer frame) {
+        if (closed || resyncPending) {
+            return; // 等待重新同步的觀眾之後會收到包含這一步的快照
+        }
+        long t = tail;
+        if (t - head >= ring.length) {
+            resyncPending = true;
+            feed.recordOverflow();
+            signal();
+            return;
+        }
+        ring[(int) t & mask] = frame;
+        tail = t + 1;
+        // 寫入 tail 之後才讀 head：消費端若已讀完前面的訊框、看不到這一個，這裡一定會看到 head == t
+        if (head == t) {
+            signal();
+        }
+    }
+
+    private void signal() {
+        if (onReadable != null) {
+            onReadable.run();
+        }
+    }
+
+    /**
+     * 取出下一個訊框（共用緩衝區的 duplicate，讀取時可以自由移動 position）。
+     *
+     * @return 目前沒有新訊框，或訂閱已關閉時回傳 null
+     */
+    public ByteBuffer poll() {
+        while (!closed) {
+            long h = head;
+            if (h < tail) {
+                int index = (int) h & mask;
+                ByteBuffer frame = ring[index];
+                ring[index] = null;
+                head = h + 1;
+                if (SpectatorFrames.sequence(frame) <= snapshotSequence) {
+                    continue; // 已經包含在剛送出的快照裡
+                }
+                return frame.duplicate();
+            }
+            if (!resyncPending) {
+                return null;
+            }
+            if (++resyncs > maxResyncs) {
+                close();
+                feed.recordDropped();
+                return null;
+            }
+            // 先清除旗標再取快照：之後發布的訊框會進佇列，序號不大於快照的會在上面被略過
+            resyncPending = false;
+            ByteBuffer snapshot = feed.snapshot();
+            if (snapshot == null) {
+                resyncPending = true; // 還沒有任何局面
+                resyncs--;
+                return null;
+            }
+            snapshotSequence = SpectatorFrames.sequence(snapshot);
+            if (resyncs > 0) {
+                feed.recordResync();
+            }
+            return snapshot.duplicate();
+        }
+        return null;
+    }
+
+    /** 是否已被關閉（觀眾取消訂閱或落後太多被踢出）。 */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** 重新同步的次數（不含第一次）。 */
+    public int getResyncs() {
+        return Math.max(0, resyncs);
+    }
+
+    /**
+     * 取消訂閱。
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            feed.remove(this);
+            signal();
+        }
+    }
+}
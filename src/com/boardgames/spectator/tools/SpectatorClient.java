@@ -0,0 +1,113 @@
+package com.boardgames.spectator.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.spectator.SpectatorBoard;
+import com.boardgames.spectator.SpectatorFrames;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * 以文字方式觀看 SpectatorServer 上的一局棋。
+ *
+ * <pre>
+ * java -Dboardgames.spectator.port=7070 -cp bin com.boardgames.Main        （開啟遊戲視窗，標題會顯示頻道名稱）
+ * java -cp bin com.boardgames.spectator.tools.SpectatorClient --port 7070 --channel reversi-1 --board
+ * </pre>
+ *
+ * 每收到一步印出一行；加上 --board 時同時印出棋盤。重新同步（收到快照）時會特別標示。
+ */
+public class SpectatorClient {
+
+    private static final String[] STATES = {"進行中", "先手勝", "後手勝", "和局"};
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        if (!options.has("--port") || !options.has("--channel")) {
+            System.out.println("用法: SpectatorClient --port PORT --channel NAME [--host HOST] [--board]");
+            return;
+        }
+        String host = options.get("--host", "127.0.0.1");
+        String channel = options.get("--channel", "");
+        boolean showBoard = options.has("--board");
+
+        try (Socket socket = new Socket(host, options.getInt("--port", 0))) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeUTF(channel);
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            SpectatorBoard board = new SpectatorBoard();
+            byte[] buffer = new byte[1024];
+            while (true) {
+                int length;
+                try {
+                    length = in.readUnsignedShort();
+                } catch (EOFException e) {
+                    System.out.println("頻道已關閉");
+                    return;
+                }
+                buffer[0] = (byte) (length >>> 8);
+                buffer[1] = (byte) length;
+                in.readFully(buffer, 2, length);
+                ByteBuffer frame = ByteBuffer.wrap(buffer, 0, length + 2);
+                boolean snapshot = SpectatorFrames.type(frame) == SpectatorFrames.SNAPSHOT;
+                if (!board.apply(frame)) {
+                    System.out.println("#" + SpectatorFrames.sequence(frame) + " 序號不連續，略過");
+                    continue;
+                }
+                print(board, snapshot, showBoard);
+            }
+        }
+    }
+
+    private static void print(SpectatorBoard board, boolean snapshot, boolean showBoard) {
+        String mover = board.getSideToMove() == 0 ? "先手" : "後手";
+        StringBuilder line = new StringBuilder("#").append(board.getSequence()).append(' ');
+        if (snapshot) {
+            line.append("快照");
+        } else {
+            line.append("落子 ").append(cellName(board, board.getLastMove()));
+        }
+        line.append("，").append(STATES[board.getState()]);
+        if (board.getState() == 0) {
+            line.append("，輪到").append(mover);
+        }
+        System.out.println(line);
+        if (showBoard) {
+            System.out.print(render(board));
+        }
+    }
+
+    private static String cellName(SpectatorBoard board, int cell) {
+        int size = board.getSize();
+        if (board.getGame() == SpectatorFrames.QUBIC) {
+            int level = cell / 16;
+            return "第 " + (level + 1) + " 層 " + (char) ('a' + cell % 4) + (cell % 16 / 4 + 1);
+        }
+        return "" + (char) ('a' + cell % size) + (cell / size + 1);
+    }
+
+    private static String render(SpectatorBoard board) {
+        char[] symbols = board.getGame() == SpectatorFrames.REVERSI ? new char[]{'.', 'B', 'W'} : new char[]{'.', 'X', 'O'};
+        int size = board.getSize();
+        int levels = board.getGame() == SpectatorFrames.QUBIC ? 4 : 1;
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < size; row++) {
+            for (int level = 0; level < levels; level++) {
+                for (int col = 0; col < size; col++) {
+                    sb.append(symbols[board.get(level * size * size + row * size + col)]).append(' ');
+                }
+                sb.append(level + 1 < levels ? "  " : "");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
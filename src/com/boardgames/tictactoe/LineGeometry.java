@@ -0,0 +1,158 @@
+package com.boardgames.tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * 連線棋（井字棋家族）的棋盤幾何：棋盤最多 64 格，每格對應 long 的一個位元，
+ * 所有可以連成一線的 k 格都預先算成遮罩。同一份幾何可描述 3x3 井字棋、m,n,k 棋與 4x4x4 立體井字棋。
+ *
+ * 平面棋盤的格子編號 = row * n + col，與 TicTacToeGame.getBits 的 row * 3 + col 一致；
+ * 立體井字棋沿用 QubicLines 的編號。
+ */
+public final class LineGeometry {
+
+    private final String name;
+    private final int cells;
+    private final long fullMask;
+    private final long[] lines;
+    private final int[][] cellLines;
+
+    private LineGeometry(String name, int cells, long[] lines) {
+        this.name = name;
+        this.cells = cells;
+        this.fullMask = cells == 64 ? -1L : (1L << cells) - 1;
+        this.lines = lines;
+        int[] perCell = new int[cells];
+        for (long line : lines) {
+            for (long bits = line; bits != 0; bits &= bits - 1) {
+                perCell[Long.numberOfTrailingZeros(bits)]++;
+            }
+        }
+        this.cellLines = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            cellLines[cell] = new int[perCell[cell]];
+        }
+        Arrays.fill(perCell, 0);
+        for (int i = 0; i < lines.length; i++) {
+            for (long bits = lines[i]; bits != 0; bits &= bits - 1) {
+                int cell = Long.numberOfTrailingZeros(bits);
+                cellLines[cell][perCell[cell]++] = i;
+            }
+        }
+    }
+
+    /** 3x3 井字棋。 */
+    public static LineGeometry ticTacToe() {
+        return mnk(3, 3, 3);
+    }
+
+    /**
+     * m 行 n 列的棋盤上連成 k 子獲勝（橫、直與兩個斜向）。
+     *
+     * @throws IllegalArgumentException 棋盤超過 64 格，或 k 大於兩邊
+     */
+    public static LineGeometry mnk(int m, int n, int k) {
+        if (m < 1 || n < 1 || m * n > 64) {
+            throw new IllegalArgumentException("棋盤必須在 1 到 64 格之間: " + m + "x" + n);
+        }
+        if (k < 1 || (k > m && k > n)) {
+            throw new IllegalArgumentException("連線長度不合法: " + k);
+        }
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        long[] buffer = new long[4 * m * n];
+        int count = 0;
+        for (int[] d : directions) {
+            for (int row = 0; row < m; row++) {
+                for (int col = 0; col < n; col++) {
+                    int endRow = row + (k - 1) * d[0];
+                    int endCol = col + (k - 1) * d[1];
+                    if (endRow >= m || endCol < 0 || endCol >= n) {
+                        continue;
+                    }
+                    long mask = 0;
+                    for (int i = 0; i < k; i++) {
+                        mask |= 1L << ((row + i * d[0]) * n + col + i * d[1]);
+                    }
+                    buffer[count++] = mask;
+                }
+            }
+        }
+        String name = m == 3 && n == 3 && k == 3 ? "3x3" : m + "," + n + "," + k;
+        return new LineGeometry(name, m * n, Arrays.copyOf(buffer, count));
+    }
+
+    /** 4x4x4 立體井字棋，76 條連線。 */
+    public static LineGeometry qubic() {
+        return new LineGeometry("4x4x4", QubicLines.CELLS, QubicLines.LINES.clone());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCells() {
+        return cells;
+    }
+
+    /** 所有格子的遮罩。 */
+    public long getFullMask() {
+        return fullMask;
+    }
+
+    public int getLineCount() {
+        return lines.length;
+    }
+
+    /** 該格所在的連線數。 */
+    public int lineCount(int cell) {
+        return cellLines[cell].length;
+    }
+
+    /**
+     * 在 cell 落子後的 bits 是否完成了經過 cell 的某條連線。
+     */
+    public boolean winsThrough(long bits, int cell) {
+        for (int line : cellLines[cell]) {
+            if ((bits & lines[line]) == lines[line]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * own 再下一子就能完成的連線上的那些空格。
+     */
+    public long threats(long own, long opponent) {
+        long result = 0;
+        int need = Long.bitCount(lines[0]) - 1;
+        for (long line : lines) {
+            if ((line & opponent) == 0 && Long.bitCount(line & own) == need) {
+                result |= line & ~own;
+            }
+        }
+        return result;
+    }
+
+    /** bits 是否已經完成某條連線。 */
+    public boolean hasLine(long bits) {
+        for (long line : lines) {
+            if ((bits & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否還有任何一條連線上沒有 opponent 的棋子；沒有時 opponent 的對手不可能再獲勝。
+     */
+    public boolean hasOpenLine(long opponent) {
+        for (long line : lines) {
+            if ((line & opponent) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
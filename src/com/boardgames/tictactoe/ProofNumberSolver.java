@@ -0,0 +1,425 @@
+package com.boardgames.tictactoe;
+
+import com.boardgames.common.ConcurrentLongSet;
+
+import java.util.Arrays;
+
+/**
+ * 連線棋的 df-pn（深度優先證明數）解題器：證明某方必勝、必敗或和局，而不是只給出評估分數。
+ *
+ * 每次證明固定一個「攻方」，問題是「攻方能否獲勝」；和局算守方成功。節點以 negamax 形式保存
+ * 行棋方目標的證明數 phi 與否證數 delta：攻方行棋時目標是獲勝，守方行棋時目標是不輸。
+ * 完整的理論值由兩次證明組成：先問行棋方能否獲勝，不能時再問對手能否獲勝。
+ *
+ * 與 QubicSearch 相同，每個節點先處理強制著：行棋方有一步致勝就成立；對手有兩個以上致勝點則不成立；
+ * 對手只有一個致勝點時只展開擋住它的那一步。攻方已沒有任何未被佔到的連線時直接判定攻方贏不了。
+ * 門檻使用 1+ε 技巧，減少在兩個子節點之間來回切換造成的重複展開。
+ *
+ * 節點表的記憶體有上限：4 路組相聯的雜湊表，每個項目記錄該局面子樹展開過的節點數 (work)。
+ * 同一組滿時取代 work 最小的項目；整張表的佔用超過 90% 時進行回收，依 work 由小到大清掉項目，
+ * 已解出的節點門檻放寬 4 倍（解出後只有它本身的結論有用，子樹裡的項目已是垃圾），直到佔用降到 60% 以下。
+ *
+ * 同一個實例不可同時被多條執行緒使用。
+ */
+public class ProofNumberSolver {
+
+    /** 一次證明的結論（相對於該次的攻方）。 */
+    public enum Outcome {
+        /** 攻方必勝。 */
+        PROVEN,
+        /** 攻方贏不了。 */
+        DISPROVEN,
+        /** 在節點限制內沒有結論。 */
+        UNKNOWN
+    }
+
+    /** 每個節點表項目的大小：兩個 long 的局面、一個 long 的 work 與合成一個 long 的證明數、否證數。 */
+    public static final int ENTRY_BYTES = 32;
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int WAYS = 4;
+    private static final int FIELDS = 4;
+    private static final double GC_TRIGGER = 0.9;
+    private static final double GC_TARGET = 0.6;
+    private static final int SOLVED_GC_FACTOR = 4;
+
+    private final LineGeometry geometry;
+    private final long fullMask;
+    private final int[] cellOrder;
+
+    // 節點表：每個項目連續 4 個 long（局面兩個、work、phi 與 delta 合成一個），同一組 4 個項目只佔兩條快取線
+    private final long[] table;
+    private final int capacity;
+    private final int bucketMask;
+    private final int gcThreshold;
+    private int used;
+    private int collections;
+
+    // 每層的子節點緩衝區
+    private final int[][] childCells;
+    private final int[][] childPhi;
+    private final int[][] childDelta;
+
+    private long nodes;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean aborted;
+    private int lastPhi;
+    private int lastDelta;
+    private int rootProofCell;
+
+    /**
+     * @param geometry 棋盤幾何
+     * @param memoryBytes 節點表可使用的記憶體上限（實際容量取不超過上限的 2 的次方）
+     */
+    public ProofNumberSolver(LineGeometry geometry, long memoryBytes) {
+        this.geometry = geometry;
+        this.fullMask = geometry.getFullMask();
+
+        long entries = Math.max(WAYS * 256L, Math.min(1L << 30, memoryBytes / ENTRY_BYTES));
+        this.capacity = Integer.highestOneBit((int) Math.min(entries, Integer.MAX_VALUE / FIELDS));
+        this.table = new long[capacity * FIELDS];
+        this.bucketMask = capacity / WAYS - 1;
+        this.gcThreshold = (int) (capacity * GC_TRIGGER);
+
+        // 展開順序：所在連線多的格子優先
+        int cells = geometry.getCells();
+        Integer[] order = new Integer[cells];
+        for (int i = 0; i < cells; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> geometry.lineCount(b) != geometry.lineCount(a)
+                ? geometry.lineCount(b) - geometry.lineCount(a) : a - b);
+        this.cellOrder = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            cellOrder[i] = order[i];
+        }
+
+        this.childCells = new int[cells + 1][cells];
+        this.childPhi = new int[cells + 1][cells];
+        this.childDelta = new int[cells + 1][cells];
+    }
+
+    /**
+     * 設定每次 solve 可展開的節點數上限，超過時回傳 UNKNOWN。預設沒有上限。
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public LineGeometry getGeometry() {
+        return geometry;
+    }
+
+    /** 節點表的項目數。 */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 求出行棋方的理論值。
+     *
+     * @param own 行棋方的棋子
+     * @param opponent 對手的棋子
+     */
+    public ProofResult solve(long own, long opponent) {
+        if ((own & opponent) != 0 || ((own | opponent) & ~fullMask) != 0) {
+            throw new IllegalArgumentException("棋子重疊或超出棋盤");
+        }
+        if (geometry.hasLine(own) || geometry.hasLine(opponent)) {
+            throw new IllegalArgumentException("局面已經分出勝負");
+        }
+        int gcBefore = collections;
+
+        long start = System.nanoTime();
+        Outcome win = prove(own, opponent, true, nodeLimit);
+        long searchNanos = System.nanoTime() - start;
+        long totalNodes = nodes;
+        long size = win == Outcome.UNKNOWN ? -1 : proofTreeSize(own, opponent, true, win == Outcome.PROVEN);
+        if (win != Outcome.DISPROVEN) {
+            ProofResult.Value value = win == Outcome.PROVEN ? ProofResult.Value.WIN : ProofResult.Value.UNKNOWN;
+            return new ProofResult(value, size, totalNodes, searchNanos, collections - gcBefore);
+        }
+
+        start = System.nanoTime();
+        Outcome loss = prove(own, opponent, false, nodeLimit - totalNodes);
+        searchNanos += System.nanoTime() - start;
+        totalNodes += nodes;
+        ProofResult.Value value;
+        if (loss == Outcome.UNKNOWN) {
+            value = ProofResult.Value.NO_WIN;
+            size = -1;
+        } else {
+            value = loss == Outcome.PROVEN ? ProofResult.Value.LOSS : ProofResult.Value.DRAW;
+            long second = proofTreeSize(own, opponent, false, loss == Outcome.DISPROVEN);
+            size = value == ProofResult.Value.LOSS ? second : size + second;
+        }
+        return new ProofResult(value, size, totalNodes, searchNanos, collections - gcBefore);
+    }
+
+    /** 井字棋目前局面的理論值（以輪到的一方角度）。 */
+    public ProofResult solve(TicTacToeGame game) {
+        char player = game.getCurrentPlayer();
+        char opponent = player == 'X' ? 'O' : 'X';
+        return solve(game.getBits(player), game.getBits(opponent));
+    }
+
+    /** 立體井字棋目前局面的理論值（以輪到的一方角度）。 */
+    public ProofResult solve(QubicGame game) {
+        char player = game.getCurrentPlayer();
+        char opponent = player == 'X' ? 'O' : 'X';
+        return solve(game.getBits(player), game.getBits(opponent));
+    }
+
+    /**
+     * 單次證明：攻方能否獲勝。會清空節點表。
+     *
+     * @param moverIsAttacker 行棋方是否為攻方
+     * @param limit 可展開的節點數
+     */
+    public Outcome prove(long own, long opponent, boolean moverIsAttacker, long limit) {
+        clear();
+        nodes = 0;
+        aborted = false;
+        long savedLimit = nodeLimit;
+        nodeLimit = limit;
+        try {
+            mid(own, opponent, moverIsAttacker, INF, INF, 0);
+        } finally {
+            nodeLimit = savedLimit;
+        }
+        if (lastPhi != 0 && lastDelta != 0) {
+            return Outcome.UNKNOWN;
+        }
+        // 行棋方的目標成立：攻方行棋時是攻方獲勝，守方行棋時是攻方贏不了
+        boolean moverGoal = lastPhi == 0;
+        return moverGoal == moverIsAttacker ? Outcome.PROVEN : Outcome.DISPROVEN;
+    }
+
+    /**
+     * 節點的即時結論：1 代表行棋方的目標成立，-1 代表不成立，0 代表需要展開。
+     */
+    private int terminal(long own, long opponent, boolean attacker) {
+        long empty = fullMask & ~(own | opponent);
+        if ((geometry.threats(own, opponent) & empty) != 0) {
+            return 1;
+        }
+        if (Long.bitCount(geometry.threats(opponent, own) & empty) >= 2) {
+            return -1;
+        }
+        // 攻方沒有任何一條連線還能完成（含盤面已滿）時，攻方贏不了
+        if (attacker ? !geometry.hasOpenLine(opponent) : !geometry.hasOpenLine(own)) {
+            return attacker ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /** 需要展開的走法：對手有一個致勝點時只能擋它。 */
+    private long moves(long own, long opponent) {
+        long empty = fullMask & ~(own | opponent);
+        long block = geometry.threats(opponent, own) & empty;
+        return block != 0 ? block : empty;
+    }
+
+    private void mid(long own, long opponent, boolean attacker, int thPhi, int thDelta, int ply) {
+        long startNodes = nodes++;
+        if (nodes >= nodeLimit) {
+            aborted = true;
+        }
+        int result = terminal(own, opponent, attacker);
+        if (result != 0) {
+            finish(own, opponent, result > 0 ? 0 : INF, result > 0 ? INF : 0, 1);
+            return;
+        }
+
+        long moves = moves(own, opponent);
+        int[] cells = childCells[ply];
+        int[] phi = childPhi[ply];
+        int[] delta = childDelta[ply];
+        int count = 0;
+        for (int cell : cellOrder) {
+            if ((moves & (1L << cell)) == 0) {
+                continue;
+            }
+            long childOpponent = own | (1L << cell);
+            int slot = lookup(opponent, childOpponent);
+            cells[count] = cell;
+            phi[count] = slot < 0 ? 1 : phiAt(slot);
+            delta[count] = slot < 0 ? 1 : deltaAt(slot);
+            count++;
+        }
+
+        while (true) {
+            long sumPhi = 0;
+            int best = 0;
+            int minDelta = INF;
+            int secondDelta = INF;
+            for (int i = 0; i < count; i++) {
+                sumPhi = phi[i] == INF || sumPhi == INF ? INF : sumPhi + phi[i];
+                if (delta[i] < minDelta) {
+                    secondDelta = minDelta;
+                    minDelta = delta[i];
+                    best = i;
+                } else if (delta[i] < secondDelta) {
+                    secondDelta = delta[i];
+                }
+            }
+            int nodePhi = minDelta;
+            // 沒有子節點被否證前 delta 不能到 INF，否則會誤判為已證明
+            int nodeDelta = sumPhi == INF ? INF : (int) Math.min(INF - 1, sumPhi);
+            if (nodePhi >= thPhi || nodeDelta >= thDelta || aborted) {
+                if (ply == 0) {
+                    rootProofCell = cells[best];
+                }
+                finish(own, opponent, nodePhi, nodeDelta, nodes - startNodes);
+                return;
+            }
+
+            long childThPhi = thDelta == INF ? INF : (long) thDelta - nodeDelta + phi[best];
+            long childThDelta = secondDelta == INF ? INF : Math.max(secondDelta + 1L, secondDelta + secondDelta / 4L);
+            mid(opponent, own | (1L << cells[best]), !attacker,
+                    (int) Math.min(INF, childThPhi), (int) Math.min(thPhi, childThDelta), ply + 1);
+            phi[best] = lastPhi;
+            delta[best] = lastDelta;
+        }
+    }
+
+    private void finish(long own, long opponent, int phi, int delta, long nodeWork) {
+        store(own, opponent, phi, delta, nodeWork);
+        lastPhi = phi;
+        lastDelta = delta;
+    }
+
+    // ---- 證明樹 ----
+
+    /**
+     * 走訪證明樹（或否證樹）計算不同局面的數量。節點表裡已被取代的結論會重新證明，
+     * 這部分不計入 nodes 也不受節點限制。
+     */
+    private long proofTreeSize(long own, long opponent, boolean moverIsAttacker, boolean rootHolds) {
+        long savedNodes = nodes;
+        long savedLimit = nodeLimit;
+        nodeLimit = Long.MAX_VALUE;
+        aborted = false;
+        try {
+            return treeSize(own, opponent, moverIsAttacker, rootHolds, new ConcurrentLongSet(1 << 16));
+        } finally {
+            nodes = savedNodes;
+            nodeLimit = savedLimit;
+        }
+    }
+
+    /**
+     * @param holds 行棋方的目標是否成立；證明樹裡每個節點的結論都已由上層決定
+     */
+    private long treeSize(long own, long opponent, boolean attacker, boolean holds, ConcurrentLongSet seen) {
+        if (!seen.add(hash(own, opponent))) {
+            return 0;
+        }
+        if (terminal(own, opponent, attacker) != 0) {
+            return 1;
+        }
+        long moves = moves(own, opponent);
+        if (!holds) {
+            // 目標不成立：每個子節點都是對手目標成立的節點
+            long size = 1;
+            for (long bits = moves; bits != 0; bits &= bits - 1) {
+                size += treeSize(opponent, own | Long.lowestOneBit(bits), !attacker, true, seen);
+            }
+            return size;
+        }
+        // 目標成立：只需要一個讓對手目標不成立的子節點。節點表裡找不到時（已被回收）
+        // 重新證明這個節點，並取用證明它的那個子節點
+        long child = 0;
+        for (long bits = moves; bits != 0 && child == 0; bits &= bits - 1) {
+            int slot = lookup(opponent, own | Long.lowestOneBit(bits));
+            if (slot >= 0 && deltaAt(slot) == 0) {
+                child = own | Long.lowestOneBit(bits);
+            }
+        }
+        if (child == 0) {
+            mid(own, opponent, attacker, INF, INF, 0);
+            child = own | (1L << rootProofCell);
+        }
+        return 1 + treeSize(opponent, child, !attacker, false, seen);
+    }
+
+    // ---- 節點表 ----
+
+    private static long hash(long own, long opponent) {
+        long h = own * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 31);
+        return h ^ (h >>> 29);
+    }
+
+    private int phiAt(int slot) {
+        return (int) (table[slot * FIELDS + 3] >>> 32);
+    }
+
+    private int deltaAt(int slot) {
+        return (int) table[slot * FIELDS + 3];
+    }
+
+    private int lookup(long own, long opponent) {
+        int base = ((int) hash(own, opponent) & bucketMask) * WAYS;
+        for (int slot = base; slot < base + WAYS; slot++) {
+            int i = slot * FIELDS;
+            if (table[i + 2] != 0 && table[i] == own && table[i + 1] == opponent) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void store(long own, long opponent, int phi, int delta, long nodeWork) {
+        int base = ((int) hash(own, opponent) & bucketMask) * WAYS;
+        int target = -1;
+        for (int slot = base; slot < base + WAYS; slot++) {
+            int i = slot * FIELDS;
+            if (table[i + 2] != 0 && table[i] == own && table[i + 1] == opponent) {
+                // 同一局面再次展開時累積 work
+                nodeWork += table[i + 2];
+                target = slot;
+                break;
+            }
+            if (target < 0 || (table[target * FIELDS + 2] != 0 && table[i + 2] < table[target * FIELDS + 2])) {
+                target = slot;
+            }
+        }
+        int i = target * FIELDS;
+        if (table[i + 2] == 0) {
+            used++;
+        }
+        table[i] = own;
+        table[i + 1] = opponent;
+        table[i + 2] = Math.max(1, nodeWork);
+        table[i + 3] = (long) phi << 32 | (delta & 0xFFFFFFFFL);
+        if (used > gcThreshold) {
+            collectGarbage();
+        }
+    }
+
+    /**
+     * 依 work 由小到大回收項目，已解出的項目門檻放寬，直到佔用降到 GC_TARGET 以下。
+     */
+    private void collectGarbage() {
+        collections++;
+        int target = (int) (capacity * GC_TARGET);
+        for (long limit = 1; used > target; limit *= 2) {
+            for (int slot = 0; slot < capacity; slot++) {
+                long slotWork = table[slot * FIELDS + 2];
+                if (slotWork == 0) {
+                    continue;
+                }
+                boolean solved = phiAt(slot) == 0 || deltaAt(slot) == 0;
+                if (slotWork <= (solved ? limit * SOLVED_GC_FACTOR : limit)) {
+                    table[slot * FIELDS + 2] = 0;
+                    used--;
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(table, 0);
+        used = 0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.boardgames.tictactoe;
+
+import java.util.Locale;
+
+/**
+ * 證明數搜尋的結果：以行棋方角度的理論值，以及證明樹大小、展開的節點數與節點表的回收次數。
+ * 建立後不可變。
+ */
+public final class ProofResult {
+
+    /** 以行棋方角度的理論值。 */
+    public enum Value {
+        WIN("必勝"),
+        DRAW("和局"),
+        LOSS("必敗"),
+        /** 已證明贏不了，但在限制內沒能分出和局或必敗。 */
+        NO_WIN("不會贏（和或負未定）"),
+        /** 在節點限制內沒有得到任何結論。 */
+        UNKNOWN("未知");
+
+        private final String label;
+
+        Value(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final Value value;
+    private final long proofSize;
+    private final long nodes;
+    private final long nanos;
+    private final int collections;
+
+    public ProofResult(Value value, long proofSize, long nodes, long nanos, int collections) {
+        this.value = value;
+        this.proofSize = proofSize;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.collections = collections;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public boolean isSolved() {
+        return value == Value.WIN || value == Value.DRAW || value == Value.LOSS;
+    }
+
+    /**
+     * 證明樹（或否證樹）中不同局面的數量；和局是「行棋方贏不了」與「對手贏不了」兩棵樹的總和。
+     * 沒有結論時為 -1。
+     */
+    public long getProofSize() {
+        return proofSize;
+    }
+
+    /** 搜尋展開的節點數（不含事後走訪證明樹的部分）。 */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** 搜尋耗費的時間（不含走訪證明樹）。 */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double nodesPerSecond() {
+        return nanos == 0 ? 0.0 : nodes * 1e9 / nanos;
+    }
+
+    /** 節點表滿載時進行回收的次數。 */
+    public int getCollections() {
+        return collections;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s  證明樹 %d 個局面  節點 %d  %.0f 節點/秒  %.2f 秒  回收 %d 次",
+                value, proofSize, nodes, nodesPerSecond(), nanos / 1e9, collections);
+    }
+}
@@ -0,0 +1,49 @@
+package com.boardgames.tictactoe;
+
+import com.boardgames.common.CancellationToken;
+import com.boardgames.common.TimeBudget;
+import com.boardgames.common.TimeControl;
+import com.boardgames.common.TimeManager;
+
+/**
+ * 立體井字棋的 AI 玩家：在固定的時間預算內以 QubicSearch 反覆加深搜尋。
+ * 每條執行緒各自擁有搜尋引擎（含置換表），可以直接在 EngineScheduler 的工作執行緒上呼叫。
+ */
+public class QubicAIPlayer {
+
+    /** 沒有可落子的位置。 */
+    public static final int NO_MOVE = -1;
+    /** 預設每步的思考時間。 */
+    public static final long DEFAULT_MOVE_MILLIS = 1000;
+
+    private static final ThreadLocal<QubicSearch> SEARCH = ThreadLocal.withInitial(QubicSearch::new);
+
+    /**
+     * 在 moveMillis 毫秒內為行棋方找出最佳落子點。
+     *
+     * @param own 行棋方的棋子
+     * @param opponent 對手的棋子
+     * @param token 取消訊號，可為 null
+     * @return 格子編號 (level * 16 + row * 4 + col)，沒有空格時回傳 NO_MOVE
+     */
+    public static int findBestCell(long own, long opponent, long moveMillis, CancellationToken token) {
+        TimeBudget budget = TimeManager.allocate(TimeControl.perMove(moveMillis), moveMillis, 1, 1.0);
+        return findBestCell(own, opponent, budget, token);
+    }
+
+    /**
+     * 在指定的時間預算內找出最佳落子點（budget 為 null 時搜尋到終局，只適合殘局）。
+     */
+    public static int findBestCell(long own, long opponent, TimeBudget budget, CancellationToken token) {
+        int cell = SEARCH.get().search(own, opponent, QubicLines.CELLS, budget, token);
+        return cell < 0 ? NO_MOVE : cell;
+    }
+
+    /**
+     * 為目前輪到的一方找出最佳落子點。
+     */
+    public static int findBestCell(QubicGame game, long moveMillis) {
+        char player = game.getCurrentPlayer();
+        return findBestCell(game.getBits(player), game.getBits(player == 'X' ? 'O' : 'X'), moveMillis, null);
+    }
+}
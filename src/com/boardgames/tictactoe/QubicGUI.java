@@ -0,0 +1,338 @@
+package com.boardgames.tictactoe;
+
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+
+import com.boardgames.GameSelectionGUI;
+import com.boardgames.common.EngineScheduler;
+import com.boardgames.common.EngineTask;
+import com.boardgames.common.StartupTimer;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.JournalSession;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.spectator.SpectatorFeed;
+import com.boardgames.spectator.SpectatorServer;
+
+/**
+ * 立體井字棋 (Qubic, 4x4x4) 的圖形使用者介面。
+ * 四層棋盤逐層並排顯示（2 x 2），任一直線（含跨層）連成四子即獲勝。
+ * 電腦的思考以互動優先權交給共用的 EngineScheduler，每步有固定的時間預算。
+ */
+public class QubicGUI extends JFrame {
+
+    public enum GameMode {
+        PLAYER_VS_PLAYER,
+        PLAYER_VS_AI
+    }
+
+    private final CardLayout cardLayout = new CardLayout();
+    private final JPanel mainPanel = new JPanel(cardLayout);
+    private final JButton[] buttons = new JButton[QubicLines.CELLS];
+    private JLabel statusLabel;
+    private final QubicGame game;
+    private String spectatorChannel; // 觀戰頻道名稱，沒有啟動觀戰伺服器時為 null
+    private GameMode gameMode;
+    private EngineTask<Integer> aiTask; // 進行中的電腦思考，只在 EDT 上讀寫
+
+    // --- 與井字棋相同的配色 ---
+    private final Color COLOR_BACKGROUND = new Color(248, 249, 250); // 米白色背景
+    private final Color COLOR_CARD = Color.WHITE;
+    private final Color COLOR_TEXT_PRIMARY = new Color(33, 37, 41); // 深灰色文字
+    private final Color COLOR_PRIMARY = new Color(73, 80, 87); // 灰階強調色
+    private final Color COLOR_BORDER = new Color(222, 226, 230); // 淺灰邊框
+    private final Color COLOR_PLAYER_X = new Color(23, 113, 230); // 藍色 (X)
+    private final Color COLOR_PLAYER_O = new Color(230, 126, 34); // 橘色 (O)
+    private final Color COLOR_LAST_MOVE = new Color(255, 243, 205); // 最後一步的底色
+
+    // --- 字體設定 ---
+    private final Font FONT_BUTTON = new Font("Segoe UI", Font.BOLD, 28);
+    private final Font FONT_LABEL = new Font("微軟正黑體", Font.BOLD, 22);
+    private final Font FONT_PLANE = new Font("微軟正黑體", Font.PLAIN, 14);
+    private final Font FONT_NEW_GAME = new Font("微軟正黑體", Font.PLAIN, 16);
+    private final Font FONT_MODE_TITLE = new Font("微軟正黑體", Font.BOLD, 32);
+    private final Font FONT_MODE_BUTTON = new Font("微軟正黑體", Font.BOLD, 18);
+
+    private int lastMove = -1;
+
+    public QubicGUI() {
+        this(null);
+    }
+
+    /**
+     * 以對局日誌復原的一局開啟視窗，直接以玩家 vs. 玩家繼續；recovered 為 null 時與無參數建構子相同。
+     */
+    public QubicGUI(RecoveredGame recovered) {
+        this.game = recovered == null ? new QubicGame() : QubicGame.replay(recovered);
+        GameJournal journal = GameJournal.shared();
+        if (recovered == null && journal != null) {
+            game.setJournal(journal.start(GameJournal.Game.QUBIC, QubicLines.SIZE));
+        }
+        SpectatorServer spectators = SpectatorServer.shared();
+        if (spectators != null) {
+            SpectatorFeed feed = new SpectatorFeed();
+            spectatorChannel = spectators.register("qubic", feed);
+            game.setSpectatorFeed(feed);
+        }
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        setTitle(spectatorChannel == null ? "立體井字棋 (4x4x4)" : "立體井字棋 (4x4x4) - 觀戰頻道 " + spectatorChannel);
+        setSize(640, 720);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        mainPanel.add(createModeSelectionPanel(), "MODE_SELECTION");
+        mainPanel.add(createGamePanel(), "GAME");
+
+        add(mainPanel);
+        cardLayout.show(mainPanel, "MODE_SELECTION");
+        if (recovered != null) {
+            resumeGame();
+        }
+    }
+
+    private JPanel createModeSelectionPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBackground(COLOR_BACKGROUND);
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.insets = new Insets(10, 10, 30, 10);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        JLabel titleLabel = new JLabel("請選擇遊戲模式", SwingConstants.CENTER);
+        titleLabel.setFont(FONT_MODE_TITLE);
+        titleLabel.setForeground(COLOR_TEXT_PRIMARY);
+        panel.add(titleLabel, gbc);
+
+        JButton pvpButton = createStyledModeButton("玩家 vs. 玩家");
+        pvpButton.addActionListener(e -> startGame(GameMode.PLAYER_VS_PLAYER));
+        gbc.insets = new Insets(10, 40, 10, 40);
+        panel.add(pvpButton, gbc);
+
+        JButton pvaButton = createStyledModeButton("玩家 vs. 電腦");
+        pvaButton.addActionListener(e -> startGame(GameMode.PLAYER_VS_AI));
+        panel.add(pvaButton, gbc);
+
+        JButton backButton = new JButton("返回遊戲選擇");
+        backButton.setFont(FONT_NEW_GAME);
+        backButton.addActionListener(e -> {
+            cancelAITurn();
+            JournalSession session = game.getJournal();
+            if (session != null) {
+                session.finish(); // 放棄這局，下次啟動不需要復原
+            }
+            if (spectatorChannel != null) {
+                SpectatorServer.shared().unregister(spectatorChannel);
+            }
+            this.dispose();
+            new GameSelectionGUI().setVisible(true);
+        });
+        gbc.insets = new Insets(20, 40, 10, 40);
+        panel.add(backButton, gbc);
+
+        return panel;
+    }
+
+    // 不論從哪裡關閉視窗，還沒下完的對局都不再算作進行中
+    @Override
+    public void dispose() {
+        game.close();
+        super.dispose();
+    }
+
+    private JButton createStyledModeButton(String text) {
+        JButton button = new JButton(text);
+        button.setFont(FONT_MODE_BUTTON);
+        button.setBackground(COLOR_CARD);
+        button.setForeground(COLOR_TEXT_PRIMARY);
+        button.setFocusable(false);
+        button.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(COLOR_BORDER, 2),
+                BorderFactory.createEmptyBorder(15, 30, 15, 30)));
+        button.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                button.setBackground(COLOR_PRIMARY);
+                button.setForeground(COLOR_CARD);
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                button.setBackground(COLOR_CARD);
+                button.setForeground(COLOR_TEXT_PRIMARY);
+            }
+        });
+        return button;
+    }
+
+    private JPanel createGamePanel() {
+        JPanel gamePanel = new JPanel(new BorderLayout(0, 15));
+        gamePanel.setBackground(COLOR_BACKGROUND);
+        gamePanel.setBorder(new EmptyBorder(15, 15, 15, 15));
+
+        statusLabel = new JLabel("", SwingConstants.CENTER);
+        statusLabel.setFont(FONT_LABEL);
+        statusLabel.setForeground(COLOR_TEXT_PRIMARY);
+
+        // 四層棋盤排成 2 x 2，每層是一個 4x4 的按鈕格
+        JPanel planesPanel = new JPanel(new GridLayout(2, 2, 20, 20));
+        planesPanel.setBackground(COLOR_BACKGROUND);
+        Border buttonBorder = BorderFactory.createLineBorder(COLOR_BORDER, 2);
+        for (int level = 0; level < QubicLines.SIZE; level++) {
+            JPanel plane = new JPanel(new BorderLayout(0, 5));
+            plane.setBackground(COLOR_BACKGROUND);
+            JLabel planeLabel = new JLabel("第 " + (level + 1) + " 層", SwingConstants.CENTER);
+            planeLabel.setFont(FONT_PLANE);
+            planeLabel.setForeground(COLOR_TEXT_PRIMARY);
+
+            JPanel grid = new JPanel(new GridLayout(QubicLines.SIZE, QubicLines.SIZE, 4, 4));
+            grid.setBackground(COLOR_BACKGROUND);
+            for (int row = 0; row < QubicLines.SIZE; row++) {
+                for (int col = 0; col < QubicLines.SIZE; col++) {
+                    int cell = QubicLines.cell(level, row, col);
+                    JButton button = new JButton("");
+                    button.setFont(FONT_BUTTON);
+                    button.setFocusable(false);
+                    button.setBackground(COLOR_CARD);
+                    button.setBorder(buttonBorder);
+                    button.addActionListener(e -> handleClick(cell));
+                    buttons[cell] = button;
+                    grid.add(button);
+                }
+            }
+            plane.add(planeLabel, BorderLayout.NORTH);
+            plane.add(grid, BorderLayout.CENTER);
+            planesPanel.add(plane);
+        }
+
+        JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        footerPanel.setBackground(COLOR_BACKGROUND);
+        JButton newGameButton = new JButton("新遊戲");
+        newGameButton.setFont(FONT_NEW_GAME);
+        newGameButton.setFocusable(false);
+        newGameButton.setBackground(COLOR_CARD);
+        newGameButton.setForeground(COLOR_TEXT_PRIMARY);
+        newGameButton.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(COLOR_BORDER, 1),
+                BorderFactory.createEmptyBorder(8, 20, 8, 20)));
+        newGameButton.addActionListener(e -> {
+            cancelAITurn();
+            cardLayout.show(mainPanel, "MODE_SELECTION");
+        });
+        footerPanel.add(newGameButton);
+
+        gamePanel.add(statusLabel, BorderLayout.NORTH);
+        gamePanel.add(planesPanel, BorderLayout.CENTER);
+        gamePanel.add(footerPanel, BorderLayout.SOUTH);
+        return gamePanel;
+    }
+
+    private void startGame(GameMode mode) {
+        this.gameMode = mode;
+        cancelAITurn();
+        game.reset();
+        lastMove = -1;
+        updateView();
+        cardLayout.show(mainPanel, "GAME");
+    }
+
+    /**
+     * 不重置棋盤，直接以玩家 vs. 玩家繼續目前的對局（從對局日誌復原時使用）。
+     */
+    private void resumeGame() {
+        this.gameMode = GameMode.PLAYER_VS_PLAYER;
+        updateView();
+        cardLayout.show(mainPanel, "GAME");
+    }
+
+    private void handleClick(int cell) {
+        if (game.getGameState() != TicTacToeGame.GameState.PLAYING || aiTask != null) {
+            return;
+        }
+        if (game.makeMove(cell)) {
+            lastMove = cell;
+            updateView();
+            // 人機對戰時電腦執 O
+            if (gameMode == GameMode.PLAYER_VS_AI && game.getGameState() == TicTacToeGame.GameState.PLAYING
+                    && game.getCurrentPlayer() == 'O') {
+                handleAITurn();
+            }
+        }
+    }
+
+    /**
+     * 處理 AI 的回合：把目前的棋子遮罩交給排程器的工作執行緒，完成後回到 EDT 落子。
+     */
+    private void handleAITurn() {
+        long own = game.getBits('O');
+        long opponent = game.getBits('X');
+        EngineTask<Integer> task = EngineScheduler.get().submit(EngineScheduler.Priority.INTERACTIVE, "Qubic AI",
+                token -> QubicAIPlayer.findBestCell(own, opponent, QubicAIPlayer.DEFAULT_MOVE_MILLIS, token));
+        aiTask = task;
+        updateView();
+        task.future().whenComplete((cell, error) -> SwingUtilities.invokeLater(() -> {
+            if (task != aiTask) {
+                return; // 已被取消（開新局或返回選單）
+            }
+            aiTask = null;
+            if (error != null) {
+                error.printStackTrace();
+            } else if (cell != QubicAIPlayer.NO_MOVE && game.makeMove(cell)) {
+                StartupTimer.markFirstAiMove();
+                lastMove = cell;
+            }
+            updateView();
+        }));
+    }
+
+    private void cancelAITurn() {
+        if (aiTask != null) {
+            aiTask.cancel();
+            aiTask = null;
+        }
+    }
+
+    /**
+     * 更新畫面以反映最新的遊戲狀態。
+     */
+    private void updateView() {
+        TicTacToeGame.GameState state = game.getGameState();
+        long winningLine = game.getWinningLine();
+        boolean humanTurn = state == TicTacToeGame.GameState.PLAYING && aiTask == null;
+        for (int cell = 0; cell < QubicLines.CELLS; cell++) {
+            char symbol = game.getSymbolAt(cell / 16, cell / 4 % 4, cell % 4);
+            JButton button = buttons[cell];
+            button.setText(String.valueOf(symbol).trim());
+            button.setForeground(symbol == 'X' ? COLOR_PLAYER_X : COLOR_PLAYER_O);
+            button.setEnabled(humanTurn && symbol == ' ');
+            if ((winningLine & (1L << cell)) != 0) {
+                button.setBackground((symbol == 'X' ? COLOR_PLAYER_X : COLOR_PLAYER_O).brighter().brighter());
+                button.setOpaque(true);
+            } else {
+                button.setBackground(cell == lastMove ? COLOR_LAST_MOVE : COLOR_CARD);
+            }
+        }
+
+        switch (state) {
+            case PLAYING:
+                statusLabel.setText(aiTask != null ? "電腦思考中…" : "玩家 " + game.getCurrentPlayer() + " 的回合");
+                break;
+            case X_WINS:
+                statusLabel.setText("恭喜玩家 X 獲勝！");
+                break;
+            case O_WINS:
+                statusLabel.setText("恭喜玩家 O 獲勝！");
+                break;
+            case DRAW:
+                statusLabel.setText("遊戲平局！");
+                break;
+        }
+    }
+}
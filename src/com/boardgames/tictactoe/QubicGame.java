@@ -0,0 +1,259 @@
+package com.boardgames.tictactoe;
+
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.GameClock;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.JournalSession;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.spectator.SpectatorFeed;
+import com.boardgames.spectator.SpectatorFrames;
+
+/**
+ * 立體井字棋 (Qubic, 4x4x4) 的遊戲邏輯模型 (Model)。
+ * 四層 4x4 的棋盤，先在任一直線（含跨層的直線與對角線，共 76 條）連成四子者獲勝。
+ * 雙方的棋子各用一個 long 表示（格子編號見 QubicLines），勝負以預先算好的連線遮罩判斷。
+ * 與 TicTacToeGame 一樣使用 'X'（先手）與 'O'，並可搭配 GameClock 計時、SpectatorFeed 觀戰廣播與 JournalSession 對局日誌。
+ */
+public class QubicGame {
+
+    private long x;
+    private long o;
+    private char currentPlayer;
+    private TicTacToeGame.GameState gameState;
+    private boolean countedAsActive; // 是否已計入 EngineMetrics 的進行中局數
+    private GameClock clock; // null 表示不計時
+    private SpectatorFeed spectatorFeed; // null 表示不廣播
+    private JournalSession journal; // null 表示不寫日誌
+
+    public QubicGame() {
+        reset();
+    }
+
+    /**
+     * 重置遊戲：清空棋盤，由 X 先手。
+     */
+    public void reset() {
+        x = 0;
+        o = 0;
+        currentPlayer = 'X';
+        gameState = TicTacToeGame.GameState.PLAYING;
+        if (clock != null) {
+            clock.reset();
+            clock.start('X');
+        }
+
+        if (countedAsActive) {
+            EngineMetrics.get().gameAbandoned(); // 上一局尚未結束就重新開始
+        }
+        EngineMetrics.get().gameStarted();
+        countedAsActive = true;
+        if (journal != null) {
+            journal.restart(QubicLines.SIZE);
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * 放棄這一局：還沒下完時不再計入 EngineMetrics 的進行中局數。視窗關閉或工具用完對局時呼叫，重複呼叫沒有作用；
+     * 之後仍可以 reset() 開始新的一局。
+     */
+    public void close() {
+        if (countedAsActive) {
+            EngineMetrics.get().gameAbandoned();
+            countedAsActive = false;
+        }
+    }
+
+    /**
+     * 在指定的層、列、行落子。
+     *
+     * @return 落子成功回傳 true；位置無效、已有棋子、遊戲已結束或已超時回傳 false
+     */
+    public boolean makeMove(int level, int row, int col) {
+        if (level < 0 || level >= QubicLines.SIZE || row < 0 || row >= QubicLines.SIZE
+                || col < 0 || col >= QubicLines.SIZE) {
+            return false;
+        }
+        return makeMove(QubicLines.cell(level, row, col));
+    }
+
+    /**
+     * 以格子編號 (level * 16 + row * 4 + col) 落子。
+     */
+    public boolean makeMove(int cell) {
+        if (checkTime()) {
+            return false; // 已經超時，這一步不算
+        }
+        if (cell < 0 || cell >= QubicLines.CELLS || gameState != TicTacToeGame.GameState.PLAYING
+                || ((x | o) & (1L << cell)) != 0) {
+            return false;
+        }
+        char mover = currentPlayer;
+        if (journal != null) {
+            journal.move(cell);
+        }
+        long bits;
+        if (currentPlayer == 'X') {
+            bits = x |= 1L << cell;
+        } else {
+            bits = o |= 1L << cell;
+        }
+
+        if (QubicLines.winsThrough(bits, cell)) {
+            gameState = currentPlayer == 'X' ? TicTacToeGame.GameState.X_WINS : TicTacToeGame.GameState.O_WINS;
+        } else if ((x | o) == -1L) {
+            gameState = TicTacToeGame.GameState.DRAW;
+        }
+
+        if (gameState == TicTacToeGame.GameState.PLAYING) {
+            currentPlayer = currentPlayer == 'X' ? 'O' : 'X';
+            if (clock != null) {
+                clock.switchTo(currentPlayer);
+            }
+        } else {
+            finish();
+        }
+        if (spectatorFeed != null) {
+            spectatorFeed.publish(SpectatorFrames.cellMove(SpectatorFrames.QUBIC, side(mover), cell,
+                    gameState.ordinal(), side(currentPlayer)));
+        }
+        return true;
+    }
+
+    /**
+     * 檢查輪到的一方是否已經超時；超時時遊戲立即結束，由另一方獲勝。
+     *
+     * @return 這次呼叫是否判定了超時
+     */
+    public boolean checkTime() {
+        if (clock == null || gameState != TicTacToeGame.GameState.PLAYING || !clock.isFlagged(currentPlayer)) {
+            return false;
+        }
+        gameState = currentPlayer == 'X' ? TicTacToeGame.GameState.O_WINS : TicTacToeGame.GameState.X_WINS;
+        finish();
+        publishSnapshot();
+        return true;
+    }
+
+    private void finish() {
+        if (clock != null) {
+            clock.stop();
+        }
+        if (countedAsActive) {
+            EngineMetrics.get().gameFinished();
+            countedAsActive = false;
+            if (journal != null) {
+                journal.finish();
+            }
+        }
+    }
+
+    /**
+     * 設定對局時鐘並從目前輪到的一方開始計時；null 表示不計時。之後每次 reset 都會重置時鐘。
+     */
+    public void setClock(GameClock clock) {
+        if (this.clock != null) {
+            this.clock.stop();
+        }
+        this.clock = clock;
+        if (clock != null) {
+            clock.reset();
+            if (gameState == TicTacToeGame.GameState.PLAYING) {
+                clock.start(currentPlayer);
+            }
+        }
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * 設定觀戰頻道並立刻發布目前局面的快照；之後每一步發布一個差異訊框，reset 與超時判負發布快照。
+     * null 表示停止廣播。
+     */
+    public void setSpectatorFeed(SpectatorFeed feed) {
+        this.spectatorFeed = feed;
+        publishSnapshot();
+    }
+
+    /**
+     * 設定對局日誌的紀錄（由 GameJournal.start 或 RecoveredGame.resume 取得）；null 表示停止記錄。
+     * 應在新局開始前設定，之後每一步、reset 與對局結束都會寫入日誌。
+     */
+    public void setJournal(JournalSession session) {
+        this.journal = session;
+    }
+
+    /**
+     * 目前的對局日誌紀錄，不寫日誌時回傳 null。
+     */
+    public JournalSession getJournal() {
+        return journal;
+    }
+
+    /**
+     * 重放日誌中復原的一局立體井字棋，並繼續把之後的落子記錄到同一份日誌。時鐘不會復原。
+     *
+     * @throws IllegalArgumentException 不是立體井字棋的紀錄，或其中有不合法的落子
+     */
+    public static QubicGame replay(RecoveredGame recovered) {
+        if (recovered.getGame() != GameJournal.Game.QUBIC) {
+            throw new IllegalArgumentException("不是立體井字棋的紀錄: " + recovered);
+        }
+        QubicGame game = new QubicGame();
+        for (int cell : recovered.getMoves()) {
+            if (!game.makeMove(cell)) {
+                throw new IllegalArgumentException("紀錄中有不合法的落子: " + cell);
+            }
+        }
+        game.setJournal(recovered.resume());
+        return game;
+    }
+
+    private void publishSnapshot() {
+        if (spectatorFeed != null) {
+            spectatorFeed.publish(SpectatorFrames.cellSnapshot(SpectatorFrames.QUBIC, side(currentPlayer),
+                    gameState.ordinal(), x, o));
+        }
+    }
+
+    private static int side(char player) {
+        return player == 'X' ? 0 : 1;
+    }
+
+    // --- 用於 View 讀取的 Getter 方法 ---
+    public char getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public TicTacToeGame.GameState getGameState() {
+        return gameState;
+    }
+
+    public char getSymbolAt(int level, int row, int col) {
+        long bit = 1L << QubicLines.cell(level, row, col);
+        return (x & bit) != 0 ? 'X' : (o & bit) != 0 ? 'O' : ' ';
+    }
+
+    /**
+     * 指定玩家棋子的 64 位元遮罩。
+     */
+    public long getBits(char player) {
+        return player == 'X' ? x : o;
+    }
+
+    /**
+     * 獲勝連線的遮罩，尚未分出勝負（或因超時結束）時回傳 0。
+     */
+    public long getWinningLine() {
+        switch (gameState) {
+            case X_WINS:
+                return QubicLines.winningLine(x);
+            case O_WINS:
+                return QubicLines.winningLine(o);
+            default:
+                return 0;
+        }
+    }
+}
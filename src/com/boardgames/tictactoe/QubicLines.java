@@ -0,0 +1,114 @@
+package com.boardgames.tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * 立體井字棋 (Qubic, 4x4x4) 的棋盤幾何。
+ * 64 格對應一個 long 的 64 個位元：格子編號 = level * 16 + row * 4 + col。
+ * 全部 76 條連線（每層 10 條 x 4 層、垂直 16 條、垂直面的對角線 16 條、空間對角線 4 條）都預先算成遮罩。
+ */
+public final class QubicLines {
+
+    public static final int SIZE = 4;
+    public static final int CELLS = 64;
+    public static final int LINE_COUNT = 76;
+
+    /** 每條連線的 4 格遮罩。 */
+    static final long[] LINES = new long[LINE_COUNT];
+    /** 每一格所在的連線編號（角與中心 8 格各在 7 條線上，其餘在 4 條線上）。 */
+    static final int[][] CELL_LINES = new int[CELLS][];
+
+    static {
+        int[] perCell = new int[CELLS];
+        int[][] buffer = new int[CELLS][7];
+        int count = 0;
+        for (int dl = -1; dl <= 1; dl++) {
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    // 每個方向只取一次（方向與反方向是同一條線）
+                    int code = dl * 9 + dr * 3 + dc;
+                    if (code <= 0) {
+                        continue;
+                    }
+                    for (int cell = 0; cell < CELLS; cell++) {
+                        int l = cell / 16;
+                        int r = cell / 4 % 4;
+                        int c = cell % 4;
+                        // 只從線的起點出發：往反方向退一步會出界，往前走三步仍在界內
+                        if (inside(l - dl, r - dr, c - dc) || !inside(l + 3 * dl, r + 3 * dr, c + 3 * dc)) {
+                            continue;
+                        }
+                        long mask = 0;
+                        for (int k = 0; k < SIZE; k++) {
+                            int sq = cell(l + k * dl, r + k * dr, c + k * dc);
+                            mask |= 1L << sq;
+                            buffer[sq][perCell[sq]++] = count;
+                        }
+                        LINES[count++] = mask;
+                    }
+                }
+            }
+        }
+        if (count != LINE_COUNT) {
+            throw new IllegalStateException("Qubic 連線數應為 76，實際為 " + count);
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            CELL_LINES[cell] = Arrays.copyOf(buffer[cell], perCell[cell]);
+        }
+    }
+
+    private QubicLines() {
+    }
+
+    private static boolean inside(int l, int r, int c) {
+        return l >= 0 && l < SIZE && r >= 0 && r < SIZE && c >= 0 && c < SIZE;
+    }
+
+    public static int cell(int level, int row, int col) {
+        return level * 16 + row * 4 + col;
+    }
+
+    /**
+     * 在 cell 落子後的 bits 是否完成了經過 cell 的某條連線（只檢查經過該格的 4 或 7 條線）。
+     */
+    public static boolean winsThrough(long bits, int cell) {
+        for (int line : CELL_LINES[cell]) {
+            if ((bits & LINES[line]) == LINES[line]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 完成的連線遮罩，沒有時回傳 0。
+     */
+    public static long winningLine(long bits) {
+        for (long line : LINES) {
+            if ((bits & line) == line) {
+                return line;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * own 只差一子就能完成的連線上的那些空格（對手沒有棋子的線上已有 own 三子）。
+     */
+    public static long threats(long own, long opponent) {
+        long cells = 0;
+        for (long line : LINES) {
+            if ((line & opponent) == 0 && Long.bitCount(line & own) == 3) {
+                cells |= line & ~own;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * 該格所在的連線數，作為靜態的位置價值。
+     */
+    public static int lineCount(int cell) {
+        return CELL_LINES[cell].length;
+    }
+}
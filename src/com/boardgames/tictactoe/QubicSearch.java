@@ -0,0 +1,244 @@
+package com.boardgames.tictactoe;
+
+import com.boardgames.common.CancellationToken;
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.MemoryBudget;
+import com.boardgames.common.TimeBudget;
+import com.boardgames.common.TranspositionTable;
+
+/**
+ * 立體井字棋的搜尋引擎：反覆加深的 alpha-beta（negamax 形式）搭配置換表。
+ *
+ * 每個節點先處理強制著：自己有一步致勝就直接得分；對手有兩個以上的致勝點則必敗；
+ * 對手只有一個致勝點時只考慮擋住它，且這一步不消耗深度（擋子延伸），因此能看穿較長的連續威脅。
+ * 其餘節點依置換表的最佳步、歷史分數與格子所在的連線數排序。
+ * 評估函數只計算尚未被對方阻擋的連線，依線上的子數加權。
+ *
+ * 每層的走法緩衝區預先配置，搜尋過程不配置物件；同一個實例不可同時被多條執行緒使用。
+ */
+public class QubicSearch {
+
+    /** 必勝分數的基準，實際分數為 WIN - 到達勝局的步數，越快贏越好。 */
+    public static final int WIN = 100_000;
+    private static final int INFINITY = 1_000_000;
+    private static final int MAX_PLY = QubicLines.CELLS + 1;
+    // 已確定勝負的分數範圍（WIN 減去最多 64 步）
+    private static final int PROVEN = WIN - MAX_PLY;
+
+    // 線上已有 0..3 子（且對方沒有棋子）時的分數
+    private static final int[] LINE_WEIGHTS = {0, 2, 12, 60};
+    private static final int TEMPO = 4; // 行棋方的先手優勢
+
+    private final TranspositionTable table;
+    private final int[][] moveLists = new int[MAX_PLY][QubicLines.CELLS];
+    private final int[][] moveKeys = new int[MAX_PLY][QubicLines.CELLS];
+    private final int[] history = new int[QubicLines.CELLS];
+
+    private long nodes;
+    private long deadline = Long.MAX_VALUE;
+    private CancellationToken cancellation;
+    private boolean aborted;
+    private int rootBestMove;
+
+    /**
+     * 置換表大小由 MemoryBudget 的 qubic.search 群組決定。
+     */
+    public QubicSearch() {
+        this.table = new TranspositionTable(MemoryBudget.QUBIC_SEARCH);
+    }
+
+    /**
+     * @param log2TableSize 置換表容量的以 2 為底對數
+     */
+    public QubicSearch(int log2TableSize) {
+        this.table = new TranspositionTable(log2TableSize);
+    }
+
+    /**
+     * 在時間預算內搜尋最佳落子點。第一輪（深度 1）一定會完成；找到必勝或必敗時提早結束。
+     *
+     * @param player 行棋方的棋子
+     * @param opponent 對手的棋子
+     * @param maxDepth 最大搜尋深度
+     * @param budget 時間預算，null 表示只受 maxDepth 限制
+     * @param token 取消訊號，可為 null
+     * @return 最佳落子的格子編號；沒有空格時回傳 -1
+     */
+    public int search(long player, long opponent, int maxDepth, TimeBudget budget, CancellationToken token) {
+        long start = System.nanoTime();
+        long empty = ~(player | opponent);
+        if (empty == 0) {
+            return -1;
+        }
+        nodes = 0;
+        aborted = false;
+        cancellation = token;
+        deadline = Long.MAX_VALUE;
+        table.newSearch();
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 2; // 保留上一步的部分歷史
+        }
+
+        int bestMove = Long.numberOfTrailingZeros(empty);
+        int stableIterations = 0;
+        int empties = Long.bitCount(empty);
+        for (int depth = 1; depth <= Math.min(maxDepth, empties); depth++) {
+            int score = negamax(player, opponent, depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            stableIterations = depth > 1 && rootBestMove == bestMove ? stableIterations + 1 : 0;
+            bestMove = rootBestMove;
+            if (Math.abs(score) >= PROVEN) {
+                break; // 已經證明勝負
+            }
+            if (budget != null) {
+                if (!budget.shouldStartIteration(System.nanoTime(), stableIterations)) {
+                    break;
+                }
+                deadline = budget.hardDeadline();
+            }
+        }
+        cancellation = null;
+        deadline = Long.MAX_VALUE;
+        EngineMetrics.get().recordMove(nodes, System.nanoTime() - start);
+        return bestMove;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int negamax(long player, long opponent, int depth, int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & 0x3FF) == 0 && (System.nanoTime() > deadline
+                || (cancellation != null && cancellation.isCancelled()))) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        long empty = ~(player | opponent);
+        long wins = QubicLines.threats(player, opponent) & empty;
+        if (wins != 0) {
+            if (ply == 0) {
+                rootBestMove = Long.numberOfTrailingZeros(wins);
+            }
+            return WIN - ply - 1;
+        }
+        long forced = QubicLines.threats(opponent, player) & empty;
+        if (Long.bitCount(forced) >= 2) {
+            if (ply == 0) {
+                rootBestMove = Long.numberOfTrailingZeros(forced); // 擋一個，希望對手看不見
+            }
+            return -(WIN - ply - 2);
+        }
+        if (empty == 0) {
+            return 0; // 和局
+        }
+        boolean blocking = forced != 0;
+        if (depth <= 0 && !blocking) {
+            return evaluate(player, opponent);
+        }
+
+        int alphaOriginal = alpha;
+        int tableMove = -1;
+        int entry = table.probe(player, opponent);
+        if (entry >= 0) {
+            tableMove = table.move(entry);
+            if (table.depth(entry) >= depth && ply > 0) {
+                int score = fromTable(table.score(entry), ply);
+                int bound = table.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int[] list = moveLists[ply];
+        int count = blocking ? single(list, forced) : orderMoves(empty, tableMove, ply);
+        int childDepth = blocking ? depth : depth - 1; // 擋子不消耗深度
+        int best = -INFINITY;
+        int bestMove = list[0];
+        for (int i = 0; i < count; i++) {
+            int cell = list[i];
+            int score = -negamax(opponent, player | (1L << cell), childDepth, -beta, -alpha, ply + 1);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = cell;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        history[cell] += depth * depth;
+                        break;
+                    }
+                }
+            }
+        }
+        if (ply == 0) {
+            rootBestMove = bestMove;
+        }
+
+        int bound = best <= alphaOriginal ? TranspositionTable.BOUND_UPPER
+                : best >= beta ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT;
+        table.store(player, opponent, toTable(best, ply), depth, bound, bestMove);
+        return best;
+    }
+
+    // 置換表中的勝負分數以「從這個節點算起」的步數保存，取出時再換回從根節點算起
+    private static int toTable(int score, int ply) {
+        return score >= PROVEN ? score + ply : score <= -PROVEN ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= PROVEN ? score - ply : score <= -PROVEN ? score + ply : score;
+    }
+
+    private static int single(int[] list, long forced) {
+        list[0] = Long.numberOfTrailingZeros(forced);
+        return 1;
+    }
+
+    /**
+     * 將空格填入該層的緩衝區並排序（置換表最佳步最先，其次依歷史分數與連線數）。
+     */
+    private int orderMoves(long empty, int tableMove, int ply) {
+        int[] list = moveLists[ply];
+        int[] keys = moveKeys[ply];
+        int count = 0;
+        while (empty != 0) {
+            int cell = Long.numberOfTrailingZeros(empty);
+            empty &= empty - 1;
+            int key = cell == tableMove ? Integer.MAX_VALUE : history[cell] * 8 + QubicLines.lineCount(cell);
+            int i = count++;
+            while (i > 0 && keys[i - 1] < key) {
+                keys[i] = keys[i - 1];
+                list[i] = list[i - 1];
+                i--;
+            }
+            keys[i] = key;
+            list[i] = cell;
+        }
+        return count;
+    }
+
+    private static int evaluate(long player, long opponent) {
+        int score = TEMPO;
+        for (long line : QubicLines.LINES) {
+            long own = line & player;
+            long opp = line & opponent;
+            if (opp == 0) {
+                score += LINE_WEIGHTS[Long.bitCount(own)];
+            } else if (own == 0) {
+                score -= LINE_WEIGHTS[Long.bitCount(opp)];
+            }
+        }
+        return score;
+    }
+}
@@ -1,15 +1,44 @@
 package com.boardgames.tictactoe;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.SharedRandom;
 
 /**
  * 井字棋的 AI 玩家邏輯。
  * 這是一個簡單的 AI，只會隨機選擇空位。
+ * 走法以格子編號 (row * 3 + col) 表示、棋盤以 9 位元遮罩表示，選擇過程不配置任何物件。
  */
 public class TicTacToeAIPlayer {
 
+    /** 沒有可落子的位置。 */
+    public static final int NO_MOVE = -1;
+
+    private static final int FULL_BOARD = 0x1FF;
+
+    /**
+     * 從空位中隨機選擇一個。只做選擇，不記錄 EngineMetrics（配置量檢查等工具會大量呼叫）；
+     * 電腦真正落子時請用 chooseSquare。
+     *
+     * @param occupied 已被佔用的格子（第 row * 3 + col 個位元），例如 game.getBits('X') | game.getBits('O')
+     * @return 落子的格子編號，如果沒有空位則回傳 NO_MOVE
+     */
+    public static int findRandomSquare(int occupied) {
+        return SharedRandom.randomBit(~occupied & FULL_BOARD);
+    }
+
+    /**
+     * 電腦落子：與 findRandomSquare 相同，並把這一步（候選格數與選擇花的時間）記錄到 EngineMetrics。
+     * 沒有空位時不記錄。
+     */
+    public static int chooseSquare(int occupied) {
+        long startNanos = System.nanoTime();
+        int square = findRandomSquare(occupied);
+        if (square != NO_MOVE) {
+            EngineMetrics.get().recordMove(Integer.bitCount(~occupied & FULL_BOARD), System.nanoTime() - startNanos);
+        }
+        return square;
+    }
+
     /**
      * 為 AI 玩家尋找下一步。
      * 這是一個簡單的 AI，只會從空位中隨機選擇一個。
@@ -18,23 +47,18 @@ public class TicTacToeAIPlayer {
      * @return 包含 [row, col] 的陣列表示落子位置，如果沒有空位則回傳 null
      */
     public static int[] findRandomMove(char[][] board) {
-        List<int[]> emptyCells = new ArrayList<>();
-        // 找出所有空位
+        int occupied = 0;
         for (int i = 0; i < 3; i++) {
             for (int j = 0; j < 3; j++) {
-                if (board[i][j] == ' ') {
-                    emptyCells.add(new int[]{i, j});
+                if (board[i][j] != ' ') {
+                    occupied |= 1 << (i * 3 + j);
                 }
             }
         }
-
-        if (emptyCells.isEmpty()) {
+        int square = chooseSquare(occupied);
+        if (square == NO_MOVE) {
             return null; // 沒有可移動的位置
         }
-
-        // 隨機選擇一個空位
-        Random random = new Random();
-        int[] chosenMove = emptyCells.get(random.nextInt(emptyCells.size()));
-        return chosenMove;
+        return new int[]{square / 3, square % 3};
     }
-}
\ No newline at end of file
+}
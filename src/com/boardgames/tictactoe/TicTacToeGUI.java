@@ -7,6 +7,12 @@ import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 
 import com.boardgames.GameSelectionGUI;
+import com.boardgames.common.StartupTimer;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.JournalSession;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.spectator.SpectatorFeed;
+import com.boardgames.spectator.SpectatorServer;
 
 /**
  * 井字棋的圖形使用者介面 (GUI)。
@@ -24,6 +30,7 @@ public class TicTacToeGUI extends JFrame {
     private final JButton[][] buttons = new JButton[3][3];
     private JLabel statusLabel;
     private final TicTacToeGame game;
+    private String spectatorChannel; // 觀戰頻道名稱，沒有啟動觀戰伺服器時為 null
     private GameMode gameMode;
 
     // --- 現代化簡約配色 (靈感來自 shadcn/ui) ---
@@ -43,14 +50,31 @@ public class TicTacToeGUI extends JFrame {
     private final Font FONT_MODE_BUTTON = new Font("微軟正黑體", Font.BOLD, 18);
 
     public TicTacToeGUI() {
-        this.game = new TicTacToeGame();
+        this(null);
+    }
+
+    /**
+     * 以對局日誌復原的一局開啟視窗，直接以玩家 vs. 玩家繼續；recovered 為 null 時與無參數建構子相同。
+     */
+    public TicTacToeGUI(RecoveredGame recovered) {
+        this.game = recovered == null ? new TicTacToeGame() : TicTacToeGame.replay(recovered);
+        GameJournal journal = GameJournal.shared();
+        if (recovered == null && journal != null) {
+            game.setJournal(journal.start(GameJournal.Game.TICTACTOE, 3));
+        }
+        SpectatorServer spectators = SpectatorServer.shared();
+        if (spectators != null) {
+            SpectatorFeed feed = new SpectatorFeed();
+            spectatorChannel = spectators.register("tictactoe", feed);
+            game.setSpectatorFeed(feed);
+        }
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        setTitle("井字棋遊戲");
+        setTitle(spectatorChannel == null ? "井字棋遊戲" : "井字棋遊戲 - 觀戰頻道 " + spectatorChannel);
         setSize(400, 500);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
@@ -67,6 +91,9 @@ public class TicTacToeGUI extends JFrame {
 
         add(mainPanel);
         cardLayout.show(mainPanel, "MODE_SELECTION");
+        if (recovered != null) {
+            resumeGame();
+        }
     }
 
     private JPanel createModeSelectionPanel() {
@@ -96,6 +123,13 @@ public class TicTacToeGUI extends JFrame {
         JButton backButton = new JButton("返回遊戲選擇");
         backButton.setFont(FONT_NEW_GAME);
         backButton.addActionListener(e -> {
+            JournalSession session = game.getJournal();
+            if (session != null) {
+                session.finish(); // 放棄這局，下次啟動不需要復原
+            }
+            if (spectatorChannel != null) {
+                SpectatorServer.shared().unregister(spectatorChannel);
+            }
             this.dispose();
             new GameSelectionGUI().setVisible(true);
         });
@@ -105,6 +139,13 @@ public class TicTacToeGUI extends JFrame {
         return panel;
     }
 
+    // 不論從哪裡關閉視窗，還沒下完的對局都不再算作進行中
+    @Override
+    public void dispose() {
+        game.close();
+        super.dispose();
+    }
+
     private JButton createStyledModeButton(String text) {
         JButton button = new JButton(text);
         button.setFont(FONT_MODE_BUTTON);
@@ -199,6 +240,15 @@ public class TicTacToeGUI extends JFrame {
         cardLayout.show(mainPanel, "GAME");
     }
 
+    /**
+     * 不重置棋盤，直接以玩家 vs. 玩家繼續目前的對局（從對局日誌復原時使用）。
+     */
+    private void resumeGame() {
+        this.gameMode = GameMode.PLAYER_VS_PLAYER;
+        updateView();
+        cardLayout.show(mainPanel, "GAME");
+    }
+
     private class ButtonClickListener implements ActionListener {
         private final int row, col;
 
@@ -235,9 +285,10 @@ public class TicTacToeGUI extends JFrame {
                 button.setEnabled(false);
                 
         Timer timer = new Timer(500, e -> {
-            int[] aiMove = TicTacToeAIPlayer.findRandomMove(game.getBoard());
-            if (aiMove != null) {
-                game.makeMove(aiMove[0], aiMove[1]);
+            int square = TicTacToeAIPlayer.chooseSquare(game.getBits('X') | game.getBits('O'));
+            if (square != TicTacToeAIPlayer.NO_MOVE) {
+                game.makeMove(square / 3, square % 3);
+                StartupTimer.markFirstAiMove();
                 updateView();
             }
         });
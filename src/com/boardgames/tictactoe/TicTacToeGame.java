@@ -1,8 +1,18 @@
 package com.boardgames.tictactoe;
 
+import com.boardgames.common.EngineMetrics;
+import com.boardgames.common.GameClock;
+import com.boardgames.journal.GameJournal;
+import com.boardgames.journal.JournalSession;
+import com.boardgames.journal.RecoveredGame;
+import com.boardgames.spectator.SpectatorFeed;
+import com.boardgames.spectator.SpectatorFrames;
+
 /**
  * 井字棋的遊戲邏輯模型 (Model)。
  * 負責維護棋盤狀態、判斷勝負以及處理落子邏輯。
+ * 可選擇搭配 GameClock 計時：每次落子切換時鐘，輪到的一方超時即判負。
+ * 也可以接上 SpectatorFeed，把每一步廣播給觀眾；接上 JournalSession 則每一步寫入對局日誌，當機後可以復原。
  */
 public class TicTacToeGame {
 
@@ -16,6 +26,10 @@ public class TicTacToeGame {
     private char[][] board; // 3x3 的棋盤陣列
     private char currentPlayer; // 當前玩家 ('X' 或 'O')
     private GameState gameState; // 當前遊戲狀態
+    private boolean countedAsActive; // 是否已計入 EngineMetrics 的進行中局數
+    private GameClock clock; // null 表示不計時
+    private SpectatorFeed spectatorFeed; // null 表示不廣播
+    private JournalSession journal; // null 表示不寫日誌
 
     public TicTacToeGame() {
         board = new char[3][3];
@@ -34,6 +48,31 @@ public class TicTacToeGame {
         }
         currentPlayer = 'X';
         gameState = GameState.PLAYING;
+        if (clock != null) {
+            clock.reset();
+            clock.start('X');
+        }
+
+        if (countedAsActive) {
+            EngineMetrics.get().gameAbandoned(); // 上一局尚未結束就重新開始
+        }
+        EngineMetrics.get().gameStarted();
+        countedAsActive = true;
+        if (journal != null) {
+            journal.restart(3);
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * 放棄這一局：還沒下完時不再計入 EngineMetrics 的進行中局數。視窗關閉或工具用完對局時呼叫，重複呼叫沒有作用；
+     * 之後仍可以 reset() 開始新的一局。
+     */
+    public void close() {
+        if (countedAsActive) {
+            EngineMetrics.get().gameAbandoned();
+            countedAsActive = false;
+        }
     }
 
     /**
@@ -43,20 +82,136 @@ public class TicTacToeGame {
      * @return 如果落子成功回傳 true，否則回傳 false (例如該位置已有棋子或遊戲已結束)
      */
     public boolean makeMove(int row, int col) {
+        if (checkTime()) {
+            return false; // 已經超時，這一步不算
+        }
         // 檢查邊界、是否已佔用、以及遊戲是否正在進行中
         if (row < 0 || row >= 3 || col < 0 || col >= 3 || board[row][col] != ' ' || gameState != GameState.PLAYING) {
             return false; // 無效的落子
         }
 
         board[row][col] = currentPlayer; // 更新棋盤
+        char mover = currentPlayer;
+        if (journal != null) {
+            journal.move(row * 3 + col);
+        }
         updateGameState(); // 檢查勝負狀態
         // 如果遊戲仍在進行，切換玩家
         if (gameState == GameState.PLAYING) {
             currentPlayer = (currentPlayer == 'X') ? 'O' : 'X';
+            if (clock != null) {
+                clock.switchTo(currentPlayer);
+            }
+        } else if (clock != null) {
+            clock.stop();
+        }
+        if (spectatorFeed != null) {
+            spectatorFeed.publish(SpectatorFrames.cellMove(SpectatorFrames.TICTACTOE, side(mover), row * 3 + col,
+                    gameState.ordinal(), side(currentPlayer)));
+        }
+        return true;
+    }
+
+    /**
+     * 檢查輪到的一方是否已經超時；超時時遊戲立即結束，由另一方獲勝。
+     * 不計時或遊戲已結束時不做任何事。
+     *
+     * @return 這次呼叫是否判定了超時
+     */
+    public boolean checkTime() {
+        if (clock == null || gameState != GameState.PLAYING || !clock.isFlagged(currentPlayer)) {
+            return false;
+        }
+        clock.stop();
+        gameState = currentPlayer == 'X' ? GameState.O_WINS : GameState.X_WINS;
+        if (countedAsActive) {
+            EngineMetrics.get().gameFinished();
+            countedAsActive = false;
+            if (journal != null) {
+                journal.finish();
+            }
         }
+        publishSnapshot();
         return true;
     }
 
+    /**
+     * 設定對局時鐘並從目前輪到的一方開始計時；null 表示不計時。之後每次 reset 都會重置時鐘。
+     */
+    public void setClock(GameClock clock) {
+        if (this.clock != null) {
+            this.clock.stop();
+        }
+        this.clock = clock;
+        if (clock != null) {
+            clock.reset();
+            if (gameState == GameState.PLAYING) {
+                clock.start(currentPlayer);
+            }
+        }
+    }
+
+    /**
+     * 目前的對局時鐘，不計時時回傳 null。
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * 設定觀戰頻道並立刻發布目前局面的快照；之後每一步發布一個差異訊框，reset 與超時判負發布快照。
+     * null 表示停止廣播。
+     */
+    public void setSpectatorFeed(SpectatorFeed feed) {
+        this.spectatorFeed = feed;
+        publishSnapshot();
+    }
+
+    /**
+     * 設定對局日誌的紀錄（由 GameJournal.start 或 RecoveredGame.resume 取得）；null 表示停止記錄。
+     * 應在新局開始前設定，之後每一步、reset 與對局結束都會寫入日誌。
+     */
+    public void setJournal(JournalSession session) {
+        this.journal = session;
+    }
+
+    /**
+     * 目前的對局日誌紀錄，不寫日誌時回傳 null。
+     */
+    public JournalSession getJournal() {
+        return journal;
+    }
+
+    /**
+     * 重放日誌中復原的一局井字棋，並繼續把之後的落子記錄到同一份日誌。時鐘不會復原。
+     *
+     * @throws IllegalArgumentException 不是井字棋的紀錄，或其中有不合法的落子
+     */
+    public static TicTacToeGame replay(RecoveredGame recovered) {
+        if (recovered.getGame() != GameJournal.Game.TICTACTOE) {
+            throw new IllegalArgumentException("不是井字棋的紀錄: " + recovered);
+        }
+        TicTacToeGame game = new TicTacToeGame();
+        for (int cell : recovered.getMoves()) {
+            if (!game.makeMove(cell / 3, cell % 3)) {
+                throw new IllegalArgumentException("紀錄中有不合法的落子: " + cell);
+            }
+        }
+        game.setJournal(recovered.resume());
+        return game;
+    }
+
+    private void publishSnapshot() {
+        if (spectatorFeed != null) {
+            spectatorFeed.publish(SpectatorFrames.cellSnapshot(SpectatorFrames.TICTACTOE, side(currentPlayer),
+                    gameState.ordinal(), getBits('X'), getBits('O')));
+        }
+    }
+
+    private static int side(char player) {
+        return player == 'X' ? 0 : 1;
+    }
+
     /**
      * 更新遊戲狀態。
      * 檢查是否有玩家獲勝或平局。
@@ -69,6 +224,13 @@ public class TicTacToeGame {
         } else if (isBoardFull()) {
             gameState = GameState.DRAW;
         }
+        if (gameState != GameState.PLAYING && countedAsActive) {
+            EngineMetrics.get().gameFinished();
+            countedAsActive = false;
+            if (journal != null) {
+                journal.finish();
+            }
+        }
     }
 
     /**
@@ -122,6 +284,21 @@ public class TicTacToeGame {
         return board[row][col];
     }
 
+    /**
+     * 取得指定玩家棋子的 9 位元遮罩（第 row * 3 + col 個位元代表該格），可搭配 BoardSymmetry 做對稱正規化。
+     */
+    public int getBits(char player) {
+        int bits = 0;
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (board[i][j] == player) {
+                    bits |= 1 << (i * 3 + j);
+                }
+            }
+        }
+        return bits;
+    }
+
     /**
      * 取得棋盤的副本。
      * 回傳副本是為了防止外部直接修改內部的棋盤狀態，保持封裝性。
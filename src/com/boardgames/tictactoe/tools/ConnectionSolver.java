@@ -0,0 +1,80 @@
+package com.boardgames.tictactoe.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.tictactoe.LineGeometry;
+import com.boardgames.tictactoe.ProofNumberSolver;
+import com.boardgames.tictactoe.ProofResult;
+
+import java.util.Locale;
+
+/**
+ * 以 df-pn 證明連線棋局面理論值的無介面工具。
+ *
+ * <pre>
+ * java -cp bin com.boardgames.tictactoe.tools.ConnectionSolver --game 3x3
+ * java -cp bin com.boardgames.tictactoe.tools.ConnectionSolver --game mnk --m 4 --n 4 --k 3
+ * java -cp bin com.boardgames.tictactoe.tools.ConnectionSolver --game qubic --moves 0,21,42 --nodes 50000000 --memory-mb 1024
+ * </pre>
+ *
+ * --moves 是從空盤開始由 X 先、雙方輪流下的格子編號（平面棋盤 row * n + col，立體井字棋 level * 16 + row * 4 + col）；
+ * --nodes 限制展開的節點數，--memory-mb 限制節點表的大小。結果以下完這些步之後輪到的一方角度表示。
+ */
+public class ConnectionSolver {
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        LineGeometry geometry;
+        try {
+            geometry = geometry(options);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            usage();
+            return;
+        }
+
+        long[] stones = new long[2];
+        int ply = 0;
+        String moves = options.get("--moves", "");
+        if (!moves.trim().isEmpty()) {
+            for (String token : moves.split(",")) {
+                int cell = Integer.parseInt(token.trim());
+                long bit = 1L << cell;
+                if (cell < 0 || cell >= geometry.getCells() || ((stones[0] | stones[1]) & bit) != 0) {
+                    System.out.println("不合法的落子: " + cell);
+                    return;
+                }
+                stones[ply & 1] |= bit;
+                ply++;
+            }
+        }
+
+        long memoryMb = options.getLong("--memory-mb", 256);
+        ProofNumberSolver solver = new ProofNumberSolver(geometry, memoryMb << 20);
+        solver.setNodeLimit(options.getLong("--nodes", Long.MAX_VALUE));
+        System.out.printf(Locale.ROOT, "%s，%d 條連線，已下 %d 子，輪到 %s；節點表 %d 項 (%d MB)%n",
+                geometry.getName(), geometry.getLineCount(), ply, ply % 2 == 0 ? "X" : "O",
+                solver.getCapacity(), (long) solver.getCapacity() * ProofNumberSolver.ENTRY_BYTES >> 20);
+
+        ProofResult result = solver.solve(stones[ply & 1], stones[(ply + 1) & 1]);
+        System.out.println(result);
+    }
+
+    private static LineGeometry geometry(Options options) {
+        String game = options.get("--game", "3x3");
+        switch (game) {
+            case "3x3":
+                return LineGeometry.ticTacToe();
+            case "qubic":
+                return LineGeometry.qubic();
+            case "mnk":
+                return LineGeometry.mnk(options.getInt("--m", 3), options.getInt("--n", 3), options.getInt("--k", 3));
+            default:
+                throw new IllegalArgumentException("未知的遊戲: " + game);
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法: ConnectionSolver [--game 3x3|mnk|qubic] [--m M --n N --k K] [--moves c1,c2,...] "
+                + "[--nodes N] [--memory-mb MB]");
+    }
+}
@@ -0,0 +1,193 @@
+package com.boardgames.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.common.SharedRandom;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.reversi.ReversiPosition;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchResult;
+import com.boardgames.reversi.WideReversiSearch;
+import com.boardgames.tictactoe.TicTacToeAIPlayer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * AI 熱路徑的配置量檢查：以 ThreadMXBean 的執行緒配置計數器量測每個搜尋節點配置了多少位元組。
+ * 每次搜尋本身有固定的少量配置（例如回傳的 SearchResult），因此同一批局面分別以淺、深兩種深度搜尋，
+ * 以「配置量差 / 節點數差」作為每節點配置量，固定成本會互相抵消。
+ * 每種深度量測三次取最小值，避免 JIT 重新編譯等一次性的配置造成誤判。
+ * 任何一項超過門檻時以結束碼 1 離開，可以直接放進建置流程當作回歸檢查。
+ *
+ * <pre>
+ * java -cp bin com.boardgames.tools.AllocationCheck --positions 100 --depth 6
+ * </pre>
+ */
+public class AllocationCheck {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // 井字棋量測迴圈的結果寫到這裡，避免迴圈被整段最佳化掉
+    private static volatile int sink;
+
+    private final double tolerance;
+    private boolean failed;
+
+    public AllocationCheck(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        int positions = options.getInt("--positions", 100);
+        int depth = options.getInt("--depth", 6);
+        double tolerance = options.getDouble("--tolerance", 0.0);
+        SharedRandom.setSeed(options.getLong("--seed", 1));
+
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("這個 JVM 不支援執行緒配置量計數，無法檢查");
+            return;
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        AllocationCheck check = new AllocationCheck(tolerance);
+        check.checkReversiSearch(positions, depth);
+        for (int size : new int[]{10, 16}) {
+            check.checkWideSearch(size, positions, Math.max(2, depth - 3));
+        }
+        check.checkTicTacToe(1_000_000);
+        if (check.failed) {
+            System.exit(1);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void report(String name, long bytes, long units, String unit) {
+        double perUnit = units == 0 ? 0 : (double) bytes / units;
+        boolean ok = perUnit <= tolerance;
+        failed |= !ok;
+        System.out.printf(Locale.ROOT, "%-28s %12d %-6s %12d bytes  %8.4f bytes/%s  %s%n",
+                name, units, unit, bytes, perUnit, unit, ok ? "OK" : "FAIL");
+    }
+
+    /**
+     * 8x8 的 ReversiSearch（含置換表、ProbCut 與樣式評估）。
+     */
+    public void checkReversiSearch(int count, int depth) {
+        List<long[]> positions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // 以 {行棋方, 對手} 表示
+            ReversiPosition position = randomPosition(Bitboard.SIZE);
+            char side = position.getSideToMove();
+            positions.add(new long[]{position.getBits(side), position.getBits(side == 'B' ? 'W' : 'B')});
+        }
+        ReversiSearch search = new ReversiSearch(ReversiEvaluator.getDefault(), 18);
+        // 預熱：讓 JIT 編譯完熱路徑，避免把直譯階段的一次性配置算進去
+        for (int round = 0; round < 3; round++) {
+            runReversi(search, positions, depth);
+        }
+        long[] shallow = runReversi(search, positions, 1);
+        long[] deep = runReversi(search, positions, depth);
+        for (int round = 0; round < 2; round++) {
+            shallow = min(shallow, runReversi(search, positions, 1));
+            deep = min(deep, runReversi(search, positions, depth));
+        }
+        report("ReversiSearch depth " + depth, deep[0] - shallow[0], deep[1] - shallow[1], "node");
+    }
+
+    private static long[] runReversi(ReversiSearch search, List<long[]> positions, int depth) {
+        search.getTable().clear();
+        long nodes = 0;
+        long before = allocatedBytes();
+        for (long[] position : positions) {
+            SearchResult result = search.search(position[0], position[1], depth);
+            nodes += result.nodes;
+        }
+        return new long[]{allocatedBytes() - before, nodes};
+    }
+
+    // 同一批局面重複量測時節點數相同，只取配置量較小的一次
+    private static long[] min(long[] a, long[] b) {
+        return b[0] < a[0] ? b : a;
+    }
+
+    /**
+     * 非 8x8 棋盤的 WideReversiSearch。
+     */
+    public void checkWideSearch(int size, int count, int depth) {
+        List<ReversiPosition> positions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            positions.add(randomPosition(size));
+        }
+        WideReversiSearch search = new WideReversiSearch();
+        for (int round = 0; round < 3; round++) {
+            runWide(search, positions, depth);
+        }
+        long[] shallow = runWide(search, positions, 1);
+        long[] deep = runWide(search, positions, depth);
+        for (int round = 0; round < 2; round++) {
+            shallow = min(shallow, runWide(search, positions, 1));
+            deep = min(deep, runWide(search, positions, depth));
+        }
+        report("WideReversiSearch " + size + "x" + size + " d" + depth, deep[0] - shallow[0], deep[1] - shallow[1], "node");
+    }
+
+    private static long[] runWide(WideReversiSearch search, List<ReversiPosition> positions, int depth) {
+        long nodes = 0;
+        long before = allocatedBytes();
+        for (ReversiPosition position : positions) {
+            search.search(position, depth);
+            nodes += search.getNodes();
+        }
+        return new long[]{allocatedBytes() - before, nodes};
+    }
+
+    /**
+     * 井字棋的隨機走法（每次呼叫就是一個節點）。
+     */
+    public void checkTicTacToe(int calls) {
+        int sum = 0;
+        for (int i = 0; i < calls; i++) {
+            sum += TicTacToeAIPlayer.findRandomSquare(i & 0xFF);
+        }
+        long before = allocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            sum += TicTacToeAIPlayer.findRandomSquare(i & 0xFF);
+        }
+        long bytes = allocatedBytes() - before;
+        sink = sum;
+        report("TicTacToe findRandomSquare", bytes, calls, "call");
+    }
+
+    // 從初始局面隨機走 10 到 30 手的進行中局面
+    private static ReversiPosition randomPosition(int size) {
+        while (true) {
+            ReversiGame game = new ReversiGame(size);
+            int plies = 10 + SharedRandom.nextInt(21);
+            for (int i = 0; i < plies && game.getGameState() == ReversiGame.GameState.PLAYING; i++) {
+                List<Integer> moves = new ArrayList<>();
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
+                        if (game.isValidMove(r, c)) {
+                            moves.add(r * size + c);
+                        }
+                    }
+                }
+                int move = moves.get(SharedRandom.nextInt(moves.size()));
+                game.makeMove(move / size, move % size);
+            }
+            game.close();
+            if (game.getGameState() == ReversiGame.GameState.PLAYING) {
+                return game.getPosition();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.boardgames.tools;
+
+import com.boardgames.common.Options;
+import com.boardgames.common.SharedRandom;
+import com.boardgames.reversi.Bitboard;
+import com.boardgames.reversi.ProbCutParameters;
+import com.boardgames.reversi.ReversiEvaluator;
+import com.boardgames.reversi.ReversiGame;
+import com.boardgames.reversi.ReversiPosition;
+import com.boardgames.reversi.ReversiSearch;
+import com.boardgames.reversi.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 固定節點數的黑白棋基準測試：以固定種子透過 ReversiGame 隨機下出一組局面，在單一執行緒上各搜尋到固定深度，
+ * 所有局面的節點數總和就是「簽章」。搜尋行為（走法產生、排序、剪枝、評估、置換表）只要有任何改變，簽章幾乎一定跟著變；
+ * 單純變快則簽章不變，只有每秒節點數不同。因此在共用的建置機器上也能把「行為改變」與「速度改變」分開。
+ *
+ * 為了讓簽章不受本機檔案影響，使用內建的預設權重、不使用 ProbCut 參數檔，每個局面搜尋前清空置換表。
+ * 以預設參數執行時簽章必須等於 SIGNATURE，否則以結束碼 1 離開；刻意改變搜尋行為時，
+ * 請在同一個提交中更新 SIGNATURE，並在提交訊息註明新的簽章。其他參數組合可用 --expect 指定預期的簽章。
+ *
+ * <pre>
+ * java -cp bin com.boardgames.tools.Bench
+ * java -cp bin com.boardgames.tools.Bench --depth 12 --positions 60 --seed 7 --verbose
+ * </pre>
+ */
+public class Bench {
+
+    public static final int DEFAULT_DEPTH = 9;
+    public static final int DEFAULT_POSITIONS = 40;
+    public static final long DEFAULT_SEED = 20240601L;
+    /** 以預設參數執行時的節點數總和 */
+    public static final long SIGNATURE = 9846059L;
+
+    // 局面從開局後第 MIN_PLIES 到 MAX_PLIES 手之間取樣，涵蓋中盤與接近終局（會直接解到終局）的局面
+    private static final int MIN_PLIES = 8;
+    private static final int MAX_PLIES = 52;
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        int depth = options.getInt("--depth", DEFAULT_DEPTH);
+        int count = options.getInt("--positions", DEFAULT_POSITIONS);
+        long seed = options.getLong("--seed", DEFAULT_SEED);
+        boolean defaults = depth == DEFAULT_DEPTH && count == DEFAULT_POSITIONS && seed == DEFAULT_SEED;
+        long expected = options.getLong("--expect", defaults ? SIGNATURE : -1);
+
+        List<ReversiPosition> positions = positions(count, seed);
+        ReversiSearch search = new ReversiSearch(new ReversiEvaluator(ReversiEvaluator.defaultWeights()), 20);
+        search.setProbCutParameters(new ProbCutParameters());
+
+        long nodes = 0;
+        long nanos = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            ReversiPosition position = positions.get(i);
+            char side = position.getSideToMove();
+            search.getTable().clear();
+            SearchResult result = search.search(position.getBits(side), position.getBits(side == 'B' ? 'W' : 'B'), depth);
+            nodes += result.nodes;
+            nanos += result.nanos;
+            if (options.has("--verbose")) {
+                System.out.printf(Locale.ROOT, "%3d  空格 %2d  %s%n", i + 1, position.getEmpties(), result);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "局面 %d，深度 %d，種子 %d%n", positions.size(), depth, seed);
+        System.out.printf(Locale.ROOT, "節點數（簽章）: %d%n", nodes);
+        System.out.printf(Locale.ROOT, "時間 %.0f ms，%,.0f 節點/秒%n", nanos / 1e6, nanos == 0 ? 0.0 : nodes * 1e9 / nanos);
+        if (expected >= 0 && nodes != expected) {
+            System.out.printf(Locale.ROOT, "簽章不符：預期 %d，實際 %d（搜尋行為改變了%s）%n", expected, nodes,
+                    defaults ? "；若是刻意的，請更新 Bench.SIGNATURE" : "");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 以 seed 透過 ReversiGame 隨機下出 count 個進行中的 8x8 局面（已經結束的對局重新下一局）。
+     */
+    static List<ReversiPosition> positions(int count, long seed) {
+        SharedRandom.setSeed(seed);
+        List<ReversiPosition> positions = new ArrayList<>(count);
+        while (positions.size() < count) {
+            ReversiGame game = new ReversiGame(Bitboard.SIZE);
+            int plies = MIN_PLIES + SharedRandom.nextInt(MAX_PLIES - MIN_PLIES + 1);
+            for (int i = 0; i < plies && game.getGameState() == ReversiGame.GameState.PLAYING; i++) {
+                ReversiPosition position = game.getPosition();
+                char side = position.getSideToMove();
+                long moves = Bitboard.legalMoves(position.getBits(side), position.getBits(side == 'B' ? 'W' : 'B'));
+                for (int k = SharedRandom.nextInt(Long.bitCount(moves)); k > 0; k--) {
+                    moves &= moves - 1;
+                }
+                int square = Long.numberOfTrailingZeros(moves);
+                game.makeMove(square / Bitboard.SIZE, square % Bitboard.SIZE);
+            }
+            if (game.getGameState() == ReversiGame.GameState.PLAYING) {
+                positions.add(game.getPosition());
+            }
+            game.close();
+        }
+        return positions;
+    }
+}